@@ -0,0 +1,60 @@
+package com.oyakov.binance_benchmarks;
+
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.results.format.ResultFormatType;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.ChainedOptionsBuilder;
+import org.openjdk.jmh.runner.options.CommandLineOptionException;
+import org.openjdk.jmh.runner.options.CommandLineOptions;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.openjdk.jmh.runner.options.ProfilerConfig;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+
+/**
+ * Entry point of {@code benchmarks.jar}. Accepts the regular JMH command line and adds the defaults every
+ * run should have: the GC profiler ({@code -prof gc}, allocation rate and bytes per op) and a JSON result
+ * file under {@code jmh-results/} named after the start time, unless {@code -rff} is given.
+ * <pre>
+ *   java -jar binance-benchmarks/target/benchmarks.jar                 # all suites
+ *   java -jar binance-benchmarks/target/benchmarks.jar MACDSignal      # suites matching a regexp
+ *   java -jar binance-benchmarks/target/benchmarks.jar -rff base.json  # explicit result file
+ * </pre>
+ * The JSON files are in the standard JMH format and can be compared with any JMH result viewer.
+ */
+public final class BenchmarkRunner {
+
+    private static final DateTimeFormatter RESULT_FILE_TIMESTAMP = DateTimeFormatter.ofPattern("yyyyMMdd-HHmmss");
+
+    private BenchmarkRunner() {
+    }
+
+    public static void main(String[] args) throws RunnerException, CommandLineOptionException {
+        CommandLineOptions commandLine = new CommandLineOptions(args);
+        ChainedOptionsBuilder options = new OptionsBuilder()
+                .parent(commandLine)
+                .resultFormat(ResultFormatType.JSON);
+
+        if (commandLine.getProfilers().stream().map(ProfilerConfig::getKlass)
+                .noneMatch(profiler -> profiler.equals("gc") || profiler.equals(GCProfiler.class.getName()))) {
+            options.addProfiler(GCProfiler.class);
+        }
+        if (!commandLine.getResult().hasValue()) {
+            Path resultFile = Path.of("jmh-results",
+                    "jmh-" + LocalDateTime.now().format(RESULT_FILE_TIMESTAMP) + ".json");
+            try {
+                Files.createDirectories(resultFile.getParent());
+            } catch (IOException e) {
+                throw new RunnerException("Cannot create result directory " + resultFile.getParent(), e);
+            }
+            options.result(resultFile.toString());
+        }
+
+        new Runner(options.build()).run();
+    }
+}
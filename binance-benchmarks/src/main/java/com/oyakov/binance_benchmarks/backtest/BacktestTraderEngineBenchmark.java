@@ -0,0 +1,60 @@
+package com.oyakov.binance_benchmarks.backtest;
+
+import com.oyakov.binance_benchmarks.support.KlineFixtures;
+import com.oyakov.binance_shared_model.avro.KlineEvent;
+import com.oyakov.binance_trader_macd.backtest.BacktestOrderService;
+import com.oyakov.binance_trader_macd.backtest.BacktestTraderEngine;
+import com.oyakov.binance_trader_macd.config.MACDTraderConfig;
+import com.oyakov.binance_trader_macd.domain.signal.MACDSignalAnalyzer;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * {@link BacktestTraderEngine#onNewKline} replaying one year of 1m klines (525600 events). Each invocation
+ * feeds the next kline of the year; the engine starts over from a fresh order book when the year is exhausted
+ * and at every iteration, so the measured mix of warm-up, signal and SL/TP work matches a real backtest.
+ */
+@BenchmarkMode({Mode.Throughput, Mode.AverageTime})
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(value = 1, jvmArgsAppend = "-Xmx2g")
+@State(Scope.Benchmark)
+public class BacktestTraderEngineBenchmark {
+
+    private final MACDTraderConfig.Trader traderConfig = new MACDTraderConfig.Trader();
+    private List<KlineEvent> year;
+    private BacktestTraderEngine engine;
+    private int cursor;
+
+    @Setup(Level.Trial)
+    public void loadDataset() {
+        year = KlineFixtures.randomWalk(KlineFixtures.ONE_YEAR_OF_MINUTES);
+    }
+
+    @Setup(Level.Iteration)
+    public void resetEngine() {
+        engine = new BacktestTraderEngine(new MACDSignalAnalyzer(), new BacktestOrderService(), traderConfig);
+        cursor = 0;
+    }
+
+    @Benchmark
+    public void onNewKline() {
+        if (cursor == year.size()) {
+            resetEngine();
+        }
+        engine.onNewKline(year.get(cursor++));
+    }
+}
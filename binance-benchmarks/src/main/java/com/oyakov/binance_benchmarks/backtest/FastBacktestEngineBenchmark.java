@@ -0,0 +1,52 @@
+package com.oyakov.binance_benchmarks.backtest;
+
+import com.oyakov.binance_benchmarks.support.KlineFixtures;
+import com.oyakov.binance_shared_model.avro.KlineEvent;
+import com.oyakov.binance_trader_macd.backtest.FastBacktestEngine;
+import com.oyakov.binance_trader_macd.backtest.SimulatedTrade;
+import com.oyakov.binance_trader_macd.config.MACDTraderConfig;
+import com.oyakov.binance_trader_macd.domain.signal.MACDKernel;
+import com.oyakov.binance_trader_macd.domain.signal.MACDSignalAnalyzer;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * {@link FastBacktestEngine#run} over two years of 1m klines (1051200 events), the whole backtest per
+ * invocation. Compare with {@link BacktestTraderEngineBenchmark}, whose per-kline time multiplied by the kline
+ * count is what the event-driven engine takes for the same dataset.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(value = 1, jvmArgsAppend = "-Xmx4g")
+@State(Scope.Benchmark)
+public class FastBacktestEngineBenchmark {
+
+    private List<KlineEvent> twoYears;
+    private FastBacktestEngine engine;
+
+    @Setup(Level.Trial)
+    public void loadDataset() {
+        twoYears = KlineFixtures.randomWalk(2 * KlineFixtures.ONE_YEAR_OF_MINUTES);
+        engine = new FastBacktestEngine(new MACDSignalAnalyzer(MACDKernel.Precision.DOUBLE),
+                new MACDTraderConfig.Trader());
+    }
+
+    @Benchmark
+    public List<SimulatedTrade> run() {
+        return engine.run(twoYears);
+    }
+}
@@ -0,0 +1,67 @@
+package com.oyakov.binance_benchmarks.indicator;
+
+import com.oyakov.binance_benchmarks.support.KlineFixtures;
+import com.oyakov.binance_shared_model.avro.KlineEvent;
+import com.oyakov.binance_trader_macd.domain.MACDIndicator;
+import com.oyakov.binance_trader_macd.domain.MACDParameters;
+import com.oyakov.binance_trader_macd.service.KlineDataAccessService;
+import com.oyakov.binance_trader_macd.service.MACDCalculationService;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * {@link MACDCalculationService#getHistoricalMACD} with the storage lookup replaced by an in-memory series,
+ * so only the indicator computation and {@link MACDIndicator} assembly are measured.
+ */
+@BenchmarkMode({Mode.Throughput, Mode.AverageTime})
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class MACDCalculationServiceBenchmark {
+
+    @Param({"100", "1000"})
+    public int limit;
+
+    private final MACDParameters parameters = new MACDParameters(12, 26, 9);
+    private MACDCalculationService service;
+
+    @Setup
+    public void setUp() {
+        List<KlineEvent> klines = KlineFixtures.randomWalk(limit);
+        service = new MACDCalculationService(new InMemoryKlineDataAccessService(klines));
+    }
+
+    @Benchmark
+    public List<MACDIndicator> getHistoricalMACD() {
+        return service.getHistoricalMACD(KlineFixtures.SYMBOL, KlineFixtures.INTERVAL, limit, parameters);
+    }
+
+    private static final class InMemoryKlineDataAccessService extends KlineDataAccessService {
+
+        private final List<KlineEvent> klines;
+
+        private InMemoryKlineDataAccessService(List<KlineEvent> klines) {
+            super(null, null, null);
+            this.klines = klines;
+        }
+
+        @Override
+        public List<KlineEvent> getRecentKlines(String symbol, String interval, int limit) {
+            return klines.subList(Math.max(0, klines.size() - limit), klines.size());
+        }
+    }
+}
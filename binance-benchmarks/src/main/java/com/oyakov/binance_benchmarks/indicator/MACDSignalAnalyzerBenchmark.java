@@ -0,0 +1,55 @@
+package com.oyakov.binance_benchmarks.indicator;
+
+import com.oyakov.binance_benchmarks.support.KlineFixtures;
+import com.oyakov.binance_shared_model.avro.KlineEvent;
+import com.oyakov.binance_trader_macd.domain.TradeSignal;
+import com.oyakov.binance_trader_macd.domain.signal.MACDKernel;
+import com.oyakov.binance_trader_macd.domain.signal.MACDSignalAnalyzer;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * {@link MACDSignalAnalyzer#tryExtractSignal} over a full window, as the trader and the backtest call it
+ * on every closed kline. 78 is the default trader sliding window; 35 is the analyzer minimum.
+ */
+@BenchmarkMode({Mode.Throughput, Mode.AverageTime})
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class MACDSignalAnalyzerBenchmark {
+
+    @Param({"35", "78", "500", "5000"})
+    public int windowSize;
+
+    @Param({"DOUBLE", "EXACT_DECIMAL"})
+    public MACDKernel.Precision precision;
+
+    private MACDSignalAnalyzer analyzer;
+    private List<KlineEvent> window;
+
+    @Setup
+    public void setUp() {
+        analyzer = new MACDSignalAnalyzer(precision);
+        window = KlineFixtures.randomWalk(windowSize);
+    }
+
+    @Benchmark
+    public Optional<TradeSignal> tryExtractSignal() {
+        return analyzer.tryExtractSignal(window);
+    }
+}
@@ -0,0 +1,143 @@
+package com.oyakov.binance_benchmarks.ingest;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.oyakov.binance_benchmarks.support.KlineFixtures;
+import com.oyakov.binance_data_collection.config.BinanceDataCollectionConfig;
+import com.oyakov.binance_data_collection.domain.converter.BinanceKlineFrameParser;
+import com.oyakov.binance_data_collection.domain.kline.KlineStream;
+import com.oyakov.binance_data_collection.domain.kline.KlineStreamCache;
+import com.oyakov.binance_data_collection.kafka.producer.KafkaProducerService;
+import com.oyakov.binance_data_collection.metrics.DataCollectionMetrics;
+import com.oyakov.binance_data_collection.model.binance.BinanceWebsocketEventData;
+import com.oyakov.binance_data_collection.websocket.handler.BinanceTextMessageHandler;
+import com.oyakov.binance_shared_model.avro.KlineEvent;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.apache.kafka.clients.producer.ProducerRecord;
+import org.apache.kafka.clients.producer.RecordMetadata;
+import org.apache.kafka.common.TopicPartition;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.kafka.core.DefaultKafkaProducerFactory;
+import org.springframework.kafka.core.KafkaTemplate;
+import org.springframework.kafka.support.SendResult;
+import org.springframework.web.socket.TextMessage;
+import org.springframework.web.socket.WebSocketSession;
+
+import java.io.IOException;
+import java.lang.reflect.Proxy;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * WebSocket kline payload handling in {@link BinanceTextMessageHandler}: the JSON decode on its own (databind
+ * into the legacy POJO versus the streaming {@link BinanceKlineFrameParser}), and the whole message path
+ * (session lookup, decode, metrics, Kafka send) with Kafka replaced by an immediately completed send.
+ * {@code handleMessage} alternates between two klines, so every message takes the "new kline" branch that
+ * publishes an event; {@code handleRepeatedUpdate} replays one kline, the common intra-candle case.
+ */
+@BenchmarkMode({Mode.Throughput, Mode.AverageTime})
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class BinanceTextMessageHandlerBenchmark {
+
+    private static final String SESSION_ID = "benchmark-session";
+    private static final String TOPIC = "binance-kline";
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private final BinanceKlineFrameParser frameParser = new BinanceKlineFrameParser();
+    private BinanceTextMessageHandler handler;
+    private WebSocketSession session;
+    private String[] payloads;
+    private TextMessage[] messages;
+    private int next;
+
+    @Setup
+    public void setUp() {
+        List<KlineEvent> klines = KlineFixtures.randomWalk(2);
+        payloads = klines.stream().map(KlineFixtures::websocketKlinePayload).toArray(String[]::new);
+        messages = new TextMessage[payloads.length];
+        for (int i = 0; i < payloads.length; i++) {
+            messages[i] = new TextMessage(payloads[i]);
+        }
+
+        DataCollectionMetrics metrics = new DataCollectionMetrics(new SimpleMeterRegistry());
+        metrics.init();
+        BinanceDataCollectionConfig config = new BinanceDataCollectionConfig();
+        config.getData().getKline().setKafkaTopic(TOPIC);
+        KafkaProducerService producer = new KafkaProducerService(config, new CompletedKafkaTemplate(), metrics);
+
+        session = (WebSocketSession) Proxy.newProxyInstance(
+                WebSocketSession.class.getClassLoader(),
+                new Class<?>[]{WebSocketSession.class},
+                (proxy, method, args) -> switch (method.getName()) {
+                    case "getId" -> SESSION_ID;
+                    case "isOpen" -> true;
+                    case "hashCode" -> System.identityHashCode(proxy);
+                    case "equals" -> proxy == args[0];
+                    case "toString" -> SESSION_ID;
+                    default -> null;
+                });
+        KlineStreamCache cache = new KlineStreamCache();
+        cache.putStreamSource(new KlineStream(
+                new KlineStream.Key(KlineFixtures.SYMBOL, KlineFixtures.INTERVAL), 0, 0, session));
+
+        handler = new BinanceTextMessageHandler(producer, cache, frameParser, metrics, config);
+    }
+
+    @Benchmark
+    public BinanceWebsocketEventData parsePayload() throws JsonProcessingException {
+        return objectMapper.readValue(payloads[next++ & 1], BinanceWebsocketEventData.class);
+    }
+
+    @Benchmark
+    public BinanceKlineFrameParser.Header readFrameHeader() throws IOException {
+        return frameParser.readHeader(payloads[next++ & 1]);
+    }
+
+    @Benchmark
+    public KlineEvent readKlineEvent() throws IOException {
+        return frameParser.readKlineEvent(payloads[next++ & 1]);
+    }
+
+    @Benchmark
+    public void handleMessage() throws Exception {
+        handler.handleMessage(session, messages[next++ & 1]);
+    }
+
+    @Benchmark
+    public void handleRepeatedUpdate() throws Exception {
+        handler.handleMessage(session, messages[0]);
+    }
+
+    /**
+     * Acknowledges every record without a broker.
+     */
+    private static final class CompletedKafkaTemplate extends KafkaTemplate<String, KlineEvent> {
+
+        private static final RecordMetadata METADATA =
+                new RecordMetadata(new TopicPartition(TOPIC, 0), 0L, 0, 0L, 0, 0);
+
+        private CompletedKafkaTemplate() {
+            super(new DefaultKafkaProducerFactory<>(Map.of()));
+        }
+
+        @Override
+        public CompletableFuture<SendResult<String, KlineEvent>> send(ProducerRecord<String, KlineEvent> record) {
+            return CompletableFuture.completedFuture(new SendResult<>(record, METADATA));
+        }
+    }
+}
@@ -0,0 +1,51 @@
+package com.oyakov.binance_benchmarks.ingest;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.oyakov.binance_benchmarks.support.KlineFixtures;
+import com.oyakov.binance_data_collection.domain.converter.JsonToKlineEventMapper;
+import com.oyakov.binance_shared_model.avro.KlineEvent;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * {@link JsonToKlineEventMapper#mapJsonToKlineEvents} on Binance REST kline responses; 1000 rows is the
+ * maximum page size of {@code /api/v3/klines}.
+ */
+@BenchmarkMode({Mode.Throughput, Mode.AverageTime})
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class JsonToKlineEventMapperBenchmark {
+
+    @Param({"100", "1000"})
+    public int rows;
+
+    private JsonToKlineEventMapper mapper;
+    private String json;
+
+    @Setup
+    public void setUp() {
+        mapper = new JsonToKlineEventMapper(new ObjectMapper());
+        json = KlineFixtures.restKlinesJson(KlineFixtures.randomWalk(rows));
+    }
+
+    @Benchmark
+    public List<KlineEvent> mapJsonToKlineEvents() throws JsonProcessingException {
+        return mapper.mapJsonToKlineEvents(json, KlineFixtures.SYMBOL, KlineFixtures.INTERVAL);
+    }
+}
@@ -0,0 +1,80 @@
+package com.oyakov.binance_benchmarks.metrics;
+
+import com.oyakov.binance_benchmarks.support.KlineFixtures;
+import com.oyakov.binance_data_collection.metrics.DataCollectionMetrics;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Recording one received kline on the per-symbol/interval metrics of {@link DataCollectionMetrics}.
+ * {@code keyedLookup} is the former path, a tag key string built and looked up on every call; {@code taggedCall}
+ * is the by-name method that now finds pre-registered meters; {@code streamMeters} increments through the
+ * handle a stream holds. {@code gc.alloc.rate.norm} is the bytes allocated per recorded kline.
+ */
+@BenchmarkMode({Mode.Throughput, Mode.AverageTime})
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class DataCollectionMetricsBenchmark {
+
+    private static final String RECEIVED = "binance_data_collection_kline_events_received_total";
+
+    private final MeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private final Map<String, Counter> keyedCounters = new ConcurrentHashMap<>();
+    private DataCollectionMetrics metrics;
+    private DataCollectionMetrics.StreamMeters streamMeters;
+    // Not constants, so the symbol and interval reach the metrics like those of a parsed event
+    private String symbol;
+    private String interval;
+
+    @Setup
+    public void setUp() {
+        metrics = new DataCollectionMetrics(meterRegistry);
+        metrics.init();
+        symbol = new String(KlineFixtures.SYMBOL);
+        interval = new String(KlineFixtures.INTERVAL);
+        streamMeters = metrics.streamMeters(symbol, interval);
+    }
+
+    @Benchmark
+    public void keyedLookup() {
+        String symbolTag = sanitize(symbol);
+        String intervalTag = sanitize(interval);
+        String key = RECEIVED + '|' + "symbol" + '|' + symbolTag + '|' + "interval" + '|' + intervalTag;
+        keyedCounters.computeIfAbsent(key, k -> Counter.builder(RECEIVED)
+                        .tags("symbol", symbolTag, "interval", intervalTag)
+                        .register(meterRegistry))
+                .increment();
+    }
+
+    @Benchmark
+    public void taggedCall() {
+        metrics.incrementKlineEventsReceived(symbol, interval);
+    }
+
+    @Benchmark
+    public void streamMeters() {
+        streamMeters.incrementKlineEventsReceived();
+    }
+
+    private static String sanitize(String value) {
+        return value == null || value.isBlank() ? "unknown" : value;
+    }
+}
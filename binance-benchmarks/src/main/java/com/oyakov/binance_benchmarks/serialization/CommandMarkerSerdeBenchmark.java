@@ -0,0 +1,71 @@
+package com.oyakov.binance_benchmarks.serialization;
+
+import com.oyakov.binance_benchmarks.support.KlineFixtures;
+import com.oyakov.binance_shared_model.avro.KlineEvent;
+import com.oyakov.binance_shared_model.kafka.deserializer.CommandMarkerDeserializer;
+import com.oyakov.binance_shared_model.kafka.serializer.CommandMarkerSerializer;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Avro {@link KlineEvent} serialization through the Kafka {@link CommandMarkerSerializer} and
+ * {@link CommandMarkerDeserializer}.
+ */
+@BenchmarkMode({Mode.Throughput, Mode.AverageTime})
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class CommandMarkerSerdeBenchmark {
+
+    private static final String TOPIC = "binance-kline";
+
+    private CommandMarkerSerializer serializer;
+    private CommandMarkerDeserializer deserializer;
+    private KlineEvent event;
+    private byte[] payload;
+
+    @Setup
+    public void setUp() {
+        serializer = new CommandMarkerSerializer();
+        serializer.configure(Map.of(), false);
+        deserializer = new CommandMarkerDeserializer();
+        deserializer.configure(Map.of(), false);
+        event = KlineFixtures.randomWalk(1).get(0);
+        payload = serializer.serialize(TOPIC, event);
+    }
+
+    @TearDown
+    public void tearDown() {
+        serializer.close();
+        deserializer.close();
+    }
+
+    @Benchmark
+    public byte[] serialize() {
+        return serializer.serialize(TOPIC, event);
+    }
+
+    @Benchmark
+    public KlineEvent deserialize() {
+        return deserializer.deserialize(TOPIC, payload);
+    }
+
+    @Benchmark
+    public KlineEvent roundTrip() {
+        return deserializer.deserialize(TOPIC, serializer.serialize(TOPIC, event));
+    }
+}
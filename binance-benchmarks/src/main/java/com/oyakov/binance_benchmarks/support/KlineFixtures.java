@@ -0,0 +1,97 @@
+package com.oyakov.binance_benchmarks.support;
+
+import com.oyakov.binance_shared_model.avro.KlineEvent;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Deterministic synthetic market data shared by the benchmark suites, so that runs are comparable.
+ */
+public final class KlineFixtures {
+
+    public static final String SYMBOL = "BTCUSDT";
+    public static final String INTERVAL = "1m";
+    public static final long ONE_MINUTE_MS = 60_000L;
+    public static final int ONE_YEAR_OF_MINUTES = 365 * 24 * 60;
+
+    private static final long START_TIME = 1_672_531_200_000L; // 2023-01-01T00:00:00Z
+    private static final long SEED = 20230101L;
+
+    private KlineFixtures() {
+    }
+
+    /**
+     * Geometric random walk around 60000 with 1m klines starting at 2023-01-01.
+     */
+    public static List<KlineEvent> randomWalk(int count) {
+        Random random = new Random(SEED);
+        List<KlineEvent> klines = new ArrayList<>(count);
+        double price = 60_000;
+        for (int i = 0; i < count; i++) {
+            double open = price;
+            price *= 1 + random.nextGaussian() * 0.0015;
+            double high = Math.max(open, price) * (1 + random.nextDouble() * 0.0005);
+            double low = Math.min(open, price) * (1 - random.nextDouble() * 0.0005);
+            long openTime = START_TIME + i * ONE_MINUTE_MS;
+            klines.add(new KlineEvent(
+                    "kline",
+                    openTime + ONE_MINUTE_MS,
+                    SYMBOL,
+                    INTERVAL,
+                    openTime,
+                    openTime + ONE_MINUTE_MS - 1,
+                    decimal(open),
+                    decimal(high),
+                    decimal(low),
+                    decimal(price),
+                    decimal(random.nextDouble() * 50)));
+        }
+        return klines;
+    }
+
+    /**
+     * Binance REST {@code /api/v3/klines} response body for the given klines.
+     */
+    public static String restKlinesJson(List<KlineEvent> klines) {
+        StringBuilder json = new StringBuilder(klines.size() * 160).append('[');
+        for (int i = 0; i < klines.size(); i++) {
+            KlineEvent kline = klines.get(i);
+            if (i > 0) {
+                json.append(',');
+            }
+            json.append('[')
+                    .append(kline.getOpenTime()).append(",\"")
+                    .append(kline.getOpen().toPlainString()).append("\",\"")
+                    .append(kline.getHigh().toPlainString()).append("\",\"")
+                    .append(kline.getLow().toPlainString()).append("\",\"")
+                    .append(kline.getClose().toPlainString()).append("\",\"")
+                    .append(kline.getVolume().toPlainString()).append("\",")
+                    .append(kline.getCloseTime())
+                    .append(",\"0\",100,\"0\",\"0\",\"0\"]");
+        }
+        return json.append(']').toString();
+    }
+
+    /**
+     * Binance WebSocket {@code <symbol>@kline_<interval>} event payload for the given kline.
+     */
+    public static String websocketKlinePayload(KlineEvent kline) {
+        return """
+                {"e":"kline","E":%d,"s":"%s","k":{"t":%d,"T":%d,"s":"%s","i":"%s","f":100,"L":200,\
+                "o":"%s","c":"%s","h":"%s","l":"%s","v":"%s","n":100,"x":false,"q":"1.0000",\
+                "V":"500","Q":"0.500","B":"123456"}}"""
+                .formatted(kline.getEventTime(), kline.getSymbol(), kline.getOpenTime(), kline.getCloseTime(),
+                        kline.getSymbol(), kline.getInterval(),
+                        kline.getOpen().toPlainString(), kline.getClose().toPlainString(),
+                        kline.getHigh().toPlainString(), kline.getLow().toPlainString(),
+                        kline.getVolume().toPlainString());
+    }
+
+    private static BigDecimal decimal(double value) {
+        return BigDecimal.valueOf(value).setScale(2, RoundingMode.HALF_UP);
+    }
+}
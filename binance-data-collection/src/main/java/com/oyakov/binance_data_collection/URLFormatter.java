@@ -6,6 +6,8 @@ import lombok.RequiredArgsConstructor;
 import org.springframework.stereotype.Component;
 
 import java.net.URI;
+import java.util.Collection;
+import java.util.stream.Collectors;
 
 @Component
 @RequiredArgsConstructor
@@ -22,4 +24,31 @@ public class URLFormatter {
                 klineStream.fingerprint().symbol(),
                 klineStream.fingerprint().interval()));
     }
+
+    /**
+     * Combined-stream URL carrying all given streams, e.g. {@code .../stream?streams=btcusdt@kline_1m/ethusdt@kline_1m}.
+     */
+    public URI formatCombinedStreamURL(Collection<KlineStream.Key> keys) {
+        if (keys.isEmpty()) {
+            throw new IllegalArgumentException("Combined stream URL needs at least one stream.");
+        }
+        return URI.create(combinedStreamBaseUrl() + "?streams=" + keys.stream()
+                .map(KlineStream.Key::streamName)
+                .collect(Collectors.joining("/")));
+    }
+
+    private String combinedStreamBaseUrl() {
+        String combinedUrl = config.getWebsocket().getCombinedStreamUrl();
+        if (combinedUrl != null && !combinedUrl.isBlank()) {
+            return combinedUrl;
+        }
+        String baseUrl = config.getWebsocket().getBaseUrl();
+        if (baseUrl.endsWith("/")) {
+            baseUrl = baseUrl.substring(0, baseUrl.length() - 1);
+        }
+        if (baseUrl.endsWith("/ws")) {
+            baseUrl = baseUrl.substring(0, baseUrl.length() - "/ws".length());
+        }
+        return baseUrl + "/stream";
+    }
 }
@@ -1,10 +1,15 @@
 package com.oyakov.binance_data_collection.config;
 
+import lombok.AllArgsConstructor;
 import lombok.Data;
+import lombok.NoArgsConstructor;
+import org.apache.kafka.clients.producer.ProducerConfig;
 import org.springframework.boot.context.properties.ConfigurationProperties;
 import org.springframework.context.annotation.Configuration;
 
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 
 @Data
 @Configuration
@@ -14,12 +19,21 @@ public class BinanceDataCollectionConfig {
     private Rest rest = new Rest();
     private Websocket websocket = new Websocket();
     private Data data = new Data();
+    private Kafka kafka = new Kafka();
 
     @lombok.Data
     public static class Rest {
         private String baseUrl;
         private String apiToken;
         private String secretApiToken;
+        /**
+         * Request weight this service may use per minute; Binance spot allows 6000 per IP.
+         */
+        private Integer weightLimitPerMinute = 5000;
+        /**
+         * Warmup and gap-fill fetches running at the same time while streams are (re)configured.
+         */
+        private Integer warmupParallelism = 8;
     }
 
     @lombok.Data
@@ -27,6 +41,57 @@ public class BinanceDataCollectionConfig {
         private String baseUrl;
         private String klineUrlTemplate;
         private Boolean autoConnect = true;
+        /**
+         * Multiplex kline streams over Binance combined-stream connections instead of one socket per stream.
+         */
+        private Boolean combinedStreams = true;
+        /**
+         * Combined-stream endpoint; derived from {@code baseUrl} ({@code .../ws} becomes {@code .../stream}) when empty.
+         */
+        private String combinedStreamUrl;
+        /**
+         * Streams packed into one combined connection; Binance allows up to 1024.
+         */
+        private Integer maxStreamsPerConnection = 200;
+        /**
+         * Publish a kline only from its final update ({@code x=true}) instead of from the first update of each candle.
+         */
+        private Boolean closedKlinesOnly = false;
+    }
+
+    @lombok.Data
+    public static class Kafka {
+        /**
+         * Producer overrides for live klines; unset values keep the {@code spring.kafka.producer} settings.
+         */
+        private ProducerProfile realtime = new ProducerProfile();
+        /**
+         * Producer overrides for warmup and backfill batches, trading latency for larger compressed batches.
+         */
+        private ProducerProfile bulk = new ProducerProfile(50, 256 * 1024, "lz4");
+    }
+
+    @lombok.Data
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class ProducerProfile {
+        private Integer lingerMs;
+        private Integer batchSize;
+        private String compressionType;
+
+        public Map<String, Object> toProducerOverrides() {
+            Map<String, Object> overrides = new HashMap<>();
+            if (lingerMs != null) {
+                overrides.put(ProducerConfig.LINGER_MS_CONFIG, lingerMs);
+            }
+            if (batchSize != null) {
+                overrides.put(ProducerConfig.BATCH_SIZE_CONFIG, batchSize);
+            }
+            if (compressionType != null && !compressionType.isBlank()) {
+                overrides.put(ProducerConfig.COMPRESSION_TYPE_CONFIG, compressionType);
+            }
+            return overrides;
+        }
     }
 
     @lombok.Data
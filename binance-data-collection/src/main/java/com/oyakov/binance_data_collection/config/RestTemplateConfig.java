@@ -2,13 +2,24 @@ package com.oyakov.binance_data_collection.config;
 
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.http.client.JdkClientHttpRequestFactory;
 import org.springframework.web.client.RestTemplate;
 
+import java.net.http.HttpClient;
+import java.time.Duration;
+
 @Configuration
 public class RestTemplateConfig {
 
+    /**
+     * Backed by one JDK HTTP client, so parallel warmup and sampler requests share its pool of kept-alive
+     * connections instead of HttpURLConnection's five per host.
+     */
     @Bean
     public RestTemplate restTemplate() {
-        return new RestTemplate();
+        HttpClient httpClient = HttpClient.newBuilder()
+                .connectTimeout(Duration.ofSeconds(10))
+                .build();
+        return new RestTemplate(new JdkClientHttpRequestFactory(httpClient));
     }
 }
@@ -0,0 +1,189 @@
+package com.oyakov.binance_data_collection.domain.converter;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.oyakov.binance_shared_model.avro.KlineEvent;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+
+/**
+ * Streaming parser for Binance kline WebSocket frames, both raw events and combined-stream envelopes
+ * ({@code {"stream":...,"data":{...}}}). {@link #readHeader} only extracts the routing and de-duplication
+ * fields ({@code stream}, {@code k.t}, {@code k.T}, {@code k.x}) and skips every other value without decoding
+ * it, so intra-candle updates that are dropped never allocate prices. {@link #readKlineEvent} decodes a frame
+ * straight into the Avro {@link KlineEvent} builder.
+ */
+@Component
+public class BinanceKlineFrameParser {
+
+    private static final JsonFactory JSON_FACTORY = new JsonFactory();
+
+    public enum FrameType {
+        KLINE,
+        RESPONSE,
+        OTHER
+    }
+
+    public record Header(FrameType type, String streamName, long openTime, long closeTime, boolean closed) {
+
+        private static final Header RESPONSE = new Header(FrameType.RESPONSE, null, 0, 0, false);
+        private static final Header OTHER = new Header(FrameType.OTHER, null, 0, 0, false);
+
+        private Header withStreamName(String name) {
+            return new Header(type, name, openTime, closeTime, closed);
+        }
+    }
+
+    /**
+     * Reads the frame type, the combined-stream name (null for raw events) and the kline open/close time and
+     * final flag. Subscription responses ({@code id} field) are reported as {@link FrameType#RESPONSE}.
+     */
+    public Header readHeader(String payload) throws IOException {
+        try (JsonParser parser = JSON_FACTORY.createParser(payload)) {
+            if (parser.nextToken() != JsonToken.START_OBJECT) {
+                return Header.OTHER;
+            }
+            String streamName = null;
+            Header event = null;
+            boolean response = false;
+            while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                String field = parser.currentName();
+                JsonToken value = parser.nextToken();
+                switch (field) {
+                    case "stream" -> streamName = parser.getValueAsString();
+                    case "data" -> event = value == JsonToken.START_OBJECT ? readEventHeader(parser) : skip(parser);
+                    case "k" -> {
+                        return value == JsonToken.START_OBJECT ? readKlineHeader(parser) : Header.OTHER;
+                    }
+                    case "id" -> response = true;
+                    default -> parser.skipChildren();
+                }
+                if (event != null && streamName != null) {
+                    return event.withStreamName(streamName);
+                }
+            }
+            if (event != null) {
+                return event;
+            }
+            return response ? Header.RESPONSE : Header.OTHER;
+        }
+    }
+
+    /**
+     * Decodes the kline event of a raw or combined-stream frame.
+     */
+    public KlineEvent readKlineEvent(String payload) throws IOException {
+        try (JsonParser parser = JSON_FACTORY.createParser(payload)) {
+            if (parser.nextToken() != JsonToken.START_OBJECT) {
+                throw new IOException("Kline frame is not a JSON object");
+            }
+            KlineEvent.Builder builder = KlineEvent.newBuilder();
+            while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                String field = parser.currentName();
+                parser.nextToken();
+                if (field.equals("data") && parser.currentToken() == JsonToken.START_OBJECT) {
+                    return readEvent(parser, builder);
+                }
+                if (!readEventField(parser, field, builder)) {
+                    parser.skipChildren();
+                }
+            }
+            return builder.build();
+        }
+    }
+
+    private Header readEventHeader(JsonParser parser) throws IOException {
+        Header header = Header.OTHER;
+        while (parser.nextToken() == JsonToken.FIELD_NAME) {
+            String field = parser.currentName();
+            if (parser.nextToken() == JsonToken.START_OBJECT && field.equals("k")) {
+                header = readKlineHeader(parser);
+            } else {
+                parser.skipChildren();
+            }
+        }
+        return header;
+    }
+
+    private Header readKlineHeader(JsonParser parser) throws IOException {
+        long openTime = 0;
+        long closeTime = 0;
+        boolean closed = false;
+        while (parser.nextToken() == JsonToken.FIELD_NAME) {
+            String field = parser.currentName();
+            parser.nextToken();
+            switch (field) {
+                case "t" -> openTime = parser.getValueAsLong();
+                case "T" -> closeTime = parser.getValueAsLong();
+                case "x" -> closed = parser.getValueAsBoolean();
+                default -> parser.skipChildren();
+            }
+        }
+        return new Header(FrameType.KLINE, null, openTime, closeTime, closed);
+    }
+
+    private KlineEvent readEvent(JsonParser parser, KlineEvent.Builder builder) throws IOException {
+        while (parser.nextToken() == JsonToken.FIELD_NAME) {
+            String field = parser.currentName();
+            parser.nextToken();
+            if (!readEventField(parser, field, builder)) {
+                parser.skipChildren();
+            }
+        }
+        return builder.build();
+    }
+
+    private boolean readEventField(JsonParser parser, String field, KlineEvent.Builder builder) throws IOException {
+        switch (field) {
+            case "e" -> builder.setEventType(parser.getText());
+            case "E" -> builder.setEventTime(parser.getValueAsLong());
+            case "s" -> builder.setSymbol(parser.getText());
+            case "k" -> {
+                if (parser.currentToken() != JsonToken.START_OBJECT) {
+                    return false;
+                }
+                readKline(parser, builder);
+            }
+            default -> {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private void readKline(JsonParser parser, KlineEvent.Builder builder) throws IOException {
+        while (parser.nextToken() == JsonToken.FIELD_NAME) {
+            String field = parser.currentName();
+            parser.nextToken();
+            switch (field) {
+                case "i" -> builder.setInterval(parser.getText());
+                case "t" -> builder.setOpenTime(parser.getValueAsLong());
+                case "T" -> builder.setCloseTime(parser.getValueAsLong());
+                case "o" -> builder.setOpen(decimal(parser));
+                case "h" -> builder.setHigh(decimal(parser));
+                case "l" -> builder.setLow(decimal(parser));
+                case "c" -> builder.setClose(decimal(parser));
+                case "v" -> builder.setVolume(decimal(parser));
+                default -> parser.skipChildren();
+            }
+        }
+    }
+
+    private static Header skip(JsonParser parser) throws IOException {
+        parser.skipChildren();
+        return null;
+    }
+
+    /**
+     * Binance sends prices as JSON strings; they are parsed from the parser's buffer without an intermediate String.
+     */
+    private static BigDecimal decimal(JsonParser parser) throws IOException {
+        if (parser.currentToken() != JsonToken.VALUE_STRING) {
+            return parser.getDecimalValue();
+        }
+        return new BigDecimal(parser.getTextCharacters(), parser.getTextOffset(), parser.getTextLength());
+    }
+}
@@ -2,21 +2,36 @@ package com.oyakov.binance_data_collection.domain.kline;
 
 
 
+import com.oyakov.binance_data_collection.metrics.DataCollectionMetrics;
 import org.springframework.web.socket.WebSocketSession;
 
+import java.util.Locale;
 import java.util.Objects;
 
+/**
+ * An active kline stream. {@code meters} are the stream's pre-registered metrics, attached when the stream is
+ * connected; a stream without them is recorded through the tag-resolving {@link DataCollectionMetrics} methods.
+ */
 public record KlineStream(Key fingerprint,
                           long lastOpenTime,
                           long lastCloseTime,
-                          WebSocketSession session) {
+                          WebSocketSession session,
+                          DataCollectionMetrics.StreamMeters meters) {
+
+    public KlineStream(Key fingerprint, long lastOpenTime, long lastCloseTime, WebSocketSession session) {
+        this(fingerprint, lastOpenTime, lastCloseTime, session, null);
+    }
 
     public KlineStream withSession(WebSocketSession newSession) {
-        return new KlineStream(this.fingerprint, this.lastOpenTime, this.lastCloseTime, newSession);
+        return new KlineStream(this.fingerprint, this.lastOpenTime, this.lastCloseTime, newSession, this.meters);
     }
 
     public KlineStream withTimestamps(long openTime, long closeTime) {
-        return new KlineStream(this.fingerprint, openTime, closeTime, this.session);
+        return new KlineStream(this.fingerprint, openTime, closeTime, this.session, this.meters);
+    }
+
+    public KlineStream withMeters(DataCollectionMetrics.StreamMeters newMeters) {
+        return new KlineStream(this.fingerprint, this.lastOpenTime, this.lastCloseTime, this.session, newMeters);
     }
 
     public record Key(String symbol, String interval) {
@@ -24,5 +39,12 @@ public record KlineStream(Key fingerprint,
             Objects.requireNonNull(symbol, "symbol must not be null");
             Objects.requireNonNull(interval, "interval must not be null");
         }
+
+        /**
+         * Binance stream name, e.g. {@code btcusdt@kline_1m}; stream names are always lower case.
+         */
+        public String streamName() {
+            return symbol.toLowerCase(Locale.ROOT) + "@kline_" + interval;
+        }
     }
 }
@@ -1,62 +1,135 @@
 package com.oyakov.binance_data_collection.domain.kline;
 
+import com.oyakov.binance_data_collection.metrics.DataCollectionMetrics;
+import com.oyakov.binance_shared_model.avro.KlineEvent;
 import lombok.extern.log4j.Log4j2;
 import org.springframework.stereotype.Component;
+import org.springframework.web.socket.WebSocketSession;
 
 import java.io.IOException;
 import java.util.*;
 import java.util.concurrent.ConcurrentHashMap;
-import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
 
+/**
+ * Registry of the active kline streams. Lookups used on the WebSocket message path are O(1) and lock-free:
+ * streams are indexed by key, by Binance stream name (combined-stream frames) and by session ID
+ * (single-stream sessions). The last seen open/close time of a stream is held in atomics on its entry,
+ * so a new kline advances the timestamps in place instead of re-inserting the stream.
+ * <p>
+ * A new stream's live klines can be held back while its warmup is published, so that they reach Kafka after
+ * the warmup and gap-fill klines of the stream rather than before them.
+ */
 @Component
 @Log4j2
 public class KlineStreamCache {
-    private final Map<KlineStream.Key, KlineStream> activeStreamSources = new ConcurrentHashMap<>();
-    private final ReentrantReadWriteLock streamLock = new ReentrantReadWriteLock();
+    // Live klines held per stream; beyond this the oldest are dropped, the trader only keeps the newest anyway
+    static final int MAX_HELD_KLINES = 1000;
+
+    private final Map<KlineStream.Key, StreamState> activeStreamSources = new ConcurrentHashMap<>();
+    private final Map<KlineStream.Key, Deque<KlineEvent>> heldKlines = new ConcurrentHashMap<>();
+    private final Map<String, KlineStream.Key> streamNames = new ConcurrentHashMap<>();
+    private final Map<String, KlineStream.Key> sessionIds = new ConcurrentHashMap<>();
 
     public Optional<KlineStream> findStreamSourceBySessionId(String sessionId) {
-        streamLock.readLock().lock();
-        try {
-            return activeStreamSources.values().stream()
-                    .filter(ss -> ss.session() != null &&
-                            ss.session().getId().equals(sessionId))
-                    .findFirst();
-        } finally {
-            streamLock.readLock().unlock();
-        }
+        KlineStream.Key key = sessionIds.get(sessionId);
+        return key == null ? Optional.empty() : snapshot(key);
+    }
+
+    /**
+     * Looks up a stream by its Binance stream name, as carried by combined-stream frames.
+     */
+    public Optional<KlineStream> findStreamSourceByStreamName(String streamName) {
+        KlineStream.Key key = streamNames.get(streamName);
+        return key == null ? Optional.empty() : snapshot(key);
     }
 
     public void putStreamSource(KlineStream klineStream) {
-        streamLock.writeLock().lock();
-        try {
-            activeStreamSources.put(klineStream.fingerprint(), klineStream);
-        } finally {
-            streamLock.writeLock().unlock();
+        KlineStream.Key key = klineStream.fingerprint();
+        StreamState previous = activeStreamSources.put(key, new StreamState(klineStream));
+        streamNames.put(key.streamName(), key);
+        if (previous != null && previous.session != null && previous.session != klineStream.session()) {
+            sessionIds.remove(previous.session.getId(), key);
+        }
+        if (klineStream.session() != null) {
+            sessionIds.put(klineStream.session().getId(), key);
         }
     }
 
-    public Set<KlineStream.Key> getActiveSSFingerprints() {
-        streamLock.readLock().lock();
-        try {
-            return new HashSet<>(activeStreamSources.keySet());
-        } finally {
-            streamLock.readLock().unlock();
+    /**
+     * Records the open/close time of the latest kline seen on a stream.
+     *
+     * @return {@code true} if the timestamps differ from the previous ones, i.e. a new kline started;
+     * {@code false} for a repeated update or an unknown stream
+     */
+    public boolean advanceTimestamps(KlineStream.Key key, long openTime, long closeTime) {
+        StreamState state = activeStreamSources.get(key);
+        return state != null && state.advance(openTime, closeTime);
+    }
+
+    /**
+     * Holds back the live klines of a stream from now on, until {@link #releaseLiveKlines} is called.
+     */
+    public void holdLiveKlines(KlineStream.Key key) {
+        heldKlines.putIfAbsent(key, new ArrayDeque<>());
+    }
+
+    /**
+     * Holds {@code kline} back if its stream is being held.
+     *
+     * @return {@code true} if the kline was held and must not be published now
+     */
+    public boolean holdIfHeld(KlineStream.Key key, KlineEvent kline) {
+        Deque<KlineEvent> held = heldKlines.get(key);
+        if (held == null) {
+            return false;
+        }
+        synchronized (held) {
+            // Released in the meantime
+            if (heldKlines.get(key) != held) {
+                return false;
+            }
+            if (held.size() == MAX_HELD_KLINES) {
+                held.removeFirst();
+            }
+            held.addLast(kline);
+            return true;
+        }
+    }
+
+    /**
+     * Stops holding the live klines of a stream and hands the held ones to {@code publisher}, in arrival order.
+     * Klines arriving while they are published wait, so that they are published after them.
+     */
+    public void releaseLiveKlines(KlineStream.Key key, Consumer<List<KlineEvent>> publisher) {
+        Deque<KlineEvent> held = heldKlines.get(key);
+        if (held == null) {
+            return;
+        }
+        synchronized (held) {
+            heldKlines.remove(key, held);
+            if (!held.isEmpty()) {
+                publisher.accept(List.copyOf(held));
+                held.clear();
+            }
         }
     }
 
+    public Set<KlineStream.Key> getActiveSSFingerprints() {
+        return new HashSet<>(activeStreamSources.keySet());
+    }
+
     public void closeAllCurrentStreamSources() {
-        streamLock.writeLock().lock();
-        try {
-            activeStreamSources.forEach((fingerprint, ss) -> {
+        for (KlineStream.Key fingerprint : new ArrayList<>(activeStreamSources.keySet())) {
+            StreamState removed = remove(fingerprint);
+            if (removed != null && removed.session != null) {
                 try {
-                    ss.session().close();
+                    removed.session.close();
                 } catch (IOException e) {
                     log.error("Failed to close websocket session", e);
                 }
-            });
-            activeStreamSources.clear();
-        } finally {
-            streamLock.writeLock().unlock();
+            }
         }
     }
 
@@ -65,22 +138,67 @@ public class KlineStreamCache {
      */
     public Set<String> closeStreamSources(Set<KlineStream.Key> fingerprints) {
         Set<String> closedSessionIds = new HashSet<>();
-        streamLock.writeLock().lock();
-        try {
-            for (KlineStream.Key fingerprint : fingerprints) {
-                KlineStream removed = activeStreamSources.remove(fingerprint);
-                if (removed != null && removed.session() != null) {
-                    try {
-                        removed.session().close();
-                        closedSessionIds.add(removed.session().getId());
-                    } catch (IOException e) {
-                        log.error("Failed to close websocket session", e);
-                    }
+        for (KlineStream.Key fingerprint : fingerprints) {
+            StreamState removed = remove(fingerprint);
+            if (removed != null && removed.session != null) {
+                try {
+                    removed.session.close();
+                    closedSessionIds.add(removed.session.getId());
+                } catch (IOException e) {
+                    log.error("Failed to close websocket session", e);
                 }
             }
-        } finally {
-            streamLock.writeLock().unlock();
         }
         return closedSessionIds;
     }
+
+    /**
+     * Removes the given stream sources without closing their sessions, which may still carry other streams.
+     */
+    public void removeStreamSources(Set<KlineStream.Key> fingerprints) {
+        fingerprints.forEach(this::remove);
+    }
+
+    private StreamState remove(KlineStream.Key key) {
+        heldKlines.remove(key);
+        StreamState removed = activeStreamSources.remove(key);
+        streamNames.remove(key.streamName(), key);
+        if (removed != null && removed.session != null) {
+            sessionIds.remove(removed.session.getId(), key);
+        }
+        return removed;
+    }
+
+    private Optional<KlineStream> snapshot(KlineStream.Key key) {
+        StreamState state = activeStreamSources.get(key);
+        return state == null ? Optional.empty() : Optional.of(state.toKlineStream(key));
+    }
+
+    /**
+     * Mutable per-stream state. The session is fixed for the life of the entry; reconnects put a new entry.
+     * Updates for one stream arrive in order on its session, so the two timestamps need no common lock.
+     */
+    private static final class StreamState {
+        private final WebSocketSession session;
+        private final DataCollectionMetrics.StreamMeters meters;
+        private final AtomicLong lastOpenTime;
+        private final AtomicLong lastCloseTime;
+
+        private StreamState(KlineStream klineStream) {
+            this.session = klineStream.session();
+            this.meters = klineStream.meters();
+            this.lastOpenTime = new AtomicLong(klineStream.lastOpenTime());
+            this.lastCloseTime = new AtomicLong(klineStream.lastCloseTime());
+        }
+
+        private boolean advance(long openTime, long closeTime) {
+            long previousOpenTime = lastOpenTime.getAndSet(openTime);
+            long previousCloseTime = lastCloseTime.getAndSet(closeTime);
+            return previousOpenTime != openTime || previousCloseTime != closeTime;
+        }
+
+        private KlineStream toKlineStream(KlineStream.Key key) {
+            return new KlineStream(key, lastOpenTime.get(), lastCloseTime.get(), session, meters);
+        }
+    }
 }
@@ -1,5 +1,6 @@
 package com.oyakov.binance_data_collection.domain.kline;
 
+import com.fasterxml.jackson.databind.ObjectMapper;
 import com.oyakov.binance_data_collection.URLFormatter;
 import com.oyakov.binance_data_collection.config.BinanceDataCollectionConfig;
 import com.oyakov.binance_data_collection.kafka.producer.KafkaProducerService;
@@ -9,24 +10,54 @@ import com.oyakov.binance_data_collection.websocket.handler.BinanceTextMessageHa
 import com.oyakov.binance_shared_model.avro.KlineEvent;
 import io.micrometer.core.instrument.Timer;
 import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.log4j.Log4j2;
 import org.springframework.stereotype.Component;
+import org.springframework.web.socket.TextMessage;
 import org.springframework.web.socket.WebSocketHttpHeaders;
+import org.springframework.web.socket.WebSocketSession;
 import org.springframework.web.socket.client.standard.StandardWebSocketClient;
 
+import java.io.IOException;
 import java.net.URI;
 import java.time.LocalDateTime;
 import java.util.*;
 import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
 import java.util.stream.Collectors;
 
+/**
+ * Opens and reconfigures the Binance kline WebSocket streams.
+ * <p>
+ * In combined-stream mode (the default) streams are packed into as few connections as possible using
+ * Binance's {@code /stream?streams=a/b/c} endpoint, and reconfiguration adds or drops streams on the live
+ * connections with {@code SUBSCRIBE} / {@code UNSUBSCRIBE} requests. A connection is only opened when the
+ * existing ones are full, and only closed once it carries no stream at all. With
+ * {@code binance.websocket.combined-streams=false} every stream gets its own connection as before.
+ * <p>
+ * Warmup klines of new streams are fetched on a pool of {@code binance.rest.warmup-parallelism} threads while
+ * the WebSocket handshakes go ahead, with every REST call kept within Binance's request weight limit. Once a
+ * stream's warmup and the handshakes are done, a gap-fill fetch publishes the klines that closed after the
+ * warmup snapshot was taken; from the handshake on the stream delivers every kline itself. Consumers drop
+ * klines older than the newest they have seen, so the live klines of a new stream are held back in the
+ * {@link KlineStreamCache} until Kafka has acknowledged its warmup and gap fill, and are published after them.
+ */
 @Component
 @Log4j2
 @RequiredArgsConstructor
 public class KlineStreamManagerBinance {
 
+    private static final ObjectMapper MAPPER = new ObjectMapper();
+    private static final String COMBINED_TAG = "combined";
+    private static final int GAP_FILL_LIMIT = 1000;
+
     private final BinanceDataCollectionConfig config;
     private final KlineStreamCache klineStreamCache;
     private final BinanceTextMessageHandler textMessageHandler;
@@ -35,14 +66,31 @@ public class KlineStreamManagerBinance {
     private final URLFormatter urlFormatter;
     private final KafkaProducerService kafkaProducerService;
     private final DataCollectionMetrics metrics;
+    private final Map<String, CombinedConnection> combinedConnections = new ConcurrentHashMap<>();
+    private final AtomicLong requestIds = new AtomicLong();
+    private ExecutorService warmupExecutor;
 
     @PostConstruct
     public void init() {
+        AtomicInteger threadCount = new AtomicInteger();
+        warmupExecutor = Executors.newFixedThreadPool(Math.max(1, config.getRest().getWarmupParallelism()),
+                runnable -> {
+                    Thread thread = new Thread(runnable, "kline-warmup-" + threadCount.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                });
         if (config.getWebsocket().getAutoConnect()) {
             connect(fetchDefaultStreamSources());
         }
     }
 
+    @PreDestroy
+    public void shutdown() {
+        if (warmupExecutor != null) {
+            warmupExecutor.shutdownNow();
+        }
+    }
+
     private List<KlineStream> fetchDefaultStreamSources() {
         List<String> intervals = config.getData().getKline().getIntervals();
         List<String> symbols = config.getData().getKline().getSymbols();
@@ -58,7 +106,7 @@ public class KlineStreamManagerBinance {
     }
 
 
-    public void connect(List<KlineStream> klineStreams) {
+    public synchronized void connect(List<KlineStream> klineStreams) {
         log.info("Binance kline streaming reconfiguration...");
         WebSocketHttpHeaders headers = new WebSocketHttpHeaders();
 
@@ -70,7 +118,7 @@ public class KlineStreamManagerBinance {
         log.info("Existing kline streams: {}", activeFingerprints);
         log.info("Updated kline streams: {}", updatedFingerprints);
 
-        log.info("Closing obsolete sessions...");
+        log.info("Closing obsolete streams...");
         Set<KlineStream.Key> toClose =
                 activeFingerprints.stream()
                         .filter(fingerprint -> !updatedFingerprints.contains(fingerprint))
@@ -80,62 +128,286 @@ public class KlineStreamManagerBinance {
             metrics.decrementActiveKlineStreams();
         });
 
-        Set<String> closedSessions = klineStreamCache.closeStreamSources(toClose);
-        log.info("Closed sessions: {}", closedSessions);
+        if (isCombinedStreams()) {
+            unsubscribeCombinedStreams(toClose);
+        } else {
+            Set<String> closedSessions = klineStreamCache.closeStreamSources(toClose);
+            log.info("Closed sessions: {}", closedSessions);
+        }
 
-        log.info("Opening new sessions...");
-        List<CompletableFuture<Void>> futures = klineStreams.stream()
+        log.info("Opening new streams...");
+        List<KlineStream> toOpen = klineStreams.stream()
                 .filter(streamSource -> !activeFingerprints.contains(streamSource.fingerprint()))
+                .map(this::withMeters)
+                .toList();
+        toOpen.forEach(streamSource -> klineStreamCache.holdLiveKlines(streamSource.fingerprint()));
+        List<CompletableFuture<Published>> warmups = toOpen.stream()
                 .map(streamSource -> {
                     log.info("New stream source to be added {}", streamSource);
-                    
-                    // Fetch warmup klines with metrics
-                    String symbol = streamSource.fingerprint().symbol();
-                    String interval = streamSource.fingerprint().interval();
-                    String operation = "warmup";
-                    metrics.incrementRestApiCallsTotal(symbol, interval, operation);
-                    Timer.Sample restApiSample = metrics.startRestApiCall();
-                    boolean restSuccess = false;
-                    try {
-                        List<KlineEvent> warmupKlines = restKlineClient.fetchWarmupKlines(streamSource,
-                                config.getData().getKline().getWarmupKlineCount());
-                        restSuccess = true;
-                        
-                        kafkaProducerService.sendKlineEvents(config.getData().getKline().getKafkaTopic(), warmupKlines);
-                    } catch (Exception e) {
-                        metrics.incrementRestApiCallsFailed(symbol, interval, operation, e.getClass().getSimpleName());
-                        log.error("Failed to fetch warmup klines for {}", streamSource, e);
-                    } finally {
-                        metrics.recordRestApiCallTime(restApiSample, symbol, interval, operation, restSuccess ? "success" : "failure");
-                    }
-
-                    URI uri = urlFormatter.formatWebsocketKlineURLTemplate(streamSource);
-                    log.info("Connecting to Websocket URI {}", uri);
-
-                    Timer.Sample connectionSample = metrics.startWebsocketConnection();
-                    return client.execute(textMessageHandler, headers, uri)
-                            .thenAccept(session -> {
-                        metrics.recordWebsocketConnectionTime(connectionSample, symbol, interval, "success");
-                        metrics.incrementWebsocketConnectionsEstablished(symbol, interval);
-                        metrics.incrementActiveKlineStreams();
-
-                        log.info("Connected: session {} is open for {} at {} with headers: {}",
-                                session.getId(), streamSource, LocalDateTime.now(), headers);
-                        klineStreamCache.putStreamSource(streamSource.withSession(session));
-                    }).exceptionally(throwable -> {
-                        metrics.recordWebsocketConnectionTime(connectionSample, symbol, interval, "failure");
-                        metrics.incrementWebsocketConnectionsFailed(symbol, interval,
-                                throwable != null ? throwable.getClass().getSimpleName() : "unknown");
-                        log.error("Failed to connect to Binance WebSocket {}", streamSource, throwable);
-                        return null;
-                    });
+                    return CompletableFuture.supplyAsync(() -> publishWarmupKlines(streamSource), warmupExecutor);
                 })
                 .toList();
 
-        // Wait for all to complete
+        List<CompletableFuture<Void>> futures = isCombinedStreams()
+                ? subscribeCombinedStreams(toOpen, headers)
+                : toOpen.stream().map(streamSource -> openStream(streamSource, headers)).toList();
+
+        CompletableFuture<Void> connected = CompletableFuture.allOf(futures.toArray(new CompletableFuture[0]));
+        for (int i = 0; i < toOpen.size(); i++) {
+            KlineStream streamSource = toOpen.get(i);
+            warmups.get(i)
+                    .thenCombineAsync(connected, (warmup, ignored) -> CompletableFuture.allOf(warmup.acknowledged(),
+                            publishGapFillKlines(streamSource, warmup.klines()).acknowledged()), warmupExecutor)
+                    .thenCompose(acknowledged -> acknowledged)
+                    // Published or failed, the live klines go out either way
+                    .whenCompleteAsync((ignored, failure) -> releaseLiveKlines(streamSource), warmupExecutor);
+        }
+
+        // Wait for the connections only, warmups and gap fills complete in the background
         CompletableFuture.allOf(futures.toArray(new CompletableFuture[0])).orTimeout(15, TimeUnit.SECONDS).join();
-        
+
         // Update total active streams count
         metrics.setActiveKlineStreams(klineStreams.size());
     }
-}
\ No newline at end of file
+
+    public int getCombinedConnectionCount() {
+        return combinedConnections.size();
+    }
+
+    /**
+     * Attaches the stream's meters, tagged with the upper case symbol that Binance puts in kline events.
+     */
+    private KlineStream withMeters(KlineStream streamSource) {
+        if (streamSource.meters() != null) {
+            return streamSource;
+        }
+        KlineStream.Key key = streamSource.fingerprint();
+        return streamSource.withMeters(metrics.streamMeters(key.symbol().toUpperCase(Locale.ROOT), key.interval()));
+    }
+
+    private boolean isCombinedStreams() {
+        return !Boolean.FALSE.equals(config.getWebsocket().getCombinedStreams());
+    }
+
+    private void releaseLiveKlines(KlineStream streamSource) {
+        klineStreamCache.releaseLiveKlines(streamSource.fingerprint(), held -> {
+            log.debug("Publishing {} live klines of {} held during warmup", held.size(), streamSource.fingerprint());
+            held.forEach(kline -> kafkaProducerService.sendKlineEvent(kline, streamSource.meters()));
+        });
+    }
+
+    private Published publishWarmupKlines(KlineStream streamSource) {
+        return fetchAndPublish(streamSource, "warmup", () -> restKlineClient.fetchWarmupKlines(streamSource,
+                config.getData().getKline().getWarmupKlineCount()));
+    }
+
+    /**
+     * Publishes the klines that closed between the warmup snapshot and the WebSocket handshake. The newest
+     * snapshot kline was usually still open, so the fetch starts at its open time.
+     */
+    private Published publishGapFillKlines(KlineStream streamSource, List<KlineEvent> warmupKlines) {
+        if (warmupKlines.isEmpty()) {
+            return Published.NONE;
+        }
+        String symbol = streamSource.fingerprint().symbol();
+        String interval = streamSource.fingerprint().interval();
+        long snapshotOpenTime = warmupKlines.stream().mapToLong(KlineEvent::getOpenTime).max().getAsLong();
+        return fetchAndPublish(streamSource, "gap_fill", () -> {
+            long now = System.currentTimeMillis();
+            return restKlineClient.fetchHistoricalKlines(symbol, interval, GAP_FILL_LIMIT, snapshotOpenTime, null)
+                    .stream()
+                    .filter(kline -> kline.getCloseTime() < now)
+                    .toList();
+        });
+    }
+
+    private Published fetchAndPublish(KlineStream streamSource, String operation,
+                                      Supplier<List<KlineEvent>> fetch) {
+        String symbol = streamSource.fingerprint().symbol();
+        String interval = streamSource.fingerprint().interval();
+        metrics.incrementRestApiCallsTotal(symbol, interval, operation);
+        Timer.Sample restApiSample = metrics.startRestApiCall();
+        boolean restSuccess = false;
+        try {
+            List<KlineEvent> klines = fetch.get();
+            restSuccess = true;
+
+            CompletableFuture<Void> acknowledged = klines.isEmpty()
+                    ? CompletableFuture.completedFuture(null)
+                    : kafkaProducerService.sendKlineEvents(config.getData().getKline().getKafkaTopic(), klines);
+            log.debug("Published {} {} klines for {}", klines.size(), operation, streamSource.fingerprint());
+            return new Published(klines, acknowledged);
+        } catch (Exception e) {
+            metrics.incrementRestApiCallsFailed(symbol, interval, operation, e.getClass().getSimpleName());
+            log.error("Failed to fetch {} klines for {}", operation, streamSource, e);
+            return Published.NONE;
+        } finally {
+            metrics.recordRestApiCallTime(restApiSample, symbol, interval, operation, restSuccess ? "success" : "failure");
+        }
+    }
+
+    private CompletableFuture<Void> openStream(KlineStream streamSource, WebSocketHttpHeaders headers) {
+        String symbol = streamSource.fingerprint().symbol();
+        String interval = streamSource.fingerprint().interval();
+        URI uri = urlFormatter.formatWebsocketKlineURLTemplate(streamSource);
+        log.info("Connecting to Websocket URI {}", uri);
+
+        Timer.Sample connectionSample = metrics.startWebsocketConnection();
+        return client.execute(textMessageHandler, headers, uri)
+                .thenAccept(session -> {
+            metrics.recordWebsocketConnectionTime(connectionSample, symbol, interval, "success");
+            metrics.incrementWebsocketConnectionsEstablished(symbol, interval);
+            metrics.incrementActiveKlineStreams();
+
+            log.info("Connected: session {} is open for {} at {} with headers: {}",
+                    session.getId(), streamSource, LocalDateTime.now(), headers);
+            klineStreamCache.putStreamSource(streamSource.withSession(session));
+        }).exceptionally(throwable -> {
+            metrics.recordWebsocketConnectionTime(connectionSample, symbol, interval, "failure");
+            metrics.incrementWebsocketConnectionsFailed(symbol, interval,
+                    throwable != null ? throwable.getClass().getSimpleName() : "unknown");
+            log.error("Failed to connect to Binance WebSocket {}", streamSource, throwable);
+            return null;
+        });
+    }
+
+    /**
+     * Drops the given streams from their combined connections; connections left without streams are closed.
+     */
+    private void unsubscribeCombinedStreams(Set<KlineStream.Key> toClose) {
+        if (toClose.isEmpty()) {
+            return;
+        }
+        for (CombinedConnection connection : combinedConnections.values()) {
+            List<KlineStream.Key> dropped = toClose.stream().filter(connection.streams::contains).toList();
+            if (dropped.isEmpty()) {
+                continue;
+            }
+            dropped.forEach(connection.streams::remove);
+            if (connection.streams.isEmpty()) {
+                combinedConnections.remove(connection.session.getId());
+                log.info("Closing combined session {}, no streams left", connection.session.getId());
+                try {
+                    connection.session.close();
+                } catch (IOException e) {
+                    log.error("Failed to close websocket session", e);
+                }
+            } else {
+                try {
+                    sendStreamRequest(connection, "UNSUBSCRIBE", dropped);
+                } catch (IOException e) {
+                    log.error("Failed to unsubscribe {} on session {}", dropped, connection.session.getId(), e);
+                }
+            }
+        }
+        klineStreamCache.removeStreamSources(toClose);
+    }
+
+    /**
+     * Subscribes new streams on open combined connections with spare capacity and opens new connections,
+     * each carrying up to {@code maxStreamsPerConnection} streams, for the rest.
+     */
+    private List<CompletableFuture<Void>> subscribeCombinedStreams(List<KlineStream> toOpen,
+                                                                   WebSocketHttpHeaders headers) {
+        int capacity = Math.max(1, config.getWebsocket().getMaxStreamsPerConnection());
+        Deque<KlineStream> pending = new ArrayDeque<>(toOpen);
+
+        for (CombinedConnection connection : combinedConnections.values()) {
+            if (pending.isEmpty()) {
+                break;
+            }
+            if (!connection.session.isOpen()) {
+                continue;
+            }
+            List<KlineStream> batch = take(pending, capacity - connection.streams.size());
+            if (batch.isEmpty()) {
+                continue;
+            }
+            List<KlineStream.Key> keys = batch.stream().map(KlineStream::fingerprint).toList();
+            try {
+                sendStreamRequest(connection, "SUBSCRIBE", keys);
+                connection.streams.addAll(keys);
+                batch.forEach(streamSource -> registerStream(streamSource, connection.session));
+            } catch (IOException e) {
+                log.error("Failed to subscribe {} on session {}, opening a new connection instead",
+                        keys, connection.session.getId(), e);
+                batch.forEach(pending::addLast);
+                break;
+            }
+        }
+
+        List<CompletableFuture<Void>> futures = new ArrayList<>();
+        while (!pending.isEmpty()) {
+            futures.add(openCombinedConnection(take(pending, capacity), headers));
+        }
+        return futures;
+    }
+
+    private CompletableFuture<Void> openCombinedConnection(List<KlineStream> batch, WebSocketHttpHeaders headers) {
+        List<KlineStream.Key> keys = batch.stream().map(KlineStream::fingerprint).toList();
+        URI uri = urlFormatter.formatCombinedStreamURL(keys);
+        log.info("Connecting to combined Websocket URI {} for {} streams", uri, keys.size());
+
+        Timer.Sample connectionSample = metrics.startWebsocketConnection();
+        return client.execute(textMessageHandler, headers, uri)
+                .thenAccept(session -> {
+            metrics.recordWebsocketConnectionTime(connectionSample, COMBINED_TAG, COMBINED_TAG, "success");
+            metrics.incrementWebsocketConnectionsEstablished(COMBINED_TAG, COMBINED_TAG);
+
+            CombinedConnection connection = new CombinedConnection(session);
+            connection.streams.addAll(keys);
+            combinedConnections.put(session.getId(), connection);
+            batch.forEach(streamSource -> registerStream(streamSource, session));
+            log.info("Connected: combined session {} is open for {} at {}", session.getId(), keys, LocalDateTime.now());
+        }).exceptionally(throwable -> {
+            metrics.recordWebsocketConnectionTime(connectionSample, COMBINED_TAG, COMBINED_TAG, "failure");
+            metrics.incrementWebsocketConnectionsFailed(COMBINED_TAG, COMBINED_TAG,
+                    throwable != null ? throwable.getClass().getSimpleName() : "unknown");
+            log.error("Failed to connect to Binance combined WebSocket for {}", keys, throwable);
+            return null;
+        });
+    }
+
+    private void registerStream(KlineStream streamSource, WebSocketSession session) {
+        metrics.incrementActiveKlineStreams();
+        klineStreamCache.putStreamSource(streamSource.withSession(session));
+    }
+
+    private void sendStreamRequest(CombinedConnection connection, String method, List<KlineStream.Key> keys)
+            throws IOException {
+        Map<String, Object> request = new LinkedHashMap<>();
+        request.put("method", method);
+        request.put("params", keys.stream().map(KlineStream.Key::streamName).toList());
+        request.put("id", requestIds.incrementAndGet());
+        String json = MAPPER.writeValueAsString(request);
+        log.info("Sending {} on session {}", json, connection.session.getId());
+        // WebSocketSession does not support concurrent sends
+        synchronized (connection.session) {
+            connection.session.sendMessage(new TextMessage(json));
+        }
+    }
+
+    private static List<KlineStream> take(Deque<KlineStream> pending, int count) {
+        List<KlineStream> batch = new ArrayList<>(Math.max(0, Math.min(count, pending.size())));
+        while (batch.size() < count && !pending.isEmpty()) {
+            batch.add(pending.pollFirst());
+        }
+        return batch;
+    }
+
+    /**
+     * Klines handed to Kafka, and the acknowledgement of all of them.
+     */
+    private record Published(List<KlineEvent> klines, CompletableFuture<Void> acknowledged) {
+        private static final Published NONE = new Published(List.of(), CompletableFuture.completedFuture(null));
+    }
+
+    private static final class CombinedConnection {
+        private final WebSocketSession session;
+        private final Set<KlineStream.Key> streams = ConcurrentHashMap.newKeySet();
+
+        private CombinedConnection(WebSocketSession session) {
+            this.session = session;
+        }
+    }
+}
@@ -6,17 +6,26 @@ import com.oyakov.binance_shared_model.avro.KlineEvent;
 import com.oyakov.binance_shared_model.logging.CorrelationIdConstants;
 import com.oyakov.binance_shared_model.logging.LoggingUtils;
 import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PreDestroy;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.log4j.Log4j2;
 import org.apache.kafka.clients.producer.ProducerRecord;
+import org.apache.kafka.common.header.Header;
 import org.apache.kafka.common.header.Headers;
+import org.apache.kafka.common.header.internals.RecordHeader;
+import org.springframework.beans.factory.DisposableBean;
 import org.springframework.kafka.core.KafkaTemplate;
+import org.springframework.kafka.core.ProducerFactory;
 import org.springframework.kafka.support.SendResult;
 import org.springframework.stereotype.Service;
 
 import java.nio.charset.StandardCharsets;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
 import java.util.Map;
 import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
 
 @Service
 @Log4j2
@@ -27,8 +36,21 @@ public class KafkaProducerService {
     private final KafkaTemplate<String, KlineEvent> kafkaTemplate;
     private final DataCollectionMetrics metrics;
 
+    private static final String REALTIME_PROFILE = "realtime";
+    private static final String BULK_PROFILE = "bulk";
+
+    private final Map<String, KafkaTemplate<String, KlineEvent>> profileTemplates = new ConcurrentHashMap<>();
+
     public void sendKlineEvent(KlineEvent event) {
+        sendKlineEvent(event, metrics.streamMeters(event.getSymbol(), event.getInterval()));
+    }
+
+    /**
+     * Publishes a live kline, recording it on the meters of its stream.
+     */
+    public void sendKlineEvent(KlineEvent event, DataCollectionMetrics.StreamMeters meters) {
         String topic = config.getData().getKline().getKafkaTopic();
+        KafkaTemplate<String, KlineEvent> template = template(REALTIME_PROFILE, config.getKafka().getRealtime());
         
         // Get or generate correlation ID
         String correlationId = LoggingUtils.getOrGenerateCorrelationId();
@@ -42,10 +64,9 @@ public class KafkaProducerService {
             headers.add(CorrelationIdConstants.CORRELATION_ID_KAFKA_HEADER, 
                        correlationId.getBytes(StandardCharsets.UTF_8));
             
-            CompletableFuture<SendResult<String, KlineEvent>> future = kafkaTemplate.send(record);
+            CompletableFuture<SendResult<String, KlineEvent>> future = template.send(record);
             future.whenComplete((result, throwable) -> {
-                String status = throwable == null ? "success" : "failure";
-                metrics.recordKafkaSendTime(sample, event.getSymbol(), event.getInterval(), status);
+                meters.recordKafkaSendTime(sample, throwable == null);
                 if (throwable != null) {
                     Map<String, Object> context = LoggingUtils.createKafkaContext(topic, event.getSymbol());
                     context.put("interval", event.getInterval());
@@ -53,11 +74,11 @@ public class KafkaProducerService {
                     metrics.incrementKlineEventsFailedToSend(event.getSymbol(), event.getInterval(), throwable.getClass().getSimpleName());
                 } else {
                     log.debug("Successfully sent kline event to Kafka with correlationId={}: {}", correlationId, result.getRecordMetadata());
-                    metrics.incrementKlineEventsSentToKafka(event.getSymbol(), event.getInterval());
+                    meters.incrementKlineEventsSentToKafka(1);
                 }
             });
         } catch (Exception e) {
-            metrics.recordKafkaSendTime(sample, event.getSymbol(), event.getInterval(), "failure");
+            meters.recordKafkaSendTime(sample, false);
             Map<String, Object> context = LoggingUtils.createKafkaContext(topic, event.getSymbol());
             context.put("interval", event.getInterval());
             LoggingUtils.logError(log, "Failed to send kline event to Kafka", e, context);
@@ -66,7 +87,112 @@ public class KafkaProducerService {
         }
     }
 
-    public void sendKlineEvents(String topic, Iterable<KlineEvent> events) {
-        events.forEach(this::sendKlineEvent);
+    /**
+     * Publishes a warmup or backfill batch with the bulk producer profile. The whole batch carries one
+     * correlation id, encoded once into a shared header, and is accounted for by a single callback once every
+     * record is acknowledged.
+     *
+     * @return completes when all records are acknowledged; exceptionally if any of them failed
+     */
+    public CompletableFuture<Void> sendKlineEvents(String topic, Collection<KlineEvent> events) {
+        if (events.isEmpty()) {
+            return CompletableFuture.completedFuture(null);
+        }
+        String correlationId = LoggingUtils.getOrGenerateCorrelationId();
+        List<Header> headers = List.of(new RecordHeader(CorrelationIdConstants.CORRELATION_ID_KAFKA_HEADER,
+                correlationId.getBytes(StandardCharsets.UTF_8)));
+        KafkaTemplate<String, KlineEvent> template = template(BULK_PROFILE, config.getKafka().getBulk());
+        log.debug("Sending batch of {} kline events to topic {} with correlationId={}", events.size(), topic, correlationId);
+
+        Timer.Sample sample = metrics.startKafkaSend();
+        KlineEvent[] batch = events.toArray(KlineEvent[]::new);
+        CompletableFuture<?>[] sends = new CompletableFuture<?>[batch.length];
+        for (int i = 0; i < batch.length; i++) {
+            try {
+                sends[i] = template.send(new ProducerRecord<>(topic, null, batch[i].getSymbol(), batch[i], headers));
+            } catch (Exception e) {
+                sends[i] = CompletableFuture.failedFuture(e);
+            }
+        }
+        return CompletableFuture.allOf(sends)
+                .whenComplete((ignored, throwable) -> completeBatch(topic, correlationId, batch, sends, sample));
+    }
+
+    private void completeBatch(String topic, String correlationId, KlineEvent[] batch,
+                               CompletableFuture<?>[] sends, Timer.Sample sample) {
+        Map<Series, Long> sentPerSeries = new LinkedHashMap<>();
+        Throwable firstFailure = null;
+        int failed = 0;
+        for (int i = 0; i < batch.length; i++) {
+            KlineEvent event = batch[i];
+            if (sends[i].isCompletedExceptionally()) {
+                Throwable cause = sends[i].exceptionNow();
+                if (firstFailure == null) {
+                    firstFailure = cause;
+                }
+                failed++;
+                metrics.incrementKlineEventsFailedToSend(event.getSymbol(), event.getInterval(), cause.getClass().getSimpleName());
+            } else {
+                sentPerSeries.merge(new Series(event.getSymbol(), event.getInterval()), 1L, Long::sum);
+            }
+        }
+        sentPerSeries.forEach((series, count) -> metrics.incrementKlineEventsSentToKafka(series.symbol(), series.interval(), count));
+
+        boolean singleSeries = sentPerSeries.size() <= 1;
+        metrics.recordKafkaSendTime(sample,
+                singleSeries ? batch[0].getSymbol() : "multiple",
+                singleSeries ? batch[0].getInterval() : "multiple",
+                failed == 0 ? "success" : "failure");
+        if (failed > 0) {
+            Map<String, Object> context = LoggingUtils.createKafkaContext(topic, batch[0].getSymbol());
+            context.put("correlationId", correlationId);
+            context.put("batchSize", batch.length);
+            context.put("failed", failed);
+            LoggingUtils.logError(log, "Failed to send kline events of a batch to Kafka", firstFailure, context);
+        } else {
+            log.debug("Successfully sent batch of {} kline events to Kafka with correlationId={}", batch.length, correlationId);
+        }
+    }
+
+    /**
+     * Template for a producer profile: the injected template when the profile sets nothing, otherwise a
+     * template over a copy of its producer factory with the profile's overrides.
+     */
+    private KafkaTemplate<String, KlineEvent> template(String profile, BinanceDataCollectionConfig.ProducerProfile settings) {
+        return profileTemplates.computeIfAbsent(profile, name -> {
+            Map<String, Object> overrides = settings == null ? Map.of() : settings.toProducerOverrides();
+            ProducerFactory<String, KlineEvent> producerFactory = kafkaTemplate.getProducerFactory();
+            if (overrides.isEmpty() || producerFactory == null) {
+                return kafkaTemplate;
+            }
+            try {
+                KafkaTemplate<String, KlineEvent> template = new KafkaTemplate<>(producerFactory, overrides);
+                template.setDefaultTopic(kafkaTemplate.getDefaultTopic());
+                log.info("Kafka producer profile {} uses overrides {}", name, overrides);
+                return template;
+            } catch (UnsupportedOperationException e) {
+                log.warn("Producer factory cannot be copied, profile {} falls back to the default producer", name);
+                return kafkaTemplate;
+            }
+        });
+    }
+
+    @PreDestroy
+    public void closeProfileProducers() {
+        profileTemplates.values().stream()
+                .filter(template -> template != kafkaTemplate)
+                .map(KafkaTemplate::getProducerFactory)
+                .filter(DisposableBean.class::isInstance)
+                .forEach(factory -> {
+                    try {
+                        ((DisposableBean) factory).destroy();
+                    } catch (Exception e) {
+                        log.warn("Failed to close Kafka producer of a publishing profile", e);
+                    }
+                });
+        profileTemplates.clear();
+    }
+
+    private record Series(String symbol, String interval) {
     }
 }
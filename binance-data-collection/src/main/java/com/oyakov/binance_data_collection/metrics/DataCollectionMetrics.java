@@ -24,10 +24,15 @@ import java.util.concurrent.TimeUnit;
 @RequiredArgsConstructor
 public class DataCollectionMetrics {
 
+    private static final String SUCCESS = "success";
+    private static final String FAILURE = "failure";
+
     private final MeterRegistry meterRegistry;
 
     private final Map<String, Counter> taggedCounters = new ConcurrentHashMap<>();
     private final Map<String, Timer> taggedTimers = new ConcurrentHashMap<>();
+    // symbol -> interval -> meters; two lookups by the caller's own strings, no key is built per event
+    private final Map<String, Map<String, StreamMeters>> streamMeters = new ConcurrentHashMap<>();
     
     // Counters for events
     private Counter klineEventsReceived;
@@ -128,12 +133,7 @@ public class DataCollectionMetrics {
     }
 
     public void incrementKlineEventsReceived(String symbol, String interval) {
-        incrementKlineEventsReceived();
-        counterWithTags("binance_data_collection_kline_events_received_total",
-                "Total number of kline events received from Binance WebSocket",
-                "symbol", sanitize(symbol),
-                "interval", sanitize(interval))
-                .increment();
+        streamMeters(symbol, interval).incrementKlineEventsReceived();
     }
 
     public void incrementKlineEventsSentToKafka() {
@@ -141,12 +141,11 @@ public class DataCollectionMetrics {
     }
 
     public void incrementKlineEventsSentToKafka(String symbol, String interval) {
-        incrementKlineEventsSentToKafka();
-        counterWithTags("binance_data_collection_kline_events_sent_kafka_total",
-                "Total number of kline events sent to Kafka",
-                "symbol", sanitize(symbol),
-                "interval", sanitize(interval))
-                .increment();
+        streamMeters(symbol, interval).incrementKlineEventsSentToKafka(1);
+    }
+
+    public void incrementKlineEventsSentToKafka(String symbol, String interval, long count) {
+        streamMeters(symbol, interval).incrementKlineEventsSentToKafka(count);
     }
 
     public void incrementKlineEventsFailedToSend() {
@@ -258,6 +257,10 @@ public class DataCollectionMetrics {
     }
 
     public void recordKlineEventProcessingTime(Timer.Sample sample, String symbol, String interval, String status) {
+        if (SUCCESS.equals(status) || FAILURE.equals(status)) {
+            streamMeters(symbol, interval).recordKlineEventProcessingTime(sample, SUCCESS.equals(status));
+            return;
+        }
         long duration = sample.stop(klineEventProcessingTime);
         timerWithTags("binance_data_collection_kline_event_processing_duration_seconds",
                 "Time taken to process a kline event",
@@ -276,6 +279,10 @@ public class DataCollectionMetrics {
     }
 
     public void recordKafkaSendTime(Timer.Sample sample, String symbol, String interval, String status) {
+        if (SUCCESS.equals(status) || FAILURE.equals(status)) {
+            streamMeters(symbol, interval).recordKafkaSendTime(sample, SUCCESS.equals(status));
+            return;
+        }
         long duration = sample.stop(kafkaSendTime);
         timerWithTags("binance_data_collection_kafka_send_duration_seconds",
                 "Time taken to send kline event to Kafka",
@@ -322,6 +329,21 @@ public class DataCollectionMetrics {
                 .record(duration, TimeUnit.NANOSECONDS);
     }
 
+    /**
+     * Per-kline meters of one symbol and interval, registered on first use. Components that handle a stream
+     * keep the returned handle, so recording a kline is an increment without resolving tags.
+     */
+    public StreamMeters streamMeters(String symbol, String interval) {
+        String symbolTag = sanitize(symbol);
+        String intervalTag = sanitize(interval);
+        Map<String, StreamMeters> bySymbol = streamMeters.get(symbolTag);
+        if (bySymbol == null) {
+            bySymbol = streamMeters.computeIfAbsent(symbolTag, key -> new ConcurrentHashMap<>());
+        }
+        StreamMeters meters = bySymbol.get(intervalTag);
+        return meters != null ? meters : bySymbol.computeIfAbsent(intervalTag, key -> new StreamMeters(symbolTag, key));
+    }
+
     private Counter counterWithTags(String name, String description, String... tags) {
         String key = buildKey(name, tags);
         return taggedCounters.computeIfAbsent(key, k -> Counter.builder(name)
@@ -349,4 +371,68 @@ public class DataCollectionMetrics {
         }
         return builder.toString();
     }
+
+    /**
+     * The tagged counters and timers a kline of one symbol and interval passes through, resolved once.
+     * Each method also records the untagged total, like the corresponding {@code DataCollectionMetrics} method.
+     */
+    public final class StreamMeters {
+        private final Counter received;
+        private final Counter sentToKafka;
+        private final Timer processingSuccess;
+        private final Timer processingFailure;
+        private final Timer kafkaSendSuccess;
+        private final Timer kafkaSendFailure;
+
+        private StreamMeters(String symbol, String interval) {
+            received = counterWithTags("binance_data_collection_kline_events_received_total",
+                    "Total number of kline events received from Binance WebSocket",
+                    "symbol", symbol,
+                    "interval", interval);
+            sentToKafka = counterWithTags("binance_data_collection_kline_events_sent_kafka_total",
+                    "Total number of kline events sent to Kafka",
+                    "symbol", symbol,
+                    "interval", interval);
+            processingSuccess = processingTimer(symbol, interval, SUCCESS);
+            processingFailure = processingTimer(symbol, interval, FAILURE);
+            kafkaSendSuccess = kafkaSendTimer(symbol, interval, SUCCESS);
+            kafkaSendFailure = kafkaSendTimer(symbol, interval, FAILURE);
+        }
+
+        public void incrementKlineEventsReceived() {
+            DataCollectionMetrics.this.incrementKlineEventsReceived();
+            received.increment();
+        }
+
+        public void incrementKlineEventsSentToKafka(long count) {
+            klineEventsSentToKafka.increment(count);
+            sentToKafka.increment(count);
+        }
+
+        public void recordKlineEventProcessingTime(Timer.Sample sample, boolean success) {
+            long duration = sample.stop(klineEventProcessingTime);
+            (success ? processingSuccess : processingFailure).record(duration, TimeUnit.NANOSECONDS);
+        }
+
+        public void recordKafkaSendTime(Timer.Sample sample, boolean success) {
+            long duration = sample.stop(kafkaSendTime);
+            (success ? kafkaSendSuccess : kafkaSendFailure).record(duration, TimeUnit.NANOSECONDS);
+        }
+
+        private Timer processingTimer(String symbol, String interval, String status) {
+            return timerWithTags("binance_data_collection_kline_event_processing_duration_seconds",
+                    "Time taken to process a kline event",
+                    "symbol", symbol,
+                    "interval", interval,
+                    "status", status);
+        }
+
+        private Timer kafkaSendTimer(String symbol, String interval, String status) {
+            return timerWithTags("binance_data_collection_kafka_send_duration_seconds",
+                    "Time taken to send kline event to Kafka",
+                    "symbol", symbol,
+                    "interval", interval,
+                    "status", status);
+        }
+    }
 }
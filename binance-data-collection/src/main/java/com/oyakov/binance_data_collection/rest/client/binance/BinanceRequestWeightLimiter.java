@@ -0,0 +1,118 @@
+package com.oyakov.binance_data_collection.rest.client.binance;
+
+import com.oyakov.binance_data_collection.config.BinanceDataCollectionConfig;
+import lombok.extern.log4j.Log4j2;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpHeaders;
+import org.springframework.stereotype.Component;
+
+import java.time.Clock;
+
+/**
+ * Keeps REST calls within Binance's request weight limit.
+ * <p>
+ * Binance counts the weight used by an IP per calendar minute and reports the running total in the
+ * {@code X-MBX-USED-WEIGHT-1M} response header. The limiter holds a budget of {@code weight-limit-per-minute}
+ * that is refilled at every minute boundary: each call takes its weight from the budget before it is sent, and
+ * every response lowers the budget to what Binance says is left, so weight used by other clients on the same IP
+ * counts too. A call that does not fit waits for the next minute, as does every call after a {@code 429}.
+ */
+@Component
+@Log4j2
+public class BinanceRequestWeightLimiter {
+
+    static final String USED_WEIGHT_HEADER = "X-MBX-USED-WEIGHT-1M";
+    static final String LEGACY_USED_WEIGHT_HEADER = "X-MBX-USED-WEIGHT";
+
+    private static final long MINUTE_MILLIS = 60_000L;
+
+    private final int weightLimitPerMinute;
+    private final Clock clock;
+
+    private long windowStart;
+    private int usedWeight;
+    private long blockedUntil;
+
+    @Autowired
+    public BinanceRequestWeightLimiter(BinanceDataCollectionConfig config) {
+        this(config.getRest().getWeightLimitPerMinute(), Clock.systemUTC());
+    }
+
+    BinanceRequestWeightLimiter(int weightLimitPerMinute, Clock clock) {
+        this.weightLimitPerMinute = weightLimitPerMinute;
+        this.clock = clock;
+    }
+
+    /**
+     * Take {@code weight} from the budget, waiting for the next minute when it does not fit.
+     */
+    public void acquire(int weight) throws InterruptedException {
+        long waitMillis;
+        while ((waitMillis = reserve(weight)) > 0) {
+            log.debug("Request weight budget used up, waiting {} ms", waitMillis);
+            Thread.sleep(waitMillis);
+        }
+    }
+
+    /**
+     * Take {@code weight} from the budget if it fits.
+     *
+     * @return {@code 0} when the weight was taken, otherwise the milliseconds to wait before trying again
+     */
+    synchronized long reserve(int weight) {
+        long now = clock.millis();
+        if (now < blockedUntil) {
+            return blockedUntil - now;
+        }
+        roll(now);
+        // A call heavier than the whole budget still gets a fresh minute to itself
+        if (usedWeight > 0 && usedWeight + weight > weightLimitPerMinute) {
+            return windowStart + MINUTE_MILLIS - now;
+        }
+        usedWeight += weight;
+        return 0;
+    }
+
+    /**
+     * Align the budget with the weight Binance reports as used in the current minute.
+     */
+    public synchronized void update(HttpHeaders headers) {
+        String value = headers.getFirst(USED_WEIGHT_HEADER);
+        if (value == null) {
+            value = headers.getFirst(LEGACY_USED_WEIGHT_HEADER);
+        }
+        if (value == null) {
+            return;
+        }
+        try {
+            int reported = Integer.parseInt(value.trim());
+            roll(clock.millis());
+            usedWeight = Math.max(usedWeight, reported);
+        } catch (NumberFormatException e) {
+            log.warn("Unparseable {} header: {}", USED_WEIGHT_HEADER, value);
+        }
+    }
+
+    /**
+     * Hold every call back after Binance answered {@code 429}, for {@code retryAfterSeconds} when it sent
+     * {@code Retry-After}, otherwise until the next minute.
+     */
+    public synchronized void backOff(Long retryAfterSeconds) {
+        long now = clock.millis();
+        roll(now);
+        long until = retryAfterSeconds != null
+                ? now + retryAfterSeconds * 1000
+                : windowStart + MINUTE_MILLIS;
+        blockedUntil = Math.max(blockedUntil, until);
+        usedWeight = weightLimitPerMinute;
+        log.warn("Binance rate limit hit, holding REST calls for {} ms", blockedUntil - now);
+    }
+
+    private void roll(long now) {
+        long minute = now - now % MINUTE_MILLIS;
+        if (minute != windowStart) {
+            windowStart = minute;
+            usedWeight = 0;
+        }
+    }
+}
@@ -1,12 +1,15 @@
 package com.oyakov.binance_data_collection.rest.client.binance;
 
+import com.fasterxml.jackson.core.JsonProcessingException;
 import com.oyakov.binance_data_collection.config.BinanceDataCollectionConfig;
 import com.oyakov.binance_data_collection.domain.converter.JsonToKlineEventMapper;
 import com.oyakov.binance_data_collection.domain.kline.KlineStream;
 import com.oyakov.binance_shared_model.avro.KlineEvent;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.log4j.Log4j2;
+import org.springframework.http.ResponseEntity;
 import org.springframework.stereotype.Component;
+import org.springframework.web.client.HttpClientErrorException;
 import org.springframework.web.client.RestTemplate;
 import org.springframework.web.util.UriComponentsBuilder;
 
@@ -17,9 +20,15 @@ import java.util.List;
 @RequiredArgsConstructor
 public class BinanceRestKlineClient {
 
+    /**
+     * Request weight of {@code GET /api/v3/klines}, whatever the limit.
+     */
+    static final int KLINES_WEIGHT = 2;
+
     private final BinanceDataCollectionConfig config;
     private final RestTemplate restTemplate;
     private final JsonToKlineEventMapper mapper;
+    private final BinanceRequestWeightLimiter weightLimiter;
 
     public List<KlineEvent> fetchWarmupKlines(KlineStream klineStream, int limit) {
         String symbol = klineStream.fingerprint().symbol().toUpperCase();
@@ -35,10 +44,14 @@ public class BinanceRestKlineClient {
 
         log.info("Fetching warm-up klines from: {}", url);
         try {
-            String json = restTemplate.getForObject(url, String.class);
+            String json = getKlines(url);
             List<KlineEvent> events = mapper.mapJsonToKlineEvents(json, symbol, interval);
             log.debug("{} warmup klines received from {}", events.size(), url);
             return events;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            log.warn("Interrupted while waiting to fetch warm-up klines for {}-{}", symbol, interval);
+            return List.of();
         } catch (Exception e) {
             log.error("Failed to fetch warm-up klines for {}-{}", symbol, interval, e);
             return List.of();
@@ -50,6 +63,27 @@ public class BinanceRestKlineClient {
                                                   Integer limit,
                                                   Long startTime,
                                                   Long endTime) {
+        try {
+            return fetchKlinePage(symbol, interval, limit, startTime, endTime);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            log.warn("Interrupted while waiting to fetch historical klines for {}-{}", symbol.toUpperCase(), interval);
+            return List.of();
+        } catch (Exception e) {
+            log.error("Failed to fetch historical klines for {}-{}", symbol.toUpperCase(), interval, e);
+            return List.of();
+        }
+    }
+
+    /**
+     * Same request as {@link #fetchHistoricalKlines}, but failures are thrown instead of returned as an empty
+     * page, so callers can tell a failed request from a range without klines.
+     */
+    public List<KlineEvent> fetchKlinePage(String symbol,
+                                           String interval,
+                                           Integer limit,
+                                           Long startTime,
+                                           Long endTime) throws InterruptedException, JsonProcessingException {
         String upperSymbol = symbol.toUpperCase();
         UriComponentsBuilder builder = UriComponentsBuilder.fromHttpUrl(config.getRest().getBaseUrl())
                 .path("/api/v3/klines")
@@ -67,12 +101,24 @@ public class BinanceRestKlineClient {
 
         String url = builder.encode().build().toUriString();
         log.info("Fetching historical klines from {}", url);
+        String json = getKlines(url);
+        return mapper.mapJsonToKlineEvents(json, upperSymbol, interval);
+    }
+
+    /**
+     * GET within the request weight budget; the weight Binance reports back is fed to the limiter.
+     */
+    private String getKlines(String url) throws InterruptedException {
+        weightLimiter.acquire(KLINES_WEIGHT);
         try {
-            String json = restTemplate.getForObject(url, String.class);
-            return mapper.mapJsonToKlineEvents(json, upperSymbol, interval);
-        } catch (Exception e) {
-            log.error("Failed to fetch historical klines for {}-{}", upperSymbol, interval, e);
-            return List.of();
+            ResponseEntity<String> response = restTemplate.getForEntity(url, String.class);
+            weightLimiter.update(response.getHeaders());
+            return response.getBody();
+        } catch (HttpClientErrorException.TooManyRequests e) {
+            String retryAfter = e.getResponseHeaders() != null ? e.getResponseHeaders().getFirst("Retry-After") : null;
+            weightLimiter.backOff(retryAfter != null && retryAfter.trim().matches("\\d+")
+                    ? Long.valueOf(retryAfter.trim()) : null);
+            throw e;
         }
     }
 }
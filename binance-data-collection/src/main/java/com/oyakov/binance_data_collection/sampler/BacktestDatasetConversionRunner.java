@@ -0,0 +1,33 @@
+package com.oyakov.binance_data_collection.sampler;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.log4j.Log4j2;
+import org.springframework.boot.ApplicationArguments;
+import org.springframework.boot.ApplicationRunner;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+@Log4j2
+@Component
+@RequiredArgsConstructor
+@ConditionalOnProperty(prefix = "binance.sampler.conversion", name = "enabled", havingValue = "true")
+public class BacktestDatasetConversionRunner implements ApplicationRunner {
+
+    private final HistoricalSamplerProperties properties;
+    private final BacktestDatasetConverter converter;
+
+    @Override
+    public void run(ApplicationArguments args) {
+        HistoricalSamplerProperties.Conversion conversion = properties.getConversion();
+        String source = conversion.getSource() != null ? conversion.getSource() : properties.getOutputDirectory();
+        String target = conversion.getTargetDirectory() != null ? conversion.getTargetDirectory() : source;
+        if (!Files.exists(Path.of(source))) {
+            throw new IllegalStateException("Dataset conversion source " + source
+                    + " does not exist. Configure binance.sampler.conversion.source");
+        }
+        converter.convert(Path.of(source), Path.of(target));
+    }
+}
@@ -0,0 +1,75 @@
+package com.oyakov.binance_data_collection.sampler;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.oyakov.binance_shared_model.backtest.BacktestDataset;
+import com.oyakov.binance_shared_model.backtest.ColumnarKlineDataset;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.log4j.Log4j2;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Stream;
+
+/**
+ * Converts JSON datasets written by {@link BacktestDatasetFileWriter} to the columnar format. Converted
+ * files keep their base name with the {@link ColumnarKlineDataset#FILE_EXTENSION} extension.
+ */
+@Component
+@Log4j2
+@RequiredArgsConstructor
+public class BacktestDatasetConverter {
+
+    private static final String JSON_EXTENSION = DatasetFormat.JSON.getExtension();
+
+    private final ObjectMapper objectMapper;
+
+    /**
+     * Converts {@code source}, either a single JSON file or every JSON file directly inside a directory.
+     *
+     * @return the columnar files written, in source file name order
+     */
+    public List<Path> convert(Path source, Path targetDirectory) {
+        List<Path> converted = new ArrayList<>();
+        for (Path jsonFile : listJsonFiles(source)) {
+            converted.add(convertFile(jsonFile, targetDirectory));
+        }
+        log.info("Converted {} JSON datasets from {} to {}", converted.size(), source, targetDirectory);
+        return converted;
+    }
+
+    private Path convertFile(Path jsonFile, Path targetDirectory) {
+        String fileName = jsonFile.getFileName().toString();
+        String baseName = fileName.substring(0, fileName.length() - JSON_EXTENSION.length());
+        Path target = targetDirectory.resolve(baseName + ColumnarKlineDataset.FILE_EXTENSION);
+        try {
+            BacktestDataset dataset = objectMapper.readValue(jsonFile.toFile(), BacktestDataset.class);
+            if (dataset.getName() == null || dataset.getName().isBlank()) {
+                dataset.setName(baseName);
+            }
+            ColumnarKlineDataset.write(dataset, target);
+            log.info("Converted dataset {} with {} klines to {}", dataset.getName(),
+                    dataset.getKlines() != null ? dataset.getKlines().size() : 0, target);
+            return target;
+        } catch (IOException e) {
+            throw new IllegalStateException("Failed to convert dataset " + jsonFile, e);
+        }
+    }
+
+    private List<Path> listJsonFiles(Path source) {
+        if (!Files.isDirectory(source)) {
+            return List.of(source);
+        }
+        try (Stream<Path> files = Files.list(source)) {
+            return files.filter(Files::isRegularFile)
+                    .filter(file -> file.getFileName().toString().endsWith(JSON_EXTENSION))
+                    .sorted()
+                    .toList();
+        } catch (IOException e) {
+            throw new IllegalStateException("Failed to list datasets in " + source, e);
+        }
+    }
+}
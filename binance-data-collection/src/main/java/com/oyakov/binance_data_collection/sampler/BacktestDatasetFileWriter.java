@@ -2,6 +2,7 @@ package com.oyakov.binance_data_collection.sampler;
 
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.oyakov.binance_shared_model.backtest.BacktestDataset;
+import com.oyakov.binance_shared_model.backtest.ColumnarKlineDataset;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.log4j.Log4j2;
 import org.springframework.stereotype.Component;
@@ -25,14 +26,21 @@ public class BacktestDatasetFileWriter {
     private final ObjectMapper objectMapper;
 
     public Path writeDataset(BacktestDataset dataset, String outputDirectory) {
+        return writeDataset(dataset, outputDirectory, DatasetFormat.JSON);
+    }
+
+    public Path writeDataset(BacktestDataset dataset, String outputDirectory, DatasetFormat format) {
         try {
             Path directory = Path.of(outputDirectory);
             Files.createDirectories(directory);
             String timestamp = FILE_TIME_FORMATTER.format(dataset.getCollectedAt());
             String datasetLabel = buildDatasetLabel(dataset);
-            String fileName = "%s_%s.json".formatted(datasetLabel, timestamp);
+            String fileName = "%s_%s%s".formatted(datasetLabel, timestamp, format.getExtension());
             Path file = directory.resolve(fileName);
-            objectMapper.writerWithDefaultPrettyPrinter().writeValue(file.toFile(), dataset);
+            switch (format) {
+                case JSON -> objectMapper.writerWithDefaultPrettyPrinter().writeValue(file.toFile(), dataset);
+                case COLUMNAR -> ColumnarKlineDataset.write(dataset, file);
+            }
             log.info("Saved dataset {} with {} klines to {}", dataset.getName(), dataset.getKlines().size(), file);
             return file;
         } catch (IOException e) {
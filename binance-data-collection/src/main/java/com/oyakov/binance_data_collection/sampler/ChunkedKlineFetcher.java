@@ -0,0 +1,185 @@
+package com.oyakov.binance_data_collection.sampler;
+
+import com.oyakov.binance_data_collection.rest.client.binance.BinanceRestKlineClient;
+import com.oyakov.binance_shared_model.avro.KlineEvent;
+import com.oyakov.binance_shared_model.backtest.BacktestDataset;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.log4j.Log4j2;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import java.time.Clock;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.TreeMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Fetches every kline of a time range, however long.
+ * <p>
+ * The range is cut into chunks of {@value #MAX_KLINES_PER_REQUEST} klines, aligned to multiples of the chunk
+ * length since the epoch so that every run cuts a range the same way. Chunks are fetched on
+ * {@code binance.sampler.parallelism} threads; the REST client keeps them within the request weight budget. A
+ * chunk that lies completely in the past is saved under {@code binance.sampler.checkpoint-directory} once
+ * fetched and read from there by later runs, so an interrupted run resumes with the chunks it had not fetched
+ * yet. A chunk whose requests keep failing fails the whole range rather than leave a hole in it.
+ */
+@Component
+@Log4j2
+public class ChunkedKlineFetcher {
+
+    static final int MAX_KLINES_PER_REQUEST = 1000;
+    private static final int MAX_ATTEMPTS = 3;
+
+    private final BinanceRestKlineClient klineClient;
+    private final HistoricalSamplerProperties properties;
+    private final HistoricalKlineCache klineCache;
+    private final Clock clock;
+    private final ExecutorService executor;
+
+    @Autowired
+    public ChunkedKlineFetcher(BinanceRestKlineClient klineClient,
+                               HistoricalSamplerProperties properties,
+                               HistoricalKlineCache klineCache) {
+        this(klineClient, properties, klineCache, Clock.systemUTC());
+    }
+
+    ChunkedKlineFetcher(BinanceRestKlineClient klineClient,
+                        HistoricalSamplerProperties properties,
+                        HistoricalKlineCache klineCache,
+                        Clock clock) {
+        this.klineClient = klineClient;
+        this.properties = properties;
+        this.klineCache = klineCache;
+        this.clock = clock;
+        AtomicInteger threadCount = new AtomicInteger();
+        this.executor = Executors.newFixedThreadPool(Math.max(1, properties.getParallelism()), runnable -> {
+            Thread thread = new Thread(runnable, "kline-sampler-" + threadCount.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        executor.shutdownNow();
+    }
+
+    /**
+     * All klines opened within {@code [startTime, endTime]}, in open time order.
+     *
+     * @throws IllegalStateException when a chunk could not be fetched
+     */
+    public List<KlineEvent> fetchRange(String symbol, String interval, long startTime, long endTime) {
+        long chunkMillis = intervalMillis(interval) * MAX_KLINES_PER_REQUEST;
+        long now = clock.millis();
+        List<Future<List<KlineEvent>>> chunks = new ArrayList<>();
+        for (long chunkStart = Math.floorDiv(startTime, chunkMillis) * chunkMillis;
+             chunkStart <= endTime;
+             chunkStart += chunkMillis) {
+            long start = chunkStart;
+            long end = chunkStart + chunkMillis;
+            boolean complete = end <= now;
+            chunks.add(executor.submit(() -> fetchChunk(symbol, interval, start, complete ? end : Math.min(end, now),
+                    complete)));
+        }
+        log.info("Fetching {} {} from {} to {} in {} chunks", symbol, interval,
+                Instant.ofEpochMilli(startTime), Instant.ofEpochMilli(endTime), chunks.size());
+
+        Map<Long, KlineEvent> byOpenTime = new TreeMap<>();
+        try {
+            for (Future<List<KlineEvent>> chunk : chunks) {
+                for (KlineEvent kline : chunk.get()) {
+                    if (kline.getOpenTime() >= startTime && kline.getOpenTime() <= endTime) {
+                        byOpenTime.put(kline.getOpenTime(), kline);
+                    }
+                }
+            }
+        } catch (InterruptedException e) {
+            chunks.forEach(chunk -> chunk.cancel(true));
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while fetching %s %s".formatted(symbol, interval), e);
+        } catch (ExecutionException e) {
+            chunks.forEach(chunk -> chunk.cancel(true));
+            throw new IllegalStateException("Failed to fetch %s %s".formatted(symbol, interval), e.getCause());
+        }
+        return new ArrayList<>(byOpenTime.values());
+    }
+
+    /**
+     * Klines opened within {@code [chunkStart, chunkEnd)}; a chunk normally takes one request, intervals without
+     * a fixed length (months) may take a second one.
+     */
+    private List<KlineEvent> fetchChunk(String symbol, String interval, long chunkStart, long chunkEnd,
+                                        boolean complete) throws Exception {
+        boolean checkpoint = complete && properties.isCheckpointEnabled();
+        String checkpointKey = "%s_%s_chunk_%d_%d".formatted(symbol.toLowerCase(), interval, chunkStart, chunkEnd);
+        if (checkpoint) {
+            Optional<BacktestDataset> saved = klineCache.loadDataset(properties.getCheckpointDirectory(), checkpointKey);
+            if (saved.isPresent()) {
+                return saved.get().getKlines();
+            }
+        }
+
+        List<KlineEvent> klines = new ArrayList<>();
+        long from = chunkStart;
+        while (from < chunkEnd) {
+            List<KlineEvent> page = fetchPage(symbol, interval, from, chunkEnd - 1);
+            klines.addAll(page);
+            KlineEvent last = page.isEmpty() ? null : page.get(page.size() - 1);
+            if (page.size() < MAX_KLINES_PER_REQUEST || last.getCloseTime() >= chunkEnd - 1) {
+                break;
+            }
+            from = last.getOpenTime() + 1;
+        }
+
+        // An empty chunk may predate the listing, or the symbol may be unknown; either way it is cheap to ask again
+        if (checkpoint && !klines.isEmpty()) {
+            klineCache.saveDataset(BacktestDataset.builder()
+                            .name(checkpointKey)
+                            .symbol(symbol.toUpperCase())
+                            .interval(interval)
+                            .collectedAt(Instant.ofEpochMilli(clock.millis()))
+                            .klines(List.copyOf(klines))
+                            .build(),
+                    properties.getCheckpointDirectory(), checkpointKey, properties.getCacheFormat());
+        }
+        return klines;
+    }
+
+    private List<KlineEvent> fetchPage(String symbol, String interval, long from, long to) throws Exception {
+        for (int attempt = 1; ; attempt++) {
+            try {
+                return klineClient.fetchKlinePage(symbol, interval, MAX_KLINES_PER_REQUEST, from, to);
+            } catch (InterruptedException e) {
+                throw e;
+            } catch (Exception e) {
+                if (attempt >= MAX_ATTEMPTS) {
+                    throw e;
+                }
+                log.warn("Attempt {} to fetch {} {} from {} failed, retrying", attempt, symbol, interval, from, e);
+            }
+        }
+    }
+
+    static long intervalMillis(String interval) {
+        long amount = Long.parseLong(interval.substring(0, interval.length() - 1));
+        return switch (interval.charAt(interval.length() - 1)) {
+            case 's' -> amount * 1000L;
+            case 'm' -> amount * 60_000L;
+            case 'h' -> amount * 3_600_000L;
+            case 'd' -> amount * 86_400_000L;
+            case 'w' -> amount * 7 * 86_400_000L;
+            // Months are 28 to 31 days; fetchChunk pages on when a chunk holds more than one request
+            case 'M' -> amount * 31 * 86_400_000L;
+            default -> throw new IllegalArgumentException("Unknown kline interval " + interval);
+        };
+    }
+}
@@ -0,0 +1,29 @@
+package com.oyakov.binance_data_collection.sampler;
+
+import com.oyakov.binance_shared_model.backtest.ColumnarKlineDataset;
+
+/**
+ * File formats the sampler can write backtest datasets in.
+ */
+public enum DatasetFormat {
+
+    /**
+     * Pretty-printed JSON of {@code BacktestDataset}, readable by every backtest tool.
+     */
+    JSON(".json"),
+
+    /**
+     * Memory-mapped columnar file, see {@link ColumnarKlineDataset}.
+     */
+    COLUMNAR(ColumnarKlineDataset.FILE_EXTENSION);
+
+    private final String extension;
+
+    DatasetFormat(String extension) {
+        this.extension = extension;
+    }
+
+    public String getExtension() {
+        return extension;
+    }
+}
@@ -2,6 +2,7 @@ package com.oyakov.binance_data_collection.sampler;
 
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.oyakov.binance_shared_model.backtest.BacktestDataset;
+import com.oyakov.binance_shared_model.backtest.ColumnarKlineDataset;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.log4j.Log4j2;
 import org.springframework.stereotype.Component;
@@ -18,13 +19,21 @@ public class HistoricalKlineCache {
 
     private final ObjectMapper objectMapper;
 
+    /**
+     * Looks the entry up in the columnar format first and falls back to entries cached as JSON.
+     */
     public Optional<BacktestDataset> loadDataset(String cacheDirectory, String cacheKey) {
-        Path cachePath = resolvePath(cacheDirectory, cacheKey);
+        Path columnarPath = resolvePath(cacheDirectory, cacheKey, DatasetFormat.COLUMNAR);
+        Path cachePath = Files.exists(columnarPath)
+                ? columnarPath
+                : resolvePath(cacheDirectory, cacheKey, DatasetFormat.JSON);
         if (!Files.exists(cachePath)) {
             return Optional.empty();
         }
         try {
-            BacktestDataset dataset = objectMapper.readValue(cachePath.toFile(), BacktestDataset.class);
+            BacktestDataset dataset = cachePath == columnarPath
+                    ? ColumnarKlineDataset.open(cachePath).toDataset()
+                    : objectMapper.readValue(cachePath.toFile(), BacktestDataset.class);
             log.info("Loaded cached dataset {} from {}", cacheKey, cachePath);
             return Optional.of(dataset);
         } catch (IOException e) {
@@ -33,19 +42,22 @@ public class HistoricalKlineCache {
         }
     }
 
-    public void saveDataset(BacktestDataset dataset, String cacheDirectory, String cacheKey) {
-        Path cachePath = resolvePath(cacheDirectory, cacheKey);
+    public void saveDataset(BacktestDataset dataset, String cacheDirectory, String cacheKey, DatasetFormat format) {
+        Path cachePath = resolvePath(cacheDirectory, cacheKey, format);
         try {
             Files.createDirectories(cachePath.getParent());
-            objectMapper.writerWithDefaultPrettyPrinter().writeValue(cachePath.toFile(), dataset);
+            switch (format) {
+                case JSON -> objectMapper.writerWithDefaultPrettyPrinter().writeValue(cachePath.toFile(), dataset);
+                case COLUMNAR -> ColumnarKlineDataset.write(dataset, cachePath);
+            }
             log.info("Cached dataset {} with {} klines at {}", cacheKey, dataset.getKlines().size(), cachePath);
         } catch (IOException e) {
             log.warn("Failed to write cached dataset {} to {}", cacheKey, cachePath, e);
         }
     }
 
-    private Path resolvePath(String cacheDirectory, String cacheKey) {
+    private Path resolvePath(String cacheDirectory, String cacheKey, DatasetFormat format) {
         String safeKey = cacheKey.replaceAll("[^a-zA-Z0-9_-]", "-");
-        return Path.of(cacheDirectory).resolve(safeKey + ".json");
+        return Path.of(cacheDirectory).resolve(safeKey + format.getExtension());
     }
 }
@@ -13,9 +13,16 @@ import java.time.ZoneOffset;
 import java.time.format.DateTimeFormatter;
 import java.time.temporal.ChronoUnit;
 import java.util.ArrayList;
+import java.util.Comparator;
 import java.util.List;
 import java.util.Optional;
 
+/**
+ * Collects backtest datasets from Binance.
+ * <p>
+ * The standard day ranges of a symbol and interval overlap, so only the longest one is fetched and the shorter
+ * ones are cut from it. Ranges with a start are fetched in full by {@link ChunkedKlineFetcher}.
+ */
 @Component
 @Log4j2
 @RequiredArgsConstructor
@@ -28,6 +35,7 @@ public class HistoricalKlineSampler {
     private final HistoricalSamplerProperties properties;
     private final BacktestDatasetFileWriter datasetWriter;
     private final HistoricalKlineCache klineCache;
+    private final ChunkedKlineFetcher chunkedFetcher;
 
     public List<Path> collect() {
         Instant collectedAt = Instant.now();
@@ -37,12 +45,7 @@ public class HistoricalKlineSampler {
         for (String symbol : properties.getSymbols()) {
             for (String interval : properties.getIntervals()) {
                 if (useStandardRanges) {
-                    for (Integer days : properties.getDayRanges()) {
-                        Path saved = collectForDayRange(symbol, interval, days, collectedAt, defaultEndInstant);
-                        if (saved != null) {
-                            savedFiles.add(saved);
-                        }
-                    }
+                    savedFiles.addAll(collectForDayRanges(symbol, interval, collectedAt, defaultEndInstant));
                 } else {
                     Path saved = collectWithCustomWindow(symbol, interval, collectedAt);
                     if (saved != null) {
@@ -54,31 +57,45 @@ public class HistoricalKlineSampler {
         return savedFiles;
     }
 
-    private Path collectForDayRange(String symbol,
-                                    String interval,
-                                    Integer days,
-                                    Instant collectedAt,
-                                    Instant endInstant) {
-        if (days == null || days <= 0) {
-            log.warn("Skipping invalid day range {} for {} {}", days, symbol, interval);
-            return null;
+    private List<Path> collectForDayRanges(String symbol, String interval, Instant collectedAt, Instant endInstant) {
+        List<Integer> dayRanges = new ArrayList<>();
+        for (Integer days : properties.getDayRanges()) {
+            if (days == null || days <= 0) {
+                log.warn("Skipping invalid day range {} for {} {}", days, symbol, interval);
+            } else {
+                dayRanges.add(days);
+            }
         }
-        Instant startInstant = endInstant.minus(days, ChronoUnit.DAYS);
-        String cacheKey = buildDayRangeCacheKey(symbol, interval, days, endInstant);
-        List<KlineEvent> klines = resolveKlines(symbol, interval, null,
-                startInstant.toEpochMilli(), endInstant.toEpochMilli(), collectedAt, cacheKey);
-        if (klines.isEmpty()) {
-            log.warn("No klines received for {} {} over {} days", symbol, interval, days);
-            return null;
+        if (dayRanges.isEmpty()) {
+            return List.of();
         }
-        BacktestDataset dataset = BacktestDataset.builder()
-                .name(symbol.toUpperCase() + "_" + interval + "_" + days + "d")
-                .symbol(symbol.toUpperCase())
-                .interval(interval)
-                .collectedAt(collectedAt)
-                .klines(klines)
-                .build();
-        return datasetWriter.writeDataset(dataset, properties.getOutputDirectory());
+        int maxDays = dayRanges.stream().max(Comparator.naturalOrder()).get();
+        String cacheKey = buildDayRangeCacheKey(symbol, interval, maxDays, endInstant);
+        List<KlineEvent> superset = resolveKlines(symbol, interval, null,
+                endInstant.minus(maxDays, ChronoUnit.DAYS).toEpochMilli(), endInstant.toEpochMilli(),
+                collectedAt, cacheKey);
+
+        List<Path> savedFiles = new ArrayList<>();
+        for (Integer days : dayRanges) {
+            long startTime = endInstant.minus(days, ChronoUnit.DAYS).toEpochMilli();
+            List<KlineEvent> klines = superset.stream()
+                    .filter(kline -> kline.getOpenTime() >= startTime)
+                    .toList();
+            if (klines.isEmpty()) {
+                log.warn("No klines received for {} {} over {} days", symbol, interval, days);
+                continue;
+            }
+            BacktestDataset dataset = BacktestDataset.builder()
+                    .name(symbol.toUpperCase() + "_" + interval + "_" + days + "d")
+                    .symbol(symbol.toUpperCase())
+                    .interval(interval)
+                    .collectedAt(collectedAt)
+                    .klines(klines)
+                    .build();
+            savedFiles.add(datasetWriter.writeDataset(dataset, properties.getOutputDirectory(),
+                    properties.getOutputFormat()));
+        }
+        return savedFiles;
     }
 
     private Path collectWithCustomWindow(String symbol, String interval, Instant collectedAt) {
@@ -96,7 +113,7 @@ public class HistoricalKlineSampler {
                 .collectedAt(collectedAt)
                 .klines(klines)
                 .build();
-        return datasetWriter.writeDataset(dataset, properties.getOutputDirectory());
+        return datasetWriter.writeDataset(dataset, properties.getOutputDirectory(), properties.getOutputFormat());
     }
 
     private List<KlineEvent> resolveKlines(String symbol,
@@ -113,7 +130,19 @@ public class HistoricalKlineSampler {
             }
         }
 
-        List<KlineEvent> klines = klineClient.fetchHistoricalKlines(symbol, interval, limit, startTime, endTime);
+        List<KlineEvent> klines;
+        // A start-only window keeps its limit; every other window with a start is fetched in full
+        if (startTime != null && (endTime != null || limit == null)) {
+            long rangeEnd = endTime != null ? endTime : collectedAt.toEpochMilli();
+            try {
+                klines = chunkedFetcher.fetchRange(symbol, interval, startTime, rangeEnd);
+            } catch (IllegalStateException e) {
+                log.error("Failed to fetch {} {}; rerun to resume from the saved chunks", symbol, interval, e);
+                return List.of();
+            }
+        } else {
+            klines = klineClient.fetchHistoricalKlines(symbol, interval, limit, startTime, endTime);
+        }
         if (!klines.isEmpty() && properties.isCacheEnabled()) {
             BacktestDataset cacheDataset = BacktestDataset.builder()
                     .name(cacheKey)
@@ -122,7 +151,8 @@ public class HistoricalKlineSampler {
                     .collectedAt(collectedAt)
                     .klines(List.copyOf(klines))
                     .build();
-            klineCache.saveDataset(cacheDataset, properties.getCacheDirectory(), cacheKey);
+            klineCache.saveDataset(cacheDataset, properties.getCacheDirectory(), cacheKey,
+                    properties.getCacheFormat());
         }
         return klines;
     }
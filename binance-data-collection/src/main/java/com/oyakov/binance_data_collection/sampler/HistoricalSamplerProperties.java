@@ -33,11 +33,37 @@ public class HistoricalSamplerProperties {
             "1d",
             "1w"
     ));
+    /**
+     * Klines of a window given by {@code start-time} only; windows with a start and an end, and the day ranges,
+     * are fetched in full.
+     */
     private Integer limit = 500;
     private Long startTime;
     private Long endTime;
     private String outputDirectory = "backtest-datasets";
+    private DatasetFormat outputFormat = DatasetFormat.JSON;
     private List<Integer> dayRanges = new ArrayList<>(Arrays.asList(90, 180, 365, 720));
     private boolean cacheEnabled = true;
     private String cacheDirectory = "backtest-cache";
+    private DatasetFormat cacheFormat = DatasetFormat.COLUMNAR;
+    /**
+     * Chunks of {@value ChunkedKlineFetcher#MAX_KLINES_PER_REQUEST} klines fetched at the same time.
+     */
+    private int parallelism = 4;
+    /**
+     * Keep every fetched chunk on disk, so that an interrupted run resumes with the chunks it is missing.
+     */
+    private boolean checkpointEnabled = true;
+    private String checkpointDirectory = "backtest-cache/checkpoints";
+    private Conversion conversion = new Conversion();
+
+    /**
+     * One-off conversion of existing JSON datasets to the columnar format.
+     */
+    @Data
+    public static class Conversion {
+        private boolean enabled = false;
+        private String source;
+        private String targetDirectory;
+    }
 }
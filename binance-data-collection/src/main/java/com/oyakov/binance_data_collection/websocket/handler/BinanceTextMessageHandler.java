@@ -1,23 +1,29 @@
 package com.oyakov.binance_data_collection.websocket.handler;
 
-import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import com.oyakov.binance_data_collection.config.BinanceDataCollectionConfig;
+import com.oyakov.binance_data_collection.domain.converter.BinanceKlineFrameParser;
 import com.oyakov.binance_data_collection.domain.kline.KlineStream;
 import com.oyakov.binance_data_collection.domain.kline.KlineStreamCache;
 import com.oyakov.binance_data_collection.kafka.producer.KafkaProducerService;
 import com.oyakov.binance_data_collection.metrics.DataCollectionMetrics;
-import com.oyakov.binance_data_collection.model.binance.BinanceWebsocketEventData;
 import com.oyakov.binance_shared_model.avro.KlineEvent;
 import io.micrometer.core.instrument.Timer;
 import lombok.NonNull;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.log4j.Log4j2;
-import org.springframework.core.convert.ConversionService;
 import org.springframework.stereotype.Component;
 import org.springframework.web.socket.TextMessage;
 import org.springframework.web.socket.WebSocketSession;
 import org.springframework.web.socket.handler.TextWebSocketHandler;
 
+import java.io.IOException;
+
+/**
+ * Handles kline frames of both single-stream sessions ({@code /ws/<stream>}, routed by session id) and
+ * combined-stream sessions ({@code /stream?streams=...}, routed by the {@code stream} field of each frame).
+ */
 @Component
 @Log4j2
 @RequiredArgsConstructor
@@ -27,63 +33,108 @@ public class BinanceTextMessageHandler extends TextWebSocketHandler {
 
     private final KafkaProducerService kafkaProducerService;
     private final KlineStreamCache klineStreamCache;
-    private final ConversionService conversionService;
+    private final BinanceKlineFrameParser frameParser;
     private final DataCollectionMetrics metrics;
+    private final BinanceDataCollectionConfig config;
 
     @Override
     protected void handleTextMessage(WebSocketSession session, @NonNull TextMessage message) {
-        klineStreamCache.findStreamSourceBySessionId(session.getId())
-                .ifPresentOrElse(
-                        streamSource -> handleKlineUpdate(streamSource, message),
-                        () -> log.warn("Received kline update for unknown session {}", session.getId()));
+        String payload = message.getPayload();
+        BinanceKlineFrameParser.Header header;
+        try {
+            header = frameParser.readHeader(payload);
+        } catch (IOException e) {
+            log.error("Error decoding binance websocket frame", e);
+            throw new RuntimeException(e);
+        }
+
+        switch (header.type()) {
+            case KLINE -> {
+                if (header.streamName() != null) {
+                    klineStreamCache.findStreamSourceByStreamName(header.streamName())
+                            .ifPresentOrElse(
+                                    streamSource -> handleKlineUpdate(streamSource, header, payload),
+                                    () -> log.warn("Received kline update for unknown stream {} on session {}",
+                                            header.streamName(), session.getId()));
+                } else {
+                    klineStreamCache.findStreamSourceBySessionId(session.getId())
+                            .ifPresentOrElse(
+                                    streamSource -> handleKlineUpdate(streamSource, header, payload),
+                                    () -> log.warn("Received kline update for unknown session {}", session.getId()));
+                }
+            }
+            case RESPONSE -> handleStreamResponse(session, payload);
+            case OTHER -> log.warn("Ignoring unrecognised frame on session {}: {}", session.getId(), payload);
+        }
     }
 
-    private void handleKlineUpdate(KlineStream klineStream, TextMessage message) {
+    /**
+     * Response to a SUBSCRIBE / UNSUBSCRIBE request on a combined-stream session.
+     */
+    private void handleStreamResponse(WebSocketSession session, String payload) {
+        JsonNode frame;
+        try {
+            frame = MAPPER.readTree(payload);
+        } catch (IOException e) {
+            log.error("Error decoding binance stream response", e);
+            throw new RuntimeException(e);
+        }
+        if (frame.hasNonNull("error")) {
+            log.error("Stream request {} failed on session {}: {}", frame.get("id"), session.getId(), frame.get("error"));
+        } else {
+            log.debug("Stream request {} acknowledged on session {}", frame.get("id"), session.getId());
+        }
+    }
+
+    private void handleKlineUpdate(KlineStream klineStream, BinanceKlineFrameParser.Header header, String payload) {
         Timer.Sample sample = metrics.startKlineEventProcessing();
+        DataCollectionMetrics.StreamMeters meters = klineStream.meters();
         String symbol = "unknown";
         String interval = "unknown";
         boolean success = false;
-        try {
-            String payload = message.getPayload();
+        try {
             log.debug("Received message: {} for session {}", payload, klineStream.session().getId());
-            BinanceWebsocketEventData eventData;
-            try {
-                eventData = MAPPER.readValue(payload, BinanceWebsocketEventData.class);
-            } catch (JsonProcessingException e) {
-                log.error("Error decoding binance kline event data", e);
-                throw new RuntimeException(e);
+            if (config.getWebsocket().getClosedKlinesOnly() && !header.closed()) {
+                log.debug("Skipping non-final update of kline {} on {}", header.openTime(), klineStream.fingerprint());
+                return;
             }
 
-            log.debug("Parsed message: {}", eventData);
-            long newOpenTime = eventData.getKline().getOpenTime();
-            long newCloseTime = eventData.getKline().getCloseTime();
-
-            if (newOpenTime != klineStream.lastOpenTime() || newCloseTime != klineStream.lastCloseTime()) {
+            if (klineStreamCache.advanceTimestamps(klineStream.fingerprint(), header.openTime(), header.closeTime())) {
                 log.debug("New kline received");
-                KlineStream updatedKlineStream = klineStream.withTimestamps(newOpenTime, newCloseTime);
-                klineStreamCache.putStreamSource(updatedKlineStream);
-
-                KlineEvent klineEvent = conversionService.convert(eventData, KlineEvent.class);
-                if (klineEvent == null) {
-                    symbol = klineStream.fingerprint().symbol();
-                    interval = klineStream.fingerprint().interval();
-                    log.error("Conversion service returned null KlineEvent for payload: {}", payload);
-                    return;
+                KlineEvent klineEvent;
+                try {
+                    klineEvent = frameParser.readKlineEvent(payload);
+                } catch (IOException e) {
+                    log.error("Error decoding binance kline event data", e);
+                    throw new RuntimeException(e);
                 }
+                log.debug("Parsed message: {}", klineEvent);
                 symbol = klineEvent.getSymbol();
                 interval = klineEvent.getInterval();
-
+
+                if (meters == null) {
+                    meters = metrics.streamMeters(symbol, interval);
+                }
+
                 // Record metrics for the received kline event
-                metrics.incrementKlineEventsReceived(symbol, interval);
-
-                kafkaProducerService.sendKlineEvent(klineEvent);
+                meters.incrementKlineEventsReceived();
+
+                // A new stream's live klines wait until its warmup is published
+                if (!klineStreamCache.holdIfHeld(klineStream.fingerprint(), klineEvent)) {
+                    kafkaProducerService.sendKlineEvent(klineEvent, meters);
+                }
                 success = true;
+            } else {
+                log.debug("Kline update received with already existing timestamp {} on {}",
+                        header.openTime(), klineStream.fingerprint());
+            }
+        } finally {
+            if (meters != null) {
+                meters.recordKlineEventProcessingTime(sample, success);
             } else {
-                log.debug("Kline update received with already existing timestamp {}", eventData);
+                metrics.recordKlineEventProcessingTime(sample, symbol, interval, "failure");
             }
-        } finally {
-            metrics.recordKlineEventProcessingTime(sample, symbol, interval, success ? "success" : "failure");
-        }
-    }
+        }
+    }
 
 }
@@ -0,0 +1,67 @@
+package com.oyakov.binance_data_collection.domain.converter;
+
+import com.oyakov.binance_shared_model.avro.KlineEvent;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class BinanceKlineFrameParserTest {
+
+    private static final String EVENT = "{\"e\":\"kline\",\"E\":1672515782136,\"s\":\"BNBBTC\",\"k\":{\"t\":1672515780000,"
+            + "\"T\":1672515839999,\"s\":\"BNBBTC\",\"i\":\"1m\",\"f\":100,\"L\":200,\"o\":\"0.0010\",\"c\":\"0.0020\","
+            + "\"h\":\"0.0025\",\"l\":\"0.0015\",\"v\":\"1000\",\"n\":100,\"x\":true,\"q\":\"1.0000\",\"V\":\"500\","
+            + "\"Q\":\"0.500\",\"B\":\"123456\"}}";
+
+    private final BinanceKlineFrameParser parser = new BinanceKlineFrameParser();
+
+    @Test
+    void readsHeaderOfRawEvent() throws Exception {
+        BinanceKlineFrameParser.Header header = parser.readHeader(EVENT);
+
+        assertEquals(BinanceKlineFrameParser.FrameType.KLINE, header.type());
+        assertNull(header.streamName());
+        assertEquals(1672515780000L, header.openTime());
+        assertEquals(1672515839999L, header.closeTime());
+        assertTrue(header.closed());
+    }
+
+    @Test
+    void readsHeaderOfCombinedFrameInAnyFieldOrder() throws Exception {
+        BinanceKlineFrameParser.Header streamFirst = parser.readHeader(
+                "{\"stream\":\"bnbbtc@kline_1m\",\"data\":" + EVENT + "}");
+        BinanceKlineFrameParser.Header dataFirst = parser.readHeader(
+                "{\"data\":" + EVENT + ",\"stream\":\"bnbbtc@kline_1m\"}");
+
+        assertEquals("bnbbtc@kline_1m", streamFirst.streamName());
+        assertEquals(streamFirst, dataFirst);
+    }
+
+    @Test
+    void classifiesStreamResponses() throws Exception {
+        assertEquals(BinanceKlineFrameParser.FrameType.RESPONSE, parser.readHeader("{\"result\":null,\"id\":1}").type());
+        assertEquals(BinanceKlineFrameParser.FrameType.OTHER, parser.readHeader("{\"foo\":[1,2]}").type());
+    }
+
+    @Test
+    void decodesKlineEventFromRawAndCombinedFrames() throws Exception {
+        KlineEvent raw = parser.readKlineEvent(EVENT);
+        KlineEvent combined = parser.readKlineEvent("{\"stream\":\"bnbbtc@kline_1m\",\"data\":" + EVENT + "}");
+
+        assertEquals("kline", raw.getEventType());
+        assertEquals(1672515782136L, raw.getEventTime());
+        assertEquals("BNBBTC", raw.getSymbol());
+        assertEquals("1m", raw.getInterval());
+        assertEquals(1672515780000L, raw.getOpenTime());
+        assertEquals(1672515839999L, raw.getCloseTime());
+        assertEquals(new BigDecimal("0.0010"), raw.getOpen());
+        assertEquals(new BigDecimal("0.0025"), raw.getHigh());
+        assertEquals(new BigDecimal("0.0015"), raw.getLow());
+        assertEquals(new BigDecimal("0.0020"), raw.getClose());
+        assertEquals(new BigDecimal("1000"), raw.getVolume());
+        assertEquals(raw, combined);
+    }
+}
@@ -0,0 +1,88 @@
+package com.oyakov.binance_data_collection.domain.kline;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.web.socket.WebSocketSession;
+
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class KlineStreamCacheTest {
+
+    private static final KlineStream.Key BTC_1M = new KlineStream.Key("btcusdt", "1m");
+    private static final KlineStream.Key ETH_5M = new KlineStream.Key("ethusdt", "5m");
+
+    private KlineStreamCache cache;
+
+    @BeforeEach
+    void setUp() {
+        cache = new KlineStreamCache();
+    }
+
+    @Test
+    void indexesStreamsBySessionIdAndStreamName() {
+        WebSocketSession btcSession = session("s-btc");
+        WebSocketSession ethSession = session("s-eth");
+        cache.putStreamSource(new KlineStream(BTC_1M, -1, -1, btcSession));
+        cache.putStreamSource(new KlineStream(ETH_5M, -1, -1, ethSession));
+
+        assertEquals(BTC_1M, cache.findStreamSourceBySessionId("s-btc").orElseThrow().fingerprint());
+        assertEquals(ETH_5M, cache.findStreamSourceBySessionId("s-eth").orElseThrow().fingerprint());
+        assertEquals(ETH_5M, cache.findStreamSourceByStreamName("ethusdt@kline_5m").orElseThrow().fingerprint());
+        assertTrue(cache.findStreamSourceBySessionId("unknown").isEmpty());
+    }
+
+    @Test
+    void advancesTimestampsInPlaceOnlyForNewKlines() {
+        cache.putStreamSource(new KlineStream(BTC_1M, -1, -1, session("s-btc")));
+
+        assertTrue(cache.advanceTimestamps(BTC_1M, 1000L, 1999L));
+        assertFalse(cache.advanceTimestamps(BTC_1M, 1000L, 1999L));
+        assertTrue(cache.advanceTimestamps(BTC_1M, 2000L, 2999L));
+        assertFalse(cache.advanceTimestamps(ETH_5M, 2000L, 2999L));
+
+        KlineStream stream = cache.findStreamSourceBySessionId("s-btc").orElseThrow();
+        assertEquals(2000L, stream.lastOpenTime());
+        assertEquals(2999L, stream.lastCloseTime());
+    }
+
+    @Test
+    void reconnectReplacesSessionIndex() {
+        cache.putStreamSource(new KlineStream(BTC_1M, -1, -1, session("old")));
+        cache.putStreamSource(new KlineStream(BTC_1M, -1, -1, session("new")));
+
+        assertTrue(cache.findStreamSourceBySessionId("old").isEmpty());
+        assertEquals(BTC_1M, cache.findStreamSourceBySessionId("new").orElseThrow().fingerprint());
+    }
+
+    @Test
+    void closeAndRemoveDropAllIndexes() throws Exception {
+        WebSocketSession btcSession = session("s-btc");
+        WebSocketSession ethSession = session("s-eth");
+        cache.putStreamSource(new KlineStream(BTC_1M, -1, -1, btcSession));
+        cache.putStreamSource(new KlineStream(ETH_5M, -1, -1, ethSession));
+
+        assertEquals(Set.of("s-btc"), cache.closeStreamSources(Set.of(BTC_1M)));
+        verify(btcSession).close();
+        assertTrue(cache.findStreamSourceBySessionId("s-btc").isEmpty());
+        assertTrue(cache.findStreamSourceByStreamName("btcusdt@kline_1m").isEmpty());
+
+        cache.removeStreamSources(Set.of(ETH_5M));
+        verify(ethSession, never()).close();
+        assertTrue(cache.findStreamSourceBySessionId("s-eth").isEmpty());
+        assertTrue(cache.getActiveSSFingerprints().isEmpty());
+    }
+
+    private static WebSocketSession session(String id) {
+        WebSocketSession session = mock(WebSocketSession.class);
+        when(session.getId()).thenReturn(id);
+        return session;
+    }
+}
@@ -0,0 +1,127 @@
+package com.oyakov.binance_data_collection.domain.kline;
+
+import com.oyakov.binance_data_collection.URLFormatter;
+import com.oyakov.binance_data_collection.config.BinanceDataCollectionConfig;
+import com.oyakov.binance_data_collection.domain.converter.BinanceKlineFrameParser;
+import com.oyakov.binance_data_collection.kafka.producer.KafkaProducerService;
+import com.oyakov.binance_data_collection.metrics.DataCollectionMetrics;
+import com.oyakov.binance_data_collection.rest.client.binance.BinanceRestKlineClient;
+import com.oyakov.binance_data_collection.websocket.handler.BinanceTextMessageHandler;
+import com.oyakov.binance_shared_model.avro.KlineEvent;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.mockito.InOrder;
+import org.springframework.web.socket.TextMessage;
+import org.springframework.web.socket.WebSocketSession;
+
+import java.math.BigDecimal;
+import java.net.URI;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.inOrder;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.timeout;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class KlineStreamManagerBinanceTest {
+
+    private static final KlineStream.Key BTC_1M = new KlineStream.Key("btcusdt", "1m");
+    private static final long MINUTE = 60_000L;
+    private static final String TOPIC = "binance-kline";
+
+    private final CountDownLatch warmupFetched = new CountDownLatch(1);
+    private KafkaProducerService kafkaProducerService;
+    private BinanceRestKlineClient restKlineClient;
+    private KlineStreamCache klineStreamCache;
+    private BinanceTextMessageHandler handler;
+    private KlineStreamManagerBinance manager;
+
+    @BeforeEach
+    void setUp() {
+        BinanceDataCollectionConfig config = new BinanceDataCollectionConfig();
+        config.getWebsocket().setAutoConnect(false);
+        config.getData().getKline().setKafkaTopic(TOPIC);
+        DataCollectionMetrics metrics = new DataCollectionMetrics(new SimpleMeterRegistry());
+        metrics.init();
+        kafkaProducerService = mock(KafkaProducerService.class);
+        when(kafkaProducerService.sendKlineEvents(anyString(), any()))
+                .thenReturn(CompletableFuture.completedFuture(null));
+        restKlineClient = mock(BinanceRestKlineClient.class);
+        URLFormatter urlFormatter = mock(URLFormatter.class);
+        // Nothing listens there, so the handshake fails fast
+        when(urlFormatter.formatCombinedStreamURL(anyList())).thenReturn(URI.create("ws://127.0.0.1:1/stream"));
+        klineStreamCache = new KlineStreamCache();
+        handler = new BinanceTextMessageHandler(kafkaProducerService, klineStreamCache, new BinanceKlineFrameParser(),
+                metrics, config);
+        manager = new KlineStreamManagerBinance(config, klineStreamCache, handler, restKlineClient, urlFormatter,
+                kafkaProducerService, metrics);
+        manager.init();
+    }
+
+    @AfterEach
+    void tearDown() {
+        manager.shutdown();
+    }
+
+    @Test
+    void publishesWarmupAndGapFillBeforeTheFirstLiveKline() throws Exception {
+        long firstOpenTime = (System.currentTimeMillis() / MINUTE - 10) * MINUTE;
+        List<KlineEvent> warmup = List.of(kline(firstOpenTime), kline(firstOpenTime + MINUTE));
+        List<KlineEvent> gapFill = List.of(kline(firstOpenTime + MINUTE), kline(firstOpenTime + 2 * MINUTE));
+        when(restKlineClient.fetchWarmupKlines(any(), anyInt())).thenAnswer(invocation -> {
+            warmupFetched.await(5, TimeUnit.SECONDS);
+            return warmup;
+        });
+        when(restKlineClient.fetchHistoricalKlines(eq("btcusdt"), eq("1m"), anyInt(), eq(firstOpenTime + MINUTE), any()))
+                .thenReturn(gapFill);
+
+        manager.connect(List.of(new KlineStream(BTC_1M, -1, -1, null)));
+        // The stream delivers its current kline while the warmup is still being fetched
+        WebSocketSession session = mock(WebSocketSession.class);
+        when(session.getId()).thenReturn("combined-1");
+        klineStreamCache.putStreamSource(new KlineStream(BTC_1M, -1, -1, session));
+        handler.handleMessage(session, liveFrame(firstOpenTime + 10 * MINUTE));
+        verify(kafkaProducerService, never()).sendKlineEvent(any(), any());
+
+        warmupFetched.countDown();
+
+        ArgumentCaptor<KlineEvent> live = ArgumentCaptor.forClass(KlineEvent.class);
+        verify(kafkaProducerService, timeout(5_000)).sendKlineEvent(live.capture(), any());
+        InOrder order = inOrder(kafkaProducerService);
+        order.verify(kafkaProducerService).sendKlineEvents(TOPIC, warmup);
+        order.verify(kafkaProducerService).sendKlineEvents(TOPIC, gapFill);
+        order.verify(kafkaProducerService).sendKlineEvent(any(), any());
+        assertEquals(firstOpenTime + 10 * MINUTE, live.getValue().getOpenTime());
+
+        // Once released, live klines go straight out
+        handler.handleMessage(session, liveFrame(firstOpenTime + 11 * MINUTE));
+        verify(kafkaProducerService, times(2)).sendKlineEvent(any(), any());
+    }
+
+    private static KlineEvent kline(long openTime) {
+        BigDecimal price = BigDecimal.ONE;
+        return new KlineEvent("kline", openTime + MINUTE, "BTCUSDT", "1m", openTime, openTime + MINUTE - 1,
+                price, price, price, price, price);
+    }
+
+    private static TextMessage liveFrame(long openTime) {
+        return new TextMessage(("{\"stream\":\"btcusdt@kline_1m\",\"data\":{\"e\":\"kline\",\"E\":%d,\"s\":\"BTCUSDT\","
+                + "\"k\":{\"t\":%d,\"T\":%d,\"s\":\"BTCUSDT\",\"i\":\"1m\",\"o\":\"1.0\",\"c\":\"2.0\",\"h\":\"3.0\","
+                + "\"l\":\"0.5\",\"v\":\"10\",\"x\":false}}}").formatted(openTime + 10, openTime, openTime + MINUTE - 1));
+    }
+}
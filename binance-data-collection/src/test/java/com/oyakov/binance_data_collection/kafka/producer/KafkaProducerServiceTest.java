@@ -0,0 +1,101 @@
+package com.oyakov.binance_data_collection.kafka.producer;
+
+import com.oyakov.binance_data_collection.config.BinanceDataCollectionConfig;
+import com.oyakov.binance_data_collection.metrics.DataCollectionMetrics;
+import com.oyakov.binance_shared_model.avro.KlineEvent;
+import com.oyakov.binance_shared_model.logging.CorrelationIdConstants;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.apache.kafka.clients.producer.ProducerRecord;
+import org.apache.kafka.common.KafkaException;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.springframework.kafka.core.KafkaTemplate;
+import org.springframework.kafka.support.SendResult;
+
+import java.math.BigDecimal;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class KafkaProducerServiceTest {
+
+    private static final String TOPIC = "binance-kline";
+
+    private SimpleMeterRegistry meterRegistry;
+    private KafkaTemplate<String, KlineEvent> kafkaTemplate;
+    private KafkaProducerService service;
+
+    @BeforeEach
+    @SuppressWarnings("unchecked")
+    void setUp() {
+        meterRegistry = new SimpleMeterRegistry();
+        DataCollectionMetrics metrics = new DataCollectionMetrics(meterRegistry);
+        metrics.init();
+        BinanceDataCollectionConfig config = new BinanceDataCollectionConfig();
+        config.getData().getKline().setKafkaTopic(TOPIC);
+        kafkaTemplate = mock(KafkaTemplate.class);
+        service = new KafkaProducerService(config, kafkaTemplate, metrics);
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void batchSharesOneCorrelationHeaderAndCountsPerSeries() {
+        CompletableFuture<SendResult<String, KlineEvent>> acknowledged = CompletableFuture.completedFuture(null);
+        when(kafkaTemplate.send(any(ProducerRecord.class))).thenReturn(acknowledged);
+
+        CompletableFuture<Void> result = service.sendKlineEvents(TOPIC,
+                List.of(kline("BTCUSDT", 0L), kline("BTCUSDT", 60_000L), kline("ETHUSDT", 0L)));
+
+        ArgumentCaptor<ProducerRecord<String, KlineEvent>> records = ArgumentCaptor.forClass(ProducerRecord.class);
+        verify(kafkaTemplate, times(3)).send(records.capture());
+        byte[] correlationId = records.getValue().headers()
+                .lastHeader(CorrelationIdConstants.CORRELATION_ID_KAFKA_HEADER).value();
+        for (ProducerRecord<String, KlineEvent> record : records.getAllValues()) {
+            assertEquals(TOPIC, record.topic());
+            assertArrayEquals(correlationId, record.headers()
+                    .lastHeader(CorrelationIdConstants.CORRELATION_ID_KAFKA_HEADER).value());
+        }
+        assertTrue(result.isDone());
+        assertEquals(2.0, sentCount("BTCUSDT"), 0.0001);
+        assertEquals(1.0, sentCount("ETHUSDT"), 0.0001);
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void batchFailsWhenAnyRecordFails() {
+        when(kafkaTemplate.send(any(ProducerRecord.class)))
+                .thenReturn(CompletableFuture.completedFuture(null))
+                .thenReturn(CompletableFuture.failedFuture(new KafkaException("broker down")));
+
+        CompletableFuture<Void> result = service.sendKlineEvents(TOPIC,
+                List.of(kline("BTCUSDT", 0L), kline("BTCUSDT", 60_000L)));
+
+        assertTrue(result.isCompletedExceptionally());
+        assertEquals(1.0, sentCount("BTCUSDT"), 0.0001);
+        assertEquals(1.0, meterRegistry.get("binance_data_collection_kline_events_failed_kafka_total")
+                .tag("error", "KafkaException")
+                .counter()
+                .count(), 0.0001);
+    }
+
+    private double sentCount(String symbol) {
+        return meterRegistry.get("binance_data_collection_kline_events_sent_kafka_total")
+                .tag("symbol", symbol)
+                .counter()
+                .count();
+    }
+
+    private static KlineEvent kline(String symbol, long openTime) {
+        return new KlineEvent("kline", openTime, symbol, "1m", openTime, openTime + 59_999L,
+                BigDecimal.ONE, BigDecimal.TEN, BigDecimal.ONE, BigDecimal.TEN, BigDecimal.ONE);
+    }
+}
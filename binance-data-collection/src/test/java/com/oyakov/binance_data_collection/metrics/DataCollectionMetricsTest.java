@@ -8,6 +8,7 @@ import org.junit.jupiter.api.Test;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
 
 class DataCollectionMetricsTest {
 
@@ -75,4 +76,26 @@ class DataCollectionMetricsTest {
         assertNotNull(timer);
         assertEquals(1, timer.count());
     }
+
+    @Test
+    void streamMetersRecordOnTheSameMetersAsTaggedCalls() {
+        DataCollectionMetrics.StreamMeters meters = metrics.streamMeters("BTCUSDT", "1m");
+        assertSame(meters, metrics.streamMeters("BTCUSDT", "1m"));
+
+        meters.incrementKlineEventsReceived();
+        metrics.incrementKlineEventsReceived("BTCUSDT", "1m");
+        meters.recordKafkaSendTime(metrics.startKafkaSend(), false);
+
+        assertEquals(2.0, meterRegistry.get("binance_data_collection_kline_events_received_total")
+                .tag("symbol", "BTCUSDT")
+                .tag("interval", "1m")
+                .counter()
+                .count(), 0.0001);
+        assertEquals(1, meterRegistry.get("binance_data_collection_kafka_send_duration_seconds")
+                .tag("symbol", "BTCUSDT")
+                .tag("interval", "1m")
+                .tag("status", "failure")
+                .timer()
+                .count());
+    }
 }
@@ -0,0 +1,93 @@
+package com.oyakov.binance_data_collection.rest.client.binance;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.oyakov.binance_data_collection.config.BinanceDataCollectionConfig;
+import com.oyakov.binance_data_collection.domain.converter.JsonToKlineEventMapper;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.test.web.client.MockRestServiceServer;
+import org.springframework.web.client.RestTemplate;
+
+import java.time.Clock;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+import static org.springframework.test.web.client.match.MockRestRequestMatchers.requestTo;
+import static org.springframework.test.web.client.response.MockRestResponseCreators.withStatus;
+import static org.springframework.test.web.client.response.MockRestResponseCreators.withSuccess;
+
+class BinanceRequestWeightLimiterTest {
+
+    private static final long MINUTE = 60_000L;
+    // 15 s into a minute
+    private static final long NOW = 1_000 * MINUTE + 15_000L;
+
+    private Clock clock;
+    private BinanceRequestWeightLimiter limiter;
+
+    @BeforeEach
+    void setUp() {
+        clock = mock(Clock.class);
+        when(clock.millis()).thenReturn(NOW);
+        limiter = new BinanceRequestWeightLimiter(10, clock);
+    }
+
+    @Test
+    void waitsForNextMinuteOnceBudgetIsUsed() {
+        for (int i = 0; i < 5; i++) {
+            assertEquals(0, limiter.reserve(2));
+        }
+        assertEquals(45_000L, limiter.reserve(2));
+
+        when(clock.millis()).thenReturn(1_001 * MINUTE);
+        assertEquals(0, limiter.reserve(2));
+    }
+
+    @Test
+    void countsWeightReportedByBinance() {
+        HttpHeaders headers = new HttpHeaders();
+        headers.add(BinanceRequestWeightLimiter.USED_WEIGHT_HEADER, "9");
+        limiter.update(headers);
+
+        assertEquals(45_000L, limiter.reserve(2));
+    }
+
+    @Test
+    void holdsCallsForRetryAfterOnTooManyRequests() {
+        limiter.backOff(5L);
+
+        assertEquals(5_000L, limiter.reserve(1));
+        when(clock.millis()).thenReturn(NOW + 5_000L);
+        assertEquals(40_000L, limiter.reserve(1));
+    }
+
+    @Test
+    void restClientFeedsResponsesToLimiter() {
+        RestTemplate restTemplate = new RestTemplate();
+        MockRestServiceServer server = MockRestServiceServer.bindTo(restTemplate).build();
+        BinanceDataCollectionConfig config = new BinanceDataCollectionConfig();
+        config.getRest().setBaseUrl("https://api.binance.test");
+        BinanceRestKlineClient client = new BinanceRestKlineClient(config, restTemplate,
+                new JsonToKlineEventMapper(new ObjectMapper()), limiter);
+        HttpHeaders usedWeight = new HttpHeaders();
+        usedWeight.add(BinanceRequestWeightLimiter.USED_WEIGHT_HEADER, "6");
+        server.expect(requestTo("https://api.binance.test/api/v3/klines?symbol=BTCUSDT&interval=1m&startTime=0"))
+                .andRespond(withSuccess("[[0,\"1\",\"2\",\"0.5\",\"1.5\",\"10\",59999,\"15\",3,\"5\",\"7.5\",\"0\"]]",
+                        MediaType.APPLICATION_JSON).headers(usedWeight));
+        HttpHeaders retryAfter = new HttpHeaders();
+        retryAfter.add("Retry-After", "3");
+        server.expect(requestTo("https://api.binance.test/api/v3/klines?symbol=BTCUSDT&interval=1m&startTime=60000"))
+                .andRespond(withStatus(HttpStatus.TOO_MANY_REQUESTS).headers(retryAfter));
+
+        assertEquals(1, client.fetchHistoricalKlines("btcusdt", "1m", null, 0L, null).size());
+        assertTrue(client.fetchHistoricalKlines("btcusdt", "1m", null, MINUTE, null).isEmpty());
+
+        server.verify();
+        assertEquals(3_000L, limiter.reserve(1));
+    }
+}
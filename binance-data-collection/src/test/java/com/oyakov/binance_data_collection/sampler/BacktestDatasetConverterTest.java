@@ -0,0 +1,96 @@
+package com.oyakov.binance_data_collection.sampler;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.json.JsonMapper;
+import com.oyakov.binance_shared_model.avro.KlineEvent;
+import com.oyakov.binance_shared_model.backtest.BacktestDataset;
+import com.oyakov.binance_shared_model.backtest.ColumnarKlineDataset;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.math.BigDecimal;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Instant;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class BacktestDatasetConverterTest {
+
+    private static final String DATASET_JSON = """
+            {"name":"BTCUSDT_1m_90d","symbol":"BTCUSDT","interval":"1m","collectedAt":"2024-01-02T00:00:00Z",
+             "klines":[
+              {"eventType":"kline","eventTime":1704067260000,"symbol":"BTCUSDT","interval":"1m",
+               "openTime":1704067260000,"closeTime":1704067319999,"open":42100.5,"high":42180.25,
+               "low":42050.00000001,"close":42170.1,"volume":12.345},
+              {"eventType":"kline","eventTime":1704067200000,"symbol":"BTCUSDT","interval":"1m",
+               "openTime":1704067200000,"closeTime":1704067259999,"open":42000.0,"high":42120.75,
+               "low":41990.5,"close":42100.5,"volume":0.00012}
+             ]}
+            """;
+
+    private final ObjectMapper objectMapper = JsonMapper.builder().findAndAddModules().build();
+    private final BacktestDatasetConverter converter = new BacktestDatasetConverter(objectMapper);
+
+    @TempDir
+    Path tempDir;
+
+    @Test
+    void convertsJsonDatasetToSortedColumnarFile() throws Exception {
+        Path json = Files.writeString(tempDir.resolve("btcusdt_1m_90d_20240102000000.json"), DATASET_JSON);
+
+        List<Path> converted = converter.convert(json, tempDir.resolve("columnar"));
+
+        assertEquals(List.of(tempDir.resolve("columnar").resolve("btcusdt_1m_90d_20240102000000.klc")), converted);
+        assertTrue(ColumnarKlineDataset.isColumnar(converted.get(0)));
+        assertFalse(ColumnarKlineDataset.isColumnar(json));
+
+        ColumnarKlineDataset dataset = ColumnarKlineDataset.open(converted.get(0));
+        assertEquals("BTCUSDT_1m_90d", dataset.getName());
+        assertEquals("BTCUSDT", dataset.getSymbol());
+        assertEquals("1m", dataset.getInterval());
+        assertEquals(Instant.parse("2024-01-02T00:00:00Z"), dataset.getCollectedAt());
+        assertEquals(2, dataset.size());
+        assertEquals(1704067200000L, dataset.openTime(0));
+        assertEquals(1704067319999L, dataset.closeTime(1));
+        assertEquals(42050.00000001, dataset.low(1));
+        assertEquals(0.00012, dataset.volume(0));
+        assertArrayEquals(new double[]{42100.5, 42170.1}, dataset.closePrices());
+    }
+
+    @Test
+    void rebuildsKlineEventsWithEqualPrices() throws Exception {
+        Path json = Files.writeString(tempDir.resolve("dataset.json"), DATASET_JSON);
+        BacktestDataset original = objectMapper.readValue(json.toFile(), BacktestDataset.class);
+
+        Path columnar = converter.convert(json, tempDir).get(0);
+        List<KlineEvent> klines = ColumnarKlineDataset.open(columnar).toDataset().getKlines();
+
+        KlineEvent expected = original.getKlines().get(0);
+        KlineEvent actual = klines.get(1);
+        assertEquals(expected.getOpenTime(), actual.getOpenTime());
+        assertEquals(expected.getCloseTime(), actual.getCloseTime());
+        assertEquals(expected.getSymbol(), actual.getSymbol());
+        assertEquals(0, expected.getOpen().compareTo(actual.getOpen()));
+        assertEquals(0, expected.getHigh().compareTo(actual.getHigh()));
+        assertEquals(0, expected.getLow().compareTo(actual.getLow()));
+        assertEquals(0, expected.getClose().compareTo(actual.getClose()));
+        assertEquals(0, new BigDecimal("12.345").compareTo(actual.getVolume()));
+    }
+
+    @Test
+    void convertsEveryJsonFileOfDirectory() throws Exception {
+        Files.writeString(tempDir.resolve("b.json"), DATASET_JSON);
+        Files.writeString(tempDir.resolve("a.json"), DATASET_JSON);
+        Files.writeString(tempDir.resolve("notes.txt"), "not a dataset");
+
+        List<Path> converted = converter.convert(tempDir, tempDir.resolve("out"));
+
+        assertEquals(List.of(tempDir.resolve("out").resolve("a.klc"), tempDir.resolve("out").resolve("b.klc")),
+                converted);
+    }
+}
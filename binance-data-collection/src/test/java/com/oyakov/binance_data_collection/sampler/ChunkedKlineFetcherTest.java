@@ -0,0 +1,134 @@
+package com.oyakov.binance_data_collection.sampler;
+
+import com.fasterxml.jackson.databind.json.JsonMapper;
+import com.oyakov.binance_data_collection.rest.client.binance.BinanceRestKlineClient;
+import com.oyakov.binance_shared_model.avro.KlineEvent;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.web.client.RestClientException;
+
+import java.math.BigDecimal;
+import java.nio.file.Path;
+import java.time.Clock;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.LongStream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.doReturn;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class ChunkedKlineFetcherTest {
+
+    private static final long MINUTE = 60_000L;
+    private static final long CHUNK = ChunkedKlineFetcher.MAX_KLINES_PER_REQUEST * MINUTE;
+    // 2.5 chunks after the start of chunk 100
+    private static final long NOW = 102 * CHUNK + CHUNK / 2;
+
+    @TempDir
+    Path tempDir;
+
+    private BinanceRestKlineClient klineClient;
+    private HistoricalSamplerProperties properties;
+    private HistoricalKlineCache klineCache;
+    private Clock clock;
+    private final List<ChunkedKlineFetcher> fetchers = new ArrayList<>();
+
+    @BeforeEach
+    void setUp() throws Exception {
+        klineClient = mock(BinanceRestKlineClient.class);
+        when(klineClient.fetchKlinePage(eq("BTCUSDT"), eq("1m"), anyInt(), anyLong(), anyLong()))
+                .thenAnswer(invocation -> minuteKlines(invocation.getArgument(3), invocation.getArgument(4),
+                        invocation.getArgument(2)));
+        properties = new HistoricalSamplerProperties();
+        properties.setCheckpointDirectory(tempDir.resolve("checkpoints").toString());
+        klineCache = new HistoricalKlineCache(JsonMapper.builder().findAndAddModules().build());
+        clock = mock(Clock.class);
+        when(clock.millis()).thenReturn(NOW);
+    }
+
+    @AfterEach
+    void tearDown() {
+        fetchers.forEach(ChunkedKlineFetcher::shutdown);
+    }
+
+    @Test
+    void fetchesWholeRangeInChunkedRequests() throws Exception {
+        long start = 100 * CHUNK + 10 * MINUTE;
+        long end = NOW - MINUTE;
+
+        List<KlineEvent> klines = newFetcher().fetchRange("BTCUSDT", "1m", start, end);
+
+        assertEquals((end - start) / MINUTE + 1, klines.size());
+        for (int i = 0; i < klines.size(); i++) {
+            assertEquals(start + i * MINUTE, klines.get(i).getOpenTime());
+        }
+        verify(klineClient, times(3)).fetchKlinePage(anyString(), anyString(), anyInt(), anyLong(), anyLong());
+    }
+
+    @Test
+    void resumesFromCheckpointedChunks() throws Exception {
+        long start = 100 * CHUNK;
+        List<KlineEvent> first = newFetcher().fetchRange("BTCUSDT", "1m", start, NOW - MINUTE);
+
+        // Only the chunk that was still open is asked for again
+        doThrow(new RestClientException("unreachable"))
+                .when(klineClient).fetchKlinePage(eq("BTCUSDT"), eq("1m"), anyInt(), anyLong(), anyLong());
+        doReturn(minuteKlines(102 * CHUNK, NOW - 1, ChunkedKlineFetcher.MAX_KLINES_PER_REQUEST))
+                .when(klineClient).fetchKlinePage("BTCUSDT", "1m", ChunkedKlineFetcher.MAX_KLINES_PER_REQUEST,
+                        102 * CHUNK, NOW - 1);
+        List<KlineEvent> resumed = newFetcher().fetchRange("BTCUSDT", "1m", start, NOW - MINUTE);
+
+        assertEquals(first.size(), resumed.size());
+        assertEquals(first.get(first.size() - 1).getOpenTime(), resumed.get(resumed.size() - 1).getOpenTime());
+    }
+
+    @Test
+    void failsRangeWhenChunkKeepsFailing() throws Exception {
+        when(klineClient.fetchKlinePage(eq("BTCUSDT"), eq("1m"), anyInt(), anyLong(), anyLong()))
+                .thenThrow(new RestClientException("unreachable"));
+
+        ChunkedKlineFetcher fetcher = newFetcher();
+        assertThrows(IllegalStateException.class,
+                () -> fetcher.fetchRange("BTCUSDT", "1m", 100 * CHUNK, 100 * CHUNK + MINUTE));
+
+        verify(klineClient, times(3)).fetchKlinePage(anyString(), anyString(), anyInt(), anyLong(), anyLong());
+    }
+
+    private ChunkedKlineFetcher newFetcher() {
+        ChunkedKlineFetcher fetcher = new ChunkedKlineFetcher(klineClient, properties, klineCache, clock);
+        fetchers.add(fetcher);
+        return fetcher;
+    }
+
+    private static List<KlineEvent> minuteKlines(long from, long to, int limit) {
+        long first = (from + MINUTE - 1) / MINUTE * MINUTE;
+        return LongStream.iterate(first, openTime -> openTime <= to, openTime -> openTime + MINUTE)
+                .limit(limit)
+                .mapToObj(openTime -> KlineEvent.newBuilder()
+                        .setEventType("kline")
+                        .setEventTime(openTime)
+                        .setSymbol("BTCUSDT")
+                        .setInterval("1m")
+                        .setOpenTime(openTime)
+                        .setCloseTime(openTime + MINUTE - 1)
+                        .setOpen(BigDecimal.ONE)
+                        .setHigh(BigDecimal.TWO)
+                        .setLow(BigDecimal.ONE)
+                        .setClose(BigDecimal.TWO)
+                        .setVolume(BigDecimal.TEN)
+                        .build())
+                .toList();
+    }
+}
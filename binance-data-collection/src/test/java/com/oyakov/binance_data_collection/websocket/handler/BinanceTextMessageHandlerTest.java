@@ -0,0 +1,138 @@
+package com.oyakov.binance_data_collection.websocket.handler;
+
+import com.oyakov.binance_data_collection.URLFormatter;
+import com.oyakov.binance_data_collection.config.BinanceDataCollectionConfig;
+import com.oyakov.binance_data_collection.domain.converter.BinanceKlineFrameParser;
+import com.oyakov.binance_data_collection.domain.kline.KlineStream;
+import com.oyakov.binance_data_collection.domain.kline.KlineStreamCache;
+import com.oyakov.binance_data_collection.kafka.producer.KafkaProducerService;
+import com.oyakov.binance_data_collection.metrics.DataCollectionMetrics;
+import com.oyakov.binance_shared_model.avro.KlineEvent;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.springframework.web.socket.TextMessage;
+import org.springframework.web.socket.WebSocketSession;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class BinanceTextMessageHandlerTest {
+
+    private static final KlineStream.Key BTC_1M = new KlineStream.Key("btcusdt", "1m");
+    private static final KlineStream.Key ETH_5M = new KlineStream.Key("ethusdt", "5m");
+
+    private KafkaProducerService kafkaProducerService;
+    private KlineStreamCache klineStreamCache;
+    private BinanceDataCollectionConfig config;
+    private BinanceTextMessageHandler handler;
+    private WebSocketSession combinedSession;
+
+    @BeforeEach
+    void setUp() {
+        kafkaProducerService = mock(KafkaProducerService.class);
+        klineStreamCache = new KlineStreamCache();
+        DataCollectionMetrics metrics = new DataCollectionMetrics(new SimpleMeterRegistry());
+        metrics.init();
+        config = new BinanceDataCollectionConfig();
+        handler = new BinanceTextMessageHandler(kafkaProducerService, klineStreamCache, new BinanceKlineFrameParser(),
+                metrics, config);
+
+        combinedSession = session("combined-1");
+        klineStreamCache.putStreamSource(new KlineStream(BTC_1M, -1, -1, combinedSession));
+        klineStreamCache.putStreamSource(new KlineStream(ETH_5M, -1, -1, combinedSession));
+    }
+
+    @Test
+    void routesCombinedStreamFramesByStreamName() throws Exception {
+        handler.handleMessage(combinedSession, combinedFrame("ethusdt@kline_5m", "ETHUSDT", "5m", 1000L));
+        handler.handleMessage(combinedSession, combinedFrame("btcusdt@kline_1m", "BTCUSDT", "1m", 2000L));
+
+        ArgumentCaptor<KlineEvent> events = ArgumentCaptor.forClass(KlineEvent.class);
+        verify(kafkaProducerService, times(2)).sendKlineEvent(events.capture(), any());
+        List<KlineEvent> sent = events.getAllValues();
+        assertEquals("ETHUSDT", sent.get(0).getSymbol());
+        assertEquals("5m", sent.get(0).getInterval());
+        assertEquals("BTCUSDT", sent.get(1).getSymbol());
+        assertEquals(2000L, klineStreamCache.findStreamSourceByStreamName("btcusdt@kline_1m").orElseThrow().lastOpenTime());
+        assertEquals(1000L, klineStreamCache.findStreamSourceByStreamName("ethusdt@kline_5m").orElseThrow().lastOpenTime());
+    }
+
+    @Test
+    void skipsRepeatedUpdatesOfTheSameKlinePerStream() throws Exception {
+        handler.handleMessage(combinedSession, combinedFrame("btcusdt@kline_1m", "BTCUSDT", "1m", 1000L));
+        handler.handleMessage(combinedSession, combinedFrame("btcusdt@kline_1m", "BTCUSDT", "1m", 1000L));
+        handler.handleMessage(combinedSession, combinedFrame("ethusdt@kline_5m", "ETHUSDT", "5m", 1000L));
+
+        verify(kafkaProducerService, times(2)).sendKlineEvent(any(), any());
+    }
+
+    @Test
+    void ignoresSubscriptionResponsesAndUnknownStreams() throws Exception {
+        handler.handleMessage(combinedSession, new TextMessage("{\"result\":null,\"id\":1}"));
+        handler.handleMessage(combinedSession, new TextMessage(
+                "{\"error\":{\"code\":2,\"msg\":\"Invalid request\"},\"id\":2}"));
+        handler.handleMessage(combinedSession, combinedFrame("solusdt@kline_1m", "SOLUSDT", "1m", 1000L));
+
+        verify(kafkaProducerService, never()).sendKlineEvent(any(), any());
+    }
+
+    @Test
+    void routesSingleStreamFramesBySessionId() throws Exception {
+        WebSocketSession single = session("single-1");
+        KlineStream.Key key = new KlineStream.Key("bnbusdt", "1h");
+        klineStreamCache.putStreamSource(new KlineStream(key, -1, -1, single));
+
+        handler.handleMessage(single, new TextMessage(event("BNBUSDT", "1h", 5000L)));
+
+        ArgumentCaptor<KlineEvent> event = ArgumentCaptor.forClass(KlineEvent.class);
+        verify(kafkaProducerService).sendKlineEvent(event.capture(), any());
+        assertEquals("BNBUSDT", event.getValue().getSymbol());
+    }
+
+    @Test
+    void publishesOnlyFinalUpdatesWhenClosedKlinesOnly() throws Exception {
+        config.getWebsocket().setClosedKlinesOnly(true);
+
+        handler.handleMessage(combinedSession, combinedFrame("btcusdt@kline_1m", "BTCUSDT", "1m", 1000L));
+        handler.handleMessage(combinedSession, new TextMessage("{\"stream\":\"btcusdt@kline_1m\",\"data\":"
+                + event("BTCUSDT", "1m", 1000L).replace("\"x\":false", "\"x\":true") + "}"));
+
+        ArgumentCaptor<KlineEvent> event = ArgumentCaptor.forClass(KlineEvent.class);
+        verify(kafkaProducerService).sendKlineEvent(event.capture(), any());
+        assertEquals(1000L, event.getValue().getOpenTime());
+    }
+
+    @Test
+    void formatsCombinedStreamUrlFromWebsocketBaseUrl() {
+        BinanceDataCollectionConfig config = new BinanceDataCollectionConfig();
+        config.getWebsocket().setBaseUrl("wss://stream.binance.com:9443/ws");
+
+        assertEquals("wss://stream.binance.com:9443/stream?streams=btcusdt@kline_1m/ethusdt@kline_5m",
+                new URLFormatter(config).formatCombinedStreamURL(List.of(BTC_1M, ETH_5M)).toString());
+    }
+
+    private WebSocketSession session(String id) {
+        WebSocketSession session = mock(WebSocketSession.class);
+        when(session.getId()).thenReturn(id);
+        return session;
+    }
+
+    private TextMessage combinedFrame(String stream, String symbol, String interval, long openTime) {
+        return new TextMessage("{\"stream\":\"" + stream + "\",\"data\":" + event(symbol, interval, openTime) + "}");
+    }
+
+    private String event(String symbol, String interval, long openTime) {
+        return ("{\"e\":\"kline\",\"E\":%d,\"s\":\"%s\",\"k\":{\"t\":%d,\"T\":%d,\"s\":\"%s\",\"i\":\"%s\","
+                + "\"o\":\"1.0\",\"c\":\"2.0\",\"h\":\"3.0\",\"l\":\"0.5\",\"v\":\"10\",\"x\":false}}")
+                .formatted(openTime + 10, symbol, openTime, openTime + 59_999, symbol, interval);
+    }
+}
@@ -13,6 +13,7 @@ import org.springframework.context.annotation.Configuration;
 import org.springframework.kafka.config.ConcurrentKafkaListenerContainerFactory;
 import org.springframework.kafka.core.*;
 import org.springframework.kafka.listener.CommonErrorHandler;
+import org.springframework.kafka.listener.ContainerProperties;
 import org.springframework.kafka.listener.DeadLetterPublishingRecoverer;
 import org.springframework.kafka.listener.DefaultErrorHandler;
 import org.springframework.util.backoff.FixedBackOff;
@@ -29,6 +30,9 @@ public class KafkaConfig {
     @Value("${spring.kafka.properties.schema.registry.url}")
     private String schemaRegistryUrl;
 
+    @Value("${binance.data.kline.batch.max-poll-records:500}")
+    private int batchMaxPollRecords;
+
     @Bean
     public Map<String, Object> producerConfigs() {
         Map<String, Object> props = new HashMap<>();
@@ -80,4 +84,21 @@ public class KafkaConfig {
         factory.setCommonErrorHandler(errorHandler(kafkaTemplate()));
         return factory;
     }
+
+    /**
+     * Hands each poll to the listener as one list; offsets are committed once the listener returns, i.e. after
+     * the whole batch is stored. A failed batch is retried and then sent to the dead letter topic record by record.
+     */
+    @Bean
+    public ConcurrentKafkaListenerContainerFactory<String, KlineEvent> batchKafkaListenerContainerFactory() {
+        Map<String, Object> props = new HashMap<>(consumerConfigs());
+        props.put(ConsumerConfig.MAX_POLL_RECORDS_CONFIG, batchMaxPollRecords);
+        ConcurrentKafkaListenerContainerFactory<String, KlineEvent> factory =
+                new ConcurrentKafkaListenerContainerFactory<>();
+        factory.setConsumerFactory(new DefaultKafkaConsumerFactory<>(props));
+        factory.setBatchListener(true);
+        factory.getContainerProperties().setAckMode(ContainerProperties.AckMode.BATCH);
+        factory.setCommonErrorHandler(errorHandler(kafkaTemplate()));
+        return factory;
+    }
 } 
\ No newline at end of file
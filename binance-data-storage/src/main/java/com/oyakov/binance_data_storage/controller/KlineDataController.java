@@ -1,16 +1,24 @@
 package com.oyakov.binance_data_storage.controller;
 
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
 import com.oyakov.binance_data_storage.model.klines.binance.storage.KlineItem;
+import com.oyakov.binance_data_storage.repository.jdbc.KlineJdbcRepository;
 import com.oyakov.binance_data_storage.repository.jpa.KlinePostgresRepository;
 import com.oyakov.binance_data_storage.repository.elastic.KlineElasticRepository;
+import com.oyakov.binance_shared_model.backtest.ColumnarKlineDataset;
+import jakarta.servlet.http.HttpServletResponse;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.log4j.Log4j2;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.domain.Sort;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 
+import java.io.IOException;
+import java.io.UncheckedIOException;
 import java.time.LocalDateTime;
 import java.time.ZoneOffset;
 import java.util.List;
@@ -26,8 +34,12 @@ import java.util.Optional;
 @Log4j2
 public class KlineDataController {
 
+    private static final int MAX_PAGE_SIZE = 5000;
+
     private final KlinePostgresRepository postgresRepository;
     private final Optional<KlineElasticRepository> elasticRepository;
+    private final KlineJdbcRepository jdbcRepository;
+    private final ObjectMapper objectMapper;
 
     /**
      * Get recent klines for a symbol and interval
@@ -93,6 +105,137 @@ public class KlineDataController {
         }
     }
 
+    /**
+     * Get one page of klines for a time range, ordered by open time.
+     * Pages are keyed on open time, so each page costs the same however deep into the range it is.
+     * 
+     * @param symbol Trading pair symbol
+     * @param interval Kline interval
+     * @param startTime Start time in milliseconds
+     * @param endTime End time in milliseconds
+     * @param after Open time of the last kline of the previous page; omit for the first page
+     * @param limit Page size (default: 1000, max: 5000)
+     * @return Klines of the page and the cursor of the next page, null on the last page
+     */
+    @GetMapping("/range/page")
+    public ResponseEntity<KlineRangePage> getKlinesByRangePage(
+            @RequestParam String symbol,
+            @RequestParam String interval,
+            @RequestParam long startTime,
+            @RequestParam long endTime,
+            @RequestParam(required = false) Long after,
+            @RequestParam(defaultValue = "1000") int limit) {
+        
+        try {
+            int actualLimit = Math.min(Math.max(limit, 1), MAX_PAGE_SIZE);
+            List<KlineItem> klines = jdbcRepository.findRangePage(symbol.toUpperCase(), interval, startTime, endTime,
+                after != null ? after : Long.MIN_VALUE, actualLimit);
+            
+            Long nextCursor = klines.size() == actualLimit ? klines.get(klines.size() - 1).getOpenTime() : null;
+            log.debug("Retrieved page of {} klines for {} {} after {}", klines.size(), symbol, interval, after);
+            return ResponseEntity.ok(new KlineRangePage(klines, nextCursor));
+            
+        } catch (Exception e) {
+            log.error("Error fetching kline page for {} {}", symbol, interval, e);
+            return ResponseEntity.internalServerError().build();
+        }
+    }
+
+    /**
+     * Stream klines for a time range as newline-delimited JSON, one kline per line in open time order.
+     * Rows are written while the database cursor is read, so the range is never held in memory.
+     * A failure after the first line aborts the connection, so clients see a truncated stream as an I/O error.
+     * 
+     * @param symbol Trading pair symbol
+     * @param interval Kline interval
+     * @param startTime Start time in milliseconds
+     * @param endTime End time in milliseconds
+     */
+    @GetMapping(value = "/range/stream", produces = MediaType.APPLICATION_NDJSON_VALUE)
+    public void streamKlinesByRange(
+            @RequestParam String symbol,
+            @RequestParam String interval,
+            @RequestParam long startTime,
+            @RequestParam long endTime,
+            HttpServletResponse response) throws IOException {
+        
+        log.info("Streaming klines for {} {} from {} to {}", symbol, interval, startTime, endTime);
+        response.setContentType(MediaType.APPLICATION_NDJSON_VALUE);
+        long[] count = {0};
+        // Closed only on success: closing after a failure would end the chunked body as if it were complete
+        JsonGenerator generator = objectMapper.getFactory().createGenerator(response.getOutputStream());
+        generator.setRootValueSeparator(null);
+        try {
+            jdbcRepository.streamRange(symbol.toUpperCase(), interval, startTime, endTime, kline -> {
+                try {
+                    generator.writeObject(kline);
+                    generator.writeRaw('\n');
+                    count[0]++;
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            });
+        } catch (UncheckedIOException e) {
+            log.warn("Kline stream for {} {} aborted after {} klines", symbol, interval, count[0], e);
+            throw e.getCause();
+        }
+        generator.close();
+        log.info("Streamed {} klines for {} {} in range", count[0], symbol, interval);
+    }
+
+    /**
+     * Recent klines in the columnar binary format, oldest first. Selected with
+     * {@code Accept: application/x-kline-columnar}; the row layout is that of {@link ColumnarKlineDataset}.
+     * 
+     * @param symbol Trading pair symbol
+     * @param interval Kline interval
+     * @param limit Number of klines to return (default: 100, max: 1000)
+     */
+    @GetMapping(value = "/recent", produces = ColumnarKlineDataset.MEDIA_TYPE)
+    public void getRecentKlinesColumnar(
+            @RequestParam String symbol,
+            @RequestParam String interval,
+            @RequestParam(defaultValue = "100") int limit,
+            HttpServletResponse response) throws IOException {
+        
+        int actualLimit = Math.min(Math.max(limit, 1), 1000);
+        Pageable pageable = PageRequest.of(0, actualLimit, Sort.by("fingerprint.openTime").descending());
+        List<KlineItem> klines = postgresRepository.findByFingerprintSymbolAndFingerprintIntervalOrderByFingerprintOpenTimeDesc(
+            symbol.toUpperCase(), interval, pageable);
+        
+        ColumnarKlineDataset.Builder columns = ColumnarKlineDataset.builder(symbol.toUpperCase(), interval);
+        for (int i = klines.size() - 1; i >= 0; i--) {
+            addRow(columns, klines.get(i));
+        }
+        writeColumnar(columns, response);
+        log.info("Sent {} recent klines for {} {} as columnar", columns.size(), symbol, interval);
+    }
+
+    /**
+     * Klines for a time range in the columnar binary format, in open time order. Rows go from the database
+     * cursor straight into primitive columns, without a response list. Selected with
+     * {@code Accept: application/x-kline-columnar}. The columns of the whole range are built before they are
+     * sent, so {@code /range/stream}, which never holds the range in memory, stays NDJSON only.
+     * 
+     * @param symbol Trading pair symbol
+     * @param interval Kline interval
+     * @param startTime Start time in milliseconds
+     * @param endTime End time in milliseconds
+     */
+    @GetMapping(value = "/range", produces = ColumnarKlineDataset.MEDIA_TYPE)
+    public void getKlinesByRangeColumnar(
+            @RequestParam String symbol,
+            @RequestParam String interval,
+            @RequestParam long startTime,
+            @RequestParam long endTime,
+            HttpServletResponse response) throws IOException {
+        
+        ColumnarKlineDataset.Builder columns = ColumnarKlineDataset.builder(symbol.toUpperCase(), interval);
+        jdbcRepository.streamRange(symbol.toUpperCase(), interval, startTime, endTime, kline -> addRow(columns, kline));
+        writeColumnar(columns, response);
+        log.info("Sent {} klines for {} {} in range as columnar", columns.size(), symbol, interval);
+    }
+
     /**
      * Get the latest kline for a symbol and interval
      * 
@@ -158,4 +301,23 @@ public class KlineDataController {
     public ResponseEntity<String> health() {
         return ResponseEntity.ok("Kline Data API is healthy");
     }
+
+    private static void addRow(ColumnarKlineDataset.Builder columns, KlineItem kline) {
+        columns.add(kline.getOpenTime(), kline.getCloseTime(),
+            kline.getOpen(), kline.getHigh(), kline.getLow(), kline.getClose(), kline.getVolume());
+    }
+
+    private static void writeColumnar(ColumnarKlineDataset.Builder columns, HttpServletResponse response)
+            throws IOException {
+        ColumnarKlineDataset dataset = columns.build();
+        response.setContentType(ColumnarKlineDataset.MEDIA_TYPE);
+        response.setContentLength(dataset.encodedSize());
+        dataset.writeTo(response.getOutputStream());
+    }
+
+    /**
+     * One page of {@link #getKlinesByRangePage}; pass {@code nextCursor} as {@code after} to get the next one.
+     */
+    public record KlineRangePage(List<KlineItem> klines, Long nextCursor) {
+    }
 }
@@ -30,6 +30,21 @@ public class MacdController {
         }
     }
 
+    /**
+     * Upsert a batch of MACD points with one multi-row statement per {@code 500} points.
+     */
+    @PostMapping("/batch")
+    public ResponseEntity<Void> upsertBatch(@RequestBody List<MacdItem> items) {
+        try {
+            int written = macdDataService.upsertBatch(items);
+            log.debug("Upserted {} MACD points from a batch of {}", written, items.size());
+            return ResponseEntity.ok().build();
+        } catch (Exception e) {
+            log.error("Failed to upsert batch of {} MACD items", items.size(), e);
+            return ResponseEntity.internalServerError().build();
+        }
+    }
+
     @GetMapping("/recent")
     public ResponseEntity<List<MacdItem>> recent(@RequestParam String symbol,
                                                  @RequestParam String interval,
@@ -1,13 +1,15 @@
 package com.oyakov.binance_data_storage.controller;
 
+import com.oyakov.binance_data_storage.model.observability.DecisionLogEvent;
+import com.oyakov.binance_data_storage.model.observability.ObservabilityBatch;
+import com.oyakov.binance_data_storage.model.observability.PortfolioSnapshotEvent;
+import com.oyakov.binance_data_storage.model.observability.StrategyAnalysisEvent;
 import com.oyakov.binance_data_storage.service.ObservabilityService;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 
-import java.util.Map;
-
 /**
  * REST controller for observability metrics
  */
@@ -20,9 +22,9 @@ public class ObservabilityController {
     private final ObservabilityService observabilityService;
 
     @PostMapping("/strategy-analysis")
-    public ResponseEntity<Void> recordStrategyAnalysis(@RequestBody Map<String, Object> data) {
+    public ResponseEntity<Void> recordStrategyAnalysis(@RequestBody StrategyAnalysisEvent event) {
         try {
-            observabilityService.recordStrategyAnalysis(data);
+            observabilityService.recordStrategyAnalysis(event);
             return ResponseEntity.ok().build();
         } catch (Exception e) {
             log.error("Failed to record strategy analysis", e);
@@ -31,9 +33,9 @@ public class ObservabilityController {
     }
 
     @PostMapping("/decision-log")
-    public ResponseEntity<Void> recordDecisionLog(@RequestBody Map<String, Object> data) {
+    public ResponseEntity<Void> recordDecisionLog(@RequestBody DecisionLogEvent event) {
         try {
-            observabilityService.recordDecisionLog(data);
+            observabilityService.recordDecisionLog(event);
             return ResponseEntity.ok().build();
         } catch (Exception e) {
             log.error("Failed to record decision log", e);
@@ -42,14 +44,27 @@ public class ObservabilityController {
     }
 
     @PostMapping("/portfolio-snapshot")
-    public ResponseEntity<Void> recordPortfolioSnapshot(@RequestBody Map<String, Object> data) {
+    public ResponseEntity<Void> recordPortfolioSnapshot(@RequestBody PortfolioSnapshotEvent event) {
         try {
-            observabilityService.recordPortfolioSnapshot(data);
+            observabilityService.recordPortfolioSnapshot(event);
             return ResponseEntity.ok().build();
         } catch (Exception e) {
             log.error("Failed to record portfolio snapshot", e);
             return ResponseEntity.internalServerError().build();
         }
     }
-}
 
+    /**
+     * Record strategy analyses, decision logs and portfolio snapshots in one transaction.
+     */
+    @PostMapping("/batch")
+    public ResponseEntity<Void> recordBatch(@RequestBody ObservabilityBatch batch) {
+        try {
+            observabilityService.recordBatch(batch);
+            return ResponseEntity.ok().build();
+        } catch (Exception e) {
+            log.error("Failed to record observability batch", e);
+            return ResponseEntity.internalServerError().build();
+        }
+    }
+}
@@ -0,0 +1,77 @@
+package com.oyakov.binance_data_storage.kafka.consumer;
+
+import com.oyakov.binance_data_storage.metrics.DataStorageMetrics;
+import com.oyakov.binance_data_storage.service.api.KlineDataServiceApi;
+import com.oyakov.binance_shared_model.avro.KlineEvent;
+import com.oyakov.binance_shared_model.logging.CorrelationIdConstants;
+import com.oyakov.binance_shared_model.logging.LoggingUtils;
+import io.micrometer.core.instrument.Timer;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.log4j.Log4j2;
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.apache.kafka.common.header.Header;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.kafka.annotation.KafkaListener;
+import org.springframework.stereotype.Service;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Batch counterpart of {@link KafkaConsumerService}, enabled with {@code binance.data.kline.batch.enabled=true}.
+ * Every poll is stored with one {@link KlineDataServiceApi#saveKlineDataBatch} call; the container commits the
+ * offsets of the poll only after the call returns, so both stores have acknowledged the batch.
+ */
+@Service
+@Log4j2
+@RequiredArgsConstructor
+@ConditionalOnProperty(prefix = "binance.data.kline.batch", name = "enabled", havingValue = "true")
+public class KafkaBatchConsumerService {
+
+    private final KlineDataServiceApi klineDataService;
+    private final DataStorageMetrics metrics;
+
+    @KafkaListener(topics = "${binance.data.kline.kafka-topic}", groupId = "${binance.data.kline.kafka-consumer-group}",
+            containerFactory = "batchKafkaListenerContainerFactory")
+    public void listen(List<ConsumerRecord<String, KlineEvent>> records) {
+        List<KlineEvent> events = new ArrayList<>(records.size());
+        for (ConsumerRecord<String, KlineEvent> record : records) {
+            if (record.value() != null) {
+                events.add(record.value());
+            }
+        }
+        if (events.isEmpty()) {
+            return;
+        }
+        String symbol = events.get(0).getSymbol();
+        String interval = events.get(0).getInterval();
+        Timer.Sample sample = metrics.startKafkaConsumerProcessing();
+        boolean success = false;
+
+        try {
+            // One correlation ID per poll: the producer's if the first record carries one
+            Header header = records.get(0).headers().lastHeader(CorrelationIdConstants.CORRELATION_ID_KAFKA_HEADER);
+            String correlationId = header != null && header.value() != null && header.value().length > 0
+                    ? new String(header.value(), StandardCharsets.UTF_8)
+                    : LoggingUtils.generateCorrelationId();
+            LoggingUtils.setCorrelationId(correlationId);
+
+            log.info("Received batch of {} kline events", events.size());
+            events.forEach(event -> metrics.incrementKlineEventsReceived(event.getSymbol(), event.getInterval()));
+
+            klineDataService.saveKlineDataBatch(events);
+            success = true;
+        } catch (Exception e) {
+            Map<String, Object> context = LoggingUtils.createTradingContext(symbol, interval);
+            context.put("batchSize", events.size());
+            LoggingUtils.logError(log, "Failed to process kline event batch", e, context);
+            metrics.incrementKafkaConsumerErrors();
+            throw e; // Re-throw so the container retries the batch without committing its offsets
+        } finally {
+            metrics.recordKafkaConsumerProcessingTime(sample, symbol, interval, success ? "success" : "failure");
+            LoggingUtils.clearCorrelationId();
+        }
+    }
+}
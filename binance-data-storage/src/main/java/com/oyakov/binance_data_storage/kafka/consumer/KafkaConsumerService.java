@@ -9,6 +9,7 @@ import io.micrometer.core.instrument.Timer;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.log4j.Log4j2;
 import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
 import org.springframework.kafka.annotation.KafkaListener;
 import org.springframework.kafka.support.KafkaHeaders;
 import org.springframework.messaging.handler.annotation.Header;
@@ -21,6 +22,7 @@ import java.util.Map;
 @Service
 @Log4j2
 @RequiredArgsConstructor
+@ConditionalOnProperty(prefix = "binance.data.kline.batch", name = "enabled", havingValue = "false", matchIfMissing = true)
 public class KafkaConsumerService {
 
     private final KlineDataServiceApi klineDataService;
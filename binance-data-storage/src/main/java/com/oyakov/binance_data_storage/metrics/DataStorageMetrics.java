@@ -24,10 +24,15 @@ import java.util.concurrent.TimeUnit;
 @RequiredArgsConstructor
 public class DataStorageMetrics {
 
+    private static final String SUCCESS = "success";
+    private static final String FAILURE = "failure";
+
     private final MeterRegistry meterRegistry;
 
     private final Map<String, Counter> taggedCounters = new ConcurrentHashMap<>();
     private final Map<String, Timer> taggedTimers = new ConcurrentHashMap<>();
+    // symbol -> interval -> meters; two lookups by the caller's own strings, no key is built per event
+    private final Map<String, Map<String, SeriesMeters>> seriesMeters = new ConcurrentHashMap<>();
     
     // Counters for events
     private Counter klineEventsReceived;
@@ -139,11 +144,7 @@ public class DataStorageMetrics {
 
     public void incrementKlineEventsReceived(String symbol, String interval) {
         incrementKlineEventsReceived();
-        counterWithTags("binance_data_storage_kline_events_received_total",
-                "Total number of kline events received from Kafka",
-                "symbol", sanitize(symbol),
-                "interval", sanitize(interval))
-                .increment();
+        seriesMeters(symbol, interval).received.increment();
     }
 
     public void incrementKlineEventsSaved() {
@@ -153,11 +154,7 @@ public class DataStorageMetrics {
 
     public void incrementKlineEventsSaved(String symbol, String interval) {
         incrementKlineEventsSaved();
-        counterWithTags("binance_data_storage_kline_events_saved_total",
-                "Total number of kline events successfully saved to storage",
-                "symbol", sanitize(symbol),
-                "interval", sanitize(interval))
-                .increment();
+        seriesMeters(symbol, interval).saved.increment();
     }
 
     public void incrementKlineEventsFailed() {
@@ -184,11 +181,7 @@ public class DataStorageMetrics {
 
     public void incrementPostgresSaves(String symbol, String interval) {
         incrementPostgresSaves();
-        counterWithTags("binance_data_storage_postgres_saves_total",
-                "Total number of successful PostgreSQL saves",
-                "symbol", sanitize(symbol),
-                "interval", sanitize(interval))
-                .increment();
+        seriesMeters(symbol, interval).postgresSaves.increment();
     }
 
     public void incrementPostgresSaveFailures() {
@@ -211,11 +204,7 @@ public class DataStorageMetrics {
 
     public void incrementElasticsearchSaves(String symbol, String interval) {
         incrementElasticsearchSaves();
-        counterWithTags("binance_data_storage_elasticsearch_saves_total",
-                "Total number of successful Elasticsearch saves",
-                "symbol", sanitize(symbol),
-                "interval", sanitize(interval))
-                .increment();
+        seriesMeters(symbol, interval).elasticsearchSaves.increment();
     }
 
     public void incrementElasticsearchSaveFailures() {
@@ -265,6 +254,12 @@ public class DataStorageMetrics {
 
     public void recordKlineEventProcessingTime(Timer.Sample sample, String symbol, String interval, String status) {
         long duration = sample.stop(klineEventProcessingTime);
+        if (SUCCESS.equals(status) || FAILURE.equals(status)) {
+            SeriesMeters meters = seriesMeters(symbol, interval);
+            (SUCCESS.equals(status) ? meters.processingSuccess : meters.processingFailure)
+                    .record(duration, TimeUnit.NANOSECONDS);
+            return;
+        }
         timerWithTags("binance_data_storage_kline_event_processing_duration_seconds",
                 "Time taken to process a kline event",
                 "symbol", sanitize(symbol),
@@ -283,6 +278,12 @@ public class DataStorageMetrics {
 
     public void recordPostgresSaveTime(Timer.Sample sample, String symbol, String interval, String status) {
         long duration = sample.stop(postgresSaveTime);
+        if (SUCCESS.equals(status) || FAILURE.equals(status)) {
+            SeriesMeters meters = seriesMeters(symbol, interval);
+            (SUCCESS.equals(status) ? meters.postgresSaveSuccess : meters.postgresSaveFailure)
+                    .record(duration, TimeUnit.NANOSECONDS);
+            return;
+        }
         timerWithTags("binance_data_storage_postgres_save_duration_seconds",
                 "Time taken to save kline event to PostgreSQL",
                 "symbol", sanitize(symbol),
@@ -301,6 +302,12 @@ public class DataStorageMetrics {
 
     public void recordElasticsearchSaveTime(Timer.Sample sample, String symbol, String interval, String status) {
         long duration = sample.stop(elasticsearchSaveTime);
+        if (SUCCESS.equals(status) || FAILURE.equals(status)) {
+            SeriesMeters meters = seriesMeters(symbol, interval);
+            (SUCCESS.equals(status) ? meters.elasticsearchSaveSuccess : meters.elasticsearchSaveFailure)
+                    .record(duration, TimeUnit.NANOSECONDS);
+            return;
+        }
         timerWithTags("binance_data_storage_elasticsearch_save_duration_seconds",
                 "Time taken to save kline event to Elasticsearch",
                 "symbol", sanitize(symbol),
@@ -319,6 +326,12 @@ public class DataStorageMetrics {
 
     public void recordKafkaConsumerProcessingTime(Timer.Sample sample, String symbol, String interval, String status) {
         long duration = sample.stop(kafkaConsumerProcessingTime);
+        if (SUCCESS.equals(status) || FAILURE.equals(status)) {
+            SeriesMeters meters = seriesMeters(symbol, interval);
+            (SUCCESS.equals(status) ? meters.kafkaConsumerProcessingSuccess : meters.kafkaConsumerProcessingFailure)
+                    .record(duration, TimeUnit.NANOSECONDS);
+            return;
+        }
         timerWithTags("binance_data_storage_kafka_consumer_processing_duration_seconds",
                 "Time taken to process a Kafka message",
                 "symbol", sanitize(symbol),
@@ -327,6 +340,21 @@ public class DataStorageMetrics {
                 .record(duration, TimeUnit.NANOSECONDS);
     }
 
+    /**
+     * Meters of one symbol and interval, registered on first use and then found with two map lookups, so the
+     * per-kline methods above record without building tags or keys.
+     */
+    private SeriesMeters seriesMeters(String symbol, String interval) {
+        String symbolTag = sanitize(symbol);
+        String intervalTag = sanitize(interval);
+        Map<String, SeriesMeters> bySymbol = seriesMeters.get(symbolTag);
+        if (bySymbol == null) {
+            bySymbol = seriesMeters.computeIfAbsent(symbolTag, key -> new ConcurrentHashMap<>());
+        }
+        SeriesMeters meters = bySymbol.get(intervalTag);
+        return meters != null ? meters : bySymbol.computeIfAbsent(intervalTag, key -> new SeriesMeters(symbolTag, key));
+    }
+
     private Counter counterWithTags(String name, String description, String... tags) {
         String key = buildKey(name, tags);
         return taggedCounters.computeIfAbsent(key, k -> Counter.builder(name)
@@ -354,4 +382,57 @@ public class DataStorageMetrics {
         }
         return builder.toString();
     }
+
+    /**
+     * The tagged counters and timers a kline of one symbol and interval passes through, resolved once.
+     */
+    private final class SeriesMeters {
+        private final Counter received;
+        private final Counter saved;
+        private final Counter postgresSaves;
+        private final Counter elasticsearchSaves;
+        private final Timer processingSuccess;
+        private final Timer processingFailure;
+        private final Timer postgresSaveSuccess;
+        private final Timer postgresSaveFailure;
+        private final Timer elasticsearchSaveSuccess;
+        private final Timer elasticsearchSaveFailure;
+        private final Timer kafkaConsumerProcessingSuccess;
+        private final Timer kafkaConsumerProcessingFailure;
+
+        private SeriesMeters(String symbol, String interval) {
+            received = counter("binance_data_storage_kline_events_received_total",
+                    "Total number of kline events received from Kafka", symbol, interval);
+            saved = counter("binance_data_storage_kline_events_saved_total",
+                    "Total number of kline events successfully saved to storage", symbol, interval);
+            postgresSaves = counter("binance_data_storage_postgres_saves_total",
+                    "Total number of successful PostgreSQL saves", symbol, interval);
+            elasticsearchSaves = counter("binance_data_storage_elasticsearch_saves_total",
+                    "Total number of successful Elasticsearch saves", symbol, interval);
+            processingSuccess = timer("binance_data_storage_kline_event_processing_duration_seconds",
+                    "Time taken to process a kline event", symbol, interval, SUCCESS);
+            processingFailure = timer("binance_data_storage_kline_event_processing_duration_seconds",
+                    "Time taken to process a kline event", symbol, interval, FAILURE);
+            postgresSaveSuccess = timer("binance_data_storage_postgres_save_duration_seconds",
+                    "Time taken to save kline event to PostgreSQL", symbol, interval, SUCCESS);
+            postgresSaveFailure = timer("binance_data_storage_postgres_save_duration_seconds",
+                    "Time taken to save kline event to PostgreSQL", symbol, interval, FAILURE);
+            elasticsearchSaveSuccess = timer("binance_data_storage_elasticsearch_save_duration_seconds",
+                    "Time taken to save kline event to Elasticsearch", symbol, interval, SUCCESS);
+            elasticsearchSaveFailure = timer("binance_data_storage_elasticsearch_save_duration_seconds",
+                    "Time taken to save kline event to Elasticsearch", symbol, interval, FAILURE);
+            kafkaConsumerProcessingSuccess = timer("binance_data_storage_kafka_consumer_processing_duration_seconds",
+                    "Time taken to process a Kafka message", symbol, interval, SUCCESS);
+            kafkaConsumerProcessingFailure = timer("binance_data_storage_kafka_consumer_processing_duration_seconds",
+                    "Time taken to process a Kafka message", symbol, interval, FAILURE);
+        }
+
+        private Counter counter(String name, String description, String symbol, String interval) {
+            return counterWithTags(name, description, "symbol", symbol, "interval", interval);
+        }
+
+        private Timer timer(String name, String description, String symbol, String interval, String status) {
+            return timerWithTags(name, description, "symbol", symbol, "interval", interval, "status", status);
+        }
+    }
 }
@@ -0,0 +1,48 @@
+package com.oyakov.binance_data_storage.model.observability;
+
+import com.fasterxml.jackson.databind.PropertyNamingStrategies;
+import com.fasterxml.jackson.databind.annotation.JsonNaming;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+
+/**
+ * Why a testnet instance did or did not trade on a signal, a row of {@code trading_decision_logs}.
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+@JsonNaming(PropertyNamingStrategies.SnakeCaseStrategy.class)
+public class DecisionLogEvent {
+
+    private String instanceId;
+    private String strategyName;
+    private String symbol;
+
+    private LocalDateTime decisionTime;
+
+    private String signalDetected;
+    private String signalStrength;
+    private BigDecimal macdHistogram;
+    private BigDecimal currentPrice;
+
+    private boolean tradeAllowed;
+    private boolean tradeExecuted;
+
+    private Boolean hasActivePosition;
+    private Boolean positionSizeOk;
+    private Boolean dailyLossLimitOk;
+    private Boolean riskCheckPassed;
+
+    private String decisionReason;
+    private String blockedReason;
+
+    private String orderId;
+    private BigDecimal executedPrice;
+    private BigDecimal executedQuantity;
+}
@@ -0,0 +1,29 @@
+package com.oyakov.binance_data_storage.model.observability;
+
+import com.fasterxml.jackson.databind.PropertyNamingStrategies;
+import com.fasterxml.jackson.databind.annotation.JsonNaming;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Observability events of any kind, written together by {@code POST /api/v1/observability/batch}.
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+@JsonNaming(PropertyNamingStrategies.SnakeCaseStrategy.class)
+public class ObservabilityBatch {
+
+    @Builder.Default
+    private List<StrategyAnalysisEvent> strategyAnalyses = new ArrayList<>();
+    @Builder.Default
+    private List<DecisionLogEvent> decisionLogs = new ArrayList<>();
+    @Builder.Default
+    private List<PortfolioSnapshotEvent> portfolioSnapshots = new ArrayList<>();
+}
@@ -0,0 +1,46 @@
+package com.oyakov.binance_data_storage.model.observability;
+
+import com.fasterxml.jackson.databind.PropertyNamingStrategies;
+import com.fasterxml.jackson.databind.annotation.JsonNaming;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+
+/**
+ * Balance, position and performance of a testnet instance at one point in time, a row of
+ * {@code portfolio_snapshots}.
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+@JsonNaming(PropertyNamingStrategies.SnakeCaseStrategy.class)
+public class PortfolioSnapshotEvent {
+
+    private String instanceId;
+    private String strategyName;
+
+    private LocalDateTime snapshotTime;
+
+    private BigDecimal totalBalance;
+    private BigDecimal availableBalance;
+    private BigDecimal positionValue;
+
+    private String symbol;
+    private BigDecimal positionSize;
+    private BigDecimal positionEntryPrice;
+    private BigDecimal currentMarketPrice;
+    private BigDecimal unrealizedPnl;
+
+    private int totalTrades;
+    private int winningTrades;
+    private BigDecimal totalRealizedPnl;
+    private BigDecimal dailyPnl;
+
+    private BigDecimal currentDrawdown;
+    private BigDecimal maxDrawdown;
+}
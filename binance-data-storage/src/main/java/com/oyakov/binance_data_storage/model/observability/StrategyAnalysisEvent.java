@@ -0,0 +1,45 @@
+package com.oyakov.binance_data_storage.model.observability;
+
+import com.fasterxml.jackson.databind.PropertyNamingStrategies;
+import com.fasterxml.jackson.databind.annotation.JsonNaming;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+
+/**
+ * One MACD calculation of a testnet instance, a row of {@code strategy_analysis_events}. Times are UTC.
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+@JsonNaming(PropertyNamingStrategies.SnakeCaseStrategy.class)
+public class StrategyAnalysisEvent {
+
+    private String instanceId;
+    private String strategyName;
+    private String symbol;
+    private String interval;
+
+    private LocalDateTime analysisTime;
+    private long klineTimestamp;
+    private LocalDateTime klineCloseTime;
+
+    private BigDecimal currentPrice;
+    private int klineCount;
+
+    private BigDecimal macdLine;
+    private BigDecimal signalLine;
+    private BigDecimal histogram;
+    private String signalStrength;
+
+    private String signalDetected;
+    private String signalReason;
+
+    private BigDecimal emaFast;
+    private BigDecimal emaSlow;
+}
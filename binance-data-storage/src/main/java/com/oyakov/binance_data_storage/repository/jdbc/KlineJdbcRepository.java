@@ -1,12 +1,66 @@
 package com.oyakov.binance_data_storage.repository.jdbc;
 
+import com.oyakov.binance_data_storage.model.klines.binance.storage.KlineFingerprint;
 import com.oyakov.binance_data_storage.model.klines.binance.storage.KlineItem;
 import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.jdbc.core.RowMapper;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.util.List;
+import java.util.function.Consumer;
 
 @Repository
 public class KlineJdbcRepository {
 
+    /**
+     * Same upsert as {@code KlinePostgresRepository.upsertKlineNative}. Batched executions are sent as multi-row
+     * inserts when the JDBC URL sets {@code reWriteBatchedInserts=true}.
+     */
+    static final String UPSERT_SQL = """
+            INSERT INTO kline (symbol, interval, open_time, close_time, timestamp, display_time, open, high, low, close, volume)
+            VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?)
+            ON CONFLICT (symbol, interval, open_time, close_time)
+            DO UPDATE SET
+                timestamp = EXCLUDED.timestamp,
+                display_time = EXCLUDED.display_time,
+                open = EXCLUDED.open,
+                high = EXCLUDED.high,
+                low = EXCLUDED.low,
+                close = EXCLUDED.close,
+                volume = EXCLUDED.volume
+            """;
+
+    static final int BATCH_SIZE = 500;
+
+    static final String RANGE_SQL = """
+            SELECT symbol, "interval", open_time, close_time, timestamp, display_time, open, high, low, close, volume
+            FROM kline
+            WHERE symbol = ? AND "interval" = ? AND open_time BETWEEN ? AND ?
+            ORDER BY open_time
+            """;
+
+    static final String RANGE_PAGE_SQL = """
+            SELECT symbol, "interval", open_time, close_time, timestamp, display_time, open, high, low, close, volume
+            FROM kline
+            WHERE symbol = ? AND "interval" = ? AND open_time BETWEEN ? AND ? AND open_time > ?
+            ORDER BY open_time
+            LIMIT ?
+            """;
+
+    /**
+     * Rows per round trip while streaming. PostgreSQL only honours it inside a transaction, hence the
+     * read-only transaction around {@link #streamRange}.
+     */
+    static final int STREAM_FETCH_SIZE = 1000;
+
+    private static final RowMapper<KlineItem> KLINE_ROW_MAPPER = (rs, rowNum) -> mapKline(rs);
+
     private final JdbcTemplate jdbcTemplate;
 
     public KlineJdbcRepository(JdbcTemplate jdbcTemplate) {
@@ -33,28 +87,77 @@ public class KlineJdbcRepository {
         );
     }
 
+    /**
+     * One keyset page of the klines opened in {@code [startTime, endTime]}, ordered by open time. Pass the open
+     * time of the last kline of the previous page as {@code afterOpenTime}, or {@code Long.MIN_VALUE} for the first.
+     */
+    public List<KlineItem> findRangePage(String symbol, String interval, long startTime, long endTime,
+                                         long afterOpenTime, int limit) {
+        return jdbcTemplate.query(RANGE_PAGE_SQL, KLINE_ROW_MAPPER,
+                symbol, interval, startTime, endTime, afterOpenTime, limit);
+    }
+
+    /**
+     * Hands every kline opened in {@code [startTime, endTime]} to {@code consumer} in open time order while the
+     * result set is read, {@link #STREAM_FETCH_SIZE} rows at a time, so the range is never held in memory.
+     */
+    @Transactional(readOnly = true)
+    public void streamRange(String symbol, String interval, long startTime, long endTime, Consumer<KlineItem> consumer) {
+        jdbcTemplate.query(connection -> {
+            PreparedStatement statement = connection.prepareStatement(RANGE_SQL,
+                    ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY);
+            statement.setFetchSize(STREAM_FETCH_SIZE);
+            statement.setString(1, symbol);
+            statement.setString(2, interval);
+            statement.setLong(3, startTime);
+            statement.setLong(4, endTime);
+            return statement;
+        }, (RowCallbackHandler) rs -> consumer.accept(mapKline(rs)));
+    }
+
     public void upsertKline(KlineItem kline) {
-        String sql = """ 
-                    INSERT INTO kline
-                    (symbol, interval, timestamp, display_time, open_time, open, high, low, close, volume, close_time)
-                    VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?)
-                    ON CONFLICT (symbol, interval, open_time)
-                    SET ()
-                """;
+        upsertKlines(List.of(kline));
+    }
 
-        jdbcTemplate.update(sql,
-                kline.getSymbol(),
-                kline.getInterval(),
-                kline.getTimestamp(),
-                kline.getDisplayTime(),
-                kline.getOpenTime(),
-                kline.getOpen(),
-                kline.getHigh(),
-                kline.getLow(),
-                kline.getClose(),
-                kline.getVolume(),
-                kline.getCloseTime()
-        );
+    /**
+     * Upserts the klines in JDBC batches of {@link #BATCH_SIZE}. Callers must not pass the same kline twice:
+     * a rewritten multi-row statement cannot update one row twice.
+     */
+    public void upsertKlines(List<KlineItem> klines) {
+        jdbcTemplate.batchUpdate(UPSERT_SQL, klines, BATCH_SIZE, (ps, kline) -> {
+            ps.setString(1, kline.getSymbol());
+            ps.setString(2, kline.getInterval());
+            ps.setLong(3, kline.getOpenTime());
+            ps.setLong(4, kline.getCloseTime());
+            ps.setLong(5, kline.getTimestamp());
+            ps.setTimestamp(6, kline.getDisplayTime() != null ? Timestamp.valueOf(kline.getDisplayTime()) : null);
+            ps.setDouble(7, kline.getOpen());
+            ps.setDouble(8, kline.getHigh());
+            ps.setDouble(9, kline.getLow());
+            ps.setDouble(10, kline.getClose());
+            ps.setDouble(11, kline.getVolume());
+        });
+    }
+
+    private static KlineItem mapKline(ResultSet rs) throws SQLException {
+        Timestamp displayTime = rs.getTimestamp("display_time");
+        KlineItem kline = KlineItem.builder()
+                .fingerprint(KlineFingerprint.builder()
+                        .symbol(rs.getString("symbol"))
+                        .interval(rs.getString("interval"))
+                        .openTime(rs.getLong("open_time"))
+                        .closeTime(rs.getLong("close_time"))
+                        .build())
+                .timestamp(rs.getLong("timestamp"))
+                .displayTime(displayTime != null ? displayTime.toLocalDateTime() : null)
+                .open(rs.getDouble("open"))
+                .high(rs.getDouble("high"))
+                .low(rs.getDouble("low"))
+                .close(rs.getDouble("close"))
+                .volume(rs.getDouble("volume"))
+                .build();
+        kline.updateFingerprint();
+        return kline;
     }
 }
 
@@ -0,0 +1,85 @@
+package com.oyakov.binance_data_storage.repository.jdbc;
+
+import com.oyakov.binance_data_storage.model.macd.MacdItem;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.sql.Types;
+import java.time.LocalDateTime;
+import java.util.List;
+
+@Repository
+public class MacdJdbcRepository {
+
+    /**
+     * Same upsert as {@code MacdPostgresRepository.upsertMacd}. Batched executions are sent as multi-row
+     * inserts when the JDBC URL sets {@code reWriteBatchedInserts=true}.
+     */
+    static final String UPSERT_SQL = """
+            INSERT INTO macd (symbol, "interval", "timestamp", collection_time, display_time,
+                              ema_fast, ema_slow, macd, signal, histogram,
+                              signal_buy, signal_sell, volume_signal, buy, sell)
+            VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?)
+            ON CONFLICT (symbol, "interval", "timestamp")
+            DO UPDATE SET
+                collection_time = EXCLUDED.collection_time,
+                display_time = EXCLUDED.display_time,
+                ema_fast = EXCLUDED.ema_fast,
+                ema_slow = EXCLUDED.ema_slow,
+                macd = EXCLUDED.macd,
+                signal = EXCLUDED.signal,
+                histogram = EXCLUDED.histogram,
+                signal_buy = EXCLUDED.signal_buy,
+                signal_sell = EXCLUDED.signal_sell,
+                volume_signal = EXCLUDED.volume_signal,
+                buy = EXCLUDED.buy,
+                sell = EXCLUDED.sell
+            """;
+
+    static final int BATCH_SIZE = 500;
+
+    private final JdbcTemplate jdbcTemplate;
+
+    public MacdJdbcRepository(JdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    /**
+     * Upserts the points in JDBC batches of {@link #BATCH_SIZE}. Callers must not pass the same
+     * (symbol, interval, timestamp) twice: a rewritten multi-row statement cannot update one row twice.
+     */
+    public void upsertMacds(List<MacdItem> items) {
+        jdbcTemplate.batchUpdate(UPSERT_SQL, items, BATCH_SIZE, (ps, item) -> {
+            ps.setString(1, item.getSymbol());
+            ps.setString(2, item.getInterval());
+            ps.setLong(3, item.getTimestamp());
+            setTimestamp(ps, 4, item.getCollection_time());
+            setTimestamp(ps, 5, item.getDisplay_time());
+            setDouble(ps, 6, item.getEma_fast());
+            setDouble(ps, 7, item.getEma_slow());
+            setDouble(ps, 8, item.getMacd());
+            setDouble(ps, 9, item.getSignal());
+            setDouble(ps, 10, item.getHistogram());
+            setDouble(ps, 11, item.getSignal_buy());
+            setDouble(ps, 12, item.getSignal_sell());
+            setDouble(ps, 13, item.getVolume_signal());
+            setDouble(ps, 14, item.getBuy());
+            setDouble(ps, 15, item.getSell());
+        });
+    }
+
+    private static void setTimestamp(PreparedStatement ps, int index, LocalDateTime value) throws SQLException {
+        ps.setTimestamp(index, value != null ? Timestamp.valueOf(value) : null);
+    }
+
+    private static void setDouble(PreparedStatement ps, int index, Double value) throws SQLException {
+        if (value != null) {
+            ps.setDouble(index, value);
+        } else {
+            ps.setNull(index, Types.DOUBLE);
+        }
+    }
+}
@@ -1,30 +1,38 @@
 package com.oyakov.binance_data_storage.service;
 
+import com.oyakov.binance_data_storage.model.observability.DecisionLogEvent;
+import com.oyakov.binance_data_storage.model.observability.ObservabilityBatch;
+import com.oyakov.binance_data_storage.model.observability.PortfolioSnapshotEvent;
+import com.oyakov.binance_data_storage.model.observability.StrategyAnalysisEvent;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.jdbc.core.JdbcTemplate;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
 import java.sql.Timestamp;
+import java.sql.Types;
 import java.time.LocalDateTime;
-import java.util.Map;
+import java.util.List;
 
 /**
- * Service for persisting observability metrics to the database
+ * Service for persisting observability metrics to the database.
+ * <p>
+ * Events are inserted with JDBC batches of {@link #BATCH_SIZE} rows, whether they arrive one at a time or in an
+ * {@link ObservabilityBatch}.
  */
 @Service
 @RequiredArgsConstructor
 @Slf4j
 public class ObservabilityService {
 
-    private final JdbcTemplate jdbcTemplate;
+    static final int BATCH_SIZE = 500;
 
-    @Transactional
-    public void recordStrategyAnalysis(Map<String, Object> data) {
-        String sql = """
+    private static final String STRATEGY_ANALYSIS_SQL = """
             INSERT INTO strategy_analysis_events (
-                instance_id, strategy_name, symbol, interval,
+                instance_id, strategy_name, symbol, "interval",
                 analysis_time, kline_timestamp, kline_close_time,
                 current_price, kline_count,
                 macd_line, signal_line, histogram, signal_strength,
@@ -33,32 +41,7 @@ public class ObservabilityService {
             ) VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?)
             """;
 
-        jdbcTemplate.update(sql,
-            data.get("instance_id"),
-            data.get("strategy_name"),
-            data.get("symbol"),
-            data.get("interval"),
-            toTimestamp(data.get("analysis_time")),
-            data.get("kline_timestamp"),
-            toTimestamp(data.get("kline_close_time")),
-            data.get("current_price"),
-            data.get("kline_count"),
-            data.get("macd_line"),
-            data.get("signal_line"),
-            data.get("histogram"),
-            data.get("signal_strength"),
-            data.get("signal_detected"),
-            data.get("signal_reason"),
-            data.get("ema_fast"),
-            data.get("ema_slow")
-        );
-
-        log.debug("Recorded strategy analysis for {} {}", data.get("instance_id"), data.get("symbol"));
-    }
-
-    @Transactional
-    public void recordDecisionLog(Map<String, Object> data) {
-        String sql = """
+    private static final String DECISION_LOG_SQL = """
             INSERT INTO trading_decision_logs (
                 instance_id, strategy_name, symbol,
                 decision_time,
@@ -70,34 +53,7 @@ public class ObservabilityService {
             ) VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?)
             """;
 
-        jdbcTemplate.update(sql,
-            data.get("instance_id"),
-            data.get("strategy_name"),
-            data.get("symbol"),
-            toTimestamp(data.get("decision_time")),
-            data.get("signal_detected"),
-            data.get("signal_strength"),
-            data.get("macd_histogram"),
-            data.get("current_price"),
-            data.get("trade_allowed"),
-            data.get("trade_executed"),
-            data.get("has_active_position"),
-            data.get("position_size_ok"),
-            data.get("daily_loss_limit_ok"),
-            data.get("risk_check_passed"),
-            data.get("decision_reason"),
-            data.get("blocked_reason"),
-            data.get("order_id"),
-            data.get("executed_price"),
-            data.get("executed_quantity")
-        );
-
-        log.debug("Recorded decision log for {} {}", data.get("instance_id"), data.get("symbol"));
-    }
-
-    @Transactional
-    public void recordPortfolioSnapshot(Map<String, Object> data) {
-        String sql = """
+    private static final String PORTFOLIO_SNAPSHOT_SQL = """
             INSERT INTO portfolio_snapshots (
                 instance_id, strategy_name,
                 snapshot_time,
@@ -108,67 +64,129 @@ public class ObservabilityService {
             ) VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?)
             """;
 
-        jdbcTemplate.update(sql,
-            data.get("instance_id"),
-            data.get("strategy_name"),
-            toTimestamp(data.get("snapshot_time")),
-            data.get("total_balance"),
-            data.get("available_balance"),
-            data.get("position_value"),
-            data.get("symbol"),
-            data.get("position_size"),
-            data.get("position_entry_price"),
-            data.get("current_market_price"),
-            data.get("unrealized_pnl"),
-            data.get("total_trades"),
-            data.get("winning_trades"),
-            data.get("total_realized_pnl"),
-            data.get("daily_pnl"),
-            data.get("current_drawdown"),
-            data.get("max_drawdown")
-        );
-
-        log.debug("Recorded portfolio snapshot for {}", data.get("instance_id"));
+    private final JdbcTemplate jdbcTemplate;
+
+    @Transactional
+    public void recordStrategyAnalysis(StrategyAnalysisEvent event) {
+        insertStrategyAnalyses(List.of(event));
+        log.debug("Recorded strategy analysis for {} {}", event.getInstanceId(), event.getSymbol());
     }
 
-    private Timestamp toTimestamp(Object value) {
-        if (value == null) {
-            return null;
+    @Transactional
+    public void recordDecisionLog(DecisionLogEvent event) {
+        insertDecisionLogs(List.of(event));
+        log.debug("Recorded decision log for {} {}", event.getInstanceId(), event.getSymbol());
+    }
+
+    @Transactional
+    public void recordPortfolioSnapshot(PortfolioSnapshotEvent event) {
+        insertPortfolioSnapshots(List.of(event));
+        log.debug("Recorded portfolio snapshot for {}", event.getInstanceId());
+    }
+
+    /**
+     * Insert every event of the batch in one transaction.
+     *
+     * @return number of events written
+     */
+    @Transactional
+    public int recordBatch(ObservabilityBatch batch) {
+        int written = insertStrategyAnalyses(batch.getStrategyAnalyses())
+                + insertDecisionLogs(batch.getDecisionLogs())
+                + insertPortfolioSnapshots(batch.getPortfolioSnapshots());
+        log.debug("Recorded batch of {} observability events", written);
+        return written;
+    }
+
+    private int insertStrategyAnalyses(List<StrategyAnalysisEvent> events) {
+        if (events == null || events.isEmpty()) {
+            return 0;
         }
-        if (value instanceof LocalDateTime) {
-            return Timestamp.valueOf((LocalDateTime) value);
+        jdbcTemplate.batchUpdate(STRATEGY_ANALYSIS_SQL, events, BATCH_SIZE, (ps, event) -> {
+            ps.setString(1, event.getInstanceId());
+            ps.setString(2, event.getStrategyName());
+            ps.setString(3, event.getSymbol());
+            ps.setString(4, event.getInterval());
+            setTimestamp(ps, 5, event.getAnalysisTime());
+            ps.setLong(6, event.getKlineTimestamp());
+            setTimestamp(ps, 7, event.getKlineCloseTime());
+            ps.setBigDecimal(8, event.getCurrentPrice());
+            ps.setInt(9, event.getKlineCount());
+            ps.setBigDecimal(10, event.getMacdLine());
+            ps.setBigDecimal(11, event.getSignalLine());
+            ps.setBigDecimal(12, event.getHistogram());
+            ps.setString(13, event.getSignalStrength());
+            ps.setString(14, event.getSignalDetected());
+            ps.setString(15, event.getSignalReason());
+            ps.setBigDecimal(16, event.getEmaFast());
+            ps.setBigDecimal(17, event.getEmaSlow());
+        });
+        return events.size();
+    }
+
+    private int insertDecisionLogs(List<DecisionLogEvent> events) {
+        if (events == null || events.isEmpty()) {
+            return 0;
         }
-        if (value instanceof String) {
-            try {
-                return Timestamp.valueOf(LocalDateTime.parse((String) value));
-            } catch (Exception e) {
-                log.error("Failed to parse timestamp: {}", value, e);
-                return null;
-            }
+        jdbcTemplate.batchUpdate(DECISION_LOG_SQL, events, BATCH_SIZE, (ps, event) -> {
+            ps.setString(1, event.getInstanceId());
+            ps.setString(2, event.getStrategyName());
+            ps.setString(3, event.getSymbol());
+            setTimestamp(ps, 4, event.getDecisionTime());
+            ps.setString(5, event.getSignalDetected());
+            ps.setString(6, event.getSignalStrength());
+            ps.setBigDecimal(7, event.getMacdHistogram());
+            ps.setBigDecimal(8, event.getCurrentPrice());
+            ps.setBoolean(9, event.isTradeAllowed());
+            ps.setBoolean(10, event.isTradeExecuted());
+            setBoolean(ps, 11, event.getHasActivePosition());
+            setBoolean(ps, 12, event.getPositionSizeOk());
+            setBoolean(ps, 13, event.getDailyLossLimitOk());
+            setBoolean(ps, 14, event.getRiskCheckPassed());
+            ps.setString(15, event.getDecisionReason());
+            ps.setString(16, event.getBlockedReason());
+            ps.setString(17, event.getOrderId());
+            ps.setBigDecimal(18, event.getExecutedPrice());
+            ps.setBigDecimal(19, event.getExecutedQuantity());
+        });
+        return events.size();
+    }
+
+    private int insertPortfolioSnapshots(List<PortfolioSnapshotEvent> events) {
+        if (events == null || events.isEmpty()) {
+            return 0;
         }
-        // Handle LinkedHashMap from Jackson deserialization
-        if (value instanceof Map) {
-            Map<?, ?> map = (Map<?, ?>) value;
-            // LocalDateTime comes as a map with year, month, day, hour, minute, second, nano fields
-            try {
-                int year = (Integer) map.get("year");
-                int month = (Integer) map.get("monthValue");
-                int day = (Integer) map.get("dayOfMonth");
-                int hour = (Integer) map.get("hour");
-                int minute = (Integer) map.get("minute");
-                int second = (Integer) map.get("second");
-                Object nanoObj = map.get("nano");
-                int nano = nanoObj != null ? (Integer) nanoObj : 0;
-                
-                LocalDateTime ldt = LocalDateTime.of(year, month, day, hour, minute, second, nano);
-                return Timestamp.valueOf(ldt);
-            } catch (Exception e) {
-                log.error("Failed to parse timestamp from map: {}", value, e);
-                return null;
-            }
+        jdbcTemplate.batchUpdate(PORTFOLIO_SNAPSHOT_SQL, events, BATCH_SIZE, (ps, event) -> {
+            ps.setString(1, event.getInstanceId());
+            ps.setString(2, event.getStrategyName());
+            setTimestamp(ps, 3, event.getSnapshotTime());
+            ps.setBigDecimal(4, event.getTotalBalance());
+            ps.setBigDecimal(5, event.getAvailableBalance());
+            ps.setBigDecimal(6, event.getPositionValue());
+            ps.setString(7, event.getSymbol());
+            ps.setBigDecimal(8, event.getPositionSize());
+            ps.setBigDecimal(9, event.getPositionEntryPrice());
+            ps.setBigDecimal(10, event.getCurrentMarketPrice());
+            ps.setBigDecimal(11, event.getUnrealizedPnl());
+            ps.setInt(12, event.getTotalTrades());
+            ps.setInt(13, event.getWinningTrades());
+            ps.setBigDecimal(14, event.getTotalRealizedPnl());
+            ps.setBigDecimal(15, event.getDailyPnl());
+            ps.setBigDecimal(16, event.getCurrentDrawdown());
+            ps.setBigDecimal(17, event.getMaxDrawdown());
+        });
+        return events.size();
+    }
+
+    private static void setTimestamp(PreparedStatement ps, int index, LocalDateTime value) throws SQLException {
+        ps.setTimestamp(index, value != null ? Timestamp.valueOf(value) : null);
+    }
+
+    private static void setBoolean(PreparedStatement ps, int index, Boolean value) throws SQLException {
+        if (value != null) {
+            ps.setBoolean(index, value);
+        } else {
+            ps.setNull(index, Types.BOOLEAN);
         }
-        log.warn("Unknown timestamp type: {}", value.getClass());
-        return null;
     }
 }
-
@@ -5,11 +5,19 @@ import com.oyakov.binance_data_storage.model.klines.binance.storage.KlineItem;
 import com.oyakov.binance_shared_model.avro.KlineEvent;
 import org.springframework.transaction.annotation.Transactional;
 
+import java.util.List;
+
 public interface KlineDataServiceApi {
 
     @Transactional
     public void saveKlineData(KlineEvent kline);
 
+    /**
+     * Writes a batch with one multi-row upsert and one bulk request; throws if either store fails.
+     */
+    @Transactional
+    public void saveKlineDataBatch(List<KlineEvent> klines);
+
     public void compensateKlineData(DataItemWrittenNotification<KlineEvent> kline);
 
     public void compensateKlineDataItem(DataItemWrittenNotification<KlineItem> kline);
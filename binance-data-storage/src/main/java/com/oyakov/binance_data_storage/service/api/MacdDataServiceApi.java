@@ -2,8 +2,18 @@ package com.oyakov.binance_data_storage.service.api;
 
 import com.oyakov.binance_data_storage.model.macd.MacdItem;
 
+import java.util.List;
+
 public interface MacdDataServiceApi {
     void upsert(MacdItem item);
+
+    /**
+     * Upsert many points in one transaction. Points with the same (symbol, interval, timestamp) are
+     * coalesced, the last one wins.
+     *
+     * @return the number of rows written
+     */
+    int upsertBatch(List<MacdItem> items);
 }
 
 
@@ -6,6 +6,7 @@ import com.oyakov.binance_data_storage.model.klines.binance.notifications.DataIt
 import com.oyakov.binance_data_storage.model.klines.binance.storage.KlineFingerprint;
 import com.oyakov.binance_data_storage.model.klines.binance.storage.KlineItem;
 import com.oyakov.binance_data_storage.repository.elastic.KlineElasticRepository;
+import com.oyakov.binance_data_storage.repository.jdbc.KlineJdbcRepository;
 import com.oyakov.binance_data_storage.repository.jpa.KlinePostgresRepository;
 import com.oyakov.binance_data_storage.service.api.KlineDataServiceApi;
 import com.oyakov.binance_shared_model.avro.KlineEvent;
@@ -20,7 +21,10 @@ import org.springframework.transaction.annotation.Transactional;
 
 import java.time.LocalDateTime;
 import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
 
 /**
@@ -35,6 +39,7 @@ public class KlineDataService implements KlineDataServiceApi {
     private final KlineMapper klineMapper;
     private final Optional<KlineElasticRepository> elasticRepository;
     private final Optional<KlinePostgresRepository> postgresRepository;
+    private final Optional<KlineJdbcRepository> jdbcRepository;
     private final DataStorageMetrics metrics;
 
     public KlineDataService(List<CrudRepository<KlineItem, ?>> repositories,
@@ -42,12 +47,14 @@ public class KlineDataService implements KlineDataServiceApi {
                           KlineMapper klineMapper,
                           ObjectProvider<KlineElasticRepository> elasticRepositoryProvider,
                           ObjectProvider<KlinePostgresRepository> postgresRepositoryProvider,
+                          ObjectProvider<KlineJdbcRepository> jdbcRepositoryProvider,
                           DataStorageMetrics metrics) {
         this.repositories = repositories;
         this.eventPublisher = eventPublisher;
         this.klineMapper = klineMapper;
         this.elasticRepository = Optional.ofNullable(elasticRepositoryProvider.getIfAvailable());
         this.postgresRepository = Optional.ofNullable(postgresRepositoryProvider.getIfAvailable());
+        this.jdbcRepository = Optional.ofNullable(jdbcRepositoryProvider.getIfAvailable());
         this.metrics = metrics;
     }
 
@@ -178,6 +185,103 @@ public class KlineDataService implements KlineDataServiceApi {
         }
     }
 
+    /**
+     * Batch counterpart of {@link #saveKlineData} for the batch Kafka listener. Unlike the per-event path it does
+     * not swallow failures or publish {@link DataItemWrittenNotification}s: a failure of either store propagates,
+     * the Postgres upsert rolls back and the whole batch is redelivered. Elasticsearch documents get
+     * deterministic ids, so redelivered klines overwrite instead of duplicating.
+     */
+    @Override
+    @Transactional
+    public void saveKlineDataBatch(List<KlineEvent> events) {
+        if (events.isEmpty()) {
+            return;
+        }
+        List<KlineItem> items = toDistinctItems(events);
+        String symbol = items.get(0).getSymbol();
+        String interval = items.get(0).getInterval();
+        boolean singleSeries = items.stream().allMatch(item ->
+                symbol.equals(item.getSymbol()) && interval.equals(item.getInterval()));
+        String symbolTag = singleSeries ? symbol : "multiple";
+        String intervalTag = singleSeries ? interval : "multiple";
+
+        Timer.Sample sample = metrics.startKlineEventProcessing();
+        boolean success = false;
+        try {
+            boolean persisted = false;
+            if (postgresRepository.isPresent() && jdbcRepository.isPresent()) {
+                Timer.Sample postgresSample = metrics.startPostgresSave();
+                boolean localPostgresSuccess = false;
+                try {
+                    jdbcRepository.get().upsertKlines(items);
+                    persisted = true;
+                    localPostgresSuccess = true;
+                    items.forEach(item -> metrics.incrementPostgresSaves(item.getSymbol(), item.getInterval()));
+                    metrics.setPostgresConnectionStatus(true);
+                    log.debug("Upserted {} klines to PostgreSQL", items.size());
+                } catch (RuntimeException e) {
+                    metrics.incrementPostgresSaveFailures(symbolTag, intervalTag, e.getClass().getSimpleName());
+                    metrics.setPostgresConnectionStatus(false);
+                    log.error("Failed to upsert batch of {} klines to PostgreSQL", items.size(), e);
+                    throw e;
+                } finally {
+                    metrics.recordPostgresSaveTime(postgresSample, symbolTag, intervalTag, localPostgresSuccess ? "success" : "failure");
+                }
+            } else {
+                log.warn("Postgres repository is unavailable; skipping persistence for batch of {} klines", items.size());
+                metrics.setPostgresConnectionStatus(false);
+            }
+
+            if (elasticRepository.isPresent()) {
+                Timer.Sample elasticsearchSample = metrics.startElasticsearchSave();
+                boolean localElasticSuccess = false;
+                try {
+                    elasticRepository.get().saveAll(items);
+                    persisted = true;
+                    localElasticSuccess = true;
+                    items.forEach(item -> metrics.incrementElasticsearchSaves(item.getSymbol(), item.getInterval()));
+                    metrics.setElasticsearchConnectionStatus(true);
+                    log.debug("Bulk indexed {} klines to Elasticsearch", items.size());
+                } catch (RuntimeException e) {
+                    metrics.incrementElasticsearchSaveFailures(symbolTag, intervalTag, e.getClass().getSimpleName());
+                    metrics.setElasticsearchConnectionStatus(false);
+                    log.error("Failed to bulk index batch of {} klines to Elasticsearch", items.size(), e);
+                    throw e;
+                } finally {
+                    metrics.recordElasticsearchSaveTime(elasticsearchSample, symbolTag, intervalTag, localElasticSuccess ? "success" : "failure");
+                }
+            } else {
+                log.warn("Elasticsearch repository is unavailable; skipping persistence for batch of {} klines", items.size());
+                metrics.setElasticsearchConnectionStatus(false);
+            }
+
+            if (persisted) {
+                items.forEach(item -> metrics.incrementKlineEventsSaved(item.getSymbol(), item.getInterval()));
+                log.info("Kline batch saved: {} klines", items.size());
+                success = true;
+            } else {
+                log.error("No storage repositories available for kline data persistence; dropped batch of {} klines", items.size());
+                items.forEach(item -> metrics.incrementKlineEventsFailed(item.getSymbol(), item.getInterval(), "NoRepositories"));
+            }
+        } finally {
+            metrics.recordKlineEventProcessingTime(sample, symbolTag, intervalTag, success ? "success" : "failure");
+        }
+    }
+
+    /**
+     * Maps the events to items, keeping the last update of each kline: one multi-row upsert may not touch a row twice.
+     */
+    private List<KlineItem> toDistinctItems(List<KlineEvent> events) {
+        Map<String, KlineItem> items = new LinkedHashMap<>();
+        for (KlineEvent event : events) {
+            KlineItem item = klineMapper.toItem(event);
+            // Assigns the deterministic symbol-interval-openTime document id
+            item.updateFingerprint();
+            items.put(item.getId(), item);
+        }
+        return new ArrayList<>(items.values());
+    }
+
     @Override
     @Transactional
     public void compensateKlineData(DataItemWrittenNotification<KlineEvent> event) {
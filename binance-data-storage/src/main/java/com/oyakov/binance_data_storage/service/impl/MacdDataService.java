@@ -1,6 +1,7 @@
 package com.oyakov.binance_data_storage.service.impl;
 
 import com.oyakov.binance_data_storage.model.macd.MacdItem;
+import com.oyakov.binance_data_storage.repository.jdbc.MacdJdbcRepository;
 import com.oyakov.binance_data_storage.repository.jpa.MacdPostgresRepository;
 import com.oyakov.binance_data_storage.service.api.MacdDataServiceApi;
 import lombok.RequiredArgsConstructor;
@@ -8,12 +9,18 @@ import lombok.extern.log4j.Log4j2;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
 @Service
 @RequiredArgsConstructor
 @Log4j2
 public class MacdDataService implements MacdDataServiceApi {
 
     private final MacdPostgresRepository macdPostgresRepository;
+    private final MacdJdbcRepository macdJdbcRepository;
 
     @Override
     @Transactional
@@ -37,6 +44,25 @@ public class MacdDataService implements MacdDataServiceApi {
                 item.getSell()
         );
     }
+
+    @Override
+    @Transactional
+    public int upsertBatch(List<MacdItem> items) {
+        if (items.isEmpty()) {
+            return 0;
+        }
+        Map<MacdKey, MacdItem> distinct = new LinkedHashMap<>();
+        for (MacdItem item : items) {
+            distinct.put(new MacdKey(item.getSymbol(), item.getInterval(), item.getTimestamp()), item);
+        }
+        List<MacdItem> rows = new ArrayList<>(distinct.values());
+        macdJdbcRepository.upsertMacds(rows);
+        log.debug("Upserted batch of {} MACD points ({} received)", rows.size(), items.size());
+        return rows.size();
+    }
+
+    private record MacdKey(String symbol, String interval, long timestamp) {
+    }
 }
 
 
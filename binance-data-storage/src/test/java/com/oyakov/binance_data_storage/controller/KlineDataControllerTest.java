@@ -0,0 +1,143 @@
+package com.oyakov.binance_data_storage.controller;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.oyakov.binance_data_storage.model.klines.binance.storage.KlineFingerprint;
+import com.oyakov.binance_data_storage.model.klines.binance.storage.KlineItem;
+import com.oyakov.binance_data_storage.repository.jdbc.KlineJdbcRepository;
+import com.oyakov.binance_data_storage.repository.jpa.KlinePostgresRepository;
+import com.oyakov.binance_shared_model.backtest.ColumnarKlineDataset;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.MediaType;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+import org.springframework.test.web.servlet.setup.MockMvcBuilders;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.util.List;
+import java.util.Optional;
+import java.util.function.Consumer;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+class KlineDataControllerTest {
+
+    private static final MediaType COLUMNAR = MediaType.parseMediaType(ColumnarKlineDataset.MEDIA_TYPE);
+    private static final long MINUTE = 60_000L;
+
+    private KlinePostgresRepository postgresRepository;
+    private KlineJdbcRepository jdbcRepository;
+    private MockMvc mockMvc;
+
+    @BeforeEach
+    void setUp() {
+        postgresRepository = mock(KlinePostgresRepository.class);
+        jdbcRepository = mock(KlineJdbcRepository.class);
+        KlineDataController controller = new KlineDataController(postgresRepository, Optional.empty(),
+                jdbcRepository, new ObjectMapper().findAndRegisterModules());
+        mockMvc = MockMvcBuilders.standaloneSetup(controller).build();
+        when(postgresRepository.findByFingerprintSymbolAndFingerprintIntervalOrderByFingerprintOpenTimeDesc(
+                eq("BTCUSDT"), eq("1m"), any())).thenReturn(List.of(kline(1, 102.5), kline(0, 101.25)));
+    }
+
+    @Test
+    void keepsJsonForClientsWithoutPreference() throws Exception {
+        mockMvc.perform(get("/api/v1/klines/recent").param("symbol", "btcusdt").param("interval", "1m")
+                        .accept(MediaType.ALL))
+                .andExpect(status().isOk())
+                .andExpect(content().contentTypeCompatibleWith(MediaType.APPLICATION_JSON))
+                .andExpect(jsonPath("$[0].openTime").value(MINUTE));
+    }
+
+    @Test
+    void sendsRecentKlinesAsColumnsOldestFirst() throws Exception {
+        MvcResult result = mockMvc.perform(get("/api/v1/klines/recent").param("symbol", "btcusdt")
+                        .param("interval", "1m").accept(COLUMNAR, MediaType.APPLICATION_JSON))
+                .andExpect(status().isOk())
+                .andExpect(content().contentType(COLUMNAR))
+                .andReturn();
+
+        ColumnarKlineDataset columns = decode(result);
+        assertEquals("BTCUSDT", columns.getSymbol());
+        assertEquals(2, columns.size());
+        assertEquals(0L, columns.openTime(0));
+        assertEquals(102.5, columns.close(1));
+    }
+
+    @Test
+    void sendsRangeAsColumnsFromDatabaseCursor() throws Exception {
+        stubRange();
+
+        MvcResult result = mockMvc.perform(get("/api/v1/klines/range").param("symbol", "BTCUSDT")
+                        .param("interval", "1m").param("startTime", "0").param("endTime", "120000")
+                        .accept(COLUMNAR, MediaType.APPLICATION_JSON))
+                .andExpect(status().isOk())
+                .andExpect(content().contentType(COLUMNAR))
+                .andReturn();
+
+        ColumnarKlineDataset columns = decode(result);
+        assertEquals(2, columns.size());
+        assertEquals(MINUTE, columns.openTime(1));
+        assertEquals(MINUTE - 1, columns.closeTime(0));
+        assertEquals(101.25, columns.toKlineEvent(0).getClose().doubleValue());
+    }
+
+    @Test
+    void keepsRangeStreamAsNdjsonWhenColumnsAreAccepted() throws Exception {
+        stubRange();
+
+        MvcResult result = mockMvc.perform(get("/api/v1/klines/range/stream").param("symbol", "BTCUSDT")
+                        .param("interval", "1m").param("startTime", "0").param("endTime", "120000")
+                        .accept(COLUMNAR, MediaType.APPLICATION_NDJSON))
+                .andExpect(status().isOk())
+                .andExpect(content().contentTypeCompatibleWith(MediaType.APPLICATION_NDJSON))
+                .andReturn();
+
+        assertEquals(2, result.getResponse().getContentAsString().lines().count());
+    }
+
+    @SuppressWarnings("unchecked")
+    private void stubRange() {
+        doAnswer(invocation -> {
+            Consumer<KlineItem> consumer = invocation.getArgument(4);
+            consumer.accept(kline(0, 101.25));
+            consumer.accept(kline(1, 102.5));
+            return null;
+        }).when(jdbcRepository).streamRange(eq("BTCUSDT"), eq("1m"), anyLong(), anyLong(), any(Consumer.class));
+    }
+
+    private static ColumnarKlineDataset decode(MvcResult result) throws IOException {
+        return ColumnarKlineDataset.read(new ByteArrayInputStream(result.getResponse().getContentAsByteArray()));
+    }
+
+    private static KlineItem kline(long minute, double close) {
+        long openTime = minute * MINUTE;
+        KlineItem kline = KlineItem.builder()
+                .fingerprint(KlineFingerprint.builder()
+                        .symbol("BTCUSDT")
+                        .interval("1m")
+                        .openTime(openTime)
+                        .closeTime(openTime + MINUTE - 1)
+                        .build())
+                .timestamp(openTime + MINUTE - 1)
+                .open(100.0)
+                .high(103.0)
+                .low(99.0)
+                .close(close)
+                .volume(12.5)
+                .build();
+        kline.updateFingerprint();
+        return kline;
+    }
+}
@@ -0,0 +1,69 @@
+package com.oyakov.binance_data_storage.kafka.consumer;
+
+import com.oyakov.binance_data_storage.metrics.DataStorageMetrics;
+import com.oyakov.binance_data_storage.service.api.KlineDataServiceApi;
+import com.oyakov.binance_shared_model.avro.KlineEvent;
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyNoInteractions;
+
+class KafkaBatchConsumerServiceTest {
+
+    private KlineDataServiceApi klineDataService;
+    private DataStorageMetrics metrics;
+    private KafkaBatchConsumerService consumer;
+
+    @BeforeEach
+    void setUp() {
+        klineDataService = mock(KlineDataServiceApi.class);
+        metrics = mock(DataStorageMetrics.class);
+        consumer = new KafkaBatchConsumerService(klineDataService, metrics);
+    }
+
+    @Test
+    void storesWholePollWithOneBatchCall() {
+        KlineEvent first = event(0L);
+        KlineEvent second = event(60_000L);
+
+        consumer.listen(List.of(record(0, first), record(1, null), record(2, second)));
+
+        verify(klineDataService).saveKlineDataBatch(List.of(first, second));
+    }
+
+    @Test
+    void rethrowsStoreFailuresSoOffsetsAreNotCommitted() {
+        doThrow(new IllegalStateException("Postgres is down")).when(klineDataService).saveKlineDataBatch(any());
+
+        assertThrows(IllegalStateException.class, () -> consumer.listen(List.of(record(0, event(0L)))));
+
+        verify(metrics).incrementKafkaConsumerErrors();
+    }
+
+    @Test
+    void ignoresPollWithoutValues() {
+        consumer.listen(List.of(record(0, null)));
+
+        verifyNoInteractions(klineDataService);
+    }
+
+    private static ConsumerRecord<String, KlineEvent> record(long offset, KlineEvent event) {
+        return new ConsumerRecord<>("binance-kline", 0, offset, "BTCUSDT", event);
+    }
+
+    private static KlineEvent event(long openTime) {
+        KlineEvent event = new KlineEvent();
+        event.setSymbol("BTCUSDT");
+        event.setInterval("1m");
+        event.setOpenTime(openTime);
+        return event;
+    }
+}
@@ -75,4 +75,26 @@ class DataStorageMetricsTest {
         assertNotNull(timer);
         assertEquals(1, timer.count());
     }
+
+    @Test
+    void seriesMetersAreSharedAcrossCallsAndFallBackForOtherStatuses() {
+        metrics.incrementKlineEventsSaved("BTCUSDT", "1m");
+        metrics.incrementKlineEventsSaved("BTCUSDT", "1m");
+        metrics.recordKlineEventProcessingTime(metrics.startKlineEventProcessing(), "BTCUSDT", "1m", "failure");
+        metrics.recordKlineEventProcessingTime(metrics.startKlineEventProcessing(), "BTCUSDT", "1m", "partial");
+
+        assertEquals(2.0, meterRegistry.get("binance_data_storage_kline_events_saved_total")
+                .tag("symbol", "BTCUSDT")
+                .tag("interval", "1m")
+                .counter()
+                .count(), 0.0001);
+        assertEquals(1, meterRegistry.get("binance_data_storage_kline_event_processing_duration_seconds")
+                .tag("status", "failure")
+                .timer()
+                .count());
+        assertEquals(1, meterRegistry.get("binance_data_storage_kline_event_processing_duration_seconds")
+                .tag("status", "partial")
+                .timer()
+                .count());
+    }
 }
@@ -0,0 +1,83 @@
+package com.oyakov.binance_data_storage.repository.jdbc;
+
+import com.oyakov.binance_data_storage.model.klines.binance.storage.KlineItem;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class KlineJdbcRepositoryTest {
+
+    private static final long MINUTE = 60_000L;
+
+    private JdbcTemplate jdbcTemplate;
+    private KlineJdbcRepository repository;
+
+    @BeforeEach
+    void setUp() {
+        DriverManagerDataSource dataSource = new DriverManagerDataSource(
+                "jdbc:h2:mem:kline_jdbc;MODE=PostgreSQL;DB_CLOSE_DELAY=-1;DATABASE_TO_LOWER=TRUE",
+                "sa", "");
+        jdbcTemplate = new JdbcTemplate(dataSource);
+        jdbcTemplate.execute("""
+                CREATE TABLE kline (
+                    symbol VARCHAR(20), "interval" VARCHAR(10), open_time BIGINT, close_time BIGINT,
+                    timestamp BIGINT, display_time TIMESTAMP,
+                    open DOUBLE PRECISION, high DOUBLE PRECISION, low DOUBLE PRECISION,
+                    close DOUBLE PRECISION, volume DOUBLE PRECISION,
+                    PRIMARY KEY (symbol, "interval", open_time, close_time))
+                """);
+        // inserted out of order so the tests see the ORDER BY, not the insertion order
+        for (int i : new int[]{4, 0, 3, 1, 2}) {
+            insert("BTCUSDT", i * MINUTE);
+        }
+        insert("ETHUSDT", 0L);
+        repository = new KlineJdbcRepository(jdbcTemplate);
+    }
+
+    @AfterEach
+    void tearDown() {
+        jdbcTemplate.execute("DROP TABLE kline");
+    }
+
+    @Test
+    void pagesThroughRangeWithOpenTimeCursor() {
+        List<KlineItem> first = repository.findRangePage("BTCUSDT", "1m", 0L, 4 * MINUTE, Long.MIN_VALUE, 2);
+        List<KlineItem> second = repository.findRangePage("BTCUSDT", "1m", 0L, 4 * MINUTE,
+                first.get(first.size() - 1).getOpenTime(), 2);
+        List<KlineItem> last = repository.findRangePage("BTCUSDT", "1m", 0L, 4 * MINUTE,
+                second.get(second.size() - 1).getOpenTime(), 2);
+
+        assertEquals(List.of(0L, MINUTE), openTimes(first));
+        assertEquals(List.of(2 * MINUTE, 3 * MINUTE), openTimes(second));
+        assertEquals(List.of(4 * MINUTE), openTimes(last));
+        assertEquals("BTCUSDT", first.get(0).getSymbol());
+        assertEquals(MINUTE - 1, first.get(0).getCloseTime());
+    }
+
+    @Test
+    void streamsRangeInOpenTimeOrder() {
+        List<KlineItem> streamed = new ArrayList<>();
+
+        repository.streamRange("BTCUSDT", "1m", MINUTE, 3 * MINUTE, streamed::add);
+
+        assertEquals(List.of(MINUTE, 2 * MINUTE, 3 * MINUTE), openTimes(streamed));
+        assertTrue(streamed.stream().allMatch(kline -> kline.getId() != null));
+    }
+
+    private void insert(String symbol, long openTime) {
+        jdbcTemplate.update("INSERT INTO kline VALUES (?, '1m', ?, ?, ?, CURRENT_TIMESTAMP, 1, 2, 0.5, 1.5, 10)",
+                symbol, openTime, openTime + MINUTE - 1, openTime + MINUTE - 1);
+    }
+
+    private static List<Long> openTimes(List<KlineItem> klines) {
+        return klines.stream().map(KlineItem::getOpenTime).toList();
+    }
+}
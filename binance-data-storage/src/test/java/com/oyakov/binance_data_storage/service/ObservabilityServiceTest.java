@@ -0,0 +1,142 @@
+package com.oyakov.binance_data_storage.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.oyakov.binance_data_storage.model.observability.DecisionLogEvent;
+import com.oyakov.binance_data_storage.model.observability.ObservabilityBatch;
+import com.oyakov.binance_data_storage.model.observability.StrategyAnalysisEvent;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+
+import java.math.BigDecimal;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+class ObservabilityServiceTest {
+
+    private JdbcTemplate jdbcTemplate;
+    private ObservabilityService service;
+
+    @BeforeEach
+    void setUp() {
+        DriverManagerDataSource dataSource = new DriverManagerDataSource(
+                "jdbc:h2:mem:observability;MODE=PostgreSQL;DB_CLOSE_DELAY=-1;DATABASE_TO_LOWER=TRUE",
+                "sa", "");
+        jdbcTemplate = new JdbcTemplate(dataSource);
+        jdbcTemplate.execute("""
+                CREATE TABLE strategy_analysis_events (
+                    id SERIAL PRIMARY KEY, instance_id VARCHAR(255) NOT NULL, strategy_name VARCHAR(255) NOT NULL,
+                    symbol VARCHAR(50) NOT NULL, "interval" VARCHAR(10) NOT NULL,
+                    analysis_time TIMESTAMP NOT NULL, kline_timestamp BIGINT NOT NULL,
+                    kline_close_time TIMESTAMP NOT NULL, current_price DECIMAL(20, 8) NOT NULL,
+                    kline_count INTEGER NOT NULL, macd_line DECIMAL(20, 8), signal_line DECIMAL(20, 8),
+                    histogram DECIMAL(20, 8), signal_strength VARCHAR(20), signal_detected VARCHAR(10),
+                    signal_reason TEXT, ema_fast DECIMAL(20, 8), ema_slow DECIMAL(20, 8))
+                """);
+        jdbcTemplate.execute("""
+                CREATE TABLE trading_decision_logs (
+                    id SERIAL PRIMARY KEY, instance_id VARCHAR(255) NOT NULL, strategy_name VARCHAR(255) NOT NULL,
+                    symbol VARCHAR(50) NOT NULL, decision_time TIMESTAMP NOT NULL,
+                    signal_detected VARCHAR(10), signal_strength VARCHAR(20), macd_histogram DECIMAL(20, 8),
+                    current_price DECIMAL(20, 8), trade_allowed BOOLEAN NOT NULL, trade_executed BOOLEAN NOT NULL,
+                    has_active_position BOOLEAN, position_size_ok BOOLEAN, daily_loss_limit_ok BOOLEAN,
+                    risk_check_passed BOOLEAN, decision_reason TEXT NOT NULL, blocked_reason TEXT,
+                    order_id VARCHAR(255), executed_price DECIMAL(20, 8), executed_quantity DECIMAL(20, 8))
+                """);
+        jdbcTemplate.execute("""
+                CREATE TABLE portfolio_snapshots (
+                    id SERIAL PRIMARY KEY, instance_id VARCHAR(255) NOT NULL, strategy_name VARCHAR(255) NOT NULL,
+                    snapshot_time TIMESTAMP NOT NULL, total_balance DECIMAL(20, 8) NOT NULL,
+                    available_balance DECIMAL(20, 8) NOT NULL, position_value DECIMAL(20, 8) NOT NULL,
+                    symbol VARCHAR(50), position_size DECIMAL(20, 8), position_entry_price DECIMAL(20, 8),
+                    current_market_price DECIMAL(20, 8), unrealized_pnl DECIMAL(20, 8),
+                    total_trades INTEGER NOT NULL, winning_trades INTEGER NOT NULL,
+                    total_realized_pnl DECIMAL(20, 8) NOT NULL, daily_pnl DECIMAL(20, 8),
+                    current_drawdown DECIMAL(20, 8), max_drawdown DECIMAL(20, 8))
+                """);
+        service = new ObservabilityService(jdbcTemplate);
+    }
+
+    @AfterEach
+    void tearDown() {
+        jdbcTemplate.execute("DROP TABLE strategy_analysis_events");
+        jdbcTemplate.execute("DROP TABLE trading_decision_logs");
+        jdbcTemplate.execute("DROP TABLE portfolio_snapshots");
+    }
+
+    @Test
+    void writesBatchPostedByTrader() throws Exception {
+        String json = """
+                {
+                  "strategy_analyses": [{
+                    "instance_id": "i-1", "strategy_name": "macd", "symbol": "BTCUSDT", "interval": "5m",
+                    "analysis_time": "2025-10-12T10:15:30.5", "kline_timestamp": 1760264100000,
+                    "kline_close_time": "2025-10-12T10:14:59.999", "current_price": 62000.5, "kline_count": 35,
+                    "macd_line": 1.5, "signal_line": 1.25, "histogram": 0.25, "signal_strength": "WEAK",
+                    "signal_detected": null, "signal_reason": "No signal - histogram=0.25"
+                  }],
+                  "decision_logs": [{
+                    "instance_id": "i-1", "strategy_name": "macd", "symbol": "BTCUSDT",
+                    "decision_time": "2025-10-12T10:15:31", "signal_detected": "BUY",
+                    "trade_allowed": false, "trade_executed": false, "has_active_position": true,
+                    "decision_reason": "Trade blocked: Active position exists"
+                  }],
+                  "portfolio_snapshots": [{
+                    "instance_id": "i-1", "strategy_name": "macd", "snapshot_time": "2025-10-12T10:15:32",
+                    "total_balance": 10000, "available_balance": 9500, "position_value": 500,
+                    "total_trades": 3, "winning_trades": 2, "total_realized_pnl": 12.5
+                  }]
+                }
+                """;
+        ObservabilityBatch batch = new ObjectMapper().findAndRegisterModules().readValue(json, ObservabilityBatch.class);
+
+        assertEquals(3, service.recordBatch(batch));
+
+        Map<String, Object> analysis = jdbcTemplate.queryForMap("SELECT * FROM strategy_analysis_events");
+        assertEquals(Timestamp.valueOf(LocalDateTime.of(2025, 10, 12, 10, 15, 30, 500_000_000)),
+                analysis.get("analysis_time"));
+        assertEquals("5m", analysis.get("interval"));
+        assertEquals(0, new BigDecimal("62000.5").compareTo((BigDecimal) analysis.get("current_price")));
+        assertNull(analysis.get("ema_fast"));
+
+        Map<String, Object> decision = jdbcTemplate.queryForMap("SELECT * FROM trading_decision_logs");
+        assertEquals(true, decision.get("has_active_position"));
+        assertNull(decision.get("position_size_ok"));
+
+        assertEquals(2, jdbcTemplate.queryForObject("SELECT winning_trades FROM portfolio_snapshots", Integer.class));
+    }
+
+    @Test
+    void splitsLargeBatchesIntoJdbcBatches() {
+        List<DecisionLogEvent> decisions = IntStream.range(0, ObservabilityService.BATCH_SIZE + 1)
+                .mapToObj(i -> DecisionLogEvent.builder()
+                        .instanceId("i-" + i)
+                        .strategyName("macd")
+                        .symbol("BTCUSDT")
+                        .decisionTime(LocalDateTime.of(2025, 10, 12, 10, 0).plusSeconds(i))
+                        .decisionReason("Trade allowed - all checks passed")
+                        .build())
+                .toList();
+
+        int written = service.recordBatch(ObservabilityBatch.builder().decisionLogs(decisions).build());
+        service.recordStrategyAnalysis(StrategyAnalysisEvent.builder()
+                .instanceId("i-0").strategyName("macd").symbol("BTCUSDT").interval("5m")
+                .analysisTime(LocalDateTime.of(2025, 10, 12, 10, 0))
+                .klineCloseTime(LocalDateTime.of(2025, 10, 12, 9, 59, 59))
+                .currentPrice(BigDecimal.ONE)
+                .build());
+
+        assertEquals(ObservabilityService.BATCH_SIZE + 1, written);
+        assertEquals(ObservabilityService.BATCH_SIZE + 1,
+                jdbcTemplate.queryForObject("SELECT COUNT(*) FROM trading_decision_logs", Integer.class));
+        assertEquals(1, jdbcTemplate.queryForObject("SELECT COUNT(*) FROM strategy_analysis_events", Integer.class));
+    }
+}
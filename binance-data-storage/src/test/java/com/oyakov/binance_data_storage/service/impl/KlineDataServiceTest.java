@@ -6,6 +6,7 @@ import com.oyakov.binance_data_storage.model.klines.binance.notifications.DataIt
 import com.oyakov.binance_data_storage.model.klines.binance.storage.KlineFingerprint;
 import com.oyakov.binance_data_storage.model.klines.binance.storage.KlineItem;
 import com.oyakov.binance_data_storage.repository.elastic.KlineElasticRepository;
+import com.oyakov.binance_data_storage.repository.jdbc.KlineJdbcRepository;
 import com.oyakov.binance_data_storage.repository.jpa.KlinePostgresRepository;
 import com.oyakov.binance_shared_model.avro.KlineEvent;
 import org.junit.jupiter.api.BeforeEach;
@@ -54,6 +55,12 @@ public class KlineDataServiceTest {
     @Mock
     private ObjectProvider<KlinePostgresRepository> postgresRepositoryProvider;
 
+    @Mock
+    private KlineJdbcRepository klineJdbcRepository;
+
+    @Mock
+    private ObjectProvider<KlineJdbcRepository> jdbcRepositoryProvider;
+
     private KlineDataService klineDataService;
 
     @BeforeEach
@@ -61,6 +68,7 @@ public class KlineDataServiceTest {
         MockitoAnnotations.openMocks(this);
         when(elasticRepositoryProvider.getIfAvailable()).thenReturn(klineElasticRepository);
         when(postgresRepositoryProvider.getIfAvailable()).thenReturn(klinePostgresRepository);
+        when(jdbcRepositoryProvider.getIfAvailable()).thenReturn(klineJdbcRepository);
 
         klineDataService = new KlineDataService(
                 List.of(),
@@ -68,6 +76,7 @@ public class KlineDataServiceTest {
                 klineMapper,
                 elasticRepositoryProvider,
                 postgresRepositoryProvider,
+                jdbcRepositoryProvider,
                 mock(DataStorageMetrics.class)
         );
     }
@@ -272,6 +281,7 @@ public class KlineDataServiceTest {
                 klineMapper,
                 elasticRepositoryProvider,
                 postgresRepositoryProvider,
+                jdbcRepositoryProvider,
                 mock(DataStorageMetrics.class)
         );
 
@@ -302,4 +312,50 @@ public class KlineDataServiceTest {
         assertTrue(publishedEvent.getErrorMessage().contains("No storage repositories"));
         assertNull(publishedEvent.getError());
     }
+
+    @Test
+    public void testSaveKlineDataBatchUpsertsAndBulkIndexesDistinctKlines() {
+        KlineEvent first = batchEvent(1620000000000L, 1000.0);
+        KlineEvent update = batchEvent(1620000000000L, 1010.0);
+        KlineEvent second = batchEvent(1620000060000L, 1020.0);
+
+        klineDataService.saveKlineDataBatch(List.of(first, update, second));
+
+        ArgumentCaptor<List<KlineItem>> upserted = ArgumentCaptor.forClass(List.class);
+        verify(klineJdbcRepository).upsertKlines(upserted.capture());
+        assertEquals(2, upserted.getValue().size());
+        assertEquals(1010.0, upserted.getValue().get(0).getClose());
+        assertEquals("BTCUSDT-1m-1620000000000", upserted.getValue().get(0).getId());
+        verify(klineElasticRepository).saveAll(upserted.getValue());
+        verify(klinePostgresRepository, never()).upsertKline(any());
+        verifyNoInteractions(eventPublisher);
+    }
+
+    @Test
+    public void testSaveKlineDataBatchPropagatesElasticsearchFailure() {
+        when(klineElasticRepository.saveAll(any())).thenThrow(new RuntimeException("Elasticsearch is down"));
+
+        RuntimeException error = assertThrows(RuntimeException.class,
+                () -> klineDataService.saveKlineDataBatch(List.of(batchEvent(1620000000000L, 1000.0))));
+
+        assertEquals("Elasticsearch is down", error.getMessage());
+        verify(klineJdbcRepository).upsertKlines(any());
+        verifyNoInteractions(eventPublisher);
+    }
+
+    private static KlineEvent batchEvent(long openTime, double close) {
+        return KlineEvent.newBuilder()
+                .setSymbol("BTCUSDT")
+                .setInterval("1m")
+                .setEventType("kline")
+                .setEventTime(openTime + 1000L)
+                .setOpenTime(openTime)
+                .setOpen(decimal(1000.0))
+                .setHigh(decimal(1100.0))
+                .setLow(decimal(900.0))
+                .setClose(decimal(close))
+                .setVolume(decimal(1000.0))
+                .setCloseTime(openTime + 59_999L)
+                .build();
+    }
 }
@@ -0,0 +1,54 @@
+package com.oyakov.binance_data_storage.service.impl;
+
+import com.oyakov.binance_data_storage.model.macd.MacdItem;
+import com.oyakov.binance_data_storage.repository.jdbc.MacdJdbcRepository;
+import com.oyakov.binance_data_storage.repository.jpa.MacdPostgresRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyNoInteractions;
+
+class MacdDataServiceTest {
+
+    private MacdJdbcRepository jdbcRepository;
+    private MacdDataService service;
+
+    @BeforeEach
+    void setUp() {
+        jdbcRepository = mock(MacdJdbcRepository.class);
+        service = new MacdDataService(mock(MacdPostgresRepository.class), jdbcRepository);
+    }
+
+    @Test
+    void upsertsBatchWithLastPointPerTimestamp() {
+        MacdItem first = item("BTCUSDT", 1000L, 0.1);
+        MacdItem other = item("ETHUSDT", 1000L, 0.2);
+        MacdItem replacement = item("BTCUSDT", 1000L, 0.3);
+
+        int written = service.upsertBatch(List.of(first, other, replacement));
+
+        assertEquals(2, written);
+        verify(jdbcRepository).upsertMacds(List.of(replacement, other));
+    }
+
+    @Test
+    void ignoresEmptyBatch() {
+        assertEquals(0, service.upsertBatch(List.of()));
+
+        verifyNoInteractions(jdbcRepository);
+    }
+
+    private static MacdItem item(String symbol, long timestamp, double macd) {
+        return MacdItem.builder()
+                .symbol(symbol)
+                .interval("1m")
+                .timestamp(timestamp)
+                .macd(macd)
+                .build();
+    }
+}
@@ -0,0 +1,493 @@
+package com.oyakov.binance_shared_model.backtest;
+
+import com.oyakov.binance_shared_model.avro.KlineEvent;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.math.BigDecimal;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.DoubleBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Instant;
+import java.util.AbstractList;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Objects;
+import java.util.RandomAccess;
+import java.util.function.Function;
+import java.util.function.ToLongFunction;
+
+/**
+ * Read-only view of a backtest dataset stored in the columnar kline format. The file is memory-mapped,
+ * so opening it costs a header read regardless of its size and prices are read straight from the page
+ * cache by row index, without a {@link KlineEvent} per row.
+ * <p>
+ * Layout, little endian:
+ * <pre>
+ *   int     magic "KLCF"
+ *   int     format version
+ *   int     row count
+ *   int     header length, offset of the first column (multiple of 8)
+ *   long    collectedAt epoch millis, Long.MIN_VALUE when unknown
+ *   name, symbol, interval: short UTF-8 length (-1 for null) followed by the bytes
+ *   padding to the header length
+ *   long[]  openTime, long[] closeTime,
+ *   double[] open, double[] high, double[] low, double[] close, double[] volume
+ * </pre>
+ * Rows are sorted by close time when written. Prices are stored as doubles, which keeps every Binance
+ * price and quantity (at most 8 decimals) exact when read back through {@link BigDecimal#valueOf(double)},
+ * although trailing zeros of the original scale are not kept. Event type and time are not stored;
+ * rebuilt events carry {@code "kline"} and the close time.
+ * <p>
+ * The same bytes are the {@value #MEDIA_TYPE} wire format between data storage and the traders: a
+ * {@link Builder} encodes rows on the heap, {@link #writeTo(OutputStream)} sends them and
+ * {@link #read(InputStream)} decodes a received body.
+ * <p>
+ * A file mapping is released when the instance is garbage collected. Instances are immutable and safe to
+ * share between threads.
+ */
+public final class ColumnarKlineDataset {
+
+    public static final String FILE_EXTENSION = ".klc";
+    public static final String MEDIA_TYPE = "application/x-kline-columnar";
+
+    private static final int MAGIC = 0x46434C4B; // "KLCF" in little endian
+    private static final int VERSION = 1;
+    private static final int FIXED_HEADER_BYTES = 24;
+    private static final long UNKNOWN_TIME = Long.MIN_VALUE;
+    private static final int WRITE_BUFFER_BYTES = 64 * 1024;
+
+    private static final int OPEN_TIME = 0;
+    private static final int CLOSE_TIME = 1;
+    private static final int OPEN = 2;
+    private static final int HIGH = 3;
+    private static final int LOW = 4;
+    private static final int CLOSE = 5;
+    private static final int VOLUME = 6;
+    private static final int COLUMN_COUNT = 7;
+
+    private final ByteBuffer buffer;
+    private final int size;
+    private final int dataOffset;
+    private final String name;
+    private final String symbol;
+    private final String interval;
+    private final Instant collectedAt;
+
+    private ColumnarKlineDataset(String source, ByteBuffer buffer) throws IOException {
+        this.buffer = buffer;
+        if (buffer.limit() < FIXED_HEADER_BYTES || buffer.getInt(0) != MAGIC) {
+            throw new IOException(source + " is not a columnar kline dataset");
+        }
+        int version = buffer.getInt(4);
+        if (version != VERSION) {
+            throw new IOException("Unsupported columnar kline dataset version " + version + " in " + source);
+        }
+        this.size = buffer.getInt(8);
+        this.dataOffset = buffer.getInt(12);
+        long collectedAtMillis = buffer.getLong(16);
+        this.collectedAt = collectedAtMillis == UNKNOWN_TIME ? null : Instant.ofEpochMilli(collectedAtMillis);
+        if (size < 0 || (long) dataOffset + (long) COLUMN_COUNT * Long.BYTES * size > buffer.limit()) {
+            throw new IOException("Columnar kline dataset " + source + " is truncated");
+        }
+        ByteBuffer header = buffer.duplicate().order(ByteOrder.LITTLE_ENDIAN).position(FIXED_HEADER_BYTES);
+        this.name = readString(header);
+        this.symbol = readString(header);
+        this.interval = readString(header);
+    }
+
+    /**
+     * Maps the dataset at {@code path}. The channel is closed before returning; the mapping stays valid.
+     */
+    public static ColumnarKlineDataset open(Path path) throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            long length = channel.size();
+            if (length > Integer.MAX_VALUE) {
+                throw new IOException("Columnar kline dataset " + path + " exceeds 2 GB, split it by date range");
+            }
+            MappedByteBuffer mapped = channel.map(FileChannel.MapMode.READ_ONLY, 0, length);
+            return new ColumnarKlineDataset(path.toString(), mapped.order(ByteOrder.LITTLE_ENDIAN));
+        }
+    }
+
+    /**
+     * Decodes a dataset received as a {@value #MEDIA_TYPE} body. The stream is read to its end and held on
+     * the heap; it is not closed.
+     */
+    public static ColumnarKlineDataset read(InputStream in) throws IOException {
+        return new ColumnarKlineDataset("response body",
+                ByteBuffer.wrap(in.readAllBytes()).order(ByteOrder.LITTLE_ENDIAN));
+    }
+
+    /**
+     * Starts a heap-backed dataset of one series, for rows that are not {@link KlineEvent}s.
+     */
+    public static Builder builder(String symbol, String interval) {
+        return new Builder(symbol, interval);
+    }
+
+    /**
+     * Checks the magic number, so callers can pick a decoder without relying on the file extension.
+     */
+    public static boolean isColumnar(Path path) throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            ByteBuffer magic = ByteBuffer.allocate(Integer.BYTES).order(ByteOrder.LITTLE_ENDIAN);
+            while (magic.hasRemaining()) {
+                if (channel.read(magic) < 0) {
+                    return false;
+                }
+            }
+            return magic.getInt(0) == MAGIC;
+        }
+    }
+
+    /**
+     * Writes {@code dataset} to {@code target}, replacing any existing file. Klines are sorted by close time.
+     */
+    public static void write(BacktestDataset dataset, Path target) throws IOException {
+        List<KlineEvent> klines = sortedByCloseTime(dataset.getKlines());
+        ByteBuffer header = header(dataset.getName(), dataset.getSymbol(), dataset.getInterval(),
+                dataset.getCollectedAt(), klines.size());
+
+        if (target.getParent() != null) {
+            Files.createDirectories(target.getParent());
+        }
+        try (FileChannel channel = FileChannel.open(target, StandardOpenOption.CREATE,
+                StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+            writeFully(channel, header.clear());
+
+            ByteBuffer chunk = ByteBuffer.allocate(WRITE_BUFFER_BYTES).order(ByteOrder.LITTLE_ENDIAN);
+            writeLongColumn(channel, chunk, klines, KlineEvent::getOpenTime);
+            writeLongColumn(channel, chunk, klines, KlineEvent::getCloseTime);
+            writeDoubleColumn(channel, chunk, klines, KlineEvent::getOpen);
+            writeDoubleColumn(channel, chunk, klines, KlineEvent::getHigh);
+            writeDoubleColumn(channel, chunk, klines, KlineEvent::getLow);
+            writeDoubleColumn(channel, chunk, klines, KlineEvent::getClose);
+            writeDoubleColumn(channel, chunk, klines, KlineEvent::getVolume);
+        }
+    }
+
+    /**
+     * Sends the encoded dataset, header included. {@code out} is not closed.
+     */
+    public void writeTo(OutputStream out) throws IOException {
+        writeFully(Channels.newChannel(out), buffer.duplicate().clear());
+    }
+
+    /**
+     * Length in bytes of what {@link #writeTo(OutputStream)} sends.
+     */
+    public int encodedSize() {
+        return buffer.limit();
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public String getSymbol() {
+        return symbol;
+    }
+
+    public String getInterval() {
+        return interval;
+    }
+
+    public Instant getCollectedAt() {
+        return collectedAt;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public long openTime(int row) {
+        return buffer.getLong(offset(OPEN_TIME, row));
+    }
+
+    public long closeTime(int row) {
+        return buffer.getLong(offset(CLOSE_TIME, row));
+    }
+
+    public double open(int row) {
+        return buffer.getDouble(offset(OPEN, row));
+    }
+
+    public double high(int row) {
+        return buffer.getDouble(offset(HIGH, row));
+    }
+
+    public double low(int row) {
+        return buffer.getDouble(offset(LOW, row));
+    }
+
+    public double close(int row) {
+        return buffer.getDouble(offset(CLOSE, row));
+    }
+
+    public double volume(int row) {
+        return buffer.getDouble(offset(VOLUME, row));
+    }
+
+    /**
+     * Bulk copy of the close column, for indicator code that works on primitive arrays.
+     */
+    public double[] closePrices() {
+        double[] closes = new double[size];
+        buffer.slice(dataOffset + CLOSE * Long.BYTES * size, size * Long.BYTES)
+                .order(ByteOrder.LITTLE_ENDIAN)
+                .asDoubleBuffer()
+                .get(closes);
+        return closes;
+    }
+
+    public KlineEvent toKlineEvent(int row) {
+        long closeTime = closeTime(row);
+        return new KlineEvent(
+                "kline",
+                closeTime,
+                symbol,
+                interval,
+                openTime(row),
+                closeTime,
+                decimal(open(row)),
+                decimal(high(row)),
+                decimal(low(row)),
+                decimal(close(row)),
+                decimal(volume(row)));
+    }
+
+    /**
+     * Unmodifiable list view that builds each {@link KlineEvent} on access, for code written against
+     * {@link BacktestDataset#getKlines()}.
+     */
+    public List<KlineEvent> klineEvents() {
+        return new KlineEventView();
+    }
+
+    /**
+     * Dataset whose klines are the lazy {@link #klineEvents()} view of this file.
+     */
+    public BacktestDataset toDataset() {
+        return BacktestDataset.builder()
+                .name(name)
+                .symbol(symbol)
+                .interval(interval)
+                .collectedAt(collectedAt)
+                .klines(klineEvents())
+                .build();
+    }
+
+    private int offset(int column, int row) {
+        Objects.checkIndex(row, size);
+        return dataOffset + (column * size + row) * Long.BYTES;
+    }
+
+    private static BigDecimal decimal(double value) {
+        return Double.isNaN(value) ? null : BigDecimal.valueOf(value);
+    }
+
+    private static List<KlineEvent> sortedByCloseTime(List<KlineEvent> klines) {
+        if (klines == null) {
+            return List.of();
+        }
+        for (int i = 1; i < klines.size(); i++) {
+            if (klines.get(i - 1).getCloseTime() > klines.get(i).getCloseTime()) {
+                List<KlineEvent> sorted = new ArrayList<>(klines);
+                sorted.sort(Comparator.comparingLong(KlineEvent::getCloseTime));
+                return sorted;
+            }
+        }
+        return klines;
+    }
+
+    private static void writeLongColumn(FileChannel channel, ByteBuffer chunk, List<KlineEvent> klines,
+                                        ToLongFunction<KlineEvent> column) throws IOException {
+        for (KlineEvent kline : klines) {
+            if (chunk.remaining() < Long.BYTES) {
+                writeFully(channel, chunk.flip());
+                chunk.clear();
+            }
+            chunk.putLong(column.applyAsLong(kline));
+        }
+        writeFully(channel, chunk.flip());
+        chunk.clear();
+    }
+
+    private static void writeDoubleColumn(FileChannel channel, ByteBuffer chunk, List<KlineEvent> klines,
+                                          Function<KlineEvent, BigDecimal> column) throws IOException {
+        for (KlineEvent kline : klines) {
+            if (chunk.remaining() < Double.BYTES) {
+                writeFully(channel, chunk.flip());
+                chunk.clear();
+            }
+            BigDecimal value = column.apply(kline);
+            chunk.putDouble(value != null ? value.doubleValue() : Double.NaN);
+        }
+        writeFully(channel, chunk.flip());
+        chunk.clear();
+    }
+
+    /**
+     * Fixed header and strings, padded to the data offset; positioned at its end.
+     */
+    private static ByteBuffer header(String name, String symbol, String interval, Instant collectedAt, int count)
+            throws IOException {
+        byte[] nameBytes = encode(name);
+        byte[] symbolBytes = encode(symbol);
+        byte[] intervalBytes = encode(interval);
+        int headerBytes = FIXED_HEADER_BYTES + 3 * Short.BYTES
+                + length(nameBytes) + length(symbolBytes) + length(intervalBytes);
+        int dataOffset = (headerBytes + Long.BYTES - 1) & -Long.BYTES;
+        if ((long) dataOffset + (long) COLUMN_COUNT * Long.BYTES * count > Integer.MAX_VALUE) {
+            throw new IOException("Dataset " + (name != null ? name : symbol + " " + interval)
+                    + " exceeds 2 GB, split it by date range");
+        }
+        ByteBuffer header = ByteBuffer.allocate(dataOffset).order(ByteOrder.LITTLE_ENDIAN)
+                .putInt(MAGIC)
+                .putInt(VERSION)
+                .putInt(count)
+                .putInt(dataOffset)
+                .putLong(collectedAt != null ? collectedAt.toEpochMilli() : UNKNOWN_TIME);
+        putString(header, nameBytes);
+        putString(header, symbolBytes);
+        putString(header, intervalBytes);
+        return header.position(dataOffset);
+    }
+
+    private static void writeFully(WritableByteChannel channel, ByteBuffer source) throws IOException {
+        while (source.hasRemaining()) {
+            channel.write(source);
+        }
+    }
+
+    private static byte[] encode(String value) throws IOException {
+        if (value == null) {
+            return null;
+        }
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        if (bytes.length > Short.MAX_VALUE) {
+            throw new IOException("Header value is too long for the columnar kline format: " + value);
+        }
+        return bytes;
+    }
+
+    private static int length(byte[] bytes) {
+        return bytes != null ? bytes.length : 0;
+    }
+
+    private static void putString(ByteBuffer header, byte[] bytes) {
+        if (bytes == null) {
+            header.putShort((short) -1);
+        } else {
+            header.putShort((short) bytes.length).put(bytes);
+        }
+    }
+
+    private static String readString(ByteBuffer header) {
+        short length = header.getShort();
+        if (length < 0) {
+            return null;
+        }
+        byte[] bytes = new byte[length];
+        header.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Collects rows into primitive columns and encodes them in one heap buffer. Rows must be added in
+     * close time order.
+     */
+    public static final class Builder {
+
+        private static final int INITIAL_CAPACITY = 256;
+
+        private final String symbol;
+        private final String interval;
+        private String name;
+        private Instant collectedAt;
+        private int size;
+        private long[] openTimes = new long[INITIAL_CAPACITY];
+        private long[] closeTimes = new long[INITIAL_CAPACITY];
+        // open, high, low, close, volume, in file order
+        private final double[][] prices = new double[COLUMN_COUNT - OPEN][INITIAL_CAPACITY];
+
+        private Builder(String symbol, String interval) {
+            this.symbol = symbol;
+            this.interval = interval;
+        }
+
+        public Builder name(String name) {
+            this.name = name;
+            return this;
+        }
+
+        public Builder collectedAt(Instant collectedAt) {
+            this.collectedAt = collectedAt;
+            return this;
+        }
+
+        public Builder add(long openTime, long closeTime, double open, double high, double low, double close,
+                           double volume) {
+            if (size == openTimes.length) {
+                int capacity = size * 2;
+                openTimes = Arrays.copyOf(openTimes, capacity);
+                closeTimes = Arrays.copyOf(closeTimes, capacity);
+                for (int column = 0; column < prices.length; column++) {
+                    prices[column] = Arrays.copyOf(prices[column], capacity);
+                }
+            }
+            openTimes[size] = openTime;
+            closeTimes[size] = closeTime;
+            prices[0][size] = open;
+            prices[1][size] = high;
+            prices[2][size] = low;
+            prices[3][size] = close;
+            prices[4][size] = volume;
+            size++;
+            return this;
+        }
+
+        public int size() {
+            return size;
+        }
+
+        public ColumnarKlineDataset build() throws IOException {
+            ByteBuffer header = header(name, symbol, interval, collectedAt, size);
+            ByteBuffer buffer = ByteBuffer.allocate(header.position() + COLUMN_COUNT * Long.BYTES * size)
+                    .order(ByteOrder.LITTLE_ENDIAN)
+                    .put(header.flip());
+            buffer.asLongBuffer().put(openTimes, 0, size).put(closeTimes, 0, size);
+            buffer.position(buffer.position() + 2 * Long.BYTES * size);
+            DoubleBuffer priceColumns = buffer.asDoubleBuffer();
+            for (double[] column : prices) {
+                priceColumns.put(column, 0, size);
+            }
+            return new ColumnarKlineDataset("builder", buffer.clear());
+        }
+    }
+
+    private final class KlineEventView extends AbstractList<KlineEvent> implements RandomAccess {
+
+        @Override
+        public KlineEvent get(int index) {
+            return toKlineEvent(index);
+        }
+
+        @Override
+        public int size() {
+            return size;
+        }
+    }
+}
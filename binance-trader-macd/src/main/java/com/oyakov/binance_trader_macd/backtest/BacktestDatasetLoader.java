@@ -3,6 +3,7 @@ package com.oyakov.binance_trader_macd.backtest;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.oyakov.binance_shared_model.avro.KlineEvent;
 import com.oyakov.binance_shared_model.backtest.BacktestDataset;
+import com.oyakov.binance_shared_model.backtest.ColumnarKlineDataset;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.log4j.Log4j2;
 import org.springframework.stereotype.Component;
@@ -21,10 +22,22 @@ public class BacktestDatasetLoader {
 
     private final ObjectMapper objectMapper;
 
+    /**
+     * Loads a JSON or columnar dataset, told apart by the file's magic number. Columnar klines are
+     * already sorted and are exposed as a lazy view over the mapped file.
+     */
     public BacktestDataset load(Path datasetPath) {
         Objects.requireNonNull(datasetPath, "Dataset path cannot be null");
         log.info("Loading backtest dataset from {}", datasetPath);
         try {
+            if (ColumnarKlineDataset.isColumnar(datasetPath)) {
+                BacktestDataset dataset = loadColumnar(datasetPath).toDataset();
+                if (dataset.getName() == null || dataset.getName().isBlank()) {
+                    dataset.setName(datasetPath.getFileName().toString());
+                }
+                log.info("Mapped columnar dataset '{}' with {} klines", dataset.getName(), dataset.getKlines().size());
+                return dataset;
+            }
             BacktestDataset dataset = objectMapper.readValue(Files.newBufferedReader(datasetPath), BacktestDataset.class);
             if (dataset.getName() == null || dataset.getName().isBlank()) {
                 dataset.setName(datasetPath.getFileName().toString());
@@ -42,4 +55,12 @@ public class BacktestDatasetLoader {
             throw new IllegalStateException("Failed to load dataset from " + datasetPath, e);
         }
     }
+
+    /**
+     * Maps a columnar dataset for callers that iterate prices by row instead of {@link KlineEvent}s.
+     */
+    public ColumnarKlineDataset loadColumnar(Path datasetPath) throws IOException {
+        Objects.requireNonNull(datasetPath, "Dataset path cannot be null");
+        return ColumnarKlineDataset.open(datasetPath);
+    }
 }
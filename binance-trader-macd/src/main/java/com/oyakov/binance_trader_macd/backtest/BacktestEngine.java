@@ -1,6 +1,5 @@
 package com.oyakov.binance_trader_macd.backtest;
 
-import com.oyakov.binance_shared_model.avro.KlineEvent;
 import com.oyakov.binance_shared_model.backtest.BacktestDataset;
 import com.oyakov.binance_trader_macd.config.MACDTraderConfig;
 import com.oyakov.binance_trader_macd.domain.signal.MACDSignalAnalyzer;
@@ -21,16 +20,10 @@ public class BacktestEngine {
 
     public BacktestMetrics run(BacktestDataset dataset) {
         log.info("Running backtest for dataset {}", dataset.getName());
-        BacktestOrderService orderService = new BacktestOrderService();
-        BacktestTraderEngine traderEngine = new BacktestTraderEngine(
+        List<SimulatedTrade> trades = BacktestTraderEngine.replay(
                 macdSignalAnalyzer,
-                orderService,
-                traderConfig.getTrader());
-
-        List<KlineEvent> klines = dataset.getKlines();
-        klines.forEach(traderEngine::onNewKline);
-
-        List<SimulatedTrade> trades = orderService.getClosedTrades();
+                traderConfig.getTrader(),
+                dataset.getKlines());
         log.info("Backtest finished for dataset {} - trades executed: {}", dataset.getName(), trades.size());
         return metricsCalculator.calculate(dataset.getName(), trades);
     }
@@ -19,16 +19,26 @@ import java.time.ZoneOffset;
 import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
+import java.util.Locale;
 import java.util.Map;
 import java.util.Optional;
-import java.util.concurrent.atomic.AtomicLong;
 
+/**
+ * Simulated order book of a backtest.
+ * <p>
+ * A backtest replays its klines on one thread, so the book takes no locks and must not be shared between
+ * threads. Active orders are indexed by symbol, normalised to upper case once per call, so looking up and
+ * closing the order of a symbol costs the same however many symbols the book trades.
+ */
 @Log4j2
 public class BacktestOrderService implements OrderServiceApi, BacktestOrderContext {
 
-    private final AtomicLong idSequence = new AtomicLong(1L);
-    private final Map<Long, OrderItem> activeOrders = new HashMap<>();
-    private final Map<Long, SimulatedTrade> openTrades = new HashMap<>();
+    private long nextOrderId = 1L;
+    // Active order and open trade by normalised symbol, at most one each
+    private final Map<String, OrderItem> activeOrders = new HashMap<>();
+    private final Map<String, SimulatedTrade> openTrades = new HashMap<>();
+    // Normalised symbol by active order id
+    private final Map<Long, String> activeSymbols = new HashMap<>();
     @Getter
     private final List<SimulatedTrade> closedTrades = new ArrayList<>();
     private KlineEvent currentKline;
@@ -39,15 +49,16 @@ public class BacktestOrderService implements OrderServiceApi, BacktestOrderConte
     }
 
     @Override
-    public synchronized OrderItem createOrderGroup(String symbol, BigDecimal entryPrice, BigDecimal quantity,
+    public OrderItem createOrderGroup(String symbol, BigDecimal entryPrice, BigDecimal quantity,
                                       OrderSide orderSide, BigDecimal stopLossPrice, BigDecimal takeProfitPrice)
             throws OrderCapacityReachedException {
-        if (hasActiveOrder(symbol)) {
+        String key = key(symbol);
+        if (activeOrders.containsKey(key)) {
             log.warn("Active order already present for symbol {}", symbol);
             throw new OrderCapacityReachedException();
         }
 
-        long orderId = idSequence.getAndIncrement();
+        long orderId = nextOrderId++;
         long eventTime = currentKline != null ? currentKline.getCloseTime() : System.currentTimeMillis();
         Instant eventInstant = Instant.ofEpochMilli(eventTime);
         OrderItem orderItem = OrderItem.builder()
@@ -71,7 +82,8 @@ public class BacktestOrderService implements OrderServiceApi, BacktestOrderConte
                 .fills("[]")
                 .build();
 
-        activeOrders.put(orderId, orderItem);
+        activeOrders.put(key, orderItem);
+        activeSymbols.put(orderId, key);
         SimulatedTrade trade = SimulatedTrade.builder()
                 .orderId(orderId)
                 .symbol(symbol)
@@ -80,32 +92,41 @@ public class BacktestOrderService implements OrderServiceApi, BacktestOrderConte
                 .entryPrice(entryPrice)
                 .entryTime(eventInstant)
                 .build();
-        openTrades.put(orderId, trade);
+        openTrades.put(key, trade);
         log.debug("Created simulated order {} for {} {} @ {}", orderId, orderSide, symbol, entryPrice);
         return orderItem;
     }
 
     @Override
-    public synchronized boolean hasActiveOrder(String symbol) {
-        return activeOrders.values().stream()
-                .anyMatch(order -> order.getSymbol().equalsIgnoreCase(symbol) && order.getStatus() == OrderState.ACTIVE);
+    public boolean hasActiveOrder(String symbol) {
+        return activeOrders.containsKey(key(symbol));
     }
 
     @Override
-    public synchronized void closeOrderWithState(Long orderId, OrderState state) {
-        OrderItem orderItem = activeOrders.remove(orderId);
-        SimulatedTrade trade = openTrades.remove(orderId);
-        if (orderItem == null || trade == null) {
+    public void closeOrderWithState(Long orderId, OrderState state) {
+        String key = activeSymbols.remove(orderId);
+        if (key == null) {
             log.warn("Attempted to close unknown simulated order {}", orderId);
             return;
         }
+        OrderItem orderItem = activeOrders.remove(key);
+        SimulatedTrade trade = openTrades.remove(key);
 
         if (currentKline == null) {
             throw new IllegalStateException("Current kline is not set while closing order " + orderId);
         }
 
-        BigDecimal exitPrice = currentKline.getClose();
-        Instant exitTime = Instant.ofEpochMilli(currentKline.getCloseTime());
+        settle(trade, currentKline.getClose(), currentKline.getCloseTime(), state);
+
+        orderItem.setStatus(state);
+        closedTrades.add(trade);
+        log.debug("Closed simulated order {} with state {} and PnL {}", orderId, state, trade.getProfit());
+    }
+
+    /**
+     * Record the exit of {@code trade} at {@code exitPrice} and its profit.
+     */
+    static void settle(SimulatedTrade trade, BigDecimal exitPrice, long exitTime, OrderState state) {
         BigDecimal priceDiff = exitPrice.subtract(trade.getEntryPrice());
         BigDecimal direction = trade.getSide() == OrderSide.BUY ? BigDecimal.ONE : BigDecimal.valueOf(-1);
         BigDecimal profit = priceDiff.multiply(trade.getQuantity()).multiply(direction);
@@ -115,20 +136,18 @@ public class BacktestOrderService implements OrderServiceApi, BacktestOrderConte
                 : profit.divide(denominator, 8, RoundingMode.HALF_UP);
 
         trade.setExitPrice(exitPrice);
-        trade.setExitTime(exitTime);
+        trade.setExitTime(Instant.ofEpochMilli(exitTime));
         trade.setExitState(state);
         trade.setProfit(profit);
         trade.setReturnPercentage(returnPct);
-
-        orderItem.setStatus(state);
-        closedTrades.add(trade);
-        log.debug("Closed simulated order {} with state {} and PnL {}", orderId, state, profit);
     }
 
     @Override
-    public synchronized Optional<OrderItem> getActiveOrder(String symbol) {
-        return activeOrders.values().stream()
-                .filter(order -> order.getSymbol().equalsIgnoreCase(symbol) && order.getStatus() == OrderState.ACTIVE)
-                .findFirst();
+    public Optional<OrderItem> getActiveOrder(String symbol) {
+        return Optional.ofNullable(activeOrders.get(key(symbol)));
+    }
+
+    private static String key(String symbol) {
+        return symbol.toUpperCase(Locale.ROOT);
     }
 }
@@ -4,6 +4,7 @@ import lombok.Data;
 import org.springframework.boot.context.properties.ConfigurationProperties;
 import org.springframework.stereotype.Component;
 
+import java.math.BigDecimal;
 import java.nio.file.Path;
 import java.util.ArrayList;
 import java.util.List;
@@ -16,10 +17,21 @@ public class BacktestProperties {
     private boolean enabled = false;
     private List<Path> datasetPaths = new ArrayList<>();
     private Report report = new Report();
+    private Portfolio portfolio = new Portfolio();
 
     @Data
     public static class Report {
         private Path json;
         private Path csv;
     }
+
+    @Data
+    public static class Portfolio {
+        // Backtest all datasets together on one capital instead of one by one
+        private boolean enabled = false;
+        private BigDecimal initialCapital = BigDecimal.valueOf(10000);
+        // Share of equity per position, an equal share per dataset when unset
+        private BigDecimal positionFraction;
+        private Path equityCsv;
+    }
 }
@@ -7,9 +7,12 @@ import org.springframework.stereotype.Component;
 
 import java.io.BufferedWriter;
 import java.io.IOException;
+import java.io.UncheckedIOException;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.util.List;
+import java.util.function.Consumer;
+import java.util.function.Function;
 
 @Component
 @Log4j2
@@ -63,6 +66,41 @@ public class BacktestReportWriter {
         }
     }
 
+    /**
+     * Run {@code backtest} with a consumer that writes each equity point it gets to a CSV file as it comes,
+     * or drops it when {@code path} is null.
+     */
+    public <T> T writeEquityCsv(Path path, Function<Consumer<EquityPoint>, T> backtest) {
+        if (path == null) {
+            return backtest.apply(point -> { });
+        }
+        try {
+            createParentDirectories(path);
+            T result;
+            try (BufferedWriter writer = Files.newBufferedWriter(path)) {
+                writer.write("time,equity,cash,drawdownPercent,openPositions");
+                writer.newLine();
+                result = backtest.apply(point -> {
+                    try {
+                        writer.write(String.join(",",
+                                point.getTime().toString(),
+                                point.getEquity().toPlainString(),
+                                point.getCash().toPlainString(),
+                                point.getDrawdownPercent().toPlainString(),
+                                String.valueOf(point.getOpenPositions())));
+                        writer.newLine();
+                    } catch (IOException e) {
+                        throw new UncheckedIOException(e);
+                    }
+                });
+            }
+            log.info("Written equity curve to {}", path);
+            return result;
+        } catch (IOException | UncheckedIOException e) {
+            throw new IllegalStateException("Failed to write equity curve to " + path, e);
+        }
+    }
+
     private void createParentDirectories(Path path) throws IOException {
         Path parent = path.getParent();
         if (parent != null && !Files.exists(parent)) {
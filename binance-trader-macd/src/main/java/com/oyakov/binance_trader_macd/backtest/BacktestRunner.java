@@ -21,6 +21,7 @@ public class BacktestRunner implements ApplicationRunner {
     private final BacktestProperties properties;
     private final BacktestDatasetLoader datasetLoader;
     private final BacktestEngine backtestEngine;
+    private final PortfolioBacktestEngine portfolioBacktestEngine;
     private final BacktestReportWriter reportWriter;
 
     @Override
@@ -30,12 +31,30 @@ public class BacktestRunner implements ApplicationRunner {
         }
 
         List<BacktestMetrics> metrics = new ArrayList<>();
-        for (Path path : properties.getDatasetPaths()) {
-            BacktestDataset dataset = datasetLoader.load(path);
-            metrics.add(backtestEngine.run(dataset));
+        if (properties.getPortfolio().isEnabled()) {
+            metrics.addAll(runPortfolio());
+        } else {
+            for (Path path : properties.getDatasetPaths()) {
+                BacktestDataset dataset = datasetLoader.load(path);
+                metrics.add(backtestEngine.run(dataset));
+            }
         }
 
         reportWriter.writeJson(properties.getReport().getJson(), metrics);
         reportWriter.writeCsv(properties.getReport().getCsv(), metrics);
     }
+
+    private List<BacktestMetrics> runPortfolio() {
+        BacktestProperties.Portfolio portfolio = properties.getPortfolio();
+        List<BacktestDataset> datasets = properties.getDatasetPaths().stream()
+                .map(datasetLoader::load)
+                .toList();
+        PortfolioBacktestResult result = reportWriter.writeEquityCsv(portfolio.getEquityCsv(),
+                equityCurve -> portfolioBacktestEngine.run(datasets, portfolio.getInitialCapital(),
+                        portfolio.getPositionFraction(), equityCurve));
+        log.info("Portfolio of {} datasets: net profit {} ({}), max drawdown {} ({}), {} trades",
+                datasets.size(), result.getNetProfit(), result.getNetProfitPercent(), result.getMaxDrawdown(),
+                result.getMaxDrawdownPercent(), result.getTrades().size());
+        return result.getSymbolMetrics();
+    }
 }
@@ -16,6 +16,7 @@ import java.math.MathContext;
 import java.math.RoundingMode;
 import java.util.ArrayDeque;
 import java.util.Deque;
+import java.util.List;
 
 @Log4j2
 public class BacktestTraderEngine {
@@ -39,6 +40,26 @@ public class BacktestTraderEngine {
         this.quantity = traderConfig.getOrderQuantity();
     }
 
+    /**
+     * Replay {@code klines} in order and return the trades closed on the way. Uses {@link FastBacktestEngine}
+     * when it is enabled and gives the same trades for the dataset, and the event-driven engine otherwise.
+     */
+    public static List<SimulatedTrade> replay(MACDSignalAnalyzer macdSignalAnalyzer,
+                                              MACDTraderConfig.Trader traderConfig,
+                                              List<KlineEvent> klines) {
+        if (Boolean.TRUE.equals(traderConfig.getFastBacktestEnabled())) {
+            FastBacktestEngine fastEngine = new FastBacktestEngine(macdSignalAnalyzer, traderConfig);
+            if (fastEngine.supports(klines)) {
+                return fastEngine.run(klines);
+            }
+            log.debug("Dataset not supported by the fast backtest, replaying {} klines one by one", klines.size());
+        }
+        BacktestOrderService orderService = new BacktestOrderService();
+        BacktestTraderEngine traderEngine = new BacktestTraderEngine(macdSignalAnalyzer, orderService, traderConfig);
+        klines.forEach(traderEngine::onNewKline);
+        return orderService.getClosedTrades();
+    }
+
     public void onNewKline(KlineEvent klineEvent) {
         if (orderService instanceof BacktestOrderContext context) {
             context.onKline(klineEvent);
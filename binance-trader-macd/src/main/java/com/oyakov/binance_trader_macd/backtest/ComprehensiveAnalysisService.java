@@ -1,6 +1,7 @@
 package com.oyakov.binance_trader_macd.backtest;
 
 import com.oyakov.binance_shared_model.avro.KlineEvent;
+import jakarta.annotation.PreDestroy;
 import org.springframework.stereotype.Service;
 import org.springframework.web.client.RestTemplate;
 
@@ -10,23 +11,22 @@ import java.time.LocalDateTime;
 import java.time.ZoneOffset;
 import java.util.*;
 import java.util.concurrent.CompletableFuture;
-import java.util.concurrent.ExecutorService;
-import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.stream.Collectors;
 
 /**
  * Comprehensive analysis service for extensive MACD strategy testing
  */
 @Service
-public class ComprehensiveAnalysisService {
+public class ComprehensiveAnalysisService implements AutoCloseable {
     
     private final RestTemplate restTemplate;
-    private final ExecutorService executorService;
+    private final ParameterSweepExecutor sweepExecutor;
     private final Map<String, List<KlineEvent>> dataCache;
     
     public ComprehensiveAnalysisService() {
         this.restTemplate = new RestTemplate();
-        this.executorService = Executors.newFixedThreadPool(8);
+        this.sweepExecutor = new ParameterSweepExecutor();
         this.dataCache = new HashMap<>();
     }
     
@@ -34,6 +34,7 @@ public class ComprehensiveAnalysisService {
      * Run comprehensive analysis across multiple dimensions
      */
     public CompletableFuture<ComprehensiveAnalysisResult> runComprehensiveAnalysis() {
+        // The analysis mostly waits on the sweep pool, so it gets a virtual thread of its own
         return CompletableFuture.supplyAsync(() -> {
             System.out.println("=== COMPREHENSIVE MACD STRATEGY ANALYSIS ===");
             System.out.println("Running extensive analysis across multiple dimensions...\n");
@@ -56,40 +57,69 @@ public class ComprehensiveAnalysisService {
             
             List<AnalysisResult> allResults = new ArrayList<>();
             int totalTests = symbols.length * intervals.length * timePeriods.length * parameterSets.size();
-            int completedTests = 0;
             
-            // Run analysis for all combinations
+            // Load every series once; all parameter sets share it
+            Map<SeriesKey, PriceSeries> series = new LinkedHashMap<>();
+            Map<SeriesKey, MarketCondition> marketConditions = new HashMap<>();
             for (String symbol : symbols) {
                 for (String interval : intervals) {
                     for (int timePeriod : timePeriods) {
-                        for (MACDParameters params : parameterSets) {
-                            try {
-                                AnalysisResult result = runSingleAnalysis(symbol, interval, timePeriod, params).get();
-                                allResults.add(result);
-                                completedTests++;
-                                
-                                // Progress reporting
-                                if (completedTests % 50 == 0 || completedTests == totalTests) {
-                                    System.out.printf("Progress: %d/%d tests completed (%.1f%%)\n", 
-                                        completedTests, totalTests, (completedTests * 100.0 / totalTests));
-                                }
-                                
-                            } catch (Exception e) {
-                                System.err.println("Error in analysis: " + e.getMessage());
-                                completedTests++;
+                        SeriesKey key = new SeriesKey(symbol, interval, timePeriod);
+                        try {
+                            List<KlineEvent> klines = collectData(symbol, interval, timePeriod);
+                            if (klines.isEmpty()) {
+                                parameterSets.forEach(params -> allResults.add(failedResult(key, params, "No data")));
+                                continue;
                             }
+                            marketConditions.put(key, analyzeMarketCondition(klines));
+                            series.put(key, PriceSeries.of(klines));
+                        } catch (Exception e) {
+                            parameterSets.forEach(params -> allResults.add(failedResult(key, params, "Error: " + e.getMessage())));
                         }
                     }
                 }
             }
             
+            // Fan the parameter sets out over all cores, collecting results as they complete
+            AtomicInteger completedTests = new AtomicInteger(allResults.size());
+            try {
+                int failedTests = sweepExecutor.run(series, parameterSets,
+                    (key, prices, params, signals) -> evaluate(key, params, signals, marketConditions.get(key)),
+                    (key, params, cause) -> failedResult(key, params, "Error: " + cause.getMessage()),
+                    result -> {
+                        allResults.add(result);
+                        int completed = completedTests.incrementAndGet();
+                        
+                        // Progress reporting
+                        if (completed % 50 == 0 || completed == totalTests) {
+                            System.out.printf("Progress: %d/%d tests completed (%.1f%%)\n", 
+                                completed, totalTests, (completed * 100.0 / totalTests));
+                        }
+                    });
+                if (failedTests > 0) {
+                    System.err.println("Errors in analysis: " + failedTests);
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                System.err.println("Analysis interrupted after " + completedTests.get() + " tests");
+            }
+            
             System.out.println("\n=== ANALYSIS COMPLETE ===");
             System.out.println("Total results: " + allResults.size());
             
             // Generate comprehensive insights
             return generateComprehensiveInsights(allResults);
             
-        }, executorService);
+        }, Thread::startVirtualThread);
+    }
+    
+    /**
+     * Stop the parameter sweep pool
+     */
+    @PreDestroy
+    @Override
+    public void close() {
+        sweepExecutor.close();
     }
     
     /**
@@ -139,43 +169,29 @@ public class ComprehensiveAnalysisService {
     }
     
     /**
-     * Run single analysis for specific parameters
+     * Evaluate one parameter set against a preloaded series, given its signals
      */
-    private CompletableFuture<AnalysisResult> runSingleAnalysis(String symbol, String interval, 
-                                                               int timePeriod, MACDParameters params) {
-        return CompletableFuture.supplyAsync(() -> {
-            try {
-                // Collect data
-                List<KlineEvent> klines = collectData(symbol, interval, timePeriod);
-                
-                if (klines.isEmpty()) {
-                    return new AnalysisResult(symbol, interval, timePeriod, params, 
-                        new SimpleBacktestMetrics(BigDecimal.ZERO, BigDecimal.ZERO, BigDecimal.ZERO, BigDecimal.ZERO, 0), 
-                        "No data", 0);
-                }
-                
-                // Run MACD analysis
-                CustomMACDAnalyzer analyzer = new CustomMACDAnalyzer();
-                List<CustomMACDAnalyzer.MACDSignal> signals = analyzer.analyzeSignals(klines, params);
-                
-                // Simulate trades
-                List<SimulatedTrade> trades = simulateTrades(klines, signals);
-                
-                // Calculate metrics
-                SimpleBacktestMetrics metrics = calculateMetrics(trades);
-                
-                // Calculate market condition
-                MarketCondition marketCondition = analyzeMarketCondition(klines);
-                
-                return new AnalysisResult(symbol, interval, timePeriod, params, 
-                    metrics, "Success", signals.size(), marketCondition);
-                
-            } catch (Exception e) {
-                return new AnalysisResult(symbol, interval, timePeriod, params, 
-                    new SimpleBacktestMetrics(BigDecimal.ZERO, BigDecimal.ZERO, BigDecimal.ZERO, BigDecimal.ZERO, 0), 
-                    "Error: " + e.getMessage(), 0);
-            }
-        }, executorService);
+    private AnalysisResult evaluate(SeriesKey key, MACDParameters params,
+                                    List<CustomMACDAnalyzer.MACDSignal> signals, MarketCondition marketCondition) {
+        try {
+            // Simulate trades
+            List<SimulatedTrade> trades = simulateTrades(signals);
+            
+            // Calculate metrics
+            SimpleBacktestMetrics metrics = calculateMetrics(trades);
+            
+            return new AnalysisResult(key.symbol(), key.interval(), key.timePeriod(), params, 
+                metrics, "Success", signals.size(), marketCondition);
+            
+        } catch (Exception e) {
+            return failedResult(key, params, "Error: " + e.getMessage());
+        }
+    }
+    
+    private AnalysisResult failedResult(SeriesKey key, MACDParameters params, String status) {
+        return new AnalysisResult(key.symbol(), key.interval(), key.timePeriod(), params, 
+            new SimpleBacktestMetrics(BigDecimal.ZERO, BigDecimal.ZERO, BigDecimal.ZERO, BigDecimal.ZERO, 0), 
+            status, 0);
     }
     
     /**
@@ -237,7 +253,7 @@ public class ComprehensiveAnalysisService {
     /**
      * Simulate trades based on MACD signals
      */
-    private List<SimulatedTrade> simulateTrades(List<KlineEvent> klines, List<CustomMACDAnalyzer.MACDSignal> signals) {
+    private List<SimulatedTrade> simulateTrades(List<CustomMACDAnalyzer.MACDSignal> signals) {
         List<SimulatedTrade> trades = new ArrayList<>();
         boolean inPosition = false;
         BigDecimal entryPrice = BigDecimal.ZERO;
@@ -537,6 +553,9 @@ public class ComprehensiveAnalysisService {
     }
     
     // Data classes
+    private record SeriesKey(String symbol, String interval, int timePeriod) {
+    }
+    
     public static class AnalysisResult {
         private final String symbol;
         private final String interval;
@@ -190,22 +190,13 @@ public class ComprehensiveBacktestService {
     private BacktestResult runBacktest(BacktestDataset dataset, BigDecimal initialCapital) {
         log.info("Running backtest for dataset: {} with {} klines", dataset.getName(), dataset.getKlines().size());
         
-        // Initialize backtesting components
-        BacktestOrderService orderService = new BacktestOrderService();
-        BacktestTraderEngine traderEngine = new BacktestTraderEngine(
+        // Process the klines through the trading engine and get completed trades
+        List<KlineEvent> klines = dataset.getKlines();
+        List<SimulatedTrade> trades = BacktestTraderEngine.replay(
                 macdSignalAnalyzer,
-                orderService,
-                traderConfig.getTrader()
+                traderConfig.getTrader(),
+                klines
         );
-        
-        // Process each kline through the trading engine
-        List<KlineEvent> klines = dataset.getKlines();
-        for (KlineEvent kline : klines) {
-            traderEngine.onNewKline(kline);
-        }
-        
-        // Get completed trades
-        List<SimulatedTrade> trades = orderService.getClosedTrades();
         log.info("Backtest completed with {} trades executed", trades.size());
         
         // Calculate comprehensive metrics
@@ -1,9 +1,11 @@
 package com.oyakov.binance_trader_macd.backtest;
 
 import com.oyakov.binance_shared_model.avro.KlineEvent;
+import com.oyakov.binance_trader_macd.domain.TradeSignal;
+import com.oyakov.binance_trader_macd.domain.signal.MACDKernel;
+import com.oyakov.binance_trader_macd.domain.signal.MACDSeries;
 
 import java.math.BigDecimal;
-import java.math.RoundingMode;
 import java.util.*;
 import java.util.stream.Collectors;
 
@@ -12,8 +14,6 @@ import java.util.stream.Collectors;
  */
 public class DebugMACDAnalyzer {
     
-    private static final int SCALE = 10;
-    
     public List<MACDSignal> analyzeSignals(List<KlineEvent> klines, MACDParameters params) {
         System.out.println("=== DEBUG MACD ANALYSIS ===");
         System.out.println("Input data: " + klines.size() + " klines");
@@ -35,85 +35,55 @@ public class DebugMACDAnalyzer {
         
         System.out.println("Price range: " + closes.get(0) + " to " + closes.get(closes.size() - 1));
         
-        // Calculate EMAs
-        BigDecimal fastMultiplier = BigDecimal.valueOf(2)
-                .divide(BigDecimal.valueOf(params.getFastPeriod() + 1), SCALE, RoundingMode.HALF_UP);
-        BigDecimal slowMultiplier = BigDecimal.valueOf(2)
-                .divide(BigDecimal.valueOf(params.getSlowPeriod() + 1), SCALE, RoundingMode.HALF_UP);
-        BigDecimal signalMultiplier = BigDecimal.valueOf(2)
-                .divide(BigDecimal.valueOf(params.getSignalPeriod() + 1), SCALE, RoundingMode.HALF_UP);
-        
-        System.out.println("Multipliers - Fast: " + fastMultiplier + ", Slow: " + slowMultiplier + ", Signal: " + signalMultiplier);
-        
-        List<BigDecimal> emaFast = calculateEMA(closes, params.getFastPeriod(), fastMultiplier);
-        List<BigDecimal> emaSlow = calculateEMA(closes, params.getSlowPeriod(), slowMultiplier);
-        
-        System.out.println("EMA Fast size: " + emaFast.size() + ", EMA Slow size: " + emaSlow.size());
-        if (!emaFast.isEmpty()) {
-            System.out.println("EMA Fast range: " + emaFast.get(0) + " to " + emaFast.get(emaFast.size() - 1));
-        }
-        if (!emaSlow.isEmpty()) {
-            System.out.println("EMA Slow range: " + emaSlow.get(0) + " to " + emaSlow.get(emaSlow.size() - 1));
-        }
-        
-        // Align EMAs
-        int offset = emaFast.size() - emaSlow.size();
-        if (offset < 0) {
-            System.out.println("ERROR: EMA alignment failed. Fast: " + emaFast.size() + ", Slow: " + emaSlow.size());
+        int offset = params.getSlowPeriod() - params.getFastPeriod();
+        if (offset <= 0) {
+            System.out.println("ERROR: EMA alignment failed. Fast period: " + params.getFastPeriod() + ", Slow period: " + params.getSlowPeriod());
             return Collections.emptyList();
         }
         
+        MACDSeries series = MACDKernel.compute(closes, params.getFastPeriod(), params.getSlowPeriod(), params.getSignalPeriod());
+        int last = series.length() - 1;
+        int firstFast = params.getFastPeriod() - 1;
+        int firstMacd = series.firstMacdIndex();
+        int firstSignal = series.firstSignalIndex();
+        int lag = params.getSignalPeriod() - 1;
+        
+        System.out.println("Precision: " + series.precision());
+        System.out.println("Multipliers - Fast: " + MACDKernel.decimalMultiplier(params.getFastPeriod())
+                + ", Slow: " + MACDKernel.decimalMultiplier(params.getSlowPeriod())
+                + ", Signal: " + MACDKernel.decimalMultiplier(params.getSignalPeriod()));
+        System.out.println("EMA Fast size: " + (series.length() - firstFast) + ", EMA Slow size: " + (series.length() - firstMacd));
+        System.out.println("EMA Fast range: " + series.emaFastDecimal(firstFast) + " to " + series.emaFastDecimal(last));
+        System.out.println("EMA Slow range: " + series.emaSlowDecimal(firstMacd) + " to " + series.emaSlowDecimal(last));
         System.out.println("EMA offset: " + offset);
+        System.out.println("MACD line size: " + (series.length() - firstMacd));
+        System.out.println("MACD range: " + series.macdDecimal(firstMacd) + " to " + series.macdDecimal(last));
         
-        List<BigDecimal> alignedFast = emaFast.stream()
-                .skip(offset)
-                .collect(Collectors.toList());
-        
-        System.out.println("Aligned Fast size: " + alignedFast.size());
-        
-        // Calculate MACD line
-        List<BigDecimal> macd = new ArrayList<>();
-        for (int i = 0; i < emaSlow.size(); i++) {
-            BigDecimal macdValue = alignedFast.get(i).subtract(emaSlow.get(i))
-                    .setScale(SCALE, RoundingMode.HALF_UP);
-            macd.add(macdValue);
-        }
-        
-        System.out.println("MACD line size: " + macd.size());
-        if (!macd.isEmpty()) {
-            System.out.println("MACD range: " + macd.get(0) + " to " + macd.get(macd.size() - 1));
-        }
-        
-        // Calculate signal line
-        List<BigDecimal> signalLine = calculateEMA(macd, params.getSignalPeriod(), signalMultiplier);
-        
-        System.out.println("Signal line size: " + signalLine.size());
-        if (!signalLine.isEmpty()) {
-            System.out.println("Signal line range: " + signalLine.get(0) + " to " + signalLine.get(signalLine.size() - 1));
-        }
+        int signalLineSize = series.length() - firstSignal;
+        System.out.println("Signal line size: " + signalLineSize);
+        System.out.println("Signal line range: " + series.signalDecimal(firstSignal) + " to " + series.signalDecimal(last));
         
-        // Generate signals
+        // Generate signals; i indexes the signal line from its first defined value
         List<MACDSignal> signals = new ArrayList<>();
         System.out.println("Checking for signal crossovers...");
         
-        for (int i = 1; i < signalLine.size(); i++) {
-            BigDecimal prevDiff = macd.get(i - 1).subtract(signalLine.get(i - 1));
-            BigDecimal currDiff = macd.get(i).subtract(signalLine.get(i));
+        for (int i = 1; i < signalLineSize; i++) {
+            int close = firstSignal + i;
+            TradeSignal crossover = series.laggedCrossoverAt(close);
+            boolean logged = i <= 5 || i >= signalLineSize - 5; // Log first and last few iterations
             
-            if (i <= 5 || i >= signalLine.size() - 5) { // Log first and last few iterations
-                System.out.println("  Iteration " + i + ": prevDiff=" + prevDiff + ", currDiff=" + currDiff);
-            }
-            
-            SignalType signalType = null;
-            if (prevDiff.compareTo(BigDecimal.ZERO) <= 0 && currDiff.compareTo(BigDecimal.ZERO) > 0) {
-                signalType = SignalType.BUY;
-                System.out.println("  BUY signal at iteration " + i + ": prevDiff=" + prevDiff + ", currDiff=" + currDiff);
-            } else if (prevDiff.compareTo(BigDecimal.ZERO) >= 0 && currDiff.compareTo(BigDecimal.ZERO) < 0) {
-                signalType = SignalType.SELL;
-                System.out.println("  SELL signal at iteration " + i + ": prevDiff=" + prevDiff + ", currDiff=" + currDiff);
+            if (logged || crossover != null) {
+                BigDecimal prevDiff = series.macdDecimal(close - 1 - lag).subtract(series.signalDecimal(close - 1));
+                BigDecimal currDiff = series.macdDecimal(close - lag).subtract(series.signalDecimal(close));
+                if (logged) {
+                    System.out.println("  Iteration " + i + ": prevDiff=" + prevDiff + ", currDiff=" + currDiff);
+                }
+                if (crossover != null) {
+                    System.out.println("  " + crossover + " signal at iteration " + i + ": prevDiff=" + prevDiff + ", currDiff=" + currDiff);
+                }
             }
             
-            if (signalType != null) {
+            if (crossover != null) {
                 // Find corresponding kline
                 int klineIndex = offset + i;
                 if (klineIndex < sorted.size()) {
@@ -121,7 +91,7 @@ public class DebugMACDAnalyzer {
                     signals.add(new MACDSignal(
                         kline.getCloseTime(),
                         kline.getClose(),
-                        signalType
+                        SignalType.valueOf(crossover.name())
                     ));
                 }
             }
@@ -133,31 +103,6 @@ public class DebugMACDAnalyzer {
         return signals;
     }
     
-    private List<BigDecimal> calculateEMA(List<BigDecimal> values, int period, BigDecimal multiplier) {
-        if (values.size() < period) return Collections.emptyList();
-        
-        BigDecimal initialAvg = values.stream()
-                .limit(period)
-                .reduce(BigDecimal.ZERO, BigDecimal::add)
-                .divide(BigDecimal.valueOf(period), SCALE, RoundingMode.HALF_UP);
-        
-        List<BigDecimal> ema = new ArrayList<>(values.size() - period + 1);
-        ema.add(initialAvg);
-        
-        values.stream()
-                .skip(period)
-                .forEach(value -> {
-                    BigDecimal prev = ema.get(ema.size() - 1);
-                    BigDecimal next = value.subtract(prev)
-                            .multiply(multiplier)
-                            .add(prev)
-                            .setScale(SCALE, RoundingMode.HALF_UP);
-                    ema.add(next);
-                });
-        
-        return ema;
-    }
-    
     public static class MACDSignal {
         private final long timestamp;
         private final BigDecimal price;
@@ -0,0 +1,21 @@
+package com.oyakov.binance_trader_macd.backtest;
+
+import lombok.Builder;
+import lombok.Value;
+
+import java.math.BigDecimal;
+import java.time.Instant;
+
+/**
+ * Value of a backtested portfolio after all klines closing at {@code time}.
+ */
+@Value
+@Builder
+public class EquityPoint {
+    Instant time;
+    BigDecimal equity;
+    BigDecimal cash;
+    // Drop from the highest equity so far, as a fraction of it
+    BigDecimal drawdownPercent;
+    int openPositions;
+}
@@ -0,0 +1,193 @@
+package com.oyakov.binance_trader_macd.backtest;
+
+import com.oyakov.binance_shared_model.avro.KlineEvent;
+import com.oyakov.binance_trader_macd.config.MACDTraderConfig;
+import com.oyakov.binance_trader_macd.domain.OrderSide;
+import com.oyakov.binance_trader_macd.domain.OrderState;
+import com.oyakov.binance_trader_macd.domain.TradeSignal;
+import com.oyakov.binance_trader_macd.domain.signal.MACDKernel;
+import com.oyakov.binance_trader_macd.domain.signal.MACDSeries;
+import com.oyakov.binance_trader_macd.domain.signal.MACDSignalAnalyzer;
+import lombok.extern.log4j.Log4j2;
+
+import java.math.BigDecimal;
+import java.math.MathContext;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.IntStream;
+
+/**
+ * Backtest of a whole dataset over primitive arrays, producing the trades {@link BacktestTraderEngine} produces
+ * when fed the same klines one at a time.
+ * <p>
+ * The run has three passes. The closes are copied to a {@code double[]} once. The crossover of every kline is
+ * then computed from its own sliding window, exactly as {@link MACDSignalAnalyzer} computes it: the window's EMAs
+ * are seeded at the window start, so one running series over the dataset would give different crossovers.
+ * Windows are independent, so they are computed in parallel with the kernel's allocation-free double path.
+ * Finally a sequential loop opens, inverts and closes positions. Stop loss and take profit are decided on the
+ * double ratio of close to entry price, and with the engine's decimal ratio when the two are too close to tell
+ * apart.
+ * <p>
+ * Only datasets for which that equivalence holds are {@linkplain #supports supported}: one symbol, positive
+ * closes in close time order, and a plain {@link MACDSignalAnalyzer} in {@code DOUBLE} precision.
+ */
+@Log4j2
+public class FastBacktestEngine {
+
+    // Windows per parallel task
+    private static final int CHUNK_SIZE = 8192;
+    // Relative distance from a threshold within which the double ratio does not decide SL/TP
+    private static final double UNDECIDED = 1e-12;
+
+    private final MACDSignalAnalyzer macdSignalAnalyzer;
+    private final int slidingWindowSize;
+    private final BigDecimal takeProfitThreshold;
+    private final BigDecimal stopLossThreshold;
+    private final double takeProfit;
+    private final double stopLoss;
+    private final BigDecimal quantity;
+
+    public FastBacktestEngine(MACDSignalAnalyzer macdSignalAnalyzer, MACDTraderConfig.Trader traderConfig) {
+        this.macdSignalAnalyzer = macdSignalAnalyzer;
+        this.slidingWindowSize = traderConfig.getSlidingWindowSize();
+        this.takeProfitThreshold = traderConfig.getTakeProfitPercentage();
+        this.stopLossThreshold = traderConfig.getStopLossPercentage();
+        this.takeProfit = takeProfitThreshold.doubleValue();
+        this.stopLoss = stopLossThreshold.doubleValue();
+        this.quantity = traderConfig.getOrderQuantity();
+    }
+
+    /**
+     * @return whether {@link #run} gives the same trades as {@link BacktestTraderEngine} for {@code klines}
+     */
+    public boolean supports(List<KlineEvent> klines) {
+        if (macdSignalAnalyzer.getClass() != MACDSignalAnalyzer.class
+                || macdSignalAnalyzer.getPrecision() != MACDKernel.Precision.DOUBLE) {
+            return false;
+        }
+        if (klines.isEmpty()) {
+            return true;
+        }
+        String symbol = klines.get(0).getSymbol();
+        long lastCloseTime = Long.MIN_VALUE;
+        for (KlineEvent kline : klines) {
+            if (kline.getCloseTime() < lastCloseTime
+                    || !kline.getSymbol().equalsIgnoreCase(symbol)
+                    || kline.getClose().signum() <= 0) {
+                return false;
+            }
+            lastCloseTime = kline.getCloseTime();
+        }
+        return true;
+    }
+
+    /**
+     * The trades closed while replaying {@code klines}; a position still open at the end is not included.
+     *
+     * @throws IllegalArgumentException when the klines are not {@linkplain #supports supported}
+     */
+    public List<SimulatedTrade> run(List<KlineEvent> klines) {
+        if (!supports(klines)) {
+            throw new IllegalArgumentException("Dataset is not supported by the fast backtest");
+        }
+        int length = klines.size();
+        double[] closes = new double[length];
+        for (int i = 0; i < length; i++) {
+            closes[i] = klines.get(i).getClose().doubleValue();
+        }
+        return simulate(klines, closes, crossovers(closes));
+    }
+
+    /**
+     * The crossover {@link MACDSignalAnalyzer} finds in the window ending at each close, {@code null} for none.
+     */
+    TradeSignal[] crossovers(double[] closes) {
+        int length = closes.length;
+        int window = slidingWindowSize;
+        TradeSignal[] signals = new TradeSignal[length];
+        if (window < macdSignalAnalyzer.getMinDataPointCount() || length < window) {
+            return signals;
+        }
+        int first = window - 1;
+        int chunks = (length - first + CHUNK_SIZE - 1) / CHUNK_SIZE;
+        IntStream.range(0, chunks).parallel().forEach(chunk -> {
+            double[] windowCloses = new double[window];
+            MACDSeries series = null;
+            int from = first + chunk * CHUNK_SIZE;
+            int to = Math.min(length, from + CHUNK_SIZE);
+            for (int i = from; i < to; i++) {
+                System.arraycopy(closes, i - first, windowCloses, 0, window);
+                series = MACDKernel.compute(windowCloses, window, MACDSignalAnalyzer.FAST_PERIOD,
+                        MACDSignalAnalyzer.SLOW_PERIOD, MACDSignalAnalyzer.SIGNAL_PERIOD, series);
+                signals[i] = series.laggedCrossoverAt(first);
+            }
+        });
+        return signals;
+    }
+
+    private List<SimulatedTrade> simulate(List<KlineEvent> klines, double[] closes, TradeSignal[] signals) {
+        List<SimulatedTrade> closedTrades = new ArrayList<>();
+        long nextOrderId = 1;
+        SimulatedTrade open = null;
+        double entry = 0;
+        for (int i = slidingWindowSize - 1; i < closes.length; i++) {
+            TradeSignal signal = signals[i];
+            if (open == null) {
+                if (signal != null) {
+                    KlineEvent kline = klines.get(i);
+                    open = SimulatedTrade.builder()
+                            .orderId(nextOrderId++)
+                            .symbol(kline.getSymbol())
+                            .side(OrderSide.of(signal))
+                            .quantity(quantity)
+                            .entryPrice(kline.getClose())
+                            .entryTime(Instant.ofEpochMilli(kline.getCloseTime()))
+                            .build();
+                    entry = closes[i];
+                }
+                continue;
+            }
+
+            OrderState exit = exitState(closes[i], entry, klines.get(i).getClose(), open.getEntryPrice());
+            if (exit == null && signal != null && OrderSide.of(signal) != open.getSide()) {
+                exit = OrderState.CLOSED_INVERTED_SIGNAL;
+            }
+            if (exit != null) {
+                KlineEvent kline = klines.get(i);
+                BacktestOrderService.settle(open, kline.getClose(), kline.getCloseTime(), exit);
+                closedTrades.add(open);
+                open = null;
+            }
+        }
+        log.debug("Fast backtest over {} klines closed {} trades", closes.length, closedTrades.size());
+        return closedTrades;
+    }
+
+    private OrderState exitState(double close, double entry, BigDecimal closeDecimal, BigDecimal entryDecimal) {
+        double ratio = close / entry;
+        if (Math.abs(ratio - takeProfit) <= UNDECIDED * takeProfit
+                || Math.abs(ratio - stopLoss) <= UNDECIDED * stopLoss) {
+            return exactExitState(closeDecimal, entryDecimal);
+        }
+        if (ratio > takeProfit) {
+            return OrderState.CLOSED_TP;
+        } else if (ratio < stopLoss) {
+            return OrderState.CLOSED_SL;
+        }
+        return null;
+    }
+
+    /**
+     * The decision {@link BacktestTraderEngine} takes.
+     */
+    private OrderState exactExitState(BigDecimal close, BigDecimal entry) {
+        BigDecimal ratio = close.divide(entry, MathContext.DECIMAL64);
+        if (ratio.compareTo(takeProfitThreshold) > 0) {
+            return OrderState.CLOSED_TP;
+        } else if (ratio.compareTo(stopLossThreshold) < 0) {
+            return OrderState.CLOSED_SL;
+        }
+        return null;
+    }
+}
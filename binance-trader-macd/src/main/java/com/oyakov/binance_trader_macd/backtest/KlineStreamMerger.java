@@ -0,0 +1,88 @@
+package com.oyakov.binance_trader_macd.backtest;
+
+import com.oyakov.binance_shared_model.avro.KlineEvent;
+
+import java.util.Comparator;
+import java.util.List;
+import java.util.PriorityQueue;
+
+/**
+ * K-way merge of kline streams, each in close time order, into one stream in close time order.
+ * <p>
+ * The streams are read by index one kline at a time, so a lazy list such as the view of a memory-mapped
+ * columnar dataset only builds the kline at the head of each stream. Klines closing at the same time come in
+ * stream order. Each step costs {@code O(log k)} for {@code k} streams.
+ */
+public class KlineStreamMerger {
+
+    private final List<? extends List<KlineEvent>> streams;
+    private final PriorityQueue<Cursor> queue;
+    private Cursor current;
+
+    public KlineStreamMerger(List<? extends List<KlineEvent>> streams) {
+        this.streams = streams;
+        this.queue = new PriorityQueue<>(Math.max(1, streams.size()),
+                Comparator.comparingLong((Cursor cursor) -> cursor.head.getCloseTime())
+                        .thenComparingInt(cursor -> cursor.stream));
+        for (int stream = 0; stream < streams.size(); stream++) {
+            List<KlineEvent> klines = streams.get(stream);
+            if (!klines.isEmpty()) {
+                queue.add(new Cursor(stream, klines.get(0)));
+            }
+        }
+    }
+
+    /**
+     * Move to the next kline of the merged stream.
+     *
+     * @return false when all streams are exhausted
+     * @throws IllegalArgumentException when a stream is not in close time order
+     */
+    public boolean next() {
+        if (current != null) {
+            advance(current);
+        }
+        current = queue.poll();
+        return current != null;
+    }
+
+    /**
+     * The current kline.
+     */
+    public KlineEvent kline() {
+        return current.head;
+    }
+
+    /**
+     * Index of the stream the current kline comes from.
+     */
+    public int stream() {
+        return current.stream;
+    }
+
+    private void advance(Cursor cursor) {
+        List<KlineEvent> klines = streams.get(cursor.stream);
+        if (++cursor.position == klines.size()) {
+            return;
+        }
+        KlineEvent next = klines.get(cursor.position);
+        if (next.getCloseTime() < cursor.head.getCloseTime()) {
+            throw new IllegalArgumentException("Kline stream " + cursor.stream + " is not in close time order at "
+                    + cursor.position);
+        }
+        cursor.head = next;
+        queue.add(cursor);
+    }
+
+    private static final class Cursor {
+
+        private final int stream;
+        private int position;
+        private KlineEvent head;
+
+        private Cursor(int stream, KlineEvent head) {
+            this.stream = stream;
+            this.head = head;
+        }
+    }
+}
@@ -0,0 +1,118 @@
+package com.oyakov.binance_trader_macd.backtest;
+
+import com.oyakov.binance_trader_macd.domain.signal.MACDSeries;
+import lombok.extern.log4j.Log4j2;
+
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletionService;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+import java.util.function.Consumer;
+
+/**
+ * Runs every MACD parameter set against every preloaded {@link PriceSeries} on a work-stealing pool.
+ * Each series is loaded once and shared read-only by all of its tasks, and the EMAs of a period are
+ * computed once per series, whichever parameter set needs them first. Every worker thread keeps its own
+ * {@link MACDSeries} workspace.
+ * <p>
+ * Results are handed to the consumer as they complete, on the thread that called
+ * {@link #run(Map, List, SweepEvaluator, Consumer)}, so the consumer needs no synchronisation.
+ */
+@Log4j2
+public class ParameterSweepExecutor implements AutoCloseable {
+
+    private final ForkJoinPool pool;
+    private final CustomMACDAnalyzer analyzer = new CustomMACDAnalyzer();
+    private final ThreadLocal<MACDSeries> workspaces = ThreadLocal.withInitial(MACDSeries::new);
+
+    public ParameterSweepExecutor() {
+        this(Runtime.getRuntime().availableProcessors());
+    }
+
+    public ParameterSweepExecutor(int parallelism) {
+        this.pool = new ForkJoinPool(parallelism);
+    }
+
+    /**
+     * Evaluates one parameter set against one series, given the signals the set produces on it.
+     */
+    @FunctionalInterface
+    public interface SweepEvaluator<K, R> {
+        R evaluate(K key, PriceSeries prices, MACDParameters parameters, List<CustomMACDAnalyzer.MACDSignal> signals);
+    }
+
+    /**
+     * Turns a failed task, in signal analysis or evaluation, into a result.
+     */
+    @FunctionalInterface
+    public interface SweepFailureHandler<K, R> {
+        R onFailure(K key, MACDParameters parameters, Throwable cause);
+    }
+
+    /**
+     * Evaluates the cross product of {@code series} and {@code parameterSets} and blocks until every task
+     * is done. A task that throws is logged and skipped.
+     *
+     * @return the number of tasks that failed
+     */
+    public <K, R> int run(Map<K, PriceSeries> series,
+                          List<MACDParameters> parameterSets,
+                          SweepEvaluator<K, R> evaluator,
+                          Consumer<R> onResult) throws InterruptedException {
+        return run(series, parameterSets, evaluator, null, onResult);
+    }
+
+    /**
+     * Evaluates the cross product of {@code series} and {@code parameterSets} and blocks until every task
+     * is done. A task that throws is logged and, unless {@code onFailure} is {@code null}, handed to the
+     * consumer as the result {@code onFailure} makes of it.
+     *
+     * @return the number of tasks that failed
+     */
+    public <K, R> int run(Map<K, PriceSeries> series,
+                          List<MACDParameters> parameterSets,
+                          SweepEvaluator<K, R> evaluator,
+                          SweepFailureHandler<K, R> onFailure,
+                          Consumer<R> onResult) throws InterruptedException {
+        CompletionService<R> completion = new ExecutorCompletionService<>(pool);
+        Map<Future<R>, SweepTask<K>> tasks = new IdentityHashMap<>();
+        for (Map.Entry<K, PriceSeries> entry : series.entrySet()) {
+            K key = entry.getKey();
+            PriceSeries prices = entry.getValue();
+            for (MACDParameters parameters : parameterSets) {
+                Future<R> future = completion.submit(() -> evaluator.evaluate(key, prices, parameters,
+                        analyzer.analyzeSignals(prices, parameters, workspaces.get())));
+                tasks.put(future, new SweepTask<>(key, parameters));
+            }
+        }
+
+        int failed = 0;
+        for (int i = 0; i < tasks.size(); i++) {
+            Future<R> future = completion.take();
+            try {
+                onResult.accept(future.get());
+            } catch (ExecutionException e) {
+                failed++;
+                SweepTask<K> task = tasks.get(future);
+                log.warn("Parameter sweep task {} {} failed", task.key(), task.parameters(), e.getCause());
+                if (onFailure != null) {
+                    onResult.accept(onFailure.onFailure(task.key(), task.parameters(), e.getCause()));
+                }
+            }
+        }
+        log.debug("Parameter sweep finished {} tasks over {} series, {} failed", tasks.size(), series.size(), failed);
+        return failed;
+    }
+
+    @Override
+    public void close() {
+        pool.shutdownNow();
+    }
+
+    private record SweepTask<K>(K key, MACDParameters parameters) {
+    }
+}
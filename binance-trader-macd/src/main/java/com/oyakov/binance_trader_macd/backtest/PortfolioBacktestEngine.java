@@ -0,0 +1,183 @@
+package com.oyakov.binance_trader_macd.backtest;
+
+import com.oyakov.binance_shared_model.avro.KlineEvent;
+import com.oyakov.binance_shared_model.backtest.BacktestDataset;
+import com.oyakov.binance_trader_macd.config.MACDTraderConfig;
+import com.oyakov.binance_trader_macd.domain.signal.MACDSignalAnalyzer;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.log4j.Log4j2;
+import org.springframework.stereotype.Component;
+
+import java.math.BigDecimal;
+import java.math.MathContext;
+import java.math.RoundingMode;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.function.Consumer;
+
+/**
+ * Backtest of several datasets at once, trading out of one capital.
+ * <p>
+ * The datasets are merged by close time with a {@link KlineStreamMerger} and replayed through one
+ * {@link BacktestTraderEngine} per dataset, so every strategy keeps its own window while all of them open and
+ * close positions in a shared {@link PortfolioBook}. After the klines of each close time the value of the
+ * portfolio is handed to the equity curve consumer and is not kept, and klines are only read from the datasets
+ * as the merge reaches them. Datasets loaded from columnar files are therefore never held on the heap; a
+ * portfolio over years of 1m klines needs the strategy windows, the book and the closed trades only.
+ * <p>
+ * The book holds one position per symbol, so every dataset must be of a different symbol; two intervals of
+ * one symbol would trade the same position.
+ */
+@Component
+@Log4j2
+@RequiredArgsConstructor
+public class PortfolioBacktestEngine {
+
+    private static final MathContext MATH_CONTEXT = MathContext.DECIMAL64;
+    private static final int MONEY_SCALE = 2;
+    private static final int PERCENT_SCALE = 4;
+
+    private final MACDSignalAnalyzer macdSignalAnalyzer;
+    private final MACDTraderConfig traderConfig;
+    private final BacktestMetricsCalculator metricsCalculator;
+
+    /**
+     * Replay {@code datasets} together, each new position sized at {@code positionFraction} of the equity.
+     *
+     * @param datasets         one dataset per symbol
+     * @param positionFraction share of equity per position, or {@code null} for an equal share per dataset
+     * @param equityCurve      receives one point per close time, in time order
+     * @throws IllegalArgumentException when there are no datasets or two of them share a symbol
+     */
+    public PortfolioBacktestResult run(List<BacktestDataset> datasets, BigDecimal initialCapital,
+                                       BigDecimal positionFraction, Consumer<EquityPoint> equityCurve) {
+        if (datasets.isEmpty()) {
+            throw new IllegalArgumentException("Portfolio backtest needs at least one dataset");
+        }
+        Map<String, String> datasetBySymbol = new HashMap<>();
+        for (BacktestDataset dataset : datasets) {
+            String other = datasetBySymbol.put(dataset.getSymbol().toUpperCase(Locale.ROOT), dataset.getName());
+            if (other != null) {
+                throw new IllegalArgumentException("Portfolio backtest needs one dataset per symbol, but "
+                        + other + " and " + dataset.getName() + " are both " + dataset.getSymbol());
+            }
+        }
+        BigDecimal fraction = positionFraction != null
+                ? positionFraction
+                : BigDecimal.ONE.divide(BigDecimal.valueOf(datasets.size()), MATH_CONTEXT);
+        log.info("Running portfolio backtest over {} datasets with capital {} and {} of equity per position",
+                datasets.size(), initialCapital, fraction);
+
+        PortfolioBook book = new PortfolioBook(new BacktestOrderService(), initialCapital, fraction);
+        List<BacktestTraderEngine> engines = new ArrayList<>(datasets.size());
+        List<List<KlineEvent>> streams = new ArrayList<>(datasets.size());
+        for (BacktestDataset dataset : datasets) {
+            engines.add(new BacktestTraderEngine(macdSignalAnalyzer, book, traderConfig.getTrader()));
+            streams.add(dataset.getKlines());
+        }
+
+        EquityTracker tracker = new EquityTracker(initialCapital, equityCurve);
+        KlineStreamMerger merger = new KlineStreamMerger(streams);
+        long klineCount = 0;
+        long startTime = Long.MIN_VALUE;
+        long currentTime = Long.MIN_VALUE;
+        while (merger.next()) {
+            KlineEvent kline = merger.kline();
+            if (kline.getCloseTime() != currentTime) {
+                if (klineCount == 0) {
+                    startTime = kline.getCloseTime();
+                } else {
+                    tracker.record(currentTime, book);
+                }
+                currentTime = kline.getCloseTime();
+            }
+            engines.get(merger.stream()).onNewKline(kline);
+            klineCount++;
+        }
+        if (klineCount > 0) {
+            tracker.record(currentTime, book);
+        }
+
+        List<SimulatedTrade> trades = book.getClosedTrades();
+        BigDecimal finalEquity = book.equity();
+        BigDecimal netProfit = finalEquity.subtract(initialCapital);
+        log.info("Portfolio backtest finished - {} klines, {} trades, final equity {}",
+                klineCount, trades.size(), scaleMoney(finalEquity));
+        return PortfolioBacktestResult.builder()
+                .datasetNames(datasets.stream().map(BacktestDataset::getName).toList())
+                .startTime(klineCount > 0 ? Instant.ofEpochMilli(startTime) : null)
+                .endTime(klineCount > 0 ? Instant.ofEpochMilli(currentTime) : null)
+                .klineCount(klineCount)
+                .initialCapital(initialCapital)
+                .finalEquity(scaleMoney(finalEquity))
+                .netProfit(scaleMoney(netProfit))
+                .netProfitPercent(initialCapital.signum() == 0 ? BigDecimal.ZERO
+                        : netProfit.divide(initialCapital, PERCENT_SCALE, RoundingMode.HALF_UP))
+                .maxDrawdown(scaleMoney(tracker.maxDrawdown))
+                .maxDrawdownPercent(tracker.maxDrawdownPercent.setScale(PERCENT_SCALE, RoundingMode.HALF_UP))
+                .openPositions(book.openPositions())
+                .trades(trades)
+                .symbolMetrics(symbolMetrics(trades))
+                .build();
+    }
+
+    private List<BacktestMetrics> symbolMetrics(List<SimulatedTrade> trades) {
+        Map<String, List<SimulatedTrade>> bySymbol = new TreeMap<>();
+        for (SimulatedTrade trade : trades) {
+            bySymbol.computeIfAbsent(trade.getSymbol().toUpperCase(Locale.ROOT), symbol -> new ArrayList<>())
+                    .add(trade);
+        }
+        List<BacktestMetrics> metrics = new ArrayList<>(bySymbol.size());
+        bySymbol.forEach((symbol, symbolTrades) -> metrics.add(metricsCalculator.calculate(symbol, symbolTrades)));
+        return metrics;
+    }
+
+    private static BigDecimal scaleMoney(BigDecimal value) {
+        return value.setScale(MONEY_SCALE, RoundingMode.HALF_UP);
+    }
+
+    /**
+     * Running high and drawdown of the equity curve.
+     */
+    private static final class EquityTracker {
+
+        private final Consumer<EquityPoint> equityCurve;
+        private BigDecimal peak;
+        private BigDecimal maxDrawdown = BigDecimal.ZERO;
+        private BigDecimal maxDrawdownPercent = BigDecimal.ZERO;
+
+        private EquityTracker(BigDecimal initialCapital, Consumer<EquityPoint> equityCurve) {
+            this.peak = initialCapital;
+            this.equityCurve = equityCurve;
+        }
+
+        private void record(long time, PortfolioBook book) {
+            BigDecimal equity = book.equity();
+            BigDecimal drawdownPercent = BigDecimal.ZERO;
+            if (equity.compareTo(peak) > 0) {
+                peak = equity;
+            } else if (peak.signum() > 0) {
+                BigDecimal drawdown = peak.subtract(equity);
+                drawdownPercent = drawdown.divide(peak, MATH_CONTEXT);
+                if (drawdown.compareTo(maxDrawdown) > 0) {
+                    maxDrawdown = drawdown;
+                }
+                if (drawdownPercent.compareTo(maxDrawdownPercent) > 0) {
+                    maxDrawdownPercent = drawdownPercent;
+                }
+            }
+            equityCurve.accept(EquityPoint.builder()
+                    .time(Instant.ofEpochMilli(time))
+                    .equity(scaleMoney(equity))
+                    .cash(scaleMoney(book.getCash()))
+                    .drawdownPercent(drawdownPercent.setScale(PERCENT_SCALE, RoundingMode.HALF_UP))
+                    .openPositions(book.openPositions())
+                    .build());
+        }
+    }
+}
@@ -0,0 +1,32 @@
+package com.oyakov.binance_trader_macd.backtest;
+
+import lombok.Builder;
+import lombok.Data;
+
+import java.math.BigDecimal;
+import java.time.Instant;
+import java.util.List;
+
+/**
+ * Result of a portfolio backtest over several datasets sharing one capital.
+ */
+@Data
+@Builder
+public class PortfolioBacktestResult {
+    private List<String> datasetNames;
+    private Instant startTime;
+    private Instant endTime;
+    private long klineCount;
+    private BigDecimal initialCapital;
+    // Cash plus open positions at their last close
+    private BigDecimal finalEquity;
+    private BigDecimal netProfit;
+    private BigDecimal netProfitPercent;
+    // Largest drop of the equity curve from a previous high, over all symbols together
+    private BigDecimal maxDrawdown;
+    private BigDecimal maxDrawdownPercent;
+    private int openPositions;
+    private List<SimulatedTrade> trades;
+    // Per-symbol metrics of the closed trades
+    private List<BacktestMetrics> symbolMetrics;
+}
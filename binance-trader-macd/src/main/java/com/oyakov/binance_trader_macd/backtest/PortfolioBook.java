@@ -0,0 +1,154 @@
+package com.oyakov.binance_trader_macd.backtest;
+
+import com.oyakov.binance_shared_model.avro.KlineEvent;
+import com.oyakov.binance_trader_macd.domain.OrderSide;
+import com.oyakov.binance_trader_macd.domain.OrderState;
+import com.oyakov.binance_trader_macd.exception.OrderCapacityReachedException;
+import com.oyakov.binance_trader_macd.model.order.binance.storage.OrderItem;
+import com.oyakov.binance_trader_macd.service.api.OrderServiceApi;
+import lombok.Getter;
+import lombok.extern.log4j.Log4j2;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Optional;
+
+/**
+ * Capital and positions shared by the strategies of a portfolio backtest, in front of one
+ * {@link BacktestOrderService}.
+ * <p>
+ * Every strategy trades out of the same cash. A new position is sized at {@code positionFraction} of the
+ * current equity, capped by the cash left, whatever quantity the strategy asks for; the order is refused with
+ * {@link OrderCapacityReachedException} when no cash is left. Opening a position sets its entry notional
+ * aside, long or short, and closing it returns the notional plus the trade's profit. Open positions are marked
+ * at the last close of their symbol, so {@link #equity()} is the value of the whole portfolio at the current
+ * kline.
+ * <p>
+ * Like the order service it wraps, the book is single-threaded.
+ */
+@Log4j2
+public class PortfolioBook implements OrderServiceApi, BacktestOrderContext {
+
+    private static final int QUANTITY_SCALE = 8;
+
+    private final BacktestOrderService orderService;
+    private final BigDecimal positionFraction;
+    // Open position by normalised symbol
+    private final Map<String, Position> positions = new HashMap<>();
+    @Getter
+    private BigDecimal cash;
+
+    public PortfolioBook(BacktestOrderService orderService, BigDecimal initialCapital, BigDecimal positionFraction) {
+        this.orderService = orderService;
+        this.cash = initialCapital;
+        this.positionFraction = positionFraction;
+    }
+
+    @Override
+    public void onKline(KlineEvent klineEvent) {
+        orderService.onKline(klineEvent);
+        if (!positions.isEmpty()) {
+            Position position = positions.get(key(klineEvent.getSymbol()));
+            if (position != null) {
+                position.mark = klineEvent.getClose();
+            }
+        }
+    }
+
+    @Override
+    public OrderItem createOrderGroup(String symbol, BigDecimal entryPrice, BigDecimal quantity,
+                                      OrderSide orderSide, BigDecimal stopLossPrice, BigDecimal takeProfitPrice)
+            throws OrderCapacityReachedException {
+        BigDecimal notional = equity().multiply(positionFraction).min(cash);
+        BigDecimal sized = notional.signum() > 0
+                ? notional.divide(entryPrice, QUANTITY_SCALE, RoundingMode.DOWN)
+                : BigDecimal.ZERO;
+        if (sized.signum() <= 0) {
+            log.debug("No cash left for a {} position in {}", orderSide, symbol);
+            throw new OrderCapacityReachedException();
+        }
+        OrderItem orderItem = orderService.createOrderGroup(symbol, entryPrice, sized, orderSide, stopLossPrice,
+                takeProfitPrice);
+        BigDecimal reserved = entryPrice.multiply(sized);
+        cash = cash.subtract(reserved);
+        positions.put(key(symbol), new Position(orderSide, entryPrice, sized, reserved));
+        return orderItem;
+    }
+
+    @Override
+    public boolean hasActiveOrder(String symbol) {
+        return orderService.hasActiveOrder(symbol);
+    }
+
+    @Override
+    public void closeOrderWithState(Long orderId, OrderState state) {
+        List<SimulatedTrade> closedTrades = orderService.getClosedTrades();
+        int closed = closedTrades.size();
+        orderService.closeOrderWithState(orderId, state);
+        if (closedTrades.size() == closed) {
+            return;
+        }
+        SimulatedTrade trade = closedTrades.get(closed);
+        Position position = positions.remove(key(trade.getSymbol()));
+        if (position != null) {
+            cash = cash.add(position.reserved).add(trade.getProfit());
+        }
+    }
+
+    @Override
+    public Optional<OrderItem> getActiveOrder(String symbol) {
+        return orderService.getActiveOrder(symbol);
+    }
+
+    /**
+     * Cash plus the open positions at their last close.
+     */
+    public BigDecimal equity() {
+        BigDecimal equity = cash;
+        for (Position position : positions.values()) {
+            equity = equity.add(position.value());
+        }
+        return equity;
+    }
+
+    public int openPositions() {
+        return positions.size();
+    }
+
+    public List<SimulatedTrade> getClosedTrades() {
+        return orderService.getClosedTrades();
+    }
+
+    private static String key(String symbol) {
+        return symbol.toUpperCase(Locale.ROOT);
+    }
+
+    private static final class Position {
+
+        private final OrderSide side;
+        private final BigDecimal entryPrice;
+        private final BigDecimal quantity;
+        private final BigDecimal reserved;
+        private BigDecimal mark;
+
+        private Position(OrderSide side, BigDecimal entryPrice, BigDecimal quantity, BigDecimal reserved) {
+            this.side = side;
+            this.entryPrice = entryPrice;
+            this.quantity = quantity;
+            this.reserved = reserved;
+            this.mark = entryPrice;
+        }
+
+        /**
+         * Notional set aside plus the profit if closed at the mark.
+         */
+        private BigDecimal value() {
+            BigDecimal profit = mark.subtract(entryPrice).multiply(quantity);
+            return side == OrderSide.BUY ? reserved.add(profit) : reserved.subtract(profit);
+        }
+    }
+}
@@ -0,0 +1,79 @@
+package com.oyakov.binance_trader_macd.backtest;
+
+import com.oyakov.binance_shared_model.avro.KlineEvent;
+import com.oyakov.binance_trader_macd.domain.signal.MACDKernel;
+
+import java.math.BigDecimal;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * Close prices of one kline series sorted by close time, held in primitive arrays so that a parameter
+ * sweep can share a single copy between all of its worker threads. EMAs are cached per period on first
+ * use: every parameter set with the same fast or slow period reuses the same array.
+ * <p>
+ * The arrays are never modified after construction and the EMA cache is concurrent, so instances are
+ * safe to share.
+ */
+public final class PriceSeries {
+
+    private final long[] closeTimes;
+    private final double[] closes;
+    private final BigDecimal[] closePrices;
+    private final ConcurrentMap<Integer, double[]> emas = new ConcurrentHashMap<>();
+
+    private PriceSeries(long[] closeTimes, double[] closes, BigDecimal[] closePrices) {
+        this.closeTimes = closeTimes;
+        this.closes = closes;
+        this.closePrices = closePrices;
+    }
+
+    public static PriceSeries of(List<KlineEvent> klines) {
+        KlineEvent[] sorted = klines.toArray(new KlineEvent[0]);
+        Arrays.sort(sorted, Comparator.comparingLong(KlineEvent::getCloseTime));
+        long[] closeTimes = new long[sorted.length];
+        double[] closes = new double[sorted.length];
+        BigDecimal[] closePrices = new BigDecimal[sorted.length];
+        for (int i = 0; i < sorted.length; i++) {
+            closeTimes[i] = sorted[i].getCloseTime();
+            closePrices[i] = sorted[i].getClose();
+            closes[i] = closePrices[i].doubleValue();
+        }
+        return new PriceSeries(closeTimes, closes, closePrices);
+    }
+
+    public int size() {
+        return closes.length;
+    }
+
+    public long closeTime(int i) {
+        return closeTimes[i];
+    }
+
+    public BigDecimal closePrice(int i) {
+        return closePrices[i];
+    }
+
+    public List<BigDecimal> closePriceList() {
+        return Collections.unmodifiableList(Arrays.asList(closePrices));
+    }
+
+    /**
+     * EMA of the closes, {@code NaN} before its seed. The returned array is shared and must not be modified.
+     */
+    double[] ema(int period) {
+        if (period <= 0) {
+            throw new IllegalArgumentException("Invalid EMA period " + period);
+        }
+        return emas.computeIfAbsent(period, p -> {
+            double[] out = new double[closes.length];
+            Arrays.fill(out, Double.NaN);
+            MACDKernel.ema(closes, 0, closes.length, p, out);
+            return out;
+        });
+    }
+}
@@ -6,22 +6,21 @@ import org.springframework.web.client.RestTemplate;
 import java.math.BigDecimal;
 import java.util.*;
 import java.util.concurrent.CompletableFuture;
-import java.util.concurrent.ExecutorService;
-import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.stream.Collectors;
 
 /**
  * Quick comprehensive analysis service for faster testing
  */
-public class QuickComprehensiveAnalysisService {
+public class QuickComprehensiveAnalysisService implements AutoCloseable {
     
     private final RestTemplate restTemplate;
-    private final ExecutorService executorService;
+    private final ParameterSweepExecutor sweepExecutor;
     private final Map<String, List<KlineEvent>> dataCache;
     
     public QuickComprehensiveAnalysisService() {
         this.restTemplate = new RestTemplate();
-        this.executorService = Executors.newFixedThreadPool(4);
+        this.sweepExecutor = new ParameterSweepExecutor();
         this.dataCache = new HashMap<>();
     }
     
@@ -29,6 +28,7 @@ public class QuickComprehensiveAnalysisService {
      * Run quick comprehensive analysis
      */
     public CompletableFuture<QuickAnalysisResult> runQuickAnalysis() {
+        // The analysis mostly waits on the sweep pool, so it gets a virtual thread of its own
         return CompletableFuture.supplyAsync(() -> {
             System.out.println("=== QUICK COMPREHENSIVE ANALYSIS ===");
             
@@ -61,76 +61,91 @@ public class QuickComprehensiveAnalysisService {
             
             List<AnalysisResult> allResults = new ArrayList<>();
             int totalTests = symbols.length * intervals.length * timePeriods.length * parameterSets.size();
-            int completedTests = 0;
             
-            // Run analysis for all combinations
+            // Load every series once; all parameter sets share it
+            Map<SeriesKey, PriceSeries> series = new LinkedHashMap<>();
             for (String symbol : symbols) {
                 for (String interval : intervals) {
                     for (int timePeriod : timePeriods) {
-                        for (MACDParameters params : parameterSets) {
-                            try {
-                                AnalysisResult result = runSingleAnalysis(symbol, interval, timePeriod, params).get();
-                                allResults.add(result);
-                                completedTests++;
-                                
-                                // Progress reporting
-                                if (completedTests % 20 == 0 || completedTests == totalTests) {
-                                    System.out.printf("Progress: %d/%d tests completed (%.1f%%)\n", 
-                                        completedTests, totalTests, (completedTests * 100.0 / totalTests));
-                                }
-                                
-                            } catch (Exception e) {
-                                System.err.println("Error in analysis: " + e.getMessage());
-                                completedTests++;
+                        SeriesKey key = new SeriesKey(symbol, interval, timePeriod);
+                        try {
+                            List<KlineEvent> klines = collectData(symbol, interval, timePeriod);
+                            if (klines.isEmpty()) {
+                                parameterSets.forEach(params -> allResults.add(failedResult(key, params, "No data")));
+                                continue;
                             }
+                            series.put(key, PriceSeries.of(klines));
+                        } catch (Exception e) {
+                            parameterSets.forEach(params -> allResults.add(failedResult(key, params, "Error: " + e.getMessage())));
                         }
                     }
                 }
             }
             
+            // Fan the parameter sets out over all cores, collecting results as they complete
+            AtomicInteger completedTests = new AtomicInteger(allResults.size());
+            try {
+                int failedTests = sweepExecutor.run(series, parameterSets,
+                    (key, prices, params, signals) -> evaluate(key, params, signals),
+                    (key, params, cause) -> failedResult(key, params, "Error: " + cause.getMessage()),
+                    result -> {
+                        allResults.add(result);
+                        int completed = completedTests.incrementAndGet();
+                        
+                        // Progress reporting
+                        if (completed % 20 == 0 || completed == totalTests) {
+                            System.out.printf("Progress: %d/%d tests completed (%.1f%%)\n", 
+                                completed, totalTests, (completed * 100.0 / totalTests));
+                        }
+                    });
+                if (failedTests > 0) {
+                    System.err.println("Errors in analysis: " + failedTests);
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                System.err.println("Analysis interrupted after " + completedTests.get() + " tests");
+            }
+            
             System.out.println("\nGenerating insights...");
             
             // Generate quick insights
             return generateQuickInsights(allResults);
             
-        }, executorService);
+        }, Thread::startVirtualThread);
     }
     
     /**
-     * Run single analysis for specific parameters
+     * Stop the parameter sweep pool
      */
-    private CompletableFuture<AnalysisResult> runSingleAnalysis(String symbol, String interval, 
-                                                               int timePeriod, MACDParameters params) {
-        return CompletableFuture.supplyAsync(() -> {
-            try {
-                // Collect data
-                List<KlineEvent> klines = collectData(symbol, interval, timePeriod);
-                
-                if (klines.isEmpty()) {
-                    return new AnalysisResult(symbol, interval, timePeriod, params, 
-                        new SimpleBacktestMetrics(BigDecimal.ZERO, BigDecimal.ZERO, BigDecimal.ZERO, BigDecimal.ZERO, 0), 
-                        "No data", 0);
-                }
-                
-                // Run MACD analysis
-                CustomMACDAnalyzer analyzer = new CustomMACDAnalyzer();
-                List<CustomMACDAnalyzer.MACDSignal> signals = analyzer.analyzeSignals(klines, params);
-                
-                // Simulate trades
-                List<SimulatedTrade> trades = simulateTrades(klines, signals);
-                
-                // Calculate metrics
-                SimpleBacktestMetrics metrics = calculateMetrics(trades);
-                
-                return new AnalysisResult(symbol, interval, timePeriod, params, 
-                    metrics, "Success", signals.size());
-                
-            } catch (Exception e) {
-                return new AnalysisResult(symbol, interval, timePeriod, params, 
-                    new SimpleBacktestMetrics(BigDecimal.ZERO, BigDecimal.ZERO, BigDecimal.ZERO, BigDecimal.ZERO, 0), 
-                    "Error: " + e.getMessage(), 0);
-            }
-        }, executorService);
+    @Override
+    public void close() {
+        sweepExecutor.close();
+    }
+    
+    /**
+     * Evaluate one parameter set against a preloaded series, given its signals
+     */
+    private AnalysisResult evaluate(SeriesKey key, MACDParameters params,
+                                    List<CustomMACDAnalyzer.MACDSignal> signals) {
+        try {
+            // Simulate trades
+            List<SimulatedTrade> trades = simulateTrades(signals);
+            
+            // Calculate metrics
+            SimpleBacktestMetrics metrics = calculateMetrics(trades);
+            
+            return new AnalysisResult(key.symbol(), key.interval(), key.timePeriod(), params, 
+                metrics, "Success", signals.size());
+            
+        } catch (Exception e) {
+            return failedResult(key, params, "Error: " + e.getMessage());
+        }
+    }
+    
+    private AnalysisResult failedResult(SeriesKey key, MACDParameters params, String status) {
+        return new AnalysisResult(key.symbol(), key.interval(), key.timePeriod(), params, 
+            new SimpleBacktestMetrics(BigDecimal.ZERO, BigDecimal.ZERO, BigDecimal.ZERO, BigDecimal.ZERO, 0), 
+            status, 0);
     }
     
     /**
@@ -192,7 +207,7 @@ public class QuickComprehensiveAnalysisService {
     /**
      * Simulate trades based on MACD signals
      */
-    private List<SimulatedTrade> simulateTrades(List<KlineEvent> klines, List<CustomMACDAnalyzer.MACDSignal> signals) {
+    private List<SimulatedTrade> simulateTrades(List<CustomMACDAnalyzer.MACDSignal> signals) {
         List<SimulatedTrade> trades = new ArrayList<>();
         boolean inPosition = false;
         BigDecimal entryPrice = BigDecimal.ZERO;
@@ -349,6 +364,9 @@ public class QuickComprehensiveAnalysisService {
     }
     
     // Data classes
+    private record SeriesKey(String symbol, String interval, int timePeriod) {
+    }
+    
     public static class AnalysisResult {
         private final String symbol;
         private final String interval;
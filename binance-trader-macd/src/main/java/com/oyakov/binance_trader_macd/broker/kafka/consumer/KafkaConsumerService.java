@@ -3,6 +3,7 @@ package com.oyakov.binance_trader_macd.broker.kafka.consumer;
 import com.oyakov.binance_shared_model.avro.KlineEvent;
 import com.oyakov.binance_shared_model.logging.CorrelationIdConstants;
 import com.oyakov.binance_shared_model.logging.LoggingUtils;
+import com.oyakov.binance_trader_macd.service.KlineRingCache;
 import lombok.extern.log4j.Log4j2;
 import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.kafka.annotation.KafkaListener;
@@ -16,9 +17,11 @@ import org.springframework.stereotype.Service;
 public class KafkaConsumerService {
 
     private final ApplicationEventPublisher eventPublisher;
+    private final KlineRingCache klineCache;
 
-    public KafkaConsumerService(ApplicationEventPublisher eventPublisher) {
+    public KafkaConsumerService(ApplicationEventPublisher eventPublisher, KlineRingCache klineCache) {
         this.eventPublisher = eventPublisher;
+        this.klineCache = klineCache;
     }
 
     @KafkaListener(topics = "${binance.data.kline.kafka-topic}", groupId = "${binance.data.kline.kafka-consumer-group}")
@@ -37,6 +40,8 @@ public class KafkaConsumerService {
             }
             
             log.debug("Received kline command: {}", command);
+            // Cache first, so the MACD calculated for this kline already sees it
+            klineCache.append(command);
             eventPublisher.publishEvent(command);
         } finally {
             // Clear correlation ID from MDC
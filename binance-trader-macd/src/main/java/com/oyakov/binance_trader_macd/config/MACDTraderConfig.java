@@ -5,6 +5,7 @@ import org.springframework.boot.context.properties.ConfigurationProperties;
 import org.springframework.stereotype.Component;
 
 import java.math.BigDecimal;
+import java.time.Duration;
 import java.util.List;
 
 @Component
@@ -43,11 +44,44 @@ public class MACDTraderConfig {
             private Integer warmupKlineCount = 50;
             private List<String> intervals = List.of("15m");
             private List<String> symbols = List.of("btcusdt");
+            private Cache cache = new Cache();
+
+            @lombok.Data
+            public static class Cache {
+                private Boolean enabled = true;
+                private Integer capacity = 500;
+                private Integer maxSeries = 64;
+                private Duration staleGrace = Duration.ofMinutes(1);
+            }
         }
 
         @lombok.Data
         public static class Storage {
             private String baseUrl = "http://binance-data-storage-testnet:8081";
+            private MacdBatch macdBatch = new MacdBatch();
+            private ObservabilityQueue observabilityQueue = new ObservabilityQueue();
+
+            @lombok.Data
+            public static class MacdBatch {
+                private Boolean enabled = true;
+                private Integer maxSize = 200;
+                private Duration flushInterval = Duration.ofSeconds(1);
+                private Integer maxPending = 5000;
+            }
+
+            @lombok.Data
+            public static class ObservabilityQueue {
+                private Boolean enabled = true;
+                private Integer capacity = 10000;
+                private Integer maxBatchSize = 500;
+                private Duration flushInterval = Duration.ofSeconds(2);
+                private OverflowPolicy overflowPolicy = OverflowPolicy.DROP_OLDEST;
+
+                public enum OverflowPolicy {
+                    DROP_OLDEST,
+                    DROP_NEWEST
+                }
+            }
         }
     }
 
@@ -58,5 +92,7 @@ public class MACDTraderConfig {
         private BigDecimal takeProfitPercentage = BigDecimal.valueOf(1.05);
         private BigDecimal orderQuantity = BigDecimal.valueOf(0.05);
         private Integer slidingWindowSize = 78;
+        // Backtest with FastBacktestEngine wherever it gives the same trades as BacktestTraderEngine
+        private Boolean fastBacktestEnabled = true;
     }
 }
@@ -0,0 +1,56 @@
+package com.oyakov.binance_trader_macd.domain.signal;
+
+import com.oyakov.binance_shared_model.avro.KlineEvent;
+import com.oyakov.binance_trader_macd.domain.TradeSignal;
+import lombok.extern.log4j.Log4j2;
+import org.springframework.stereotype.Component;
+
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Keeps one {@link IncrementalMACDState} per (symbol, interval) and advances it in constant time
+ * for every closed kline, instead of re-running {@link MACDSignalAnalyzer} over a sliding window.
+ */
+@Component
+@Log4j2
+public class IncrementalMACDSignalEngine {
+
+    private final Map<SeriesKey, IncrementalMACDState> states = new ConcurrentHashMap<>();
+
+    /**
+     * Feed a closed kline into the state of its series.
+     *
+     * @return the crossover signal produced by this kline, if any
+     */
+    public Optional<TradeSignal> onClosedKline(KlineEvent klineEvent) {
+        IncrementalMACDState state = states.computeIfAbsent(
+                new SeriesKey(klineEvent.getSymbol(), klineEvent.getInterval()),
+                key -> new IncrementalMACDState());
+        synchronized (state) {
+            if (klineEvent.getCloseTime() <= state.getLastCloseTime()) {
+                log.debug("Ignoring stale kline {} {} closeTime={} (last={})", klineEvent.getSymbol(),
+                        klineEvent.getInterval(), klineEvent.getCloseTime(), state.getLastCloseTime());
+                return Optional.empty();
+            }
+            Optional<TradeSignal> signal = state.update(klineEvent.getCloseTime(), klineEvent.getClose());
+            if (!state.isWarmedUp()) {
+                log.debug("Warming up MACD state for {} {}: {}/{} klines", klineEvent.getSymbol(),
+                        klineEvent.getInterval(), state.getCount(), state.getMinDataPointCount());
+            }
+            return signal;
+        }
+    }
+
+    public Optional<IncrementalMACDState> getState(String symbol, String interval) {
+        return Optional.ofNullable(states.get(new SeriesKey(symbol, interval)));
+    }
+
+    public void reset(String symbol, String interval) {
+        states.remove(new SeriesKey(symbol, interval));
+    }
+
+    private record SeriesKey(String symbol, String interval) {
+    }
+}
@@ -0,0 +1,187 @@
+package com.oyakov.binance_trader_macd.domain.signal;
+
+import com.oyakov.binance_trader_macd.domain.TradeSignal;
+
+import java.math.BigDecimal;
+import java.util.Optional;
+
+/**
+ * Running EMA-fast / EMA-slow / signal state for a single kline series.
+ * <p>
+ * Each {@link #update(double)} is O(1) and allocation-free: the EMAs are seeded with the SMA of their
+ * first {@code period} values and then advanced one close at a time with {@link MACDKernel#emaStep}.
+ * Feeding the full history of a series therefore yields exactly the values the {@link MACDKernel}
+ * double path computes over that history in one pass.
+ * <p>
+ * Crossovers are detected the way {@link MACDSignalAnalyzer} detects them: the analyzer indexes the
+ * MACD and signal lists from the same start, so each signal value is compared against the MACD value
+ * {@code signalPeriod - 1} klines earlier. A ring of the last {@code signalPeriod} MACD values keeps
+ * that comparison O(1). {@link #getHistogram()} is the conventional, aligned {@code macd - signal}.
+ * <p>
+ * Instances are not thread-safe; callers must serialise updates per series.
+ */
+public class IncrementalMACDState {
+
+    public static final int DEFAULT_FAST_PERIOD = 12;
+    public static final int DEFAULT_SLOW_PERIOD = 26;
+    public static final int DEFAULT_SIGNAL_PERIOD = 9;
+
+    private final int fastPeriod;
+    private final int slowPeriod;
+    private final int signalPeriod;
+    private final double fastMultiplier;
+    private final double slowMultiplier;
+    private final double signalMultiplier;
+    private final double[] macdRing;
+
+    private long count;
+    private long macdCount;
+    private double fastSum;
+    private double slowSum;
+    private double signalSum;
+    private double emaFast = Double.NaN;
+    private double emaSlow = Double.NaN;
+    private double macd = Double.NaN;
+    private double signal = Double.NaN;
+    private double crossoverDiff = Double.NaN;
+    private double lastClose = Double.NaN;
+    private long lastCloseTime = Long.MIN_VALUE;
+
+    public IncrementalMACDState() {
+        this(DEFAULT_FAST_PERIOD, DEFAULT_SLOW_PERIOD, DEFAULT_SIGNAL_PERIOD);
+    }
+
+    public IncrementalMACDState(int fastPeriod, int slowPeriod, int signalPeriod) {
+        if (fastPeriod <= 0 || slowPeriod <= 0 || signalPeriod <= 0 || fastPeriod >= slowPeriod) {
+            throw new IllegalArgumentException("Invalid MACD periods: fast=%d slow=%d signal=%d"
+                    .formatted(fastPeriod, slowPeriod, signalPeriod));
+        }
+        this.fastPeriod = fastPeriod;
+        this.slowPeriod = slowPeriod;
+        this.signalPeriod = signalPeriod;
+        this.fastMultiplier = MACDKernel.multiplier(fastPeriod);
+        this.slowMultiplier = MACDKernel.multiplier(slowPeriod);
+        this.signalMultiplier = MACDKernel.multiplier(signalPeriod);
+        this.macdRing = new double[signalPeriod];
+    }
+
+    /**
+     * Advance the state with the close of a kline whose close time is strictly after the last
+     * accepted one. Stale or duplicate klines are ignored.
+     *
+     * @return the crossover signal produced by this kline, if any
+     */
+    public Optional<TradeSignal> update(long closeTime, BigDecimal close) {
+        if (closeTime <= lastCloseTime) {
+            return Optional.empty();
+        }
+        lastCloseTime = closeTime;
+        return Optional.ofNullable(update(close.doubleValue()));
+    }
+
+    /**
+     * Advance the state with the next close price in series order.
+     *
+     * @return the crossover signal produced by this close, or {@code null} when there is none
+     */
+    public TradeSignal update(double close) {
+        count++;
+        lastClose = close;
+
+        if (count <= fastPeriod) {
+            fastSum += close;
+            if (count == fastPeriod) {
+                emaFast = fastSum / fastPeriod;
+            }
+        } else {
+            emaFast = MACDKernel.emaStep(emaFast, close, fastMultiplier);
+        }
+
+        if (count <= slowPeriod) {
+            slowSum += close;
+            if (count < slowPeriod) {
+                return null;
+            }
+            emaSlow = slowSum / slowPeriod;
+        } else {
+            emaSlow = MACDKernel.emaStep(emaSlow, close, slowMultiplier);
+        }
+
+        macd = emaFast - emaSlow;
+        macdRing[(int) (macdCount % signalPeriod)] = macd;
+        macdCount++;
+
+        if (macdCount <= signalPeriod) {
+            signalSum += macd;
+            if (macdCount < signalPeriod) {
+                return null;
+            }
+            signal = signalSum / signalPeriod;
+        } else {
+            signal = MACDKernel.emaStep(signal, macd, signalMultiplier);
+        }
+
+        double prevDiff = crossoverDiff;
+        double laggedMacd = macdRing[(int) (macdCount % signalPeriod)];
+        crossoverDiff = laggedMacd - signal;
+        if (Double.isNaN(prevDiff)) {
+            return null;
+        }
+        return MACDSeries.crossover(sign(prevDiff), sign(crossoverDiff));
+    }
+
+    /**
+     * @return true once enough closes have been seen to compare two consecutive histogram values
+     */
+    public boolean isWarmedUp() {
+        return macdCount > signalPeriod;
+    }
+
+    public int getMinDataPointCount() {
+        return slowPeriod + signalPeriod;
+    }
+
+    public long getCount() {
+        return count;
+    }
+
+    public long getLastCloseTime() {
+        return lastCloseTime;
+    }
+
+    public double getLastClose() {
+        return lastClose;
+    }
+
+    public double getEmaFast() {
+        return emaFast;
+    }
+
+    public double getEmaSlow() {
+        return emaSlow;
+    }
+
+    public double getMacd() {
+        return macd;
+    }
+
+    public double getSignal() {
+        return signal;
+    }
+
+    /**
+     * @return the MACD value the current signal is compared against for crossovers, from
+     * {@code signalPeriod - 1} closes back; NaN until the signal is defined
+     */
+    public double getLaggedMacd() {
+        return Double.isNaN(signal) ? Double.NaN : macdRing[(int) (macdCount % signalPeriod)];
+    }
+
+    public double getHistogram() {
+        return macd - signal;
+    }
+
+    private static int sign(double value) {
+        return value > 0 ? 1 : value < 0 ? -1 : 0;
+    }
+}
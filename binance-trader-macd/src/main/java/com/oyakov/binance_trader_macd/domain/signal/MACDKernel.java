@@ -0,0 +1,242 @@
+package com.oyakov.binance_trader_macd.domain.signal;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.util.List;
+
+/**
+ * Shared EMA / MACD / signal kernel used by every MACD calculation in the trader.
+ * <p>
+ * The {@link Precision#DOUBLE} path works over primitive arrays and writes into a caller-owned
+ * {@link MACDSeries}, so repeated calls with the same workspace allocate nothing. It follows the
+ * legacy decimal algorithm step for step: EMAs are seeded with the SMA of their first
+ * {@code period} values, advanced as {@code (value - prev) * k + prev}, and use the multiplier
+ * {@code k = 2 / (period + 1)} rounded to {@value #DECIMAL_SCALE} places.
+ * <p>
+ * {@link Precision#EXACT_DECIMAL} reproduces the legacy {@code BigDecimal} arithmetic exactly
+ * (scale {@value #DECIMAL_SCALE}, {@code HALF_UP} after every step) and is meant for audit runs. The legacy
+ * {@code MACDCalculationService} wrote the EMA step as {@code value * k + prev * (1 - k)}; decimal products and
+ * sums are exact, so that is the same number before the one rounding of the step. Its seed for inputs shorter
+ * than a period is not reproduced, the service never computed MACD over so few klines.
+ * The default precision is {@code DOUBLE}; set the system property {@value #PRECISION_PROPERTY}
+ * to {@code EXACT_DECIMAL} to switch every call site that does not pass a precision explicitly.
+ * <p>
+ * <b>Error bound of the double path.</b> Each decimal step rounds by at most {@code 5e-11}; each
+ * double step rounds by at most {@code 3u * M}, where {@code u = 2^-53} and {@code M} bounds the
+ * magnitude of the values involved. An EMA contracts earlier errors by {@code (1 - k)} per step, so
+ * per-step errors accumulate to at most {@code d / k = d * (period + 1) / 2}. Hence
+ * <pre>
+ *   d         = 5e-11 + 3u * M
+ *   |dEmaP|   &lt;= d * (P + 1) / 2
+ *   |dMacd|   &lt;= |dEmaFast| + |dEmaSlow| + 5e-11
+ *   |dSignal| &lt;= (|dMacd| + d) * (signalPeriod + 1) / 2
+ * </pre>
+ * For MACD(12, 26, 9) and prices below {@code 1e5} this keeps MACD within {@code 2e-9} and the signal
+ * line within {@code 1e-8} of the decimal path. Crossovers can only differ when the MACD/signal gap
+ * is itself within that bound of zero.
+ */
+public final class MACDKernel {
+
+    public static final int DECIMAL_SCALE = 10;
+    public static final String PRECISION_PROPERTY = "binance.macd.precision";
+
+    public enum Precision {
+        DOUBLE,
+        EXACT_DECIMAL;
+
+        public static Precision configured() {
+            String value = System.getProperty(PRECISION_PROPERTY);
+            return value == null || value.isBlank() ? DOUBLE : Precision.valueOf(value.trim().toUpperCase());
+        }
+    }
+
+    private static final double ROUNDING_UNIT = Math.ulp(1.0) / 2;
+    private static final double DECIMAL_ROUNDING = 5e-11;
+    private static final double[] MULTIPLIERS = new double[257];
+
+    static {
+        for (int period = 1; period < MULTIPLIERS.length; period++) {
+            MULTIPLIERS[period] = decimalMultiplier(period).doubleValue();
+        }
+    }
+
+    private MACDKernel() {
+    }
+
+    public static BigDecimal decimalMultiplier(int period) {
+        return BigDecimal.valueOf(2)
+                .divide(BigDecimal.valueOf(period + 1), DECIMAL_SCALE, RoundingMode.HALF_UP);
+    }
+
+    public static double multiplier(int period) {
+        return period < MULTIPLIERS.length ? MULTIPLIERS[period] : decimalMultiplier(period).doubleValue();
+    }
+
+    public static double emaStep(double previous, double value, double multiplier) {
+        return (value - previous) * multiplier + previous;
+    }
+
+    /**
+     * Exponential moving average of {@code values[from, to)} written to {@code out} at the same indices.
+     * Entries before {@code from + period - 1} are left untouched.
+     *
+     * @return the index of the first defined EMA value, or {@code to} when the range is too short
+     */
+    public static int ema(double[] values, int from, int to, int period, double[] out) {
+        int seedIndex = from + period - 1;
+        if (seedIndex >= to) {
+            return to;
+        }
+        double multiplier = multiplier(period);
+        double sum = 0;
+        for (int i = from; i <= seedIndex; i++) {
+            sum += values[i];
+        }
+        double ema = sum / period;
+        out[seedIndex] = ema;
+        for (int i = seedIndex + 1; i < to; i++) {
+            ema = emaStep(ema, values[i], multiplier);
+            out[i] = ema;
+        }
+        return seedIndex;
+    }
+
+    /**
+     * Compute EMA-fast, EMA-slow, MACD and signal for the first {@code length} closes into {@code workspace}.
+     *
+     * @param workspace series to reuse, or {@code null} to allocate a new one
+     */
+    public static MACDSeries compute(double[] closes, int length, int fastPeriod, int slowPeriod, int signalPeriod,
+                                     MACDSeries workspace) {
+        validate(fastPeriod, slowPeriod, signalPeriod);
+        MACDSeries series = workspace != null ? workspace : new MACDSeries();
+        series.reset(length, fastPeriod, slowPeriod, signalPeriod, Precision.DOUBLE);
+
+        ema(closes, 0, length, fastPeriod, series.emaFast);
+        int firstMacd = ema(closes, 0, length, slowPeriod, series.emaSlow);
+        for (int i = firstMacd; i < length; i++) {
+            series.macd[i] = series.emaFast[i] - series.emaSlow[i];
+        }
+        ema(series.macd, firstMacd, length, signalPeriod, series.signal);
+        return series;
+    }
+
+    /**
+     * MACD and signal from fast and slow EMAs already computed with {@link #ema}, so that parameter sets
+     * sharing a period can share its EMA. The result equals that of
+     * {@link #compute(double[], int, int, int, int, MACDSeries)} over the same closes.
+     *
+     * @param workspace series to reuse, or {@code null} to allocate a new one
+     */
+    public static MACDSeries fromEmas(double[] emaFast, double[] emaSlow, int length,
+                                      int fastPeriod, int slowPeriod, int signalPeriod, MACDSeries workspace) {
+        validate(fastPeriod, slowPeriod, signalPeriod);
+        MACDSeries series = workspace != null ? workspace : new MACDSeries();
+        series.reset(length, fastPeriod, slowPeriod, signalPeriod, Precision.DOUBLE);
+
+        System.arraycopy(emaFast, 0, series.emaFast, 0, length);
+        System.arraycopy(emaSlow, 0, series.emaSlow, 0, length);
+        int firstMacd = Math.min(slowPeriod - 1, length);
+        for (int i = firstMacd; i < length; i++) {
+            series.macd[i] = series.emaFast[i] - series.emaSlow[i];
+        }
+        ema(series.macd, firstMacd, length, signalPeriod, series.signal);
+        return series;
+    }
+
+    /**
+     * {@code BigDecimal} facade over the kernel in the {@linkplain Precision#configured() configured} precision.
+     */
+    public static MACDSeries compute(List<BigDecimal> closes, int fastPeriod, int slowPeriod, int signalPeriod) {
+        return compute(closes, fastPeriod, slowPeriod, signalPeriod, Precision.configured());
+    }
+
+    /**
+     * {@code BigDecimal} facade over the kernel in the given precision.
+     */
+    public static MACDSeries compute(List<BigDecimal> closes, int fastPeriod, int slowPeriod, int signalPeriod,
+                                     Precision precision) {
+        if (precision == Precision.EXACT_DECIMAL) {
+            return computeExact(closes, fastPeriod, slowPeriod, signalPeriod);
+        }
+        int length = closes.size();
+        double[] values = new double[length];
+        for (int i = 0; i < length; i++) {
+            values[i] = closes.get(i).doubleValue();
+        }
+        return compute(values, length, fastPeriod, slowPeriod, signalPeriod, null);
+    }
+
+    /**
+     * Upper bound of {@code |double - decimal|} for the MACD line, see the class documentation.
+     */
+    public static double macdErrorBound(int fastPeriod, int slowPeriod, double maxMagnitude) {
+        double step = DECIMAL_ROUNDING + 3 * ROUNDING_UNIT * maxMagnitude;
+        return step * (fastPeriod + 1) / 2 + step * (slowPeriod + 1) / 2 + DECIMAL_ROUNDING;
+    }
+
+    /**
+     * Upper bound of {@code |double - decimal|} for the signal line, see the class documentation.
+     */
+    public static double signalErrorBound(int fastPeriod, int slowPeriod, int signalPeriod, double maxMagnitude) {
+        double step = DECIMAL_ROUNDING + 3 * ROUNDING_UNIT * maxMagnitude;
+        return (macdErrorBound(fastPeriod, slowPeriod, maxMagnitude) + step) * (signalPeriod + 1) / 2;
+    }
+
+    private static MACDSeries computeExact(List<BigDecimal> closes, int fastPeriod, int slowPeriod, int signalPeriod) {
+        validate(fastPeriod, slowPeriod, signalPeriod);
+        int length = closes.size();
+        MACDSeries series = new MACDSeries();
+        series.reset(length, fastPeriod, slowPeriod, signalPeriod, Precision.EXACT_DECIMAL);
+
+        BigDecimal[] values = closes.toArray(new BigDecimal[0]);
+        emaExact(values, 0, length, fastPeriod, series.decimalEmaFast);
+        int firstMacd = emaExact(values, 0, length, slowPeriod, series.decimalEmaSlow);
+        for (int i = firstMacd; i < length; i++) {
+            series.decimalMacd[i] = series.decimalEmaFast[i].subtract(series.decimalEmaSlow[i])
+                    .setScale(DECIMAL_SCALE, RoundingMode.HALF_UP);
+        }
+        emaExact(series.decimalMacd, firstMacd, length, signalPeriod, series.decimalSignal);
+
+        for (int i = 0; i < length; i++) {
+            series.emaFast[i] = toDouble(series.decimalEmaFast[i]);
+            series.emaSlow[i] = toDouble(series.decimalEmaSlow[i]);
+            series.macd[i] = toDouble(series.decimalMacd[i]);
+            series.signal[i] = toDouble(series.decimalSignal[i]);
+        }
+        return series;
+    }
+
+    private static int emaExact(BigDecimal[] values, int from, int to, int period, BigDecimal[] out) {
+        int seedIndex = from + period - 1;
+        if (seedIndex >= to) {
+            return to;
+        }
+        BigDecimal multiplier = decimalMultiplier(period);
+        BigDecimal sum = BigDecimal.ZERO;
+        for (int i = from; i <= seedIndex; i++) {
+            sum = sum.add(values[i]);
+        }
+        BigDecimal ema = sum.divide(BigDecimal.valueOf(period), DECIMAL_SCALE, RoundingMode.HALF_UP);
+        out[seedIndex] = ema;
+        for (int i = seedIndex + 1; i < to; i++) {
+            ema = values[i].subtract(ema)
+                    .multiply(multiplier)
+                    .add(ema)
+                    .setScale(DECIMAL_SCALE, RoundingMode.HALF_UP);
+            out[i] = ema;
+        }
+        return seedIndex;
+    }
+
+    private static double toDouble(BigDecimal value) {
+        return value == null ? Double.NaN : value.doubleValue();
+    }
+
+    private static void validate(int fastPeriod, int slowPeriod, int signalPeriod) {
+        if (fastPeriod <= 0 || slowPeriod <= 0 || signalPeriod <= 0 || fastPeriod >= slowPeriod) {
+            throw new IllegalArgumentException("Invalid MACD periods: fast=%d slow=%d signal=%d"
+                    .formatted(fastPeriod, slowPeriod, signalPeriod));
+        }
+    }
+}
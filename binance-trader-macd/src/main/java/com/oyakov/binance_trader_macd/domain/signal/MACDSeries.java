@@ -0,0 +1,193 @@
+package com.oyakov.binance_trader_macd.domain.signal;
+
+import com.oyakov.binance_trader_macd.domain.TradeSignal;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.util.Arrays;
+
+/**
+ * Reusable output workspace of {@link MACDKernel}. All arrays are indexed like the input closes:
+ * {@code emaFast[i]} is the fast EMA after close {@code i}, and so on. Values that are not defined
+ * yet (before the EMA seeds) are {@code NaN} in the primitive arrays and {@code null} in the decimal ones.
+ * <p>
+ * The primitive arrays are always filled. The decimal arrays are only filled in
+ * {@link MACDKernel.Precision#EXACT_DECIMAL} mode; in {@link MACDKernel.Precision#DOUBLE} mode the
+ * {@code *Decimal} accessors convert the double value to scale {@value MACDKernel#DECIMAL_SCALE}.
+ */
+public class MACDSeries {
+
+    double[] emaFast = new double[0];
+    double[] emaSlow = new double[0];
+    double[] macd = new double[0];
+    double[] signal = new double[0];
+
+    BigDecimal[] decimalEmaFast;
+    BigDecimal[] decimalEmaSlow;
+    BigDecimal[] decimalMacd;
+    BigDecimal[] decimalSignal;
+
+    int length;
+    int fastPeriod;
+    int slowPeriod;
+    int signalPeriod;
+    MACDKernel.Precision precision = MACDKernel.Precision.DOUBLE;
+
+    void reset(int length, int fastPeriod, int slowPeriod, int signalPeriod, MACDKernel.Precision precision) {
+        this.length = length;
+        this.fastPeriod = fastPeriod;
+        this.slowPeriod = slowPeriod;
+        this.signalPeriod = signalPeriod;
+        this.precision = precision;
+        if (emaFast.length < length) {
+            emaFast = new double[length];
+            emaSlow = new double[length];
+            macd = new double[length];
+            signal = new double[length];
+        }
+        Arrays.fill(emaFast, 0, length, Double.NaN);
+        Arrays.fill(emaSlow, 0, length, Double.NaN);
+        Arrays.fill(macd, 0, length, Double.NaN);
+        Arrays.fill(signal, 0, length, Double.NaN);
+        if (precision == MACDKernel.Precision.EXACT_DECIMAL) {
+            decimalEmaFast = new BigDecimal[length];
+            decimalEmaSlow = new BigDecimal[length];
+            decimalMacd = new BigDecimal[length];
+            decimalSignal = new BigDecimal[length];
+        } else {
+            decimalEmaFast = null;
+            decimalEmaSlow = null;
+            decimalMacd = null;
+            decimalSignal = null;
+        }
+    }
+
+    public int length() {
+        return length;
+    }
+
+    public MACDKernel.Precision precision() {
+        return precision;
+    }
+
+    public int getFastPeriod() {
+        return fastPeriod;
+    }
+
+    public int getSlowPeriod() {
+        return slowPeriod;
+    }
+
+    public int getSignalPeriod() {
+        return signalPeriod;
+    }
+
+    /**
+     * @return index of the first close with a defined MACD value
+     */
+    public int firstMacdIndex() {
+        return slowPeriod - 1;
+    }
+
+    /**
+     * @return index of the first close with a defined signal value
+     */
+    public int firstSignalIndex() {
+        return slowPeriod + signalPeriod - 2;
+    }
+
+    public boolean hasSignal(int i) {
+        return i >= firstSignalIndex() && i < length;
+    }
+
+    public double emaFast(int i) {
+        return emaFast[i];
+    }
+
+    public double emaSlow(int i) {
+        return emaSlow[i];
+    }
+
+    public double macd(int i) {
+        return macd[i];
+    }
+
+    public double signal(int i) {
+        return signal[i];
+    }
+
+    public double histogram(int i) {
+        return macd[i] - signal[i];
+    }
+
+    public BigDecimal emaFastDecimal(int i) {
+        return decimalEmaFast != null ? decimalEmaFast[i] : toDecimal(emaFast[i]);
+    }
+
+    public BigDecimal emaSlowDecimal(int i) {
+        return decimalEmaSlow != null ? decimalEmaSlow[i] : toDecimal(emaSlow[i]);
+    }
+
+    public BigDecimal macdDecimal(int i) {
+        return decimalMacd != null ? decimalMacd[i] : toDecimal(macd[i]);
+    }
+
+    public BigDecimal signalDecimal(int i) {
+        return decimalSignal != null ? decimalSignal[i] : toDecimal(signal[i]);
+    }
+
+    /**
+     * Sign of {@code macd[macdIndex] - signal[signalIndex]}, evaluated in this series' precision.
+     */
+    public int diffSign(int macdIndex, int signalIndex) {
+        if (decimalMacd != null) {
+            return decimalMacd[macdIndex].compareTo(decimalSignal[signalIndex]);
+        }
+        double diff = macd[macdIndex] - signal[signalIndex];
+        return diff > 0 ? 1 : diff < 0 ? -1 : 0;
+    }
+
+    /**
+     * Conventional crossover at close {@code i}: MACD and signal of the same close are compared with
+     * those of the previous close.
+     *
+     * @return the crossover direction, or {@code null} when there is none
+     */
+    public TradeSignal crossoverAt(int i) {
+        if (i - 1 < firstSignalIndex() || i >= length) {
+            return null;
+        }
+        return crossover(diffSign(i - 1, i - 1), diffSign(i, i));
+    }
+
+    /**
+     * Crossover at close {@code i} as {@link MACDSignalAnalyzer} and the backtest analyzers have always
+     * computed it: they index the MACD and signal lists from the same start, so the signal value of
+     * close {@code i} is compared with the MACD value {@code signalPeriod - 1} closes earlier.
+     *
+     * @return the crossover direction, or {@code null} when there is none
+     */
+    public TradeSignal laggedCrossoverAt(int i) {
+        if (i - 1 < firstSignalIndex() || i >= length) {
+            return null;
+        }
+        int lag = signalPeriod - 1;
+        return crossover(diffSign(i - 1 - lag, i - 1), diffSign(i - lag, i));
+    }
+
+    static TradeSignal crossover(int prevSign, int currSign) {
+        if (prevSign <= 0 && currSign > 0) {
+            return TradeSignal.BUY;
+        } else if (prevSign >= 0 && currSign < 0) {
+            return TradeSignal.SELL;
+        }
+        return null;
+    }
+
+    private static BigDecimal toDecimal(double value) {
+        if (Double.isNaN(value)) {
+            return null;
+        }
+        return BigDecimal.valueOf(value).setScale(MACDKernel.DECIMAL_SCALE, RoundingMode.HALF_UP);
+    }
+}
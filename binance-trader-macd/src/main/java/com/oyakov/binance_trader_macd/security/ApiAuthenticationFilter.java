@@ -77,7 +77,7 @@ public class ApiAuthenticationFilter extends OncePerRequestFilter {
         }
 
         // Check API key permissions for the requested endpoint
-        if (!apiKeyService.hasPermission(apiKey, requestPath, request.getMethod())) {
+        if (!apiKeyService.hasPermission(validationResult, requestPath, request.getMethod())) {
             log.warn("Insufficient permissions for API key on request: {} {} from IP: {}", 
                     request.getMethod(), requestPath, request.getRemoteAddr());
             sendForbiddenResponse(response, "Insufficient permissions for this endpoint.");
@@ -1,34 +1,50 @@
 package com.oyakov.binance_trader_macd.security;
 
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 
-import javax.crypto.Mac;
-import javax.crypto.spec.SecretKeySpec;
 import java.nio.charset.StandardCharsets;
 import java.security.MessageDigest;
+import java.time.Clock;
+import java.time.Duration;
 import java.util.*;
-import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Predicate;
+import java.util.regex.Pattern;
+import java.util.stream.Collectors;
 
 /**
- * Service for managing and validating API keys
+ * Service for managing and validating API keys.
+ * <p>
+ * Validation results are cached under the SHA-256 of the key: valid keys for {@code api.key.cache.ttl}, unknown
+ * keys for {@code api.key.cache.negative-ttl}. The cache holds at most {@code api.key.cache.max-size} keys and
+ * evicts the least recently used one first, so requests with arbitrary junk keys cannot grow it without limit.
+ * Lookups are published as {@code binance.trader.api.key.cache} hit and miss counters.
  */
 @Slf4j
 @Service
 public class ApiKeyService {
 
-    @Value("${api.key.admin:}")
-    private String adminApiKey;
+    private final String adminApiKey;
+    private final String monitoringApiKey;
+    private final String readonlyApiKey;
 
-    @Value("${api.key.monitoring:}")
-    private String monitoringApiKey;
+    private final int cacheMaxSize;
+    private final long ttlMillis;
+    private final long negativeTtlMillis;
+    private final Clock clock;
 
-    @Value("${api.key.readonly:}")
-    private String readonlyApiKey;
+    // Access ordered, so the eldest entry is the least recently used key
+    private final LinkedHashMap<String, CachedValidation> validationCache = new LinkedHashMap<>(16, 0.75f, true);
 
-    // Cache for validated API keys (simple implementation)
-    private final Map<String, ApiKeyValidationResult> validationCache = new ConcurrentHashMap<>();
+    private final Counter hits;
+    private final Counter misses;
+    private final Counter sizeEvictions;
+    private final Counter expiredEvictions;
 
     // API key permissions
     private static final Map<String, Set<String>> PERMISSIONS = Map.of(
@@ -37,6 +53,58 @@ public class ApiKeyService {
         "READONLY", Set.of("/api/v1/macd/signals", "/api/v1/trader/status")
     );
 
+    // Allowed path patterns of every key type, compiled once
+    private static final Map<String, Predicate<String>> PATH_MATCHERS = PERMISSIONS.entrySet().stream()
+        .collect(Collectors.toUnmodifiableMap(Map.Entry::getKey, entry -> compilePathMatcher(entry.getValue())));
+
+    @Autowired
+    public ApiKeyService(@Value("${api.key.admin:}") String adminApiKey,
+                         @Value("${api.key.monitoring:}") String monitoringApiKey,
+                         @Value("${api.key.readonly:}") String readonlyApiKey,
+                         @Value("${api.key.cache.max-size:10000}") int cacheMaxSize,
+                         @Value("${api.key.cache.ttl:5m}") Duration ttl,
+                         @Value("${api.key.cache.negative-ttl:30s}") Duration negativeTtl,
+                         MeterRegistry meterRegistry) {
+        this(adminApiKey, monitoringApiKey, readonlyApiKey, cacheMaxSize, ttl, negativeTtl, meterRegistry,
+            Clock.systemUTC());
+    }
+
+    ApiKeyService(String adminApiKey,
+                  String monitoringApiKey,
+                  String readonlyApiKey,
+                  int cacheMaxSize,
+                  Duration ttl,
+                  Duration negativeTtl,
+                  MeterRegistry meterRegistry,
+                  Clock clock) {
+        this.adminApiKey = adminApiKey;
+        this.monitoringApiKey = monitoringApiKey;
+        this.readonlyApiKey = readonlyApiKey;
+        this.cacheMaxSize = cacheMaxSize;
+        this.ttlMillis = ttl.toMillis();
+        this.negativeTtlMillis = negativeTtl.toMillis();
+        this.clock = clock;
+        this.hits = Counter.builder("binance.trader.api.key.cache")
+            .description("API key validations served from the validation cache")
+            .tag("result", "hit")
+            .register(meterRegistry);
+        this.misses = Counter.builder("binance.trader.api.key.cache")
+            .description("API key validations checked against the configured keys")
+            .tag("result", "miss")
+            .register(meterRegistry);
+        this.sizeEvictions = Counter.builder("binance.trader.api.key.cache.evictions")
+            .description("Keys dropped from the API key validation cache")
+            .tag("reason", "size")
+            .register(meterRegistry);
+        this.expiredEvictions = Counter.builder("binance.trader.api.key.cache.evictions")
+            .description("Keys dropped from the API key validation cache")
+            .tag("reason", "expired")
+            .register(meterRegistry);
+        Gauge.builder("binance.trader.api.key.cache.size", this, ApiKeyService::cacheSize)
+            .description("Keys held by the API key validation cache")
+            .register(meterRegistry);
+    }
+
     /**
      * Validate API key
      */
@@ -45,14 +113,26 @@ public class ApiKeyService {
             return ApiKeyValidationResult.invalid("API key is null or empty");
         }
 
+        String cacheKey = hashApiKey(apiKey);
+        long now = clock.millis();
+
         // Check cache first
-        if (validationCache.containsKey(hashApiKey(apiKey))) {
-            return validationCache.get(hashApiKey(apiKey));
+        synchronized (validationCache) {
+            CachedValidation cached = validationCache.get(cacheKey);
+            if (cached != null) {
+                if (cached.expiresAt() > now) {
+                    hits.increment();
+                    return cached.result();
+                }
+                validationCache.remove(cacheKey);
+                expiredEvictions.increment();
+            }
         }
+        misses.increment();
 
         // Validate against configured keys
         ApiKeyValidationResult result;
-        
+
         if (apiKey.equals(adminApiKey)) {
             result = ApiKeyValidationResult.valid("admin", "ADMIN", PERMISSIONS.get("ADMIN"));
         } else if (apiKey.equals(monitoringApiKey)) {
@@ -63,9 +143,16 @@ public class ApiKeyService {
             result = ApiKeyValidationResult.invalid("API key not found");
         }
 
-        // Cache the result
-        if (result.isValid()) {
-            validationCache.put(hashApiKey(apiKey), result);
+        // Cache the result, unknown keys only briefly
+        long expiresAt = now + (result.isValid() ? ttlMillis : negativeTtlMillis);
+        synchronized (validationCache) {
+            validationCache.put(cacheKey, new CachedValidation(result, expiresAt));
+            Iterator<CachedValidation> eldest = validationCache.values().iterator();
+            while (validationCache.size() > cacheMaxSize) {
+                eldest.next();
+                eldest.remove();
+                sizeEvictions.increment();
+            }
         }
 
         return result;
@@ -75,40 +162,42 @@ public class ApiKeyService {
      * Check if API key has permission for specific endpoint
      */
     public boolean hasPermission(String apiKey, String path, String method) {
-        ApiKeyValidationResult validation = validateApiKey(apiKey);
-        
+        return hasPermission(validateApiKey(apiKey), path, method);
+    }
+
+    /**
+     * Check if an already validated API key has permission for specific endpoint
+     */
+    public boolean hasPermission(ApiKeyValidationResult validation, String path, String method) {
         if (!validation.isValid()) {
             return false;
         }
 
-        Set<String> allowedPaths = validation.getAllowedPaths();
-        
-        // Check if path matches any allowed pattern
-        for (String allowedPath : allowedPaths) {
-            if (allowedPath.equals("/**")) {
-                return true; // Admin has access to everything
-            }
-            
-            if (pathMatches(path, allowedPath)) {
-                // Check method restrictions
-                if (validation.getKeyType().equals("READONLY") && 
-                    !method.equalsIgnoreCase("GET")) {
-                    return false; // Readonly keys can only use GET
-                }
-                return true;
-            }
+        Predicate<String> matcher = PATH_MATCHERS.get(validation.getKeyType());
+        if (matcher == null || !matcher.test(path)) {
+            return false;
         }
 
-        return false;
+        // Readonly keys can only use GET
+        return !validation.getKeyType().equals("READONLY") || method.equalsIgnoreCase("GET");
     }
 
     /**
-     * Check if path matches the allowed pattern
+     * One regular expression for all allowed patterns, with the wildcards of the per-pattern matching it
+     * replaces: {@code *} matches within one segment, and so does {@code **}, which becomes {@code .[^/]*}.
      */
-    private boolean pathMatches(String path, String pattern) {
-        // Simple wildcard matching
-        String regex = pattern.replace("**", ".*").replace("*", "[^/]*");
-        return path.matches(regex);
+    private static Predicate<String> compilePathMatcher(Set<String> allowedPaths) {
+        if (allowedPaths.contains("/**")) {
+            return path -> true; // Admin has access to everything
+        }
+        String regex = allowedPaths.stream()
+            .map(ApiKeyService::toRegex)
+            .collect(Collectors.joining("|"));
+        return Pattern.compile(regex).asMatchPredicate();
+    }
+
+    private static String toRegex(String pattern) {
+        return "(?:" + pattern.replace("**", ".*").replace("*", "[^/]*") + ")";
     }
 
     /**
@@ -125,13 +214,22 @@ public class ApiKeyService {
         }
     }
 
+    private int cacheSize() {
+        synchronized (validationCache) {
+            return validationCache.size();
+        }
+    }
+
     /**
      * Clear validation cache (for key rotation)
      */
     public void clearCache() {
-        validationCache.clear();
+        synchronized (validationCache) {
+            validationCache.clear();
+        }
         log.info("API key validation cache cleared");
     }
-}
-
 
+    private record CachedValidation(ApiKeyValidationResult result, long expiresAt) {
+    }
+}
@@ -1,21 +1,32 @@
 package com.oyakov.binance_trader_macd.service;
 
+import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.fasterxml.jackson.databind.MappingIterator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
 import com.oyakov.binance_shared_model.avro.KlineEvent;
+import com.oyakov.binance_shared_model.backtest.ColumnarKlineDataset;
 import com.oyakov.binance_trader_macd.config.MACDTraderConfig;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.log4j.Log4j2;
 import org.springframework.core.ParameterizedTypeReference;
 import org.springframework.http.HttpMethod;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
+import org.springframework.http.client.ClientHttpResponse;
 import org.springframework.stereotype.Service;
+import org.springframework.web.client.HttpClientErrorException;
 import org.springframework.web.client.RestTemplate;
 
+import java.io.IOException;
+import java.io.InputStream;
 import java.math.BigDecimal;
 import java.time.Instant;
 import java.time.LocalDateTime;
 import java.time.ZoneOffset;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.Optional;
 
 /**
  * Service for accessing kline data from the shared data storage service.
@@ -26,11 +37,18 @@ import java.util.List;
 @Log4j2
 public class KlineDataAccessService {
 
+    private static final MediaType COLUMNAR = MediaType.parseMediaType(ColumnarKlineDataset.MEDIA_TYPE);
+    private static final ObjectReader KLINE_LINE_READER = new ObjectMapper()
+        .disable(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES)
+        .readerFor(KlineDataResponse.class);
+
     private final RestTemplate restTemplate;
     private final MACDTraderConfig config;
+    private final KlineRingCache klineCache;
 
     /**
-     * Get recent klines for a symbol and interval from the shared database
+     * Get recent klines for a symbol and interval, from the in-process {@link KlineRingCache} when it holds
+     * a fresh copy of the series and from the shared database otherwise. Storage responses seed the cache.
      * 
      * @param symbol Trading pair symbol (e.g., "BTCUSDT")
      * @param interval Kline interval (e.g., "1h", "4h", "1d")
@@ -38,20 +56,28 @@ public class KlineDataAccessService {
      * @return List of recent klines as KlineEvent objects
      */
     public List<KlineEvent> getRecentKlines(String symbol, String interval, int limit) {
+        Optional<List<KlineEvent>> cached = klineCache.getRecent(symbol, interval, limit);
+        if (cached.isPresent()) {
+            log.debug("Served {} recent klines for {} {} from kline cache", cached.get().size(), symbol, interval);
+            return cached.get();
+        }
+        List<KlineEvent> klineEvents = fetchRecentKlines(symbol, interval, limit);
+        klineCache.seed(symbol, interval, limit, klineEvents);
+        return klineEvents;
+    }
+
+    private List<KlineEvent> fetchRecentKlines(String symbol, String interval, int limit) {
         try {
             log.debug("Fetching {} recent klines for {} {} from data storage", limit, symbol, interval);
             
             String url = String.format("%s/api/v1/klines/recent?symbol=%s&interval=%s&limit=%d", 
                 config.getData().getStorage().getBaseUrl(), symbol, interval, limit);
             
-            ResponseEntity<List<KlineDataResponse>> response = restTemplate.exchange(
-                url, HttpMethod.GET, null, new ParameterizedTypeReference<List<KlineDataResponse>>() {});
+            List<KlineEvent> klineEvents = restTemplate.execute(url, HttpMethod.GET,
+                request -> request.getHeaders().setAccept(List.of(COLUMNAR, MediaType.APPLICATION_JSON)),
+                this::readKlines);
             
-            if (response.getBody() != null) {
-                List<KlineEvent> klineEvents = response.getBody().stream()
-                    .map(this::convertToKlineEvent)
-                    .toList();
-                
+            if (klineEvents != null) {
                 log.info("Retrieved {} klines for {} {} from data storage", klineEvents.size(), symbol, interval);
                 return klineEvents;
             } else {
@@ -66,7 +92,10 @@ public class KlineDataAccessService {
     }
 
     /**
-     * Get klines for a specific time range from the shared database
+     * Get klines for a specific time range from the shared database.
+     * The range is requested from {@code /range} in the columnar binary format. Storage services that do not
+     * offer it are asked for an NDJSON stream, converted line by line, and those without the stream for the
+     * range as one JSON response.
      * 
      * @param symbol Trading pair symbol
      * @param interval Kline interval
@@ -75,6 +104,62 @@ public class KlineDataAccessService {
      * @return List of klines in the time range
      */
     public List<KlineEvent> getKlinesByRange(String symbol, String interval, long startTime, long endTime) {
+        try {
+            log.debug("Fetching klines for {} {} from {} to {} from data storage as columns", 
+                symbol, interval, startTime, endTime);
+            
+            String url = String.format("%s/api/v1/klines/range?symbol=%s&interval=%s&startTime=%d&endTime=%d", 
+                config.getData().getStorage().getBaseUrl(), symbol, interval, startTime, endTime);
+            
+            List<KlineEvent> klineEvents = restTemplate.execute(url, HttpMethod.GET,
+                request -> request.getHeaders().setAccept(List.of(COLUMNAR)),
+                this::readKlines);
+            
+            log.info("Retrieved {} klines for {} {} in range from data storage", 
+                klineEvents != null ? klineEvents.size() : 0, symbol, interval);
+            return klineEvents != null ? klineEvents : new ArrayList<>();
+            
+        } catch (HttpClientErrorException.NotAcceptable | HttpClientErrorException.NotFound e) {
+            log.info("Columnar ranges not available on data storage, streaming the range instead");
+            return streamKlinesByRange(symbol, interval, startTime, endTime);
+        } catch (Exception e) {
+            log.error("Error fetching klines by range for {} {} from data storage", symbol, interval, e);
+            return new ArrayList<>();
+        }
+    }
+
+    /**
+     * Range as an NDJSON stream, for storage services without columnar ranges
+     */
+    private List<KlineEvent> streamKlinesByRange(String symbol, String interval, long startTime, long endTime) {
+        try {
+            log.debug("Streaming klines for {} {} from {} to {} from data storage", 
+                symbol, interval, startTime, endTime);
+            
+            String url = String.format("%s/api/v1/klines/range/stream?symbol=%s&interval=%s&startTime=%d&endTime=%d", 
+                config.getData().getStorage().getBaseUrl(), symbol, interval, startTime, endTime);
+            
+            List<KlineEvent> klineEvents = restTemplate.execute(url, HttpMethod.GET,
+                request -> request.getHeaders().setAccept(List.of(MediaType.APPLICATION_NDJSON)),
+                this::readKlines);
+            
+            log.info("Retrieved {} klines for {} {} in range from data storage", 
+                klineEvents != null ? klineEvents.size() : 0, symbol, interval);
+            return klineEvents != null ? klineEvents : new ArrayList<>();
+            
+        } catch (HttpClientErrorException.NotFound e) {
+            log.info("Kline stream not available on data storage, requesting range in one response");
+            return getKlinesByRangeInOneResponse(symbol, interval, startTime, endTime);
+        } catch (Exception e) {
+            log.error("Error fetching klines by range for {} {} from data storage", symbol, interval, e);
+            return new ArrayList<>();
+        }
+    }
+
+    /**
+     * Whole range as one JSON array, for storage services without the streaming endpoint
+     */
+    private List<KlineEvent> getKlinesByRangeInOneResponse(String symbol, String interval, long startTime, long endTime) {
         try {
             log.debug("Fetching klines for {} {} from {} to {} from data storage", 
                 symbol, interval, startTime, endTime);
@@ -151,6 +236,27 @@ public class KlineDataAccessService {
         }
     }
 
+    /**
+     * Decode a kline response by its content type: columnar binary, or JSON as an array or one kline per line
+     */
+    private List<KlineEvent> readKlines(ClientHttpResponse response) throws IOException {
+        MediaType contentType = response.getHeaders().getContentType();
+        if (contentType != null && COLUMNAR.isCompatibleWith(contentType)) {
+            return new ArrayList<>(ColumnarKlineDataset.read(response.getBody()).klineEvents());
+        }
+        return readKlineStream(response.getBody());
+    }
+
+    private List<KlineEvent> readKlineStream(InputStream body) throws IOException {
+        List<KlineEvent> klineEvents = new ArrayList<>();
+        try (MappingIterator<KlineDataResponse> lines = KLINE_LINE_READER.readValues(body)) {
+            while (lines.hasNextValue()) {
+                klineEvents.add(convertToKlineEvent(lines.nextValue()));
+            }
+        }
+        return klineEvents;
+    }
+
     /**
      * Convert KlineDataResponse to KlineEvent
      */
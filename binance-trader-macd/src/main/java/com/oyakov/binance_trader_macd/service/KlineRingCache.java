@@ -0,0 +1,243 @@
+package com.oyakov.binance_trader_macd.service;
+
+import com.oyakov.binance_shared_model.avro.KlineEvent;
+import com.oyakov.binance_trader_macd.config.MACDTraderConfig;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.log4j.Log4j2;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import java.time.Clock;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Hot tail of every (symbol, interval) series the trader reads, so that the MACD calculated on every
+ * kline does not fetch the same recent klines from data storage again.
+ * <p>
+ * A series is seeded from one storage response and then kept current with the klines arriving from
+ * Kafka: an update of the newest kline replaces it, the following kline is appended and overwrites the
+ * oldest slot once the ring is full. A kline that leaves a gap drops the series, so the next read seeds
+ * it again. A series is stale once its next kline is overdue by more than {@code stale-grace}; stale
+ * series are dropped on read. At most {@code max-series} series are kept, the least recently read one
+ * is evicted first.
+ * <p>
+ * Reads and writes of one series are serialised on that series; lookups are published as
+ * {@code binance.trader.kline.cache} hit and miss counters.
+ */
+@Component
+@Log4j2
+public class KlineRingCache {
+
+    private final boolean enabled;
+    private final int capacity;
+    private final int maxSeries;
+    private final long staleGraceMillis;
+    private final Clock clock;
+    private final Map<SeriesKey, Series> series = new ConcurrentHashMap<>();
+    private final Counter hits;
+    private final Counter misses;
+    private final Counter evictions;
+
+    @Autowired
+    public KlineRingCache(MACDTraderConfig config, MeterRegistry meterRegistry) {
+        this(config.getData().getKline().getCache(), meterRegistry, Clock.systemUTC());
+    }
+
+    public KlineRingCache(MACDTraderConfig.Data.Kline.Cache properties, MeterRegistry meterRegistry, Clock clock) {
+        this.enabled = properties.getEnabled();
+        this.capacity = properties.getCapacity();
+        this.maxSeries = properties.getMaxSeries();
+        this.staleGraceMillis = properties.getStaleGrace().toMillis();
+        this.clock = clock;
+        this.hits = Counter.builder("binance.trader.kline.cache")
+                .description("Recent kline lookups served by the in-process kline cache")
+                .tag("result", "hit")
+                .register(meterRegistry);
+        this.misses = Counter.builder("binance.trader.kline.cache")
+                .description("Recent kline lookups forwarded to data storage")
+                .tag("result", "miss")
+                .register(meterRegistry);
+        this.evictions = Counter.builder("binance.trader.kline.cache.evictions")
+                .description("Series dropped from the kline cache")
+                .register(meterRegistry);
+        Gauge.builder("binance.trader.kline.cache.series", series, Map::size)
+                .description("Series held by the kline cache")
+                .register(meterRegistry);
+    }
+
+    /**
+     * The newest {@code limit} klines of the series in close time order, or empty when the series is not
+     * cached, is stale, or holds fewer klines than requested.
+     */
+    public Optional<List<KlineEvent>> getRecent(String symbol, String interval, int limit) {
+        if (!enabled) {
+            return Optional.empty();
+        }
+        SeriesKey key = SeriesKey.of(symbol, interval);
+        Series cached = series.get(key);
+        if (cached == null) {
+            misses.increment();
+            return Optional.empty();
+        }
+        long now = clock.millis();
+        List<KlineEvent> klines;
+        synchronized (cached) {
+            if (cached.isStale(now, staleGraceMillis)) {
+                evict(key, cached, "stale");
+                misses.increment();
+                return Optional.empty();
+            }
+            if (cached.size < limit && !cached.complete) {
+                misses.increment();
+                return Optional.empty();
+            }
+            klines = cached.newest(limit);
+            cached.lastRead = now;
+        }
+        hits.increment();
+        return Optional.of(klines);
+    }
+
+    /**
+     * Replace the series with the klines storage returned for a request of {@code requested} klines.
+     * A response shorter than the request holds the whole stored history of the series.
+     */
+    public void seed(String symbol, String interval, int requested, List<KlineEvent> klines) {
+        if (!enabled || klines.isEmpty()) {
+            return;
+        }
+        SeriesKey key = SeriesKey.of(symbol, interval);
+        Series seeded = new Series(capacity);
+        klines.stream()
+                .sorted(Comparator.comparingLong(KlineEvent::getCloseTime))
+                .forEach(seeded::add);
+        seeded.complete = klines.size() < requested && klines.size() <= capacity;
+        seeded.lastRead = clock.millis();
+        if (!series.containsKey(key) && series.size() >= maxSeries) {
+            evictLeastRecentlyRead();
+        }
+        series.put(key, seeded);
+        log.debug("Seeded kline cache for {} {} with {} klines", key.symbol(), key.interval(), seeded.size);
+    }
+
+    /**
+     * Apply a kline received from Kafka to its series, if that series is cached.
+     */
+    public void append(KlineEvent kline) {
+        if (!enabled) {
+            return;
+        }
+        SeriesKey key = SeriesKey.of(kline.getSymbol(), kline.getInterval());
+        Series cached = series.get(key);
+        if (cached == null) {
+            return;
+        }
+        synchronized (cached) {
+            if (!cached.apply(kline)) {
+                evict(key, cached, "gap");
+            }
+        }
+    }
+
+    public int getSeriesCount() {
+        return series.size();
+    }
+
+    private void evictLeastRecentlyRead() {
+        series.entrySet().stream()
+                .min(Comparator.comparingLong(entry -> entry.getValue().lastRead))
+                .ifPresent(entry -> evict(entry.getKey(), entry.getValue(), "capacity"));
+    }
+
+    private void evict(SeriesKey key, Series evicted, String reason) {
+        if (series.remove(key, evicted)) {
+            evictions.increment();
+            log.debug("Evicted {} {} from kline cache ({})", key.symbol(), key.interval(), reason);
+        }
+    }
+
+    private record SeriesKey(String symbol, String interval) {
+        static SeriesKey of(String symbol, String interval) {
+            return new SeriesKey(symbol.toUpperCase(), interval);
+        }
+    }
+
+    /**
+     * Ring of the newest klines of one series in open time order; {@code head} is the oldest slot.
+     */
+    private static final class Series {
+
+        private final KlineEvent[] ring;
+        private int head;
+        private int size;
+        private boolean complete;
+        private volatile long lastRead;
+
+        private Series(int capacity) {
+            this.ring = new KlineEvent[capacity];
+        }
+
+        private KlineEvent get(int i) {
+            return ring[(head + i) % ring.length];
+        }
+
+        private void add(KlineEvent kline) {
+            if (size < ring.length) {
+                ring[(head + size) % ring.length] = kline;
+                size++;
+            } else {
+                ring[head] = kline;
+                head = (head + 1) % ring.length;
+                complete = false;
+            }
+        }
+
+        /**
+         * @return false when the kline leaves a gap after the newest one
+         */
+        private boolean apply(KlineEvent kline) {
+            KlineEvent newest = get(size - 1);
+            if (kline.getOpenTime() == newest.getCloseTime() + 1) {
+                add(kline);
+                return true;
+            }
+            if (kline.getOpenTime() > newest.getOpenTime()) {
+                return false;
+            }
+            for (int i = size - 1; i >= 0; i--) {
+                long openTime = get(i).getOpenTime();
+                if (openTime == kline.getOpenTime()) {
+                    ring[(head + i) % ring.length] = kline;
+                    return true;
+                }
+                if (openTime < kline.getOpenTime()) {
+                    break;
+                }
+            }
+            // older than the ring or not on its grid: nothing cached to update
+            return true;
+        }
+
+        private boolean isStale(long now, long graceMillis) {
+            KlineEvent newest = get(size - 1);
+            long intervalMillis = newest.getCloseTime() - newest.getOpenTime() + 1;
+            return now > newest.getCloseTime() + intervalMillis + graceMillis;
+        }
+
+        private List<KlineEvent> newest(int limit) {
+            int count = Math.min(limit, size);
+            List<KlineEvent> klines = new ArrayList<>(count);
+            for (int i = size - count; i < size; i++) {
+                klines.add(get(i));
+            }
+            return klines;
+        }
+    }
+}
@@ -0,0 +1,171 @@
+package com.oyakov.binance_trader_macd.service;
+
+import com.oyakov.binance_shared_model.avro.KlineEvent;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.log4j.Log4j2;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import java.util.Map;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+
+/**
+ * Routes kline events to one shard per (symbol, interval). Each shard drains its own queue on a
+ * single lane of the shared executor, so events of one series are processed strictly in arrival
+ * order, different series are processed in parallel, and no event is ever dropped.
+ * <p>
+ * Each shard queue holds at most {@code queueCapacity} events. When it is full, {@link #dispatch} blocks the
+ * calling Kafka listener until the lane catches up, so a slow series slows down consumption instead of
+ * piling up on the heap. Offsets are committed once {@link #dispatch} returns, i.e. when the event is queued,
+ * not when it is processed: delivery is at-most-once for the events still queued when the process dies. On
+ * shutdown the lanes get a few seconds to drain their queues.
+ * <p>
+ * Per-shard queue depth ({@code binance.trader.shard.queue.depth}) and enqueue-to-processing lag
+ * ({@code binance.trader.shard.lag}) are published to the {@link MeterRegistry}.
+ */
+@Component
+@Log4j2
+public class KlineShardDispatcher {
+
+    static final int DEFAULT_QUEUE_CAPACITY = 1_000;
+
+    private final Executor executor;
+    private final MeterRegistry meterRegistry;
+    private final int queueCapacity;
+    private final Map<ShardKey, Shard> shards = new ConcurrentHashMap<>();
+
+    @Autowired
+    public KlineShardDispatcher(MeterRegistry meterRegistry) {
+        this(Executors.newVirtualThreadPerTaskExecutor(), meterRegistry);
+    }
+
+    public KlineShardDispatcher(Executor executor, MeterRegistry meterRegistry) {
+        this(executor, meterRegistry, DEFAULT_QUEUE_CAPACITY);
+    }
+
+    public KlineShardDispatcher(Executor executor, MeterRegistry meterRegistry, int queueCapacity) {
+        this.executor = executor;
+        this.meterRegistry = meterRegistry;
+        this.queueCapacity = queueCapacity;
+    }
+
+    /**
+     * Enqueue the kline on its (symbol, interval) shard; the handler runs on that shard's lane. Blocks while
+     * the shard queue is full.
+     *
+     * @throws IllegalStateException when interrupted while waiting for room in the queue; the event is not queued
+     */
+    public void dispatch(KlineEvent klineEvent, Consumer<KlineEvent> handler) {
+        shards.computeIfAbsent(new ShardKey(klineEvent.getSymbol(), klineEvent.getInterval()), Shard::new)
+                .submit(klineEvent, handler);
+    }
+
+    public int getQueueDepth(String symbol, String interval) {
+        Shard shard = shards.get(new ShardKey(symbol, interval));
+        return shard == null ? 0 : shard.depth.get();
+    }
+
+    public int getShardCount() {
+        return shards.size();
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        if (executor instanceof ExecutorService executorService) {
+            executorService.shutdown();
+            try {
+                if (!executorService.awaitTermination(5, TimeUnit.SECONDS)) {
+                    executorService.shutdownNow();
+                }
+            } catch (InterruptedException e) {
+                executorService.shutdownNow();
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+
+    private record ShardKey(String symbol, String interval) {
+    }
+
+    private record Task(KlineEvent klineEvent, Consumer<KlineEvent> handler, long enqueuedAtNanos) {
+    }
+
+    private final class Shard implements Runnable {
+
+        private final ShardKey key;
+        private final BlockingQueue<Task> queue;
+        private final AtomicInteger depth = new AtomicInteger();
+        private final AtomicBoolean scheduled = new AtomicBoolean();
+        private final Timer lag;
+
+        private Shard(ShardKey key) {
+            this.key = key;
+            this.queue = new LinkedBlockingQueue<>(queueCapacity);
+            Gauge.builder("binance.trader.shard.queue.depth", depth, AtomicInteger::get)
+                    .description("Kline events waiting in or for the (symbol, interval) shard queue")
+                    .tag("symbol", key.symbol())
+                    .tag("interval", key.interval())
+                    .register(meterRegistry);
+            this.lag = Timer.builder("binance.trader.shard.lag")
+                    .description("Time a kline event waits in its shard queue before processing")
+                    .tag("symbol", key.symbol())
+                    .tag("interval", key.interval())
+                    .register(meterRegistry);
+        }
+
+        private void submit(KlineEvent klineEvent, Consumer<KlineEvent> handler) {
+            Task task = new Task(klineEvent, handler, System.nanoTime());
+            // Counted before it is queued, so the lane never takes an event the gauge does not show yet
+            depth.incrementAndGet();
+            if (!queue.offer(task)) {
+                log.debug("Shard queue {} {} is full, waiting for the lane to catch up", key.symbol(), key.interval());
+                try {
+                    queue.put(task);
+                } catch (InterruptedException e) {
+                    depth.decrementAndGet();
+                    Thread.currentThread().interrupt();
+                    throw new IllegalStateException("Interrupted while waiting for room in shard queue "
+                            + key.symbol() + " " + key.interval(), e);
+                }
+            }
+            schedule();
+        }
+
+        private void schedule() {
+            if (scheduled.compareAndSet(false, true)) {
+                executor.execute(this);
+            }
+        }
+
+        @Override
+        public void run() {
+            Task task;
+            while ((task = queue.poll()) != null) {
+                depth.decrementAndGet();
+                lag.record(System.nanoTime() - task.enqueuedAtNanos(), TimeUnit.NANOSECONDS);
+                try {
+                    task.handler().accept(task.klineEvent());
+                } catch (Exception e) {
+                    log.error("Error processing kline event on shard {} {}", key.symbol(), key.interval(), e);
+                }
+            }
+            scheduled.set(false);
+            // An event may have been enqueued after the last poll but before the flag was cleared
+            if (!queue.isEmpty()) {
+                schedule();
+            }
+        }
+    }
+}
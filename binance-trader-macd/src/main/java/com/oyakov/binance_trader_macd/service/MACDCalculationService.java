@@ -3,6 +3,9 @@ package com.oyakov.binance_trader_macd.service;
 import com.oyakov.binance_shared_model.avro.KlineEvent;
 import com.oyakov.binance_trader_macd.domain.MACDIndicator;
 import com.oyakov.binance_trader_macd.domain.MACDParameters;
+import com.oyakov.binance_trader_macd.domain.TradeSignal;
+import com.oyakov.binance_trader_macd.domain.signal.MACDKernel;
+import com.oyakov.binance_trader_macd.domain.signal.MACDSeries;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.log4j.Log4j2;
 import org.springframework.stereotype.Service;
@@ -58,54 +61,18 @@ public class MACDCalculationService {
                 .map(KlineEvent::getClose)
                 .collect(Collectors.toList());
             
-            // Calculate EMAs
-            BigDecimal fastMultiplier = calculateEMAMultiplier(params.getFastPeriod());
-            BigDecimal slowMultiplier = calculateEMAMultiplier(params.getSlowPeriod());
-            BigDecimal signalMultiplier = calculateEMAMultiplier(params.getSignalPeriod());
-            
-            List<BigDecimal> emaFast = calculateEMA(closes, params.getFastPeriod(), fastMultiplier);
-            List<BigDecimal> emaSlow = calculateEMA(closes, params.getSlowPeriod(), slowMultiplier);
-            
-            // Align EMAs
-            int offset = emaFast.size() - emaSlow.size();
-            if (offset < 0) {
-                log.error("EMA alignment error: fast={}, slow={}", emaFast.size(), emaSlow.size());
-                return createEmptyIndicator(symbol, interval, "EMA alignment error");
-            }
-            
-            List<BigDecimal> alignedFast = emaFast.stream()
-                .skip(offset)
-                .collect(Collectors.toList());
-            
-            // Calculate MACD line
-            List<BigDecimal> macdLine = new ArrayList<>();
-            for (int i = 0; i < emaSlow.size(); i++) {
-                macdLine.add(alignedFast.get(i).subtract(emaSlow.get(i))
-                    .setScale(SCALE, RoundingMode.HALF_UP));
-            }
-            
-            // Calculate signal line
-            List<BigDecimal> signalLine = calculateEMA(macdLine, params.getSignalPeriod(), signalMultiplier);
-            
-            // Calculate histogram
-            List<BigDecimal> histogram = new ArrayList<>();
-            int histogramOffset = macdLine.size() - signalLine.size();
-            for (int i = 0; i < signalLine.size(); i++) {
-                int macdIndex = histogramOffset + i;
-                if (macdIndex < macdLine.size()) {
-                    histogram.add(macdLine.get(macdIndex).subtract(signalLine.get(i))
-                        .setScale(SCALE, RoundingMode.HALF_UP));
-                }
-            }
+            MACDSeries series = MACDKernel.compute(closes, params.getFastPeriod(), params.getSlowPeriod(),
+                params.getSignalPeriod());
+            int last = series.length() - 1;
             
             // Get latest values
-            BigDecimal latestMACD = macdLine.isEmpty() ? BigDecimal.ZERO : macdLine.get(macdLine.size() - 1);
-            BigDecimal latestSignal = signalLine.isEmpty() ? BigDecimal.ZERO : signalLine.get(signalLine.size() - 1);
-            BigDecimal latestHistogram = histogram.isEmpty() ? BigDecimal.ZERO : histogram.get(histogram.size() - 1);
-            BigDecimal latestPrice = closes.isEmpty() ? BigDecimal.ZERO : closes.get(closes.size() - 1);
+            BigDecimal latestMACD = series.macdDecimal(last);
+            BigDecimal latestSignal = series.signalDecimal(last);
+            BigDecimal latestHistogram = latestMACD.subtract(latestSignal).setScale(SCALE, RoundingMode.HALF_UP);
+            BigDecimal latestPrice = closes.get(last);
             
             // Determine signal
-            String signal = determineSignal(macdLine, signalLine);
+            String signal = toSignalName(series.crossoverAt(last));
             
             // Get corresponding timestamps
             long latestTimestamp = sortedKlines.isEmpty() ? System.currentTimeMillis() : 
@@ -178,43 +145,25 @@ public class MACDCalculationService {
                 .map(KlineEvent::getClose)
                 .collect(Collectors.toList());
             
-            // Calculate all indicators
-            BigDecimal fastMultiplier = calculateEMAMultiplier(params.getFastPeriod());
-            BigDecimal slowMultiplier = calculateEMAMultiplier(params.getSlowPeriod());
-            BigDecimal signalMultiplier = calculateEMAMultiplier(params.getSignalPeriod());
-            
-            List<BigDecimal> emaFast = calculateEMA(closes, params.getFastPeriod(), fastMultiplier);
-            List<BigDecimal> emaSlow = calculateEMA(closes, params.getSlowPeriod(), slowMultiplier);
+            MACDSeries series = MACDKernel.compute(closes, params.getFastPeriod(), params.getSlowPeriod(),
+                params.getSignalPeriod());
             
-            int offset = emaFast.size() - emaSlow.size();
-            if (offset < 0) {
-                return Collections.emptyList();
-            }
-            
-            List<BigDecimal> alignedFast = emaFast.stream()
-                .skip(offset)
-                .collect(Collectors.toList());
-            
-            List<BigDecimal> macdLine = new ArrayList<>();
-            for (int i = 0; i < emaSlow.size(); i++) {
-                macdLine.add(alignedFast.get(i).subtract(emaSlow.get(i))
-                    .setScale(SCALE, RoundingMode.HALF_UP));
-            }
-            
-            List<BigDecimal> signalLine = calculateEMA(macdLine, params.getSignalPeriod(), signalMultiplier);
-            
-            // Build historical indicators
+            // Build historical indicators; each point keeps the kline index the service has always reported
             List<MACDIndicator> indicators = new ArrayList<>();
-            int signalOffset = macdLine.size() - signalLine.size();
+            int offset = params.getSlowPeriod() - params.getFastPeriod();
+            int firstMacd = series.firstMacdIndex();
+            int signalOffset = params.getSignalPeriod() - 1;
+            int signalCount = series.length() - series.firstSignalIndex();
             
-            for (int i = 0; i < signalLine.size(); i++) {
+            for (int i = 0; i < signalCount; i++) {
                 int macdIndex = signalOffset + i;
                 int klineIndex = offset + macdIndex;
+                int close = firstMacd + macdIndex;
                 
-                if (macdIndex < macdLine.size() && klineIndex < sortedKlines.size()) {
+                if (klineIndex < sortedKlines.size()) {
                     KlineEvent kline = sortedKlines.get(klineIndex);
-                    BigDecimal macd = macdLine.get(macdIndex);
-                    BigDecimal signal = signalLine.get(i);
+                    BigDecimal macd = series.macdDecimal(close);
+                    BigDecimal signal = series.signalDecimal(close);
                     BigDecimal histogram = macd.subtract(signal).setScale(SCALE, RoundingMode.HALF_UP);
                     
                     indicators.add(MACDIndicator.builder()
@@ -225,7 +174,7 @@ public class MACDCalculationService {
                         .macdLine(macd)
                         .signalLine(signal)
                         .histogram(histogram)
-                        .signal(determineSignalAt(macdLine, signalLine, i))
+                        .signal(toSignalName(series.crossoverAt(close)))
                         .parameters(params)
                         .dataPoints(klines.size())
                         .calculatedAt(Instant.now())
@@ -241,95 +190,8 @@ public class MACDCalculationService {
         }
     }
     
-    private BigDecimal calculateEMAMultiplier(int period) {
-        return BigDecimal.valueOf(2)
-            .divide(BigDecimal.valueOf(period + 1), SCALE, RoundingMode.HALF_UP);
-    }
-    
-    private List<BigDecimal> calculateEMA(List<BigDecimal> prices, int period, BigDecimal multiplier) {
-        List<BigDecimal> ema = new ArrayList<>();
-        
-        if (prices.isEmpty()) {
-            return ema;
-        }
-        
-        // Start with SMA for the first period
-        BigDecimal sum = BigDecimal.ZERO;
-        for (int i = 0; i < Math.min(period, prices.size()); i++) {
-            sum = sum.add(prices.get(i));
-        }
-        BigDecimal sma = sum.divide(BigDecimal.valueOf(Math.min(period, prices.size())), SCALE, RoundingMode.HALF_UP);
-        ema.add(sma);
-        
-        // Calculate EMA for remaining values
-        for (int i = period; i < prices.size(); i++) {
-            BigDecimal currentPrice = prices.get(i);
-            BigDecimal previousEMA = ema.get(ema.size() - 1);
-            BigDecimal currentEMA = currentPrice.multiply(multiplier)
-                .add(previousEMA.multiply(BigDecimal.ONE.subtract(multiplier)))
-                .setScale(SCALE, RoundingMode.HALF_UP);
-            ema.add(currentEMA);
-        }
-        
-        return ema;
-    }
-    
-    private String determineSignal(List<BigDecimal> macdLine, List<BigDecimal> signalLine) {
-        if (macdLine.size() < 2 || signalLine.size() < 2) {
-            return "NEUTRAL";
-        }
-        
-        int macdOffset = macdLine.size() - signalLine.size();
-        int lastIndex = signalLine.size() - 1;
-        
-        if (lastIndex < 1 || macdOffset + lastIndex - 1 < 0) {
-            return "NEUTRAL";
-        }
-        
-        BigDecimal prevMACD = macdLine.get(macdOffset + lastIndex - 1);
-        BigDecimal currMACD = macdLine.get(macdOffset + lastIndex);
-        BigDecimal prevSignal = signalLine.get(lastIndex - 1);
-        BigDecimal currSignal = signalLine.get(lastIndex);
-        
-        BigDecimal prevDiff = prevMACD.subtract(prevSignal);
-        BigDecimal currDiff = currMACD.subtract(currSignal);
-        
-        if (prevDiff.compareTo(BigDecimal.ZERO) <= 0 && currDiff.compareTo(BigDecimal.ZERO) > 0) {
-            return "BUY";
-        } else if (prevDiff.compareTo(BigDecimal.ZERO) >= 0 && currDiff.compareTo(BigDecimal.ZERO) < 0) {
-            return "SELL";
-        } else {
-            return "NEUTRAL";
-        }
-    }
-    
-    private String determineSignalAt(List<BigDecimal> macdLine, List<BigDecimal> signalLine, int index) {
-        if (index < 1) {
-            return "NEUTRAL";
-        }
-        
-        int macdOffset = macdLine.size() - signalLine.size();
-        int macdIndex = macdOffset + index;
-        
-        if (macdIndex < 1 || macdIndex >= macdLine.size()) {
-            return "NEUTRAL";
-        }
-        
-        BigDecimal prevMACD = macdLine.get(macdIndex - 1);
-        BigDecimal currMACD = macdLine.get(macdIndex);
-        BigDecimal prevSignal = signalLine.get(index - 1);
-        BigDecimal currSignal = signalLine.get(index);
-        
-        BigDecimal prevDiff = prevMACD.subtract(prevSignal);
-        BigDecimal currDiff = currMACD.subtract(currSignal);
-        
-        if (prevDiff.compareTo(BigDecimal.ZERO) <= 0 && currDiff.compareTo(BigDecimal.ZERO) > 0) {
-            return "BUY";
-        } else if (prevDiff.compareTo(BigDecimal.ZERO) >= 0 && currDiff.compareTo(BigDecimal.ZERO) < 0) {
-            return "SELL";
-        } else {
-            return "NEUTRAL";
-        }
+    private String toSignalName(TradeSignal crossover) {
+        return crossover == null ? "NEUTRAL" : crossover.name();
     }
     
     private MACDIndicator createEmptyIndicator(String symbol, String interval, String error) {
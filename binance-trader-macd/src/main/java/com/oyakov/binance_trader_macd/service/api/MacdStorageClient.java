@@ -1,30 +1,54 @@
 package com.oyakov.binance_trader_macd.service.api;
 
+import com.oyakov.binance_trader_macd.config.MACDTraderConfig;
 import io.micrometer.core.instrument.Counter;
 import io.micrometer.core.instrument.MeterRegistry;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.log4j.Log4j2;
 import org.springframework.http.ResponseEntity;
 import org.springframework.stereotype.Service;
+import org.springframework.web.client.HttpClientErrorException;
 import org.springframework.web.client.RestTemplate;
 
 import java.time.Instant;
 import java.time.LocalDateTime;
 import java.time.ZoneOffset;
+import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
 import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
 
+/**
+ * Writes MACD points to data storage.
+ * <p>
+ * With {@code binance.data.storage.macd-batch.enabled} (the default) points are buffered instead of posted
+ * one by one: a newer point for the same (symbol, interval, timestamp) replaces the buffered one, and the
+ * buffer is sent to {@code /api/v1/macd/batch} once it holds {@code max-size} points or every
+ * {@code flush-interval}, whichever comes first. A failed batch is put back behind newer points, up to
+ * {@code max-pending} points. Storage services without the batch endpoint get single posts.
+ */
 @Service
 @RequiredArgsConstructor
 @Log4j2
 public class MacdStorageClient {
 
     private final RestTemplate restTemplate;
-    private final com.oyakov.binance_trader_macd.config.MACDTraderConfig config;
+    private final MACDTraderConfig config;
     private final MeterRegistry meterRegistry;
 
+    private final Object bufferLock = new Object();
+    private Map<MacdKey, Map<String, Object>> buffer = new LinkedHashMap<>();
+    private volatile boolean batchEndpointAvailable = true;
+    private ScheduledExecutorService flusher;
+
     private Counter macdUpsertsTotal;
     private Counter macdUpsertsFailedTotal;
+    private Counter macdUpsertsCoalescedTotal;
 
     @jakarta.annotation.PostConstruct
     void init() {
@@ -34,8 +58,39 @@ public class MacdStorageClient {
         macdUpsertsFailedTotal = Counter.builder("binance.trader.macd.upserts.failed")
                 .description("Total MACD upserts failed")
                 .register(meterRegistry);
+        macdUpsertsCoalescedTotal = Counter.builder("binance.trader.macd.upserts.coalesced")
+                .description("MACD points replaced by a newer point before they were sent")
+                .register(meterRegistry);
+        MACDTraderConfig.Data.Storage.MacdBatch batch = config.getData().getStorage().getMacdBatch();
+        if (batch.getEnabled()) {
+            flusher = Executors.newSingleThreadScheduledExecutor(runnable -> {
+                Thread thread = new Thread(runnable, "macd-storage-flusher");
+                thread.setDaemon(true);
+                return thread;
+            });
+            long intervalMillis = batch.getFlushInterval().toMillis();
+            flusher.scheduleWithFixedDelay(this::flush, intervalMillis, intervalMillis, TimeUnit.MILLISECONDS);
+        }
     }
 
+    @jakarta.annotation.PreDestroy
+    void shutdown() {
+        if (flusher != null) {
+            flusher.shutdown();
+            try {
+                flusher.awaitTermination(5, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            flush();
+        }
+    }
+
+    /**
+     * Upsert one MACD point.
+     *
+     * @return when batching, whether the point was buffered; otherwise whether storage accepted it
+     */
     public boolean upsertMacd(String symbol,
                            String interval,
                            long timestamp,
@@ -44,19 +99,101 @@ public class MacdStorageClient {
                            Double macd,
                            Double signal,
                            Double histogram) {
+        Map<String, Object> body = toBody(symbol, interval, timestamp, emaFast, emaSlow, macd, signal, histogram);
+        if (flusher == null) {
+            return post(body);
+        }
+        boolean full;
+        synchronized (bufferLock) {
+            if (buffer.put(new MacdKey(symbol, interval, timestamp), body) != null) {
+                macdUpsertsCoalescedTotal.increment();
+            }
+            full = buffer.size() >= config.getData().getStorage().getMacdBatch().getMaxSize();
+        }
+        if (full) {
+            try {
+                flusher.execute(this::flush);
+            } catch (RejectedExecutionException e) {
+                // Shut down, so the flusher is gone: send the batch from this thread
+                log.debug("MACD storage flusher is shut down, flushing on the caller thread");
+                flush();
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Send every buffered point. Runs on the flusher thread, one flush at a time, so batches reach storage
+     * in the order their points were buffered.
+     */
+    synchronized void flush() {
+        List<Map<String, Object>> batch;
+        synchronized (bufferLock) {
+            if (buffer.isEmpty()) {
+                return;
+            }
+            batch = new ArrayList<>(buffer.values());
+            buffer = new LinkedHashMap<>();
+        }
+        if (batchEndpointAvailable) {
+            if (postBatch(batch)) {
+                macdUpsertsTotal.increment(batch.size());
+                return;
+            }
+            if (batchEndpointAvailable) {
+                requeue(batch);
+                return;
+            }
+        }
+        batch.forEach(this::post);
+    }
+
+    private boolean postBatch(List<Map<String, Object>> batch) {
+        String url = config.getData().getStorage().getBaseUrl() + "/api/v1/macd/batch";
+        try {
+            ResponseEntity<Void> resp = restTemplate.postForEntity(url, batch, Void.class);
+            if (!resp.getStatusCode().is2xxSuccessful()) {
+                log.warn("MACD batch upsert non-2xx: {}", resp.getStatusCode());
+                return false;
+            }
+            log.debug("Upserted batch of {} MACD points", batch.size());
+            return true;
+        } catch (HttpClientErrorException.NotFound e) {
+            log.info("MACD batch endpoint not available on data storage, posting points one by one");
+            batchEndpointAvailable = false;
+            return false;
+        } catch (Exception e) {
+            log.error("Failed to upsert batch of {} MACD points to storage", batch.size(), e);
+            return false;
+        }
+    }
+
+    private void requeue(List<Map<String, Object>> batch) {
+        int maxPending = config.getData().getStorage().getMacdBatch().getMaxPending();
+        int dropped = 0;
+        synchronized (bufferLock) {
+            Map<MacdKey, Map<String, Object>> merged = new LinkedHashMap<>();
+            for (Map<String, Object> body : batch) {
+                if (merged.size() + buffer.size() >= maxPending) {
+                    dropped++;
+                    continue;
+                }
+                MacdKey key = MacdKey.of(body);
+                if (!buffer.containsKey(key)) {
+                    merged.put(key, body);
+                }
+            }
+            merged.putAll(buffer);
+            buffer = merged;
+        }
+        if (dropped > 0) {
+            log.warn("Dropped {} MACD points after a failed batch, {} points already pending", dropped, maxPending);
+            macdUpsertsFailedTotal.increment(dropped);
+        }
+    }
+
+    private boolean post(Map<String, Object> body) {
         String url = config.getData().getStorage().getBaseUrl() + "/api/v1/macd";
-        LocalDateTime displayTime = LocalDateTime.ofInstant(Instant.ofEpochMilli(timestamp), ZoneOffset.UTC);
-        Map<String, Object> body = new HashMap<>();
-        body.put("symbol", symbol);
-        body.put("interval", interval);
-        body.put("timestamp", timestamp);
-        body.put("display_time", displayTime);
-        body.put("collection_time", LocalDateTime.now(ZoneOffset.UTC));
-        body.put("ema_fast", emaFast);
-        body.put("ema_slow", emaSlow);
-        body.put("macd", macd);
-        body.put("signal", signal);
-        body.put("histogram", histogram);
         try {
             ResponseEntity<Void> resp = restTemplate.postForEntity(url, body, Void.class);
             if (!resp.getStatusCode().is2xxSuccessful()) {
@@ -67,11 +204,41 @@ public class MacdStorageClient {
             macdUpsertsTotal.increment();
             return true;
         } catch (Exception e) {
-            log.error("Failed to upsert MACD to storage for {} {} ts {}", symbol, interval, timestamp, e);
+            log.error("Failed to upsert MACD to storage for {} {} ts {}",
+                    body.get("symbol"), body.get("interval"), body.get("timestamp"), e);
             macdUpsertsFailedTotal.increment();
             return false;
         }
     }
+
+    private static Map<String, Object> toBody(String symbol,
+                                              String interval,
+                                              long timestamp,
+                                              Double emaFast,
+                                              Double emaSlow,
+                                              Double macd,
+                                              Double signal,
+                                              Double histogram) {
+        LocalDateTime displayTime = LocalDateTime.ofInstant(Instant.ofEpochMilli(timestamp), ZoneOffset.UTC);
+        Map<String, Object> body = new HashMap<>();
+        body.put("symbol", symbol);
+        body.put("interval", interval);
+        body.put("timestamp", timestamp);
+        body.put("display_time", displayTime);
+        body.put("collection_time", LocalDateTime.now(ZoneOffset.UTC));
+        body.put("ema_fast", emaFast);
+        body.put("ema_slow", emaSlow);
+        body.put("macd", macd);
+        body.put("signal", signal);
+        body.put("histogram", histogram);
+        return body;
+    }
+
+    private record MacdKey(String symbol, String interval, long timestamp) {
+        static MacdKey of(Map<String, Object> body) {
+            return new MacdKey((String) body.get("symbol"), (String) body.get("interval"), (Long) body.get("timestamp"));
+        }
+    }
 }
 
 
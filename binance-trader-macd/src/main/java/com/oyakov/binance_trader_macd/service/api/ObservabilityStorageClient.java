@@ -1,22 +1,47 @@
 package com.oyakov.binance_trader_macd.service.api;
 
+import com.oyakov.binance_trader_macd.config.MACDTraderConfig;
+import com.oyakov.binance_trader_macd.service.api.dto.DecisionLogEvent;
+import com.oyakov.binance_trader_macd.service.api.dto.ObservabilityBatch;
+import com.oyakov.binance_trader_macd.service.api.dto.PortfolioSnapshotEvent;
+import com.oyakov.binance_trader_macd.service.api.dto.StrategyAnalysisEvent;
 import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
 import io.micrometer.core.instrument.MeterRegistry;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.log4j.Log4j2;
 import org.springframework.http.ResponseEntity;
 import org.springframework.stereotype.Service;
+import org.springframework.web.client.HttpClientErrorException;
 import org.springframework.web.client.RestTemplate;
 
 import java.math.BigDecimal;
 import java.time.Instant;
 import java.time.LocalDateTime;
 import java.time.ZoneOffset;
-import java.util.HashMap;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.List;
 import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
 
 /**
- * Client for storing observability metrics to the data storage service
+ * Client for storing observability metrics to the data storage service.
+ * <p>
+ * With {@code binance.data.storage.observability-queue.enabled} (the default) the {@code record*} methods only
+ * put the event on a bounded in-memory queue and never wait for storage, so they cannot stall a trading decision.
+ * A single thread drains the queue to {@code /api/v1/observability/batch} every {@code flush-interval}, or as soon
+ * as {@code max-batch-size} events are waiting. When the queue is full the {@code overflow-policy} drops either the
+ * oldest queued event or the new one; dropped events are counted in {@code binance.trader.observability.dropped},
+ * as are events recorded after shutdown.
+ * Events of a failed batch are counted as failed and not retried. Storage services without the batch endpoint get
+ * single posts from the same thread.
  */
 @Service
 @RequiredArgsConstructor
@@ -24,40 +49,66 @@ import java.util.Map;
 public class ObservabilityStorageClient {
 
     private final RestTemplate restTemplate;
-    private final com.oyakov.binance_trader_macd.config.MACDTraderConfig config;
+    private final MACDTraderConfig config;
     private final MeterRegistry meterRegistry;
 
-    private Counter strategyAnalysisTotal;
-    private Counter strategyAnalysisFailed;
-    private Counter decisionLogTotal;
-    private Counter decisionLogFailed;
-    private Counter portfolioSnapshotTotal;
-    private Counter portfolioSnapshotFailed;
+    private final Map<Kind, Counter> recordedCounters = new EnumMap<>(Kind.class);
+    private final Map<Kind, Counter> failedCounters = new EnumMap<>(Kind.class);
+    private final Map<Kind, Counter> droppedCounters = new EnumMap<>(Kind.class);
+
+    private final AtomicBoolean flushRequested = new AtomicBoolean();
+    private BlockingQueue<Pending> queue;
+    private volatile boolean batchEndpointAvailable = true;
+    private ScheduledExecutorService flusher;
 
     @jakarta.annotation.PostConstruct
     void init() {
-        strategyAnalysisTotal = Counter.builder("binance.trader.observability.strategy_analysis.total")
-                .description("Total strategy analysis events recorded")
-                .register(meterRegistry);
-        strategyAnalysisFailed = Counter.builder("binance.trader.observability.strategy_analysis.failed")
-                .description("Failed strategy analysis events")
-                .register(meterRegistry);
-        decisionLogTotal = Counter.builder("binance.trader.observability.decision_log.total")
-                .description("Total decision logs recorded")
-                .register(meterRegistry);
-        decisionLogFailed = Counter.builder("binance.trader.observability.decision_log.failed")
-                .description("Failed decision logs")
-                .register(meterRegistry);
-        portfolioSnapshotTotal = Counter.builder("binance.trader.observability.portfolio_snapshot.total")
-                .description("Total portfolio snapshots recorded")
-                .register(meterRegistry);
-        portfolioSnapshotFailed = Counter.builder("binance.trader.observability.portfolio_snapshot.failed")
-                .description("Failed portfolio snapshots")
-                .register(meterRegistry);
+        for (Kind kind : Kind.values()) {
+            recordedCounters.put(kind, Counter.builder("binance.trader.observability." + kind.metricName + ".total")
+                    .description("Total " + kind.description + " recorded")
+                    .register(meterRegistry));
+            failedCounters.put(kind, Counter.builder("binance.trader.observability." + kind.metricName + ".failed")
+                    .description("Failed " + kind.description)
+                    .register(meterRegistry));
+            droppedCounters.put(kind, Counter.builder("binance.trader.observability.dropped")
+                    .description("Observability events dropped because the queue was full or the client was shut down")
+                    .tag("type", kind.metricName)
+                    .register(meterRegistry));
+        }
+        MACDTraderConfig.Data.Storage.ObservabilityQueue queueConfig =
+                config.getData().getStorage().getObservabilityQueue();
+        if (queueConfig.getEnabled()) {
+            queue = new ArrayBlockingQueue<>(queueConfig.getCapacity());
+            Gauge.builder("binance.trader.observability.queue.size", queue, BlockingQueue::size)
+                    .description("Observability events waiting to be sent to storage")
+                    .register(meterRegistry);
+            flusher = Executors.newSingleThreadScheduledExecutor(runnable -> {
+                Thread thread = new Thread(runnable, "observability-storage-flusher");
+                thread.setDaemon(true);
+                return thread;
+            });
+            long intervalMillis = queueConfig.getFlushInterval().toMillis();
+            flusher.scheduleWithFixedDelay(this::flush, intervalMillis, intervalMillis, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    @jakarta.annotation.PreDestroy
+    void shutdown() {
+        if (flusher != null) {
+            flusher.shutdown();
+            try {
+                flusher.awaitTermination(5, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            flush();
+        }
     }
 
     /**
      * Record a strategy analysis event (MACD calculation)
+     *
+     * @return when queueing, whether the event was queued; otherwise whether storage accepted it
      */
     public boolean recordStrategyAnalysis(
             String instanceId,
@@ -75,45 +126,29 @@ public class ObservabilityStorageClient {
             String signalStrength,
             String signalDetected,
             String signalReason) {
-        
-        String url = config.getData().getStorage().getBaseUrl() + "/api/v1/observability/strategy-analysis";
-        
-        Map<String, Object> body = new HashMap<>();
-        body.put("instance_id", instanceId);
-        body.put("strategy_name", strategyName);
-        body.put("symbol", symbol);
-        body.put("interval", interval);
-        body.put("analysis_time", LocalDateTime.ofInstant(analysisTime, ZoneOffset.UTC).toString());
-        body.put("kline_timestamp", klineTimestamp);
-        body.put("kline_close_time", LocalDateTime.ofInstant(klineCloseTime, ZoneOffset.UTC).toString());
-        body.put("current_price", currentPrice);
-        body.put("kline_count", klineCount);
-        body.put("macd_line", macdLine);
-        body.put("signal_line", signalLine);
-        body.put("histogram", histogram);
-        body.put("signal_strength", signalStrength);
-        body.put("signal_detected", signalDetected);
-        body.put("signal_reason", signalReason);
-        
-        try {
-            ResponseEntity<Void> resp = restTemplate.postForEntity(url, body, Void.class);
-            if (!resp.getStatusCode().is2xxSuccessful()) {
-                log.warn("Strategy analysis record non-2xx: {}", resp.getStatusCode());
-                strategyAnalysisFailed.increment();
-                return false;
-            }
-            strategyAnalysisTotal.increment();
-            log.debug("Recorded strategy analysis for {} {}", instanceId, symbol);
-            return true;
-        } catch (Exception e) {
-            log.error("Failed to record strategy analysis for {} {}", instanceId, symbol, e);
-            strategyAnalysisFailed.increment();
-            return false;
-        }
+        return submit(Kind.STRATEGY_ANALYSIS, StrategyAnalysisEvent.builder()
+                .instanceId(instanceId)
+                .strategyName(strategyName)
+                .symbol(symbol)
+                .interval(interval)
+                .analysisTime(utc(analysisTime))
+                .klineTimestamp(klineTimestamp)
+                .klineCloseTime(utc(klineCloseTime))
+                .currentPrice(currentPrice)
+                .klineCount(klineCount)
+                .macdLine(macdLine)
+                .signalLine(signalLine)
+                .histogram(histogram)
+                .signalStrength(signalStrength)
+                .signalDetected(signalDetected)
+                .signalReason(signalReason)
+                .build());
     }
 
     /**
      * Record a trading decision log
+     *
+     * @return when queueing, whether the event was queued; otherwise whether storage accepted it
      */
     public boolean recordDecisionLog(
             String instanceId,
@@ -135,49 +170,33 @@ public class ObservabilityStorageClient {
             String orderId,
             BigDecimal executedPrice,
             BigDecimal executedQuantity) {
-        
-        String url = config.getData().getStorage().getBaseUrl() + "/api/v1/observability/decision-log";
-        
-        Map<String, Object> body = new HashMap<>();
-        body.put("instance_id", instanceId);
-        body.put("strategy_name", strategyName);
-        body.put("symbol", symbol);
-        body.put("decision_time", LocalDateTime.ofInstant(decisionTime, ZoneOffset.UTC).toString());
-        body.put("signal_detected", signalDetected);
-        body.put("signal_strength", signalStrength);
-        body.put("macd_histogram", macdHistogram);
-        body.put("current_price", currentPrice);
-        body.put("trade_allowed", tradeAllowed);
-        body.put("trade_executed", tradeExecuted);
-        body.put("has_active_position", hasActivePosition);
-        body.put("position_size_ok", positionSizeOk);
-        body.put("daily_loss_limit_ok", dailyLossLimitOk);
-        body.put("risk_check_passed", riskCheckPassed);
-        body.put("decision_reason", decisionReason);
-        body.put("blocked_reason", blockedReason);
-        body.put("order_id", orderId);
-        body.put("executed_price", executedPrice);
-        body.put("executed_quantity", executedQuantity);
-        
-        try {
-            ResponseEntity<Void> resp = restTemplate.postForEntity(url, body, Void.class);
-            if (!resp.getStatusCode().is2xxSuccessful()) {
-                log.warn("Decision log record non-2xx: {}", resp.getStatusCode());
-                decisionLogFailed.increment();
-                return false;
-            }
-            decisionLogTotal.increment();
-            log.debug("Recorded decision log for {} {}", instanceId, symbol);
-            return true;
-        } catch (Exception e) {
-            log.error("Failed to record decision log for {} {}", instanceId, symbol, e);
-            decisionLogFailed.increment();
-            return false;
-        }
+        return submit(Kind.DECISION_LOG, DecisionLogEvent.builder()
+                .instanceId(instanceId)
+                .strategyName(strategyName)
+                .symbol(symbol)
+                .decisionTime(utc(decisionTime))
+                .signalDetected(signalDetected)
+                .signalStrength(signalStrength)
+                .macdHistogram(macdHistogram)
+                .currentPrice(currentPrice)
+                .tradeAllowed(tradeAllowed)
+                .tradeExecuted(tradeExecuted)
+                .hasActivePosition(hasActivePosition)
+                .positionSizeOk(positionSizeOk)
+                .dailyLossLimitOk(dailyLossLimitOk)
+                .riskCheckPassed(riskCheckPassed)
+                .decisionReason(decisionReason)
+                .blockedReason(blockedReason)
+                .orderId(orderId)
+                .executedPrice(executedPrice)
+                .executedQuantity(executedQuantity)
+                .build());
     }
 
     /**
      * Record a portfolio snapshot
+     *
+     * @return when queueing, whether the event was queued; otherwise whether storage accepted it
      */
     public boolean recordPortfolioSnapshot(
             String instanceId,
@@ -197,43 +216,156 @@ public class ObservabilityStorageClient {
             BigDecimal dailyPnl,
             BigDecimal currentDrawdown,
             BigDecimal maxDrawdown) {
-        
-        String url = config.getData().getStorage().getBaseUrl() + "/api/v1/observability/portfolio-snapshot";
-        
-        Map<String, Object> body = new HashMap<>();
-        body.put("instance_id", instanceId);
-        body.put("strategy_name", strategyName);
-        body.put("snapshot_time", LocalDateTime.ofInstant(snapshotTime, ZoneOffset.UTC).toString());
-        body.put("total_balance", totalBalance);
-        body.put("available_balance", availableBalance);
-        body.put("position_value", positionValue);
-        body.put("symbol", symbol);
-        body.put("position_size", positionSize);
-        body.put("position_entry_price", positionEntryPrice);
-        body.put("current_market_price", currentMarketPrice);
-        body.put("unrealized_pnl", unrealizedPnl);
-        body.put("total_trades", totalTrades);
-        body.put("winning_trades", winningTrades);
-        body.put("total_realized_pnl", totalRealizedPnl);
-        body.put("daily_pnl", dailyPnl);
-        body.put("current_drawdown", currentDrawdown);
-        body.put("max_drawdown", maxDrawdown);
-        
+        return submit(Kind.PORTFOLIO_SNAPSHOT, PortfolioSnapshotEvent.builder()
+                .instanceId(instanceId)
+                .strategyName(strategyName)
+                .snapshotTime(utc(snapshotTime))
+                .totalBalance(totalBalance)
+                .availableBalance(availableBalance)
+                .positionValue(positionValue)
+                .symbol(symbol)
+                .positionSize(positionSize)
+                .positionEntryPrice(positionEntryPrice)
+                .currentMarketPrice(currentMarketPrice)
+                .unrealizedPnl(unrealizedPnl)
+                .totalTrades(totalTrades)
+                .winningTrades(winningTrades)
+                .totalRealizedPnl(totalRealizedPnl)
+                .dailyPnl(dailyPnl)
+                .currentDrawdown(currentDrawdown)
+                .maxDrawdown(maxDrawdown)
+                .build());
+    }
+
+    private boolean submit(Kind kind, Object event) {
+        Pending pending = new Pending(kind, event);
+        if (queue == null) {
+            return post(pending);
+        }
+        if (flusher.isShutdown()) {
+            droppedCounters.get(kind).increment();
+            log.debug("Observability client shut down, dropped {} event", kind.metricName);
+            return false;
+        }
+        MACDTraderConfig.Data.Storage.ObservabilityQueue queueConfig =
+                config.getData().getStorage().getObservabilityQueue();
+        boolean queued = queue.offer(pending);
+        if (!queued && queueConfig.getOverflowPolicy()
+                == MACDTraderConfig.Data.Storage.ObservabilityQueue.OverflowPolicy.DROP_OLDEST) {
+            Pending oldest = queue.poll();
+            if (oldest != null) {
+                droppedCounters.get(oldest.kind()).increment();
+            }
+            queued = queue.offer(pending);
+        }
+        if (!queued) {
+            droppedCounters.get(kind).increment();
+            log.debug("Observability queue full, dropped {} event", kind.metricName);
+            return false;
+        }
+        if (queue.size() >= queueConfig.getMaxBatchSize() && flushRequested.compareAndSet(false, true)) {
+            try {
+                flusher.execute(this::flush);
+            } catch (RejectedExecutionException e) {
+                // Shut down since the check above; whatever the final flush left behind is never sent
+                if (queue.remove(pending)) {
+                    droppedCounters.get(kind).increment();
+                    log.debug("Observability client shut down, dropped {} event", kind.metricName);
+                    return false;
+                }
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Send every queued event, {@code max-batch-size} events per request. Runs on the flusher thread, one flush
+     * at a time, so events reach storage in the order they were queued.
+     */
+    synchronized void flush() {
+        flushRequested.set(false);
+        int maxBatchSize = config.getData().getStorage().getObservabilityQueue().getMaxBatchSize();
+        List<Pending> drained = new ArrayList<>(maxBatchSize);
+        while (queue.drainTo(drained, maxBatchSize) > 0) {
+            if (!batchEndpointAvailable || !postBatch(drained)) {
+                if (batchEndpointAvailable) {
+                    drained.forEach(pending -> failedCounters.get(pending.kind()).increment());
+                } else {
+                    drained.forEach(this::post);
+                }
+            }
+            drained.clear();
+        }
+    }
+
+    private boolean postBatch(List<Pending> drained) {
+        ObservabilityBatch batch = new ObservabilityBatch();
+        for (Pending pending : drained) {
+            switch (pending.kind()) {
+                case STRATEGY_ANALYSIS -> batch.getStrategyAnalyses().add((StrategyAnalysisEvent) pending.event());
+                case DECISION_LOG -> batch.getDecisionLogs().add((DecisionLogEvent) pending.event());
+                case PORTFOLIO_SNAPSHOT -> batch.getPortfolioSnapshots().add((PortfolioSnapshotEvent) pending.event());
+            }
+        }
+        String url = config.getData().getStorage().getBaseUrl() + "/api/v1/observability/batch";
         try {
-            ResponseEntity<Void> resp = restTemplate.postForEntity(url, body, Void.class);
+            ResponseEntity<Void> resp = restTemplate.postForEntity(url, batch, Void.class);
             if (!resp.getStatusCode().is2xxSuccessful()) {
-                log.warn("Portfolio snapshot record non-2xx: {}", resp.getStatusCode());
-                portfolioSnapshotFailed.increment();
+                log.warn("Observability batch non-2xx: {}", resp.getStatusCode());
                 return false;
             }
-            portfolioSnapshotTotal.increment();
-            log.debug("Recorded portfolio snapshot for {}", instanceId);
+            drained.forEach(pending -> recordedCounters.get(pending.kind()).increment());
+            log.debug("Recorded batch of {} observability events", drained.size());
             return true;
+        } catch (HttpClientErrorException.NotFound e) {
+            log.info("Observability batch endpoint not available on data storage, posting events one by one");
+            batchEndpointAvailable = false;
+            return false;
         } catch (Exception e) {
-            log.error("Failed to record portfolio snapshot for {}", instanceId, e);
-            portfolioSnapshotFailed.increment();
+            log.error("Failed to record batch of {} observability events", drained.size(), e);
             return false;
         }
     }
-}
 
+    private boolean post(Pending pending) {
+        Kind kind = pending.kind();
+        String url = config.getData().getStorage().getBaseUrl() + "/api/v1/observability" + kind.path;
+        try {
+            ResponseEntity<Void> resp = restTemplate.postForEntity(url, pending.event(), Void.class);
+            if (!resp.getStatusCode().is2xxSuccessful()) {
+                log.warn("Observability {} record non-2xx: {}", kind.metricName, resp.getStatusCode());
+                failedCounters.get(kind).increment();
+                return false;
+            }
+            recordedCounters.get(kind).increment();
+            return true;
+        } catch (Exception e) {
+            log.error("Failed to record observability {} event", kind.metricName, e);
+            failedCounters.get(kind).increment();
+            return false;
+        }
+    }
+
+    private static LocalDateTime utc(Instant instant) {
+        return LocalDateTime.ofInstant(instant, ZoneOffset.UTC);
+    }
+
+    private enum Kind {
+        STRATEGY_ANALYSIS("strategy_analysis", "/strategy-analysis", "strategy analysis events"),
+        DECISION_LOG("decision_log", "/decision-log", "decision logs"),
+        PORTFOLIO_SNAPSHOT("portfolio_snapshot", "/portfolio-snapshot", "portfolio snapshots");
+
+        private final String metricName;
+        private final String path;
+        private final String description;
+
+        Kind(String metricName, String path, String description) {
+            this.metricName = metricName;
+            this.path = path;
+            this.description = description;
+        }
+    }
+
+    private record Pending(Kind kind, Object event) {
+    }
+}
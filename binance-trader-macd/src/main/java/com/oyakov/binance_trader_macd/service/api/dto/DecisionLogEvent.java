@@ -0,0 +1,50 @@
+package com.oyakov.binance_trader_macd.service.api.dto;
+
+import com.fasterxml.jackson.annotation.JsonFormat;
+import com.fasterxml.jackson.databind.PropertyNamingStrategies;
+import com.fasterxml.jackson.databind.annotation.JsonNaming;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+
+/**
+ * Body of {@code POST /api/v1/observability/decision-log}: why an instance did or did not trade on a signal.
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+@JsonNaming(PropertyNamingStrategies.SnakeCaseStrategy.class)
+public class DecisionLogEvent {
+
+    private String instanceId;
+    private String strategyName;
+    private String symbol;
+
+    @JsonFormat(shape = JsonFormat.Shape.STRING)
+    private LocalDateTime decisionTime;
+
+    private String signalDetected;
+    private String signalStrength;
+    private BigDecimal macdHistogram;
+    private BigDecimal currentPrice;
+
+    private boolean tradeAllowed;
+    private boolean tradeExecuted;
+
+    private Boolean hasActivePosition;
+    private Boolean positionSizeOk;
+    private Boolean dailyLossLimitOk;
+    private Boolean riskCheckPassed;
+
+    private String decisionReason;
+    private String blockedReason;
+
+    private String orderId;
+    private BigDecimal executedPrice;
+    private BigDecimal executedQuantity;
+}
@@ -0,0 +1,29 @@
+package com.oyakov.binance_trader_macd.service.api.dto;
+
+import com.fasterxml.jackson.databind.PropertyNamingStrategies;
+import com.fasterxml.jackson.databind.annotation.JsonNaming;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Body of {@code POST /api/v1/observability/batch}: queued events grouped by kind, in the order they were queued.
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+@JsonNaming(PropertyNamingStrategies.SnakeCaseStrategy.class)
+public class ObservabilityBatch {
+
+    @Builder.Default
+    private List<StrategyAnalysisEvent> strategyAnalyses = new ArrayList<>();
+    @Builder.Default
+    private List<DecisionLogEvent> decisionLogs = new ArrayList<>();
+    @Builder.Default
+    private List<PortfolioSnapshotEvent> portfolioSnapshots = new ArrayList<>();
+}
@@ -0,0 +1,47 @@
+package com.oyakov.binance_trader_macd.service.api.dto;
+
+import com.fasterxml.jackson.annotation.JsonFormat;
+import com.fasterxml.jackson.databind.PropertyNamingStrategies;
+import com.fasterxml.jackson.databind.annotation.JsonNaming;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+
+/**
+ * Body of {@code POST /api/v1/observability/portfolio-snapshot}: balance, position and performance of an instance.
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+@JsonNaming(PropertyNamingStrategies.SnakeCaseStrategy.class)
+public class PortfolioSnapshotEvent {
+
+    private String instanceId;
+    private String strategyName;
+
+    @JsonFormat(shape = JsonFormat.Shape.STRING)
+    private LocalDateTime snapshotTime;
+
+    private BigDecimal totalBalance;
+    private BigDecimal availableBalance;
+    private BigDecimal positionValue;
+
+    private String symbol;
+    private BigDecimal positionSize;
+    private BigDecimal positionEntryPrice;
+    private BigDecimal currentMarketPrice;
+    private BigDecimal unrealizedPnl;
+
+    private int totalTrades;
+    private int winningTrades;
+    private BigDecimal totalRealizedPnl;
+    private BigDecimal dailyPnl;
+
+    private BigDecimal currentDrawdown;
+    private BigDecimal maxDrawdown;
+}
@@ -0,0 +1,48 @@
+package com.oyakov.binance_trader_macd.service.api.dto;
+
+import com.fasterxml.jackson.annotation.JsonFormat;
+import com.fasterxml.jackson.databind.PropertyNamingStrategies;
+import com.fasterxml.jackson.databind.annotation.JsonNaming;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+
+/**
+ * Body of {@code POST /api/v1/observability/strategy-analysis}: one MACD calculation of an instance. Times are UTC.
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+@JsonNaming(PropertyNamingStrategies.SnakeCaseStrategy.class)
+public class StrategyAnalysisEvent {
+
+    private String instanceId;
+    private String strategyName;
+    private String symbol;
+    private String interval;
+
+    @JsonFormat(shape = JsonFormat.Shape.STRING)
+    private LocalDateTime analysisTime;
+    private long klineTimestamp;
+    @JsonFormat(shape = JsonFormat.Shape.STRING)
+    private LocalDateTime klineCloseTime;
+
+    private BigDecimal currentPrice;
+    private int klineCount;
+
+    private BigDecimal macdLine;
+    private BigDecimal signalLine;
+    private BigDecimal histogram;
+    private String signalStrength;
+
+    private String signalDetected;
+    private String signalReason;
+
+    private BigDecimal emaFast;
+    private BigDecimal emaSlow;
+}
@@ -3,10 +3,11 @@ package com.oyakov.binance_trader_macd.service.impl;
 import com.oyakov.binance_shared_model.avro.KlineEvent;
 import com.oyakov.binance_trader_macd.config.MACDTraderConfig;
 import com.oyakov.binance_trader_macd.domain.MACDIndicator;
+import com.oyakov.binance_trader_macd.service.KlineShardDispatcher;
 import com.oyakov.binance_trader_macd.service.MACDCalculationService;
 import com.oyakov.binance_trader_macd.service.api.MacdStorageClient;
 import com.oyakov.binance_trader_macd.domain.OrderState;
-import com.oyakov.binance_trader_macd.domain.signal.MACDSignalAnalyzer;
+import com.oyakov.binance_trader_macd.domain.signal.IncrementalMACDSignalEngine;
 import com.oyakov.binance_trader_macd.domain.OrderSide;
 import com.oyakov.binance_trader_macd.domain.TradeSignal;
 import com.oyakov.binance_trader_macd.model.order.binance.storage.OrderItem;
@@ -22,9 +23,8 @@ import org.springframework.transaction.annotation.Transactional;
 
 import java.math.BigDecimal;
 import java.math.RoundingMode;
-import java.util.ArrayDeque;
-import java.util.Deque;
-import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.locks.Lock;
 import java.util.concurrent.locks.ReentrantLock;
 
@@ -33,17 +33,17 @@ import java.util.concurrent.locks.ReentrantLock;
 @RequiredArgsConstructor
 public class TraderServiceImpl implements KlineEventListener {
 
-    private final MACDSignalAnalyzer macdSignalAnalyzer;
+    private final IncrementalMACDSignalEngine macdSignalEngine;
     private final OrderServiceApi orderService;
     private final MACDCalculationService macdCalculationService;
     private final MacdStorageClient macdStorageClient;
     private final MACDTraderConfig traderConfig;
     private final MeterRegistry meterRegistry;
+    private final KlineShardDispatcher shardDispatcher;
 
-    private final Deque<KlineEvent> slidingWindow = new ArrayDeque<>();
-    private final Lock eventQLock = new ReentrantLock();
+    // MACD state is per (symbol, interval) shard, but orders are per symbol
+    private final Map<String, Lock> symbolOrderLocks = new ConcurrentHashMap<>();
 
-    private int SLIDING_WINDOW_SIZE = 78;
     private BigDecimal TAKE_PROFIT_THRESHOLD;
     private BigDecimal STOP_LOSS_THRESHOLD;
     public BigDecimal QUANTITY;
@@ -54,7 +54,6 @@ public class TraderServiceImpl implements KlineEventListener {
 
     @PostConstruct
     private void init() {
-        SLIDING_WINDOW_SIZE = traderConfig.getTrader().getSlidingWindowSize();
         TAKE_PROFIT_THRESHOLD = traderConfig.getTrader().getTakeProfitPercentage();
         STOP_LOSS_THRESHOLD = traderConfig.getTrader().getStopLossPercentage();
         QUANTITY = traderConfig.getTrader().getOrderQuantity();
@@ -78,39 +77,14 @@ public class TraderServiceImpl implements KlineEventListener {
     @Override
     public void onNewKline(KlineEvent klineEvent) {
         log.debug("Kline event received for processing: {}", klineEvent);
-        boolean locked = eventQLock.tryLock();
-        try {
-            if (locked) {
-                log.debug("Event Q lock acquired, processing the next event");
-                slidingWindow.addLast(klineEvent);
-                while (slidingWindow.size() > SLIDING_WINDOW_SIZE) {
-                    log.debug("Queue size = {} > {}. Removing oldest element", slidingWindow.size(), SLIDING_WINDOW_SIZE);
-                    slidingWindow.removeFirst();
-                }
-
-                if (slidingWindow.size() == SLIDING_WINDOW_SIZE) {
-                    log.info("Queue size adjusted, processing window");
-                    processSlidingWindow(slidingWindow, klineEvent);
-                } else {
-                    log.debug("Waiting for more klines. Current size: {}", slidingWindow.size());
-                }
-            } else {
-                log.info("Failed to acquire the Q lock; skipping this event");
-            }
-        } catch (Exception e) {
-            log.error("Error processing kline event", e);
-        } finally {
-            if (locked) {
-                eventQLock.unlock();
-            }
-        }
+        shardDispatcher.dispatch(klineEvent, this::processKline);
     }
 
-    private void processSlidingWindow(Iterable<KlineEvent> data, KlineEvent triggerEvent) {
-        // Get MACD signal
-        macdSignalAnalyzer.tryExtractSignal(data).ifPresentOrElse(
-                signal -> executeTradeSignal(signal, triggerEvent),
-                () -> executeKlineUpdate(triggerEvent));
+    private void processKline(KlineEvent klineEvent) {
+        // Advance the per-(symbol, interval) MACD state and act on a crossover, if any
+        macdSignalEngine.onClosedKline(klineEvent).ifPresentOrElse(
+                signal -> executeTradeSignal(signal, klineEvent),
+                () -> executeKlineUpdate(klineEvent));
     }
 
     private void executeKlineUpdate(KlineEvent klineEvent) {
@@ -136,12 +110,18 @@ public class TraderServiceImpl implements KlineEventListener {
         } catch (Exception e) {
             log.warn("MACD upsert on kline update failed for {} {}", symbol, klineEvent.getInterval(), e);
         }
-        orderService.getActiveOrder(symbol).ifPresentOrElse(
-                orderItem -> {
-                    log.info("Active order %s is present".formatted(orderItem.getOrderId()));
-                    processOrderSLTP(orderItem.getOrderId(), orderItem.getPrice(), currentPrice);
-                },
-                () -> log.info("No active order detected, waiting for signal..."));
+        Lock orderLock = orderLockFor(symbol);
+        orderLock.lock();
+        try {
+            orderService.getActiveOrder(symbol).ifPresentOrElse(
+                    orderItem -> {
+                        log.info("Active order %s is present".formatted(orderItem.getOrderId()));
+                        processOrderSLTP(orderItem.getOrderId(), orderItem.getPrice(), currentPrice);
+                    },
+                    () -> log.info("No active order detected, waiting for signal..."));
+        } finally {
+            orderLock.unlock();
+        }
     }
 
     public void processOrderSLTP(Long orderId, BigDecimal entryPrice, BigDecimal currentPrice) {
@@ -170,26 +150,36 @@ public class TraderServiceImpl implements KlineEventListener {
         String symbol = klineEvent.getSymbol();
         BigDecimal currentPrice = klineEvent.getClose();
         log.info("%s signal is triggered for symbol %s at price %s".formatted(OrderSide.of(signal), symbol, currentPrice));
-        orderService.getActiveOrder(symbol).ifPresentOrElse(
-                orderItem -> {
-                    log.info("Active order present: %s".formatted(orderItem));
-                    processOrderSLTP(orderItem.getOrderId(), orderItem.getPrice(), currentPrice);
-                    processTradeSignalUpdate(orderItem.getOrderId(), orderItem.getSide(), OrderSide.of(signal));
-                },
-                () -> {
-                    log.info("No active order detected, creating a new one...");
-                    BigDecimal stopLossPrice = currentPrice.multiply(STOP_LOSS_THRESHOLD)
-                            .setScale(currentPrice.scale(), RoundingMode.HALF_UP);
-                    BigDecimal takeProfitPrice = currentPrice.multiply(TAKE_PROFIT_THRESHOLD)
-                            .setScale(currentPrice.scale(), RoundingMode.HALF_UP);
-                    OrderItem order = orderService.createOrderGroup(
-                            symbol,
-                            currentPrice,
-                            QUANTITY,
-                            OrderSide.of(signal),
-                            stopLossPrice,
-                            takeProfitPrice);
-                    log.info("Order group created: %s".formatted(order));
-                });
+        Lock orderLock = orderLockFor(symbol);
+        orderLock.lock();
+        try {
+            orderService.getActiveOrder(symbol).ifPresentOrElse(
+                    orderItem -> {
+                        log.info("Active order present: %s".formatted(orderItem));
+                        processOrderSLTP(orderItem.getOrderId(), orderItem.getPrice(), currentPrice);
+                        processTradeSignalUpdate(orderItem.getOrderId(), orderItem.getSide(), OrderSide.of(signal));
+                    },
+                    () -> {
+                        log.info("No active order detected, creating a new one...");
+                        BigDecimal stopLossPrice = currentPrice.multiply(STOP_LOSS_THRESHOLD)
+                                .setScale(currentPrice.scale(), RoundingMode.HALF_UP);
+                        BigDecimal takeProfitPrice = currentPrice.multiply(TAKE_PROFIT_THRESHOLD)
+                                .setScale(currentPrice.scale(), RoundingMode.HALF_UP);
+                        OrderItem order = orderService.createOrderGroup(
+                                symbol,
+                                currentPrice,
+                                QUANTITY,
+                                OrderSide.of(signal),
+                                stopLossPrice,
+                                takeProfitPrice);
+                        log.info("Order group created: %s".formatted(order));
+                    });
+        } finally {
+            orderLock.unlock();
+        }
+    }
+
+    private Lock orderLockFor(String symbol) {
+        return symbolOrderLocks.computeIfAbsent(symbol, key -> new ReentrantLock());
     }
 }
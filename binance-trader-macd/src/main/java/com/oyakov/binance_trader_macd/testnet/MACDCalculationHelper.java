@@ -1,17 +1,16 @@
 package com.oyakov.binance_trader_macd.testnet;
 
 import com.oyakov.binance_shared_model.avro.KlineEvent;
+import com.oyakov.binance_trader_macd.domain.signal.IncrementalMACDState;
+import com.oyakov.binance_trader_macd.domain.signal.MACDKernel;
+import com.oyakov.binance_trader_macd.domain.signal.MACDSeries;
 import lombok.Builder;
 import lombok.Data;
 
 import java.math.BigDecimal;
 import java.math.RoundingMode;
-import java.util.ArrayList;
 import java.util.Comparator;
 import java.util.List;
-import java.util.stream.Collectors;
-import java.util.stream.IntStream;
-import java.util.stream.StreamSupport;
 
 /**
  * Helper class to calculate MACD values and intermediate EMAs
@@ -21,14 +20,6 @@ public class MACDCalculationHelper {
     private static final int FAST_PERIOD = 12;
     private static final int SLOW_PERIOD = 26;
     private static final int SIGNAL_PERIOD = 9;
-    private static final int SCALE = 10;
-
-    private static final BigDecimal FAST_MULTIPLIER = BigDecimal.valueOf(2)
-            .divide(BigDecimal.valueOf(FAST_PERIOD + 1), SCALE, RoundingMode.HALF_UP);
-    private static final BigDecimal SLOW_MULTIPLIER = BigDecimal.valueOf(2)
-            .divide(BigDecimal.valueOf(SLOW_PERIOD + 1), SCALE, RoundingMode.HALF_UP);
-    private static final BigDecimal SIGNAL_MULTIPLIER = BigDecimal.valueOf(2)
-            .divide(BigDecimal.valueOf(SIGNAL_PERIOD + 1), SCALE, RoundingMode.HALF_UP);
 
     @Data
     @Builder
@@ -60,45 +51,47 @@ public class MACDCalculationHelper {
 
         List<BigDecimal> closes = sorted.stream()
                 .map(KlineEvent::getClose)
-                .collect(Collectors.toList());
-
-        List<BigDecimal> emaFast = calculateEMA(closes, FAST_PERIOD, FAST_MULTIPLIER);
-        List<BigDecimal> emaSlow = calculateEMA(closes, SLOW_PERIOD, SLOW_MULTIPLIER);
+                .toList();
 
-        int offset = emaFast.size() - emaSlow.size();
-        if (offset < 0) {
+        MACDSeries series = MACDKernel.compute(closes, FAST_PERIOD, SLOW_PERIOD, SIGNAL_PERIOD);
+        int last = series.length() - 1;
+        if (!series.hasSignal(last)) {
             return null;
         }
 
-        List<BigDecimal> alignedFast = emaFast.stream()
-                .skip(offset)
-                .toList();
-
-        List<BigDecimal> macd = IntStream.range(0, emaSlow.size())
-                .mapToObj(i -> alignedFast.get(i)
-                        .subtract(emaSlow.get(i))
-                        .setScale(SCALE, RoundingMode.HALF_UP))
-                .collect(Collectors.toList());
+        // The reported MACD value is the one the signal line is compared against (see MACDSeries#laggedCrossoverAt)
+        BigDecimal macdValue = series.macdDecimal(last - (SIGNAL_PERIOD - 1));
+        BigDecimal signalValue = series.signalDecimal(last);
+        BigDecimal histogram = macdValue.subtract(signalValue);
+        BigDecimal currentPrice = sorted.get(sorted.size() - 1).getClose();
 
-        List<BigDecimal> signalLine = calculateEMA(macd, SIGNAL_PERIOD, SIGNAL_MULTIPLIER);
+        return MACDValues.builder()
+                .emaFast(series.emaFastDecimal(last))
+                .emaSlow(series.emaSlowDecimal(last))
+                .macdLine(macdValue)
+                .signalLine(signalValue)
+                .histogram(histogram)
+                .currentPrice(currentPrice)
+                .signalStrength(calculateSignalStrength(histogram))
+                .build();
+    }
 
-        if (signalLine.isEmpty() || macd.isEmpty()) {
+    /**
+     * MACD values after the last close fed to {@code state}, the same values {@link #calculateMACD} gives for
+     * the same closes; {@code null} while the state has no signal value yet
+     */
+    public static MACDValues fromState(IncrementalMACDState state, BigDecimal currentPrice) {
+        if (Double.isNaN(state.getSignal())) {
             return null;
         }
 
-        int last = signalLine.size() - 1;
-        BigDecimal macdValue = macd.get(last);
-        BigDecimal signalValue = signalLine.get(last);
+        BigDecimal macdValue = toDecimal(state.getLaggedMacd());
+        BigDecimal signalValue = toDecimal(state.getSignal());
         BigDecimal histogram = macdValue.subtract(signalValue);
-        BigDecimal currentPrice = sorted.get(sorted.size() - 1).getClose();
-
-        // Get the latest EMA values
-        BigDecimal latestEmaFast = emaFast.get(emaFast.size() - 1);
-        BigDecimal latestEmaSlow = emaSlow.get(emaSlow.size() - 1);
 
         return MACDValues.builder()
-                .emaFast(latestEmaFast)
-                .emaSlow(latestEmaSlow)
+                .emaFast(toDecimal(state.getEmaFast()))
+                .emaSlow(toDecimal(state.getEmaSlow()))
                 .macdLine(macdValue)
                 .signalLine(signalValue)
                 .histogram(histogram)
@@ -107,6 +100,10 @@ public class MACDCalculationHelper {
                 .build();
     }
 
+    private static BigDecimal toDecimal(double value) {
+        return BigDecimal.valueOf(value).setScale(MACDKernel.DECIMAL_SCALE, RoundingMode.HALF_UP);
+    }
+
     private static String calculateSignalStrength(BigDecimal histogram) {
         if (histogram == null) {
             return "NONE";
@@ -124,32 +121,4 @@ public class MACDCalculationHelper {
             return "NONE";
         }
     }
-
-    private static List<BigDecimal> calculateEMA(List<BigDecimal> values, int period, BigDecimal multiplier) {
-        if (values.size() < period) {
-            return List.of();
-        }
-
-        BigDecimal initialAvg = values.stream()
-                .limit(period)
-                .reduce(BigDecimal.ZERO, BigDecimal::add)
-                .divide(BigDecimal.valueOf(period), SCALE, RoundingMode.HALF_UP);
-
-        List<BigDecimal> ema = new ArrayList<>(values.size() - period + 1);
-        ema.add(initialAvg);
-
-        values.stream()
-                .skip(period)
-                .forEach(value -> {
-                    BigDecimal previousEma = ema.get(ema.size() - 1);
-                    BigDecimal newEma = value.subtract(previousEma)
-                            .multiply(multiplier)
-                            .add(previousEma)
-                            .setScale(SCALE, RoundingMode.HALF_UP);
-                    ema.add(newEma);
-                });
-
-        return ema;
-    }
 }
-
@@ -0,0 +1,309 @@
+package com.oyakov.binance_trader_macd.testnet;
+
+import com.oyakov.binance_shared_model.avro.KlineEvent;
+import com.oyakov.binance_trader_macd.backtest.BinanceHistoricalDataFetcher;
+import com.oyakov.binance_trader_macd.backtest.SharedDataFetcher;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.annotation.Profile;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.Deque;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ScheduledFuture;
+import java.util.function.Consumer;
+
+/**
+ * Market data for all testnet instances, one feed per symbol and timeframe.
+ * <p>
+ * Each closed kline of a feed is received or fetched once and handed to every instance subscribed to it; the
+ * instances keep their own indicator state. Klines normally arrive as {@link KlineEvent} application events from
+ * the Kafka consumer. Each feed checks back shortly after its next kline closes; when the kline has not arrived,
+ * because the consumer is behind or not running, the hub asks storage for the recent klines once for the whole
+ * feed, and Binance when storage has none, and keeps asking every {@code trader.testnet.market-data-retry-interval}
+ * until it gets it. A new subscriber first gets the last {@value #HISTORY_SIZE} klines of the feed, so it starts
+ * warmed up.
+ * <p>
+ * Subscribers get klines in batches in close time order, never a kline that is still open or one they already
+ * got. They are called on the publishing thread and should hand the batch off rather than process it there.
+ * <p>
+ * Unless data collection runs with {@code closed-klines-only}, it publishes each kline once, from its first
+ * update, so Kafka klines usually arrive while still open. The hub holds the latest of them and publishes it
+ * once its close time has passed, with the next kline of the feed or at the next check. Open klines fetched
+ * from storage or Binance are not held; they are fetched again once closed.
+ */
+@Slf4j
+@Component
+@Profile("testnet")
+public class MarketDataHub {
+
+    static final int HISTORY_SIZE = 100;
+    // Time the Kafka consumer gets to deliver a kline before the hub fetches it
+    private static final long OVERDUE_GRACE_MILLIS = 5_000L;
+
+    private final SharedDataFetcher sharedDataFetcher;
+    private final BinanceHistoricalDataFetcher dataFetcher;
+    private final TestnetExecutor executor;
+    private final long retryMillis;
+    private final Clock clock;
+    private final Map<String, Feed> feeds = new ConcurrentHashMap<>();
+    private volatile boolean stopped;
+
+    @Autowired
+    public MarketDataHub(SharedDataFetcher sharedDataFetcher, BinanceHistoricalDataFetcher dataFetcher,
+                         TestnetExecutor executor, TestnetProperties testnetProperties) {
+        this(sharedDataFetcher, dataFetcher, executor, testnetProperties.getMarketDataRetryInterval(),
+                Clock.systemUTC());
+    }
+
+    MarketDataHub(SharedDataFetcher sharedDataFetcher, BinanceHistoricalDataFetcher dataFetcher,
+                  TestnetExecutor executor, Duration retryInterval, Clock clock) {
+        this.sharedDataFetcher = sharedDataFetcher;
+        this.dataFetcher = dataFetcher;
+        this.executor = executor;
+        this.retryMillis = retryInterval.toMillis();
+        this.clock = clock;
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        stopped = true;
+        feeds.values().forEach(Feed::cancelCheck);
+    }
+
+    /**
+     * Subscribe to the closed klines of {@code symbol} and {@code timeframe}, starting with the recent ones.
+     *
+     * @return call to unsubscribe
+     */
+    public Runnable subscribe(String symbol, String timeframe, Consumer<List<KlineEvent>> subscriber) {
+        Feed feed = feeds.computeIfAbsent(key(symbol, timeframe),
+                key -> new Feed(symbol.toUpperCase(), timeframe));
+        feed.subscribe(subscriber);
+        return () -> feed.unsubscribe(subscriber);
+    }
+
+    @EventListener(KlineEvent.class)
+    public void onKline(KlineEvent kline) {
+        Feed feed = feeds.get(key(kline.getSymbol(), kline.getInterval()));
+        if (feed != null) {
+            feed.publish(List.of(kline), true);
+        }
+    }
+
+    static long intervalMillis(String timeframe) {
+        return switch (timeframe) {
+            case "1m" -> 60_000L;
+            case "3m" -> 180_000L;
+            case "5m" -> 300_000L;
+            case "15m" -> 900_000L;
+            case "30m" -> 1_800_000L;
+            case "1h" -> 3_600_000L;
+            case "2h" -> 7_200_000L;
+            case "4h" -> 14_400_000L;
+            case "6h" -> 21_600_000L;
+            case "8h" -> 28_800_000L;
+            case "12h" -> 43_200_000L;
+            case "1d" -> 86_400_000L;
+            case "3d" -> 259_200_000L;
+            case "1w" -> 604_800_000L;
+            case "1M" -> 2_592_000_000L;
+            default -> 3_600_000L; // Default to 1h
+        };
+    }
+
+    private static String key(String symbol, String timeframe) {
+        return symbol.toUpperCase() + '|' + timeframe;
+    }
+
+    private final class Feed {
+
+        private final String symbol;
+        private final String timeframe;
+        private final long intervalMillis;
+        // Serialises fetches, so that concurrent subscribers and checks do not fetch the same klines twice
+        private final Object fetchLock = new Object();
+        // Guarded by this
+        private final List<Consumer<List<KlineEvent>>> subscribers = new ArrayList<>();
+        private final Deque<KlineEvent> history = new ArrayDeque<>(HISTORY_SIZE);
+        private long lastCloseTime = Long.MIN_VALUE;
+        // Kafka kline received before its close time
+        private KlineEvent held;
+        private ScheduledFuture<?> nextCheck;
+        private boolean checkPending;
+
+        private Feed(String symbol, String timeframe) {
+            this.symbol = symbol;
+            this.timeframe = timeframe;
+            this.intervalMillis = intervalMillis(timeframe);
+        }
+
+        void subscribe(Consumer<List<KlineEvent>> subscriber) {
+            synchronized (fetchLock) {
+                if (isEmpty()) {
+                    refresh();
+                }
+            }
+            synchronized (this) {
+                if (!history.isEmpty()) {
+                    deliver(subscriber, List.copyOf(history));
+                }
+                subscribers.add(subscriber);
+                scheduleCheck();
+            }
+        }
+
+        synchronized void unsubscribe(Consumer<List<KlineEvent>> subscriber) {
+            subscribers.remove(subscriber);
+        }
+
+        synchronized boolean isEmpty() {
+            return history.isEmpty();
+        }
+
+        /**
+         * Fetch the recent klines if the next one has not arrived by now, then check back when the one after it
+         * is due. A feed nobody subscribes to any more is not checked until somebody does again.
+         */
+        void check() {
+            synchronized (this) {
+                nextCheck = null;
+                if (subscribers.isEmpty() || stopped) {
+                    checkPending = false;
+                    return;
+                }
+            }
+            try {
+                // A held kline may have closed by now
+                publish(List.of(), false);
+                if (isOverdue(clock.millis())) {
+                    refresh();
+                }
+            } catch (Exception e) {
+                log.error("Failed to check market data for {} {}: {}", symbol, timeframe, e.getMessage(), e);
+            }
+            synchronized (this) {
+                checkPending = false;
+                scheduleCheck();
+            }
+        }
+
+        synchronized void cancelCheck() {
+            if (nextCheck != null) {
+                nextCheck.cancel(false);
+                nextCheck = null;
+            }
+            checkPending = false;
+        }
+
+        // Caller holds the monitor
+        private void scheduleCheck() {
+            if (checkPending || stopped) {
+                return;
+            }
+            long now = clock.millis();
+            long due = history.isEmpty() ? now : lastCloseTime + intervalMillis + OVERDUE_GRACE_MILLIS;
+            long delay = due > now ? due - now : retryMillis;
+            checkPending = true;
+            nextCheck = executor.schedule(this::check, delay);
+        }
+
+        private synchronized boolean isOverdue(long now) {
+            return history.isEmpty() || now > lastCloseTime + intervalMillis + OVERDUE_GRACE_MILLIS;
+        }
+
+        void refresh() {
+            synchronized (fetchLock) {
+                publish(fetchRecent(), false);
+            }
+        }
+
+        /**
+         * Publish the closed klines among {@code klines} and the held one; with {@code holdOpen}, the latest
+         * open kline is held until it closes.
+         */
+        synchronized void publish(List<KlineEvent> klines, boolean holdOpen) {
+            long now = clock.millis();
+            KlineEvent previouslyHeld = held;
+            held = null;
+            List<KlineEvent> candidates = new ArrayList<>(klines.size() + 1);
+            if (previouslyHeld != null) {
+                candidates.add(previouslyHeld);
+            }
+            candidates.addAll(klines);
+            List<KlineEvent> fresh = new ArrayList<>(candidates.size());
+            candidates.stream()
+                    .sorted(Comparator.comparingLong(KlineEvent::getCloseTime))
+                    .forEach(kline -> {
+                        // Already published
+                        if (kline.getCloseTime() <= lastCloseTime) {
+                            return;
+                        }
+                        if (kline.getCloseTime() >= now) {
+                            // Later updates of the same kline replace the held one
+                            if ((holdOpen || kline == previouslyHeld)
+                                    && (held == null || kline.getCloseTime() >= held.getCloseTime())) {
+                                held = kline;
+                            }
+                            return;
+                        }
+                        lastCloseTime = kline.getCloseTime();
+                        if (history.size() == HISTORY_SIZE) {
+                            history.removeFirst();
+                        }
+                        history.addLast(kline);
+                        fresh.add(kline);
+                    });
+            if (fresh.isEmpty()) {
+                return;
+            }
+            List<KlineEvent> batch = List.copyOf(fresh);
+            for (Consumer<List<KlineEvent>> subscriber : subscribers) {
+                deliver(subscriber, batch);
+            }
+        }
+
+        private void deliver(Consumer<List<KlineEvent>> subscriber, List<KlineEvent> batch) {
+            try {
+                subscriber.accept(batch);
+            } catch (Exception e) {
+                log.error("Subscriber of {} {} failed to take {} klines: {}", symbol, timeframe, batch.size(),
+                        e.getMessage(), e);
+            }
+        }
+
+        private List<KlineEvent> fetchRecent() {
+            String datasetName = "testnet-" + symbol.toLowerCase() + "-" + timeframe;
+            try {
+                // First try to get data from shared database (preferred)
+                if (sharedDataFetcher != null) {
+                    var dataset = sharedDataFetcher.fetchRecentKlines(symbol, timeframe, HISTORY_SIZE, datasetName);
+                    if (!dataset.getKlines().isEmpty()) {
+                        log.debug("Retrieved {} klines of {} {} from shared database",
+                                dataset.getKlines().size(), symbol, timeframe);
+                        return dataset.getKlines();
+                    }
+                    log.warn("No {} {} data available in shared database, falling back to direct API",
+                            symbol, timeframe);
+                }
+
+                // Fallback to direct Binance API if shared data is not available
+                long endTime = clock.millis();
+                long startTime = endTime - HISTORY_SIZE * intervalMillis;
+                return dataFetcher.fetchHistoricalData(symbol, timeframe, startTime, endTime, datasetName).getKlines();
+            } catch (Exception e) {
+                log.error("Failed to fetch market data for {} {}: {}", symbol, timeframe, e.getMessage(), e);
+                return List.of();
+            }
+        }
+    }
+}
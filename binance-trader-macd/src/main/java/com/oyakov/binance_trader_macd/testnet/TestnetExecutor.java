@@ -0,0 +1,158 @@
+package com.oyakov.binance_trader_macd.testnet;
+
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.context.annotation.Profile;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * The threads all testnet instances share.
+ * <p>
+ * Work runs on virtual threads, so an idle instance holds no thread at all. Each instance gets a {@link Lane}
+ * whose tasks run one at a time in submission order. Timed work is kept by a single scheduler thread and handed to
+ * a virtual thread when due, so a slow fetch or report never delays another timer.
+ */
+@Slf4j
+@Component
+@Profile("testnet")
+public class TestnetExecutor {
+
+    private final ExecutorService workers;
+    private final ScheduledExecutorService scheduler;
+
+    public TestnetExecutor() {
+        this(Executors.newThreadPerTaskExecutor(Thread.ofVirtual().name("testnet-", 0).factory()));
+    }
+
+    TestnetExecutor(ExecutorService workers) {
+        this.workers = workers;
+        this.scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "testnet-scheduler");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    /**
+     * A new lane; tasks submitted to it never run concurrently with each other.
+     */
+    public Lane newLane(String name) {
+        return new Lane(name);
+    }
+
+    /**
+     * Run {@code task} once after {@code delayMillis}.
+     */
+    public ScheduledFuture<?> schedule(Runnable task, long delayMillis) {
+        return scheduler.schedule(() -> execute(task), Math.max(0, delayMillis), TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Run {@code task} every {@code period}, the first time after {@code initialDelay}.
+     */
+    public ScheduledFuture<?> scheduleAtFixedRate(Runnable task, Duration initialDelay, Duration period) {
+        return scheduler.scheduleAtFixedRate(() -> execute(task), initialDelay.toMillis(), period.toMillis(),
+                TimeUnit.MILLISECONDS);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        scheduler.shutdownNow();
+        workers.shutdown();
+        try {
+            if (!workers.awaitTermination(5, TimeUnit.SECONDS)) {
+                workers.shutdownNow();
+            }
+        } catch (InterruptedException e) {
+            workers.shutdownNow();
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private void execute(Runnable task) {
+        try {
+            workers.execute(() -> {
+                try {
+                    task.run();
+                } catch (Exception e) {
+                    log.error("Testnet task failed: {}", e.getMessage(), e);
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            log.debug("Testnet executor shut down, dropping task");
+        }
+    }
+
+    /**
+     * Serial queue of tasks, drained on a virtual thread while it has any.
+     */
+    public final class Lane {
+
+        private final String name;
+        private final Queue<Runnable> queue = new ConcurrentLinkedQueue<>();
+        private final AtomicBoolean scheduled = new AtomicBoolean();
+        private volatile boolean closed;
+
+        private Lane(String name) {
+            this.name = name;
+        }
+
+        /**
+         * @return false when the lane is closed and the task was not taken
+         */
+        public boolean submit(Runnable task) {
+            if (closed) {
+                return false;
+            }
+            queue.add(task);
+            schedule();
+            return true;
+        }
+
+        /**
+         * Drop the waiting tasks and refuse new ones; a task already running completes.
+         */
+        public void close() {
+            closed = true;
+            queue.clear();
+        }
+
+        private void schedule() {
+            if (scheduled.compareAndSet(false, true)) {
+                try {
+                    workers.execute(this::drain);
+                } catch (RejectedExecutionException e) {
+                    scheduled.set(false);
+                    log.debug("Testnet executor shut down, dropping tasks of lane {}", name);
+                }
+            }
+        }
+
+        private void drain() {
+            Runnable task;
+            while (!closed && (task = queue.poll()) != null) {
+                try {
+                    task.run();
+                } catch (Exception e) {
+                    log.error("Task on lane {} failed: {}", name, e.getMessage(), e);
+                }
+            }
+            scheduled.set(false);
+            // A task may have been submitted after the last poll but before the flag was cleared
+            if (!closed && !queue.isEmpty()) {
+                schedule();
+            }
+        }
+    }
+}
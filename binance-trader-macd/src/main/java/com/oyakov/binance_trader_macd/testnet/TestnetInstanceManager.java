@@ -1,12 +1,10 @@
 package com.oyakov.binance_trader_macd.testnet;
 
-import com.oyakov.binance_trader_macd.backtest.BinanceHistoricalDataFetcher;
-import com.oyakov.binance_trader_macd.backtest.SharedDataFetcher;
-import com.oyakov.binance_trader_macd.domain.signal.MACDSignalAnalyzer;
 import com.oyakov.binance_trader_macd.rest.client.BinanceOrderClient;
 import com.oyakov.binance_trader_macd.service.api.MacdStorageClient;
 import com.oyakov.binance_trader_macd.service.api.ObservabilityStorageClient;
 import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.context.annotation.Profile;
@@ -29,9 +27,8 @@ public class TestnetInstanceManager {
     private final StrategyConfigLoader strategyConfigLoader;
     private final TestnetPerformanceMonitor performanceMonitor;
     private final TestnetProperties testnetProperties;
-    private final BinanceHistoricalDataFetcher dataFetcher;
-    private final SharedDataFetcher sharedDataFetcher;
-    private final MACDSignalAnalyzer macdAnalyzer;
+    private final MarketDataHub marketDataHub;
+    private final TestnetExecutor testnetExecutor;
     private final BinanceOrderClient binanceOrderClient;
     private final MacdStorageClient macdStorageClient;
     private final ObservabilityStorageClient observabilityClient;
@@ -51,14 +48,18 @@ public class TestnetInstanceManager {
         instances.computeIfAbsent(instanceId, id -> {
             BigDecimal balance = testnetProperties.getVirtualBalance();
             TestnetTradingInstance instance = new TestnetTradingInstance(id, config, balance, 
-                dataFetcher, sharedDataFetcher, macdAnalyzer, binanceOrderClient, 
-                macdStorageClient, observabilityClient);
+                marketDataHub, testnetExecutor, binanceOrderClient, macdStorageClient, observabilityClient);
             instance.start();
             performanceMonitor.registerInstance(instance);
             return instance;
         });
     }
 
+    @PreDestroy
+    public void stopAllInstances() {
+        List.copyOf(instances.keySet()).forEach(this::stopInstance);
+    }
+
     public void stopInstance(String instanceId) {
         TestnetTradingInstance instance = instances.remove(instanceId);
         if (instance != null) {
@@ -8,15 +8,15 @@ import org.springframework.context.annotation.Profile;
 import org.springframework.stereotype.Service;
 
 import java.math.BigDecimal;
+import java.time.Duration;
 import java.time.Instant;
+import java.util.ArrayList;
 import java.util.Comparator;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
 import java.util.concurrent.ConcurrentHashMap;
-import java.util.concurrent.Executors;
-import java.util.concurrent.ScheduledExecutorService;
-import java.util.concurrent.TimeUnit;
+import java.util.concurrent.ScheduledFuture;
 import java.util.stream.Collectors;
 
 @Slf4j
@@ -26,18 +26,19 @@ import java.util.stream.Collectors;
 public class TestnetPerformanceMonitor {
 
     private final Map<String, TestnetTradingInstance> instances = new ConcurrentHashMap<>();
-    private final ScheduledExecutorService scheduler = Executors.newScheduledThreadPool(2);
+    private final TestnetExecutor testnetExecutor;
+    private final List<ScheduledFuture<?>> tasks = new ArrayList<>();
 
     @PostConstruct
     public void startMonitoring() {
-        scheduler.scheduleAtFixedRate(this::collectMetrics, 0, 1, TimeUnit.MINUTES);
-        scheduler.scheduleAtFixedRate(this::generateReport, 0, 1, TimeUnit.HOURS);
+        tasks.add(testnetExecutor.scheduleAtFixedRate(this::collectMetrics, Duration.ZERO, Duration.ofMinutes(1)));
+        tasks.add(testnetExecutor.scheduleAtFixedRate(this::generateReport, Duration.ZERO, Duration.ofHours(1)));
         log.info("Testnet performance monitor started");
     }
 
     @PreDestroy
     public void shutdown() {
-        scheduler.shutdownNow();
+        tasks.forEach(task -> task.cancel(false));
         log.info("Testnet performance monitor stopped");
     }
 
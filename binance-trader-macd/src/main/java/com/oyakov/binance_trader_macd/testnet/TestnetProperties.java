@@ -6,6 +6,7 @@ import org.springframework.context.annotation.Profile;
 import org.springframework.stereotype.Component;
 
 import java.math.BigDecimal;
+import java.time.Duration;
 
 @Data
 @Component
@@ -17,4 +18,6 @@ public class TestnetProperties {
     private BigDecimal virtualBalance = BigDecimal.valueOf(10_000);
     private BigDecimal maxPositionSize = BigDecimal.valueOf(0.1);
     private StrategyConfig.RiskLevel riskLevel = StrategyConfig.RiskLevel.MEDIUM;
+    // How soon the market data hub asks again for a kline that is overdue
+    private Duration marketDataRetryInterval = Duration.ofSeconds(60);
 }
@@ -1,12 +1,10 @@
 package com.oyakov.binance_trader_macd.testnet;
 
-import com.oyakov.binance_trader_macd.backtest.BinanceHistoricalDataFetcher;
-import com.oyakov.binance_trader_macd.backtest.SharedDataFetcher;
 import com.oyakov.binance_trader_macd.domain.OrderSide;
 import com.oyakov.binance_trader_macd.domain.OrderType;
 import com.oyakov.binance_trader_macd.domain.TimeInForce;
 import com.oyakov.binance_trader_macd.domain.TradeSignal;
-import com.oyakov.binance_trader_macd.domain.signal.MACDSignalAnalyzer;
+import com.oyakov.binance_trader_macd.domain.signal.IncrementalMACDState;
 import com.oyakov.binance_trader_macd.rest.client.BinanceOrderClient;
 import com.oyakov.binance_trader_macd.rest.dto.BinanceOrderResponse;
 import com.oyakov.binance_trader_macd.service.api.MacdStorageClient;
@@ -16,15 +14,21 @@ import lombok.Getter;
 import lombok.extern.slf4j.Slf4j;
 
 import java.math.BigDecimal;
+import java.time.Duration;
 import java.time.Instant;
 import java.util.List;
 import java.util.UUID;
-import java.util.concurrent.ExecutorService;
-import java.util.concurrent.Executors;
-import java.util.concurrent.Future;
 import java.util.concurrent.atomic.AtomicBoolean;
-import java.util.concurrent.atomic.AtomicInteger;
 
+/**
+ * One strategy variant trading on testnet.
+ * <p>
+ * The instance subscribes to the {@link MarketDataHub} feed of its symbol and timeframe and advances its own
+ * {@link IncrementalMACDState}, built from the strategy's MACD parameters, with every closed kline, so it runs
+ * when a kline closes and holds no thread in between. Klines are processed in order on the instance's lane of the
+ * shared {@link TestnetExecutor}; of a batch, only the newest kline is analysed and traded on, the older ones just
+ * bring the indicator up to date.
+ */
 @Slf4j
 public class TestnetTradingInstance {
 
@@ -34,32 +38,31 @@ public class TestnetTradingInstance {
     private final StrategyConfig strategyConfig;
     @Getter
     private final TestnetPerformanceTracker performanceTracker;
-    private final ExecutorService executorService;
+    private final TestnetExecutor.Lane lane;
     private final AtomicBoolean running = new AtomicBoolean(false);
-    private volatile Future<?> executionFuture;
+    private volatile Runnable unsubscribe;
     
-    private final BinanceHistoricalDataFetcher dataFetcher;
-    private final SharedDataFetcher sharedDataFetcher;
-    private final MACDSignalAnalyzer macdAnalyzer;
+    private final MarketDataHub marketDataHub;
     private final BinanceOrderClient binanceOrderClient;
     private final MacdStorageClient macdStorageClient;
     private final ObservabilityStorageClient observabilityClient;
+    // Only touched on the instance's lane
+    private final IncrementalMACDState macdState;
     
     // Portfolio snapshot interval (every 5 minutes)
-    private final AtomicInteger iterationCount = new AtomicInteger(0);
-    private static final int SNAPSHOT_INTERVAL = 5;
+    private static final Duration SNAPSHOT_INTERVAL = Duration.ofMinutes(5);
+    private Instant lastSnapshotTime;
 
     public TestnetTradingInstance(String instanceId, StrategyConfig strategyConfig, BigDecimal startingBalance,
-                                  BinanceHistoricalDataFetcher dataFetcher, SharedDataFetcher sharedDataFetcher,
-                                  MACDSignalAnalyzer macdAnalyzer, BinanceOrderClient binanceOrderClient,
-                                  MacdStorageClient macdStorageClient, ObservabilityStorageClient observabilityClient) {
+                                  MarketDataHub marketDataHub, TestnetExecutor executor,
+                                  BinanceOrderClient binanceOrderClient, MacdStorageClient macdStorageClient,
+                                  ObservabilityStorageClient observabilityClient) {
         this.instanceId = instanceId != null ? instanceId : UUID.randomUUID().toString();
         this.strategyConfig = strategyConfig;
         this.performanceTracker = new TestnetPerformanceTracker(this.instanceId, strategyConfig, startingBalance);
-        this.executorService = Executors.newSingleThreadExecutor(r -> new Thread(r, "testnet-instance-" + this.instanceId));
-        this.dataFetcher = dataFetcher;
-        this.sharedDataFetcher = sharedDataFetcher;
-        this.macdAnalyzer = macdAnalyzer;
+        this.lane = executor.newLane("testnet-instance-" + this.instanceId);
+        this.macdState = createMacdState(strategyConfig.getMacdParams());
+        this.marketDataHub = marketDataHub;
         this.binanceOrderClient = binanceOrderClient;
         this.macdStorageClient = macdStorageClient;
         this.observabilityClient = observabilityClient;
@@ -69,7 +72,8 @@ public class TestnetTradingInstance {
         if (running.compareAndSet(false, true)) {
             log.info("Starting testnet trading instance {} for strategy {}", instanceId, strategyConfig.getName());
             performanceTracker.startTracking();
-            executionFuture = executorService.submit(this::simulateLifecycle);
+            unsubscribe = marketDataHub.subscribe(strategyConfig.getSymbol(), strategyConfig.getTimeframe(),
+                    this::enqueue);
         } else {
             log.debug("Instance {} already running", instanceId);
         }
@@ -78,11 +82,11 @@ public class TestnetTradingInstance {
     public void stop() {
         if (running.compareAndSet(true, false)) {
             log.info("Stopping testnet trading instance {}", instanceId);
-            performanceTracker.stopTracking();
-            if (executionFuture != null) {
-                executionFuture.cancel(true);
+            if (unsubscribe != null) {
+                unsubscribe.run();
             }
-            executorService.shutdownNow();
+            performanceTracker.stopTracking();
+            lane.close();
         }
     }
 
@@ -94,73 +98,66 @@ public class TestnetTradingInstance {
         return performanceTracker.getPerformance(isRunning());
     }
 
-    private void simulateLifecycle() {
+    private void enqueue(List<KlineEvent> klines) {
+        if (!running.get() || !lane.submit(() -> processKlines(klines))) {
+            log.debug("Instance {} stopped, dropping {} klines", instanceId, klines.size());
+        }
+    }
+
+    private void processKlines(List<KlineEvent> klines) {
         try {
-            while (running.get()) {
-                try {
-                    Instant analysisTime = Instant.now();
-                    int currentIteration = iterationCount.incrementAndGet();
-                    
-                    // 1. Fetch real-time market data
-                    List<KlineEvent> klines = fetchMarketData();
-                    
-                    if (klines.isEmpty()) {
-                        log.warn("No kline data available for instance {}", instanceId);
-                        Thread.sleep(60_000L);
-                        continue;
-                    }
-                    
-                    if (klines.size() < macdAnalyzer.getMinDataPointCount()) {
-                        log.warn("Insufficient data for MACD calculation: {} (need {})", 
-                                klines.size(), macdAnalyzer.getMinDataPointCount());
-                        Thread.sleep(60_000L); // Wait 1 minute
-                        continue;
-                    }
-                    
-                    // 2. Calculate MACD values
-                    MACDCalculationHelper.MACDValues macdValues = MACDCalculationHelper.calculateMACD(klines);
-                    
-                    if (macdValues == null) {
-                        log.warn("Failed to calculate MACD for instance {}", instanceId);
-                        Thread.sleep(60_000L);
-                        continue;
-                    }
-                    
-                    // 3. Persist MACD to database for historical reference
-                    KlineEvent latestKline = klines.get(klines.size() - 1);
-                    persistMACDData(latestKline, macdValues);
-                    
-                    // 4. Generate trade signals
-                    TradeSignal signal = macdAnalyzer.tryExtractSignal(klines).orElse(null);
-                    
-                    // 5. Record strategy analysis event (every iteration)
-                    recordStrategyAnalysis(analysisTime, klines, macdValues, signal);
-                    
-                    // 6. Handle trading decision
-                    if (signal != null) {
-                        handleTradingDecision(signal, macdValues);
-                    }
-                    
-                    // 7. Record portfolio snapshot (every 5 minutes)
-                    if (currentIteration % SNAPSHOT_INTERVAL == 0) {
-                        recordPortfolioSnapshot(analysisTime, macdValues.getCurrentPrice());
-                    }
-                    
-                    // 8. Wait before next iteration (check every minute)
-                    Thread.sleep(60_000L);
-                    
-                } catch (Exception e) {
-                    log.error("Error in trading lifecycle for instance {}: {}", instanceId, e.getMessage(), e);
-                    Thread.sleep(30_000L); // Wait 30 seconds on error
-                }
+            Instant analysisTime = Instant.now();
+            
+            // 1. Advance the indicator; only a crossover on the newest kline is traded on
+            TradeSignal signal = null;
+            for (KlineEvent kline : klines) {
+                signal = macdState.update(kline.getCloseTime(), kline.getClose()).orElse(null);
             }
-        } catch (InterruptedException ignored) {
-            Thread.currentThread().interrupt();
-        } finally {
-            log.debug("Lifecycle thread for instance {} finished at {}", instanceId, Instant.now());
+            KlineEvent latestKline = klines.get(klines.size() - 1);
+            
+            if (macdState.getCount() < macdState.getMinDataPointCount()) {
+                log.warn("Insufficient data for MACD calculation: {} (need {})", 
+                        macdState.getCount(), macdState.getMinDataPointCount());
+                return;
+            }
+            
+            // 2. Calculate MACD values
+            MACDCalculationHelper.MACDValues macdValues =
+                    MACDCalculationHelper.fromState(macdState, latestKline.getClose());
+            
+            if (macdValues == null) {
+                log.warn("Failed to calculate MACD for instance {}", instanceId);
+                return;
+            }
+            
+            // 3. Persist MACD to database for historical reference
+            persistMACDData(latestKline, macdValues);
+            
+            // 4. Record strategy analysis event (every kline)
+            recordStrategyAnalysis(analysisTime, latestKline, macdValues, signal);
+            
+            // 5. Handle trading decision
+            if (signal != null) {
+                handleTradingDecision(signal, macdValues);
+            }
+            
+            // 6. Record portfolio snapshot (every 5 minutes)
+            if (lastSnapshotTime == null || !analysisTime.isBefore(lastSnapshotTime.plus(SNAPSHOT_INTERVAL))) {
+                recordPortfolioSnapshot(analysisTime, macdValues.getCurrentPrice());
+                lastSnapshotTime = analysisTime;
+            }
+        } catch (Exception e) {
+            log.error("Error in trading lifecycle for instance {}: {}", instanceId, e.getMessage(), e);
         }
     }
     
+    private static IncrementalMACDState createMacdState(StrategyConfig.MacdParameters params) {
+        if (params == null) {
+            return new IncrementalMACDState();
+        }
+        return new IncrementalMACDState(params.getFastPeriod(), params.getSlowPeriod(), params.getSignalPeriod());
+    }
+    
     private void persistMACDData(KlineEvent latestKline, MACDCalculationHelper.MACDValues macdValues) {
         try {
             macdStorageClient.upsertMacd(
@@ -179,10 +176,9 @@ public class TestnetTradingInstance {
         }
     }
     
-    private void recordStrategyAnalysis(Instant analysisTime, List<KlineEvent> klines,
+    private void recordStrategyAnalysis(Instant analysisTime, KlineEvent latestKline,
                                        MACDCalculationHelper.MACDValues macdValues, TradeSignal signal) {
         try {
-            KlineEvent latestKline = klines.get(klines.size() - 1);
             String signalDetected = signal != null ? signal.name() : null;
             String signalReason = signal != null ? 
                 "Signal detected: " + signal.name() + " with histogram=" + macdValues.getHistogram() :
@@ -197,7 +193,7 @@ public class TestnetTradingInstance {
                 latestKline.getCloseTime(),
                 Instant.ofEpochMilli(latestKline.getCloseTime()),
                 macdValues.getCurrentPrice(),
-                klines.size(),
+                (int) macdState.getCount(),
                 macdValues.getMacdLine(),
                 macdValues.getSignalLine(),
                 macdValues.getHistogram(),
@@ -303,68 +299,6 @@ public class TestnetTradingInstance {
         }
     }
     
-    private List<KlineEvent> fetchMarketData() {
-        try {
-            // First try to get data from shared database (preferred)
-            if (sharedDataFetcher != null) {
-                log.debug("Fetching market data from shared database for instance {}", instanceId);
-                var dataset = sharedDataFetcher.fetchRecentKlines(
-                    strategyConfig.getSymbol().toUpperCase(),
-                    strategyConfig.getTimeframe(),
-                    100, // Get last 100 klines
-                    "testnet-" + instanceId
-                );
-                
-                if (!dataset.getKlines().isEmpty()) {
-                    log.debug("Retrieved {} klines from shared database for instance {}", 
-                        dataset.getKlines().size(), instanceId);
-                    return dataset.getKlines();
-                } else {
-                    log.warn("No data available in shared database, falling back to direct API for instance {}", instanceId);
-                }
-            }
-            
-            // Fallback to direct Binance API if shared data is not available
-            log.debug("Fetching market data from Binance API for instance {}", instanceId);
-            long endTime = Instant.now().toEpochMilli();
-            long startTime = endTime - (100 * getIntervalMilliseconds());
-            
-            var dataset = dataFetcher.fetchHistoricalData(
-                strategyConfig.getSymbol().toUpperCase(),
-                strategyConfig.getTimeframe(),
-                startTime,
-                endTime,
-                "testnet-" + instanceId
-            );
-            
-            return dataset.getKlines();
-        } catch (Exception e) {
-            log.error("Failed to fetch market data for instance {}: {}", instanceId, e.getMessage(), e);
-            return List.of();
-        }
-    }
-    
-    private long getIntervalMilliseconds() {
-        return switch (strategyConfig.getTimeframe()) {
-            case "1m" -> 60_000L;
-            case "3m" -> 180_000L;
-            case "5m" -> 300_000L;
-            case "15m" -> 900_000L;
-            case "30m" -> 1_800_000L;
-            case "1h" -> 3_600_000L;
-            case "2h" -> 7_200_000L;
-            case "4h" -> 14_400_000L;
-            case "6h" -> 21_600_000L;
-            case "8h" -> 28_800_000L;
-            case "12h" -> 43_200_000L;
-            case "1d" -> 86_400_000L;
-            case "3d" -> 259_200_000L;
-            case "1w" -> 604_800_000L;
-            case "1M" -> 2_592_000_000L;
-            default -> 3_600_000L; // Default to 1h
-        };
-    }
-    
     private boolean isTradeAllowed(TradeSignal signal) {
         // Check if we already have an active position
         if (performanceTracker.hasActivePosition()) {
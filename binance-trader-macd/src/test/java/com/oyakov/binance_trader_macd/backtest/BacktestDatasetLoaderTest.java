@@ -0,0 +1,83 @@
+package com.oyakov.binance_trader_macd.backtest;
+
+import com.fasterxml.jackson.databind.json.JsonMapper;
+import com.oyakov.binance_shared_model.avro.KlineEvent;
+import com.oyakov.binance_shared_model.backtest.BacktestDataset;
+import com.oyakov.binance_shared_model.backtest.ColumnarKlineDataset;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.math.BigDecimal;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Instant;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class BacktestDatasetLoaderTest {
+
+    private final BacktestDatasetLoader loader = new BacktestDatasetLoader(JsonMapper.builder().findAndAddModules().build());
+
+    @TempDir
+    Path tempDir;
+
+    @Test
+    void loadsColumnarDatasetSortedByCloseTime() throws Exception {
+        Path file = tempDir.resolve("dataset.klc");
+        ColumnarKlineDataset.write(BacktestDataset.builder()
+                .name("ETHUSDT_1h")
+                .symbol("ETHUSDT")
+                .interval("1h")
+                .collectedAt(Instant.parse("2024-03-01T00:00:00Z"))
+                .klines(List.of(kline(2, "2250.5"), kline(0, "2200.25"), kline(1, "2230")))
+                .build(), file);
+
+        BacktestDataset dataset = loader.load(file);
+
+        assertEquals("ETHUSDT_1h", dataset.getName());
+        assertEquals(3, dataset.getKlines().size());
+        assertEquals(List.of(0L, 3_600_000L, 7_200_000L),
+                dataset.getKlines().stream().map(KlineEvent::getOpenTime).toList());
+        assertEquals(0, new BigDecimal("2230").compareTo(dataset.getKlines().get(1).getClose()));
+        assertEquals(2250.5, loader.loadColumnar(file).close(2));
+    }
+
+    @Test
+    void namesUnnamedColumnarDatasetAfterFile() throws Exception {
+        Path file = tempDir.resolve("unnamed.klc");
+        ColumnarKlineDataset.write(BacktestDataset.builder()
+                .symbol("ETHUSDT")
+                .interval("1h")
+                .klines(List.of(kline(0, "1")))
+                .build(), file);
+
+        BacktestDataset dataset = loader.load(file);
+
+        assertEquals("unnamed.klc", dataset.getName());
+        assertNull(dataset.getCollectedAt());
+    }
+
+    @Test
+    void rejectsTruncatedColumnarDataset() throws Exception {
+        Path file = tempDir.resolve("truncated.klc");
+        ColumnarKlineDataset.write(BacktestDataset.builder()
+                .name("truncated")
+                .klines(List.of(kline(0, "1"), kline(1, "2")))
+                .build(), file);
+        byte[] bytes = Files.readAllBytes(file);
+        Files.write(file, Arrays.copyOf(bytes, bytes.length - 8));
+
+        assertThrows(IllegalStateException.class, () -> loader.load(file));
+    }
+
+    private static KlineEvent kline(int hour, String close) {
+        long openTime = hour * 3_600_000L;
+        BigDecimal price = new BigDecimal(close);
+        return new KlineEvent("kline", openTime + 3_600_000L, "ETHUSDT", "1h", openTime, openTime + 3_599_999L,
+                price, price, price, price, BigDecimal.TEN);
+    }
+}
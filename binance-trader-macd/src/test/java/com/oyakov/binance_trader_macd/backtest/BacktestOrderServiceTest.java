@@ -0,0 +1,65 @@
+package com.oyakov.binance_trader_macd.backtest;
+
+import com.oyakov.binance_shared_model.avro.KlineEvent;
+import com.oyakov.binance_trader_macd.domain.OrderSide;
+import com.oyakov.binance_trader_macd.domain.OrderState;
+import com.oyakov.binance_trader_macd.exception.OrderCapacityReachedException;
+import com.oyakov.binance_trader_macd.model.order.binance.storage.OrderItem;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.time.Instant;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class BacktestOrderServiceTest {
+
+    private final BacktestOrderService orderService = new BacktestOrderService();
+
+    @Test
+    void shouldKeepOneActiveOrderPerSymbolRegardlessOfCase() throws Exception {
+        orderService.onKline(kline("btcusdt", 1_000L, "100"));
+        OrderItem btc = orderService.createOrderGroup("btcusdt", new BigDecimal("100"), BigDecimal.ONE,
+                OrderSide.BUY, new BigDecimal("98"), new BigDecimal("105"));
+        orderService.createOrderGroup("ETHUSDT", new BigDecimal("10"), BigDecimal.ONE,
+                OrderSide.SELL, new BigDecimal("9.8"), new BigDecimal("10.5"));
+
+        assertThat(orderService.hasActiveOrder("BTCUSDT")).isTrue();
+        assertThat(orderService.getActiveOrder("BtcUsdt")).contains(btc);
+        assertThat(orderService.hasActiveOrder("BNBUSDT")).isFalse();
+        assertThatThrownBy(() -> orderService.createOrderGroup("BTCUSDT", new BigDecimal("101"), BigDecimal.ONE,
+                OrderSide.BUY, new BigDecimal("99"), new BigDecimal("106")))
+                .isInstanceOf(OrderCapacityReachedException.class);
+    }
+
+    @Test
+    void shouldCloseOrderAtCurrentKlineAndFreeItsSymbol() throws Exception {
+        orderService.onKline(kline("BTCUSDT", 1_000L, "100"));
+        OrderItem order = orderService.createOrderGroup("BTCUSDT", new BigDecimal("100"), new BigDecimal("2"),
+                OrderSide.SELL, new BigDecimal("98"), new BigDecimal("105"));
+
+        orderService.onKline(kline("BTCUSDT", 2_000L, "95"));
+        orderService.closeOrderWithState(order.getOrderId(), OrderState.CLOSED_TP);
+        orderService.closeOrderWithState(order.getOrderId(), OrderState.CLOSED_SL);
+
+        assertThat(order.getStatus()).isEqualTo(OrderState.CLOSED_TP);
+        assertThat(orderService.hasActiveOrder("BTCUSDT")).isFalse();
+        assertThat(orderService.getClosedTrades()).singleElement().satisfies(trade -> {
+            assertThat(trade.getOrderId()).isEqualTo(order.getOrderId());
+            assertThat(trade.getExitState()).isEqualTo(OrderState.CLOSED_TP);
+            assertThat(trade.getExitTime()).isEqualTo(Instant.ofEpochMilli(2_000L));
+            assertThat(trade.getProfit()).isEqualByComparingTo("10");
+            assertThat(trade.getReturnPercentage()).isEqualByComparingTo("0.05");
+        });
+        OrderItem next = orderService.createOrderGroup("BTCUSDT", new BigDecimal("95"), BigDecimal.ONE,
+                OrderSide.BUY, new BigDecimal("93"), new BigDecimal("99"));
+        assertThat(next.getOrderId()).isEqualTo(order.getOrderId() + 1);
+    }
+
+    private static KlineEvent kline(String symbol, long closeTime, String close) {
+        BigDecimal price = new BigDecimal(close);
+        return new KlineEvent("kline", closeTime, symbol, "1m", closeTime - 59_999L, closeTime,
+                price, price, price, price, BigDecimal.ONE);
+    }
+}
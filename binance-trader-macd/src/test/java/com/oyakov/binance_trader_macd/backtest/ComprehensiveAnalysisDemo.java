@@ -22,8 +22,7 @@ public class ComprehensiveAnalysisDemo {
         System.out.println();
         System.out.println("This will take several minutes to complete...\n");
         
-        try {
-            ComprehensiveAnalysisService service = new ComprehensiveAnalysisService();
+        try (ComprehensiveAnalysisService service = new ComprehensiveAnalysisService()) {
             
             CompletableFuture<ComprehensiveAnalysisService.ComprehensiveAnalysisResult> future = 
                 service.runComprehensiveAnalysis();
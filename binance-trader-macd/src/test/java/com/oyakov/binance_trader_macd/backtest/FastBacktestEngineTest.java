@@ -0,0 +1,124 @@
+package com.oyakov.binance_trader_macd.backtest;
+
+import com.oyakov.binance_shared_model.avro.KlineEvent;
+import com.oyakov.binance_trader_macd.config.MACDTraderConfig;
+import com.oyakov.binance_trader_macd.domain.OrderState;
+import com.oyakov.binance_trader_macd.domain.signal.MACDKernel;
+import com.oyakov.binance_trader_macd.domain.signal.MACDSignalAnalyzer;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.Mockito.mock;
+
+class FastBacktestEngineTest {
+
+    private static final long MINUTE = 60_000L;
+
+    private final MACDSignalAnalyzer analyzer = new MACDSignalAnalyzer(MACDKernel.Precision.DOUBLE);
+
+    @Test
+    void shouldReplicateEventDrivenTradesWithDefaultSettings() {
+        MACDTraderConfig.Trader config = new MACDTraderConfig.Trader();
+        List<KlineEvent> klines = randomWalk("BTCUSDT", 20_000, 60_000, 0.003, 1L);
+
+        List<SimulatedTrade> expected = eventDriven(config, klines);
+        assertSameTrades(new FastBacktestEngine(analyzer, config).run(klines), expected);
+        assertThat(expected).extracting(SimulatedTrade::getExitState)
+                .contains(OrderState.CLOSED_TP, OrderState.CLOSED_SL, OrderState.CLOSED_INVERTED_SIGNAL);
+    }
+
+    @Test
+    void shouldReplicateEventDrivenTradesWithShortestWindow() {
+        MACDTraderConfig.Trader config = new MACDTraderConfig.Trader();
+        config.setSlidingWindowSize(analyzer.getMinDataPointCount());
+        List<KlineEvent> klines = randomWalk("ETHUSDT", 5_000, 3_000, 0.002, 2L);
+
+        List<SimulatedTrade> expected = eventDriven(config, klines);
+        assertThat(expected).isNotEmpty();
+        assertSameTrades(new FastBacktestEngine(analyzer, config).run(klines), expected);
+    }
+
+    @Test
+    void shouldDecideThresholdTiesLikeEventDrivenEngine() {
+        // Cent prices around 100 hit the thresholds exactly
+        MACDTraderConfig.Trader config = new MACDTraderConfig.Trader();
+        config.setTakeProfitPercentage(new BigDecimal("1.001"));
+        config.setStopLossPercentage(new BigDecimal("0.999"));
+        List<KlineEvent> klines = randomWalk("BTCUSDT", 5_000, 100, 0.001, 3L);
+
+        List<SimulatedTrade> expected = eventDriven(config, klines);
+        assertThat(expected).hasSizeGreaterThan(100);
+        assertSameTrades(new FastBacktestEngine(analyzer, config).run(klines), expected);
+    }
+
+    @Test
+    void shouldNotTradeWhenWindowIsTooShortForSignals() {
+        MACDTraderConfig.Trader config = new MACDTraderConfig.Trader();
+        config.setSlidingWindowSize(20);
+        List<KlineEvent> klines = randomWalk("BTCUSDT", 1_000, 60_000, 0.003, 4L);
+
+        assertThat(new FastBacktestEngine(analyzer, config).run(klines)).isEmpty();
+        assertThat(eventDriven(config, klines)).isEmpty();
+    }
+
+    @Test
+    void shouldRejectDatasetsItCannotReplicate() {
+        MACDTraderConfig.Trader config = new MACDTraderConfig.Trader();
+        FastBacktestEngine engine = new FastBacktestEngine(analyzer, config);
+        List<KlineEvent> klines = randomWalk("BTCUSDT", 200, 60_000, 0.003, 5L);
+        List<KlineEvent> mixedSymbols = new ArrayList<>(klines);
+        mixedSymbols.addAll(randomWalk("ETHUSDT", 200, 3_000, 0.003, 6L));
+
+        assertThat(engine.supports(klines)).isTrue();
+        assertThat(engine.supports(klines.reversed())).isFalse();
+        assertThat(engine.supports(mixedSymbols)).isFalse();
+        assertThat(new FastBacktestEngine(new MACDSignalAnalyzer(MACDKernel.Precision.EXACT_DECIMAL), config)
+                .supports(klines)).isFalse();
+        assertThat(new FastBacktestEngine(mock(MACDSignalAnalyzer.class), config).supports(klines)).isFalse();
+        assertThatThrownBy(() -> engine.run(mixedSymbols)).isInstanceOf(IllegalArgumentException.class);
+    }
+
+    @Test
+    void shouldReplayUnsupportedDatasetsEventByEvent() {
+        MACDTraderConfig.Trader config = new MACDTraderConfig.Trader();
+        List<KlineEvent> klines = new ArrayList<>(randomWalk("BTCUSDT", 3_000, 60_000, 0.003, 7L));
+        klines.addAll(randomWalk("ETHUSDT", 3_000, 3_000, 0.003, 8L));
+
+        assertSameTrades(BacktestTraderEngine.replay(analyzer, config, klines), eventDriven(config, klines));
+    }
+
+    private List<SimulatedTrade> eventDriven(MACDTraderConfig.Trader config, List<KlineEvent> klines) {
+        BacktestOrderService orderService = new BacktestOrderService();
+        BacktestTraderEngine engine = new BacktestTraderEngine(analyzer, orderService, config);
+        klines.forEach(engine::onNewKline);
+        return orderService.getClosedTrades();
+    }
+
+    private static void assertSameTrades(List<SimulatedTrade> actual, List<SimulatedTrade> expected) {
+        assertThat(actual).hasSameSizeAs(expected);
+        for (int i = 0; i < expected.size(); i++) {
+            assertThat(actual.get(i)).as("trade %d", i).isEqualTo(expected.get(i));
+        }
+    }
+
+    private static List<KlineEvent> randomWalk(String symbol, int count, double start, double volatility, long seed) {
+        Random random = new Random(seed);
+        List<KlineEvent> klines = new ArrayList<>(count);
+        double price = start;
+        for (int i = 0; i < count; i++) {
+            price *= 1 + random.nextGaussian() * volatility;
+            BigDecimal close = BigDecimal.valueOf(price).setScale(2, RoundingMode.HALF_UP);
+            long openTime = i * MINUTE;
+            klines.add(new KlineEvent("kline", openTime + MINUTE, symbol, "1m", openTime, openTime + MINUTE - 1,
+                    close, close, close, close, BigDecimal.ONE));
+        }
+        return klines;
+    }
+}
@@ -0,0 +1,52 @@
+package com.oyakov.binance_trader_macd.backtest;
+
+import com.oyakov.binance_shared_model.avro.KlineEvent;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class KlineStreamMergerTest {
+
+    @Test
+    void shouldMergeStreamsByCloseTimeThenStreamOrder() {
+        List<List<KlineEvent>> streams = List.of(
+                klines("BTCUSDT", 1, 3, 5, 5),
+                List.of(),
+                klines("ETHUSDT", 2, 3, 6),
+                klines("BNBUSDT", 0));
+
+        KlineStreamMerger merger = new KlineStreamMerger(streams);
+        List<String> merged = new ArrayList<>();
+        while (merger.next()) {
+            merged.add(merger.stream() + ":" + merger.kline().getSymbol() + "@" + merger.kline().getCloseTime());
+        }
+
+        assertThat(merged).containsExactly(
+                "3:BNBUSDT@0", "0:BTCUSDT@1", "2:ETHUSDT@2", "0:BTCUSDT@3", "2:ETHUSDT@3",
+                "0:BTCUSDT@5", "0:BTCUSDT@5", "2:ETHUSDT@6");
+        assertThat(merger.next()).isFalse();
+    }
+
+    @Test
+    void shouldRejectStreamOutOfCloseTimeOrder() {
+        KlineStreamMerger merger = new KlineStreamMerger(List.of(klines("BTCUSDT", 1, 4, 2)));
+
+        assertThat(merger.next()).isTrue();
+        assertThat(merger.next()).isTrue();
+        assertThatThrownBy(merger::next).isInstanceOf(IllegalArgumentException.class);
+    }
+
+    private static List<KlineEvent> klines(String symbol, long... closeTimes) {
+        List<KlineEvent> klines = new ArrayList<>(closeTimes.length);
+        for (long closeTime : closeTimes) {
+            klines.add(new KlineEvent("kline", closeTime, symbol, "1m", closeTime - 59_999L, closeTime,
+                    BigDecimal.ONE, BigDecimal.ONE, BigDecimal.ONE, BigDecimal.ONE, BigDecimal.ONE));
+        }
+        return klines;
+    }
+}
@@ -0,0 +1,113 @@
+package com.oyakov.binance_trader_macd.backtest;
+
+import com.oyakov.binance_shared_model.avro.KlineEvent;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class ParameterSweepExecutorTest {
+
+    private static final List<MACDParameters> PARAMETER_SETS = List.of(
+            new MACDParameters(12, 26, 9),
+            new MACDParameters(12, 26, 3),
+            new MACDParameters(8, 21, 5),
+            new MACDParameters(5, 13, 3),
+            new MACDParameters(26, 12, 9));
+
+    @Test
+    void shouldProduceSameSignalsAsSerialAnalyzer() throws Exception {
+        Map<String, List<KlineEvent>> klines = new LinkedHashMap<>();
+        klines.put("BTCUSDT", randomWalk("BTCUSDT", 600, 60_000, 1L));
+        klines.put("ETHUSDT", randomWalk("ETHUSDT", 400, 3_000, 2L));
+        Map<String, PriceSeries> series = new LinkedHashMap<>();
+        klines.forEach((symbol, events) -> series.put(symbol, PriceSeries.of(events)));
+
+        Map<String, List<CustomMACDAnalyzer.MACDSignal>> swept = new HashMap<>();
+        int failed;
+        try (ParameterSweepExecutor executor = new ParameterSweepExecutor(4)) {
+            failed = executor.run(series, PARAMETER_SETS,
+                    (symbol, prices, parameters, signals) -> Map.entry(symbol + parameters, signals),
+                    result -> swept.put(result.getKey(), result.getValue()));
+        }
+
+        assertThat(failed).isZero();
+        assertThat(swept).hasSize(series.size() * PARAMETER_SETS.size());
+        CustomMACDAnalyzer analyzer = new CustomMACDAnalyzer();
+        klines.forEach((symbol, events) -> PARAMETER_SETS.forEach(parameters -> {
+            List<CustomMACDAnalyzer.MACDSignal> expected = analyzer.analyzeSignals(events, parameters);
+            List<CustomMACDAnalyzer.MACDSignal> actual = swept.get(symbol + parameters);
+            assertThat(actual).as("%s %s", symbol, parameters).hasSameSizeAs(expected);
+            for (int i = 0; i < expected.size(); i++) {
+                assertThat(actual.get(i).getTimestamp()).isEqualTo(expected.get(i).getTimestamp());
+                assertThat(actual.get(i).getPrice()).isEqualTo(expected.get(i).getPrice());
+                assertThat(actual.get(i).getSignal()).isEqualTo(expected.get(i).getSignal());
+            }
+        }));
+        assertThat(swept.get("BTCUSDT" + new MACDParameters(12, 26, 9))).isNotEmpty();
+    }
+
+    @Test
+    void shouldSkipFailedTasksAndReportThem() throws Exception {
+        Map<String, PriceSeries> series = Map.of("BTCUSDT", PriceSeries.of(randomWalk("BTCUSDT", 200, 60_000, 3L)));
+        List<MACDParameters> results = new ArrayList<>();
+
+        int failed;
+        try (ParameterSweepExecutor executor = new ParameterSweepExecutor(2)) {
+            failed = executor.run(series, PARAMETER_SETS, (symbol, prices, parameters, signals) -> {
+                if (parameters.getSignalPeriod() == 3) {
+                    throw new IllegalStateException("boom");
+                }
+                return parameters;
+            }, results::add);
+        }
+
+        assertThat(failed).isEqualTo(2);
+        assertThat(results).containsExactlyInAnyOrder(
+                new MACDParameters(12, 26, 9), new MACDParameters(8, 21, 5), new MACDParameters(26, 12, 9));
+    }
+
+    @Test
+    void shouldTurnFailedTasksIntoResults() throws Exception {
+        Map<String, PriceSeries> series = Map.of("BTCUSDT", PriceSeries.of(randomWalk("BTCUSDT", 200, 60_000, 4L)));
+        List<String> results = new ArrayList<>();
+
+        int failed;
+        try (ParameterSweepExecutor executor = new ParameterSweepExecutor(2)) {
+            failed = executor.run(series, PARAMETER_SETS, (symbol, prices, parameters, signals) -> {
+                if (parameters.getSignalPeriod() == 3) {
+                    throw new IllegalStateException("boom");
+                }
+                return "ok " + parameters.getFastPeriod();
+            }, (symbol, parameters, cause) -> "failed " + parameters.getFastPeriod() + ": " + cause.getMessage(),
+                    results::add);
+        }
+
+        assertThat(failed).isEqualTo(2);
+        assertThat(results).hasSize(PARAMETER_SETS.size())
+                .filteredOn(result -> result.startsWith("failed")).allMatch(result -> result.endsWith(": boom"))
+                .hasSize(2);
+    }
+
+    private static List<KlineEvent> randomWalk(String symbol, int count, double start, long seed) {
+        Random random = new Random(seed);
+        List<KlineEvent> klines = new ArrayList<>(count);
+        double price = start;
+        for (int i = count - 1; i >= 0; i--) {
+            price *= 1 + random.nextGaussian() * 0.004;
+            BigDecimal close = BigDecimal.valueOf(price).setScale(2, RoundingMode.HALF_UP);
+            long openTime = i * 3_600_000L;
+            klines.add(new KlineEvent("kline", openTime + 3_600_000L, symbol, "1h", openTime, openTime + 3_599_999L,
+                    close, close, close, close, BigDecimal.ONE));
+        }
+        return klines;
+    }
+}
@@ -0,0 +1,128 @@
+package com.oyakov.binance_trader_macd.backtest;
+
+import com.oyakov.binance_shared_model.avro.KlineEvent;
+import com.oyakov.binance_shared_model.backtest.BacktestDataset;
+import com.oyakov.binance_shared_model.backtest.ColumnarKlineDataset;
+import com.oyakov.binance_trader_macd.config.MACDTraderConfig;
+import com.oyakov.binance_trader_macd.domain.signal.MACDSignalAnalyzer;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class PortfolioBacktestEngineTest {
+
+    private static final long MINUTE = 60_000L;
+
+    private final MACDSignalAnalyzer analyzer = new MACDSignalAnalyzer();
+    private final MACDTraderConfig traderConfig = new MACDTraderConfig();
+    private final PortfolioBacktestEngine engine =
+            new PortfolioBacktestEngine(analyzer, traderConfig, new BacktestMetricsCalculator());
+
+    @TempDir
+    Path tempDir;
+
+    @Test
+    void shouldTradeEachSymbolAsOnItsOwnFromMappedDatasets() throws Exception {
+        List<BacktestDataset> datasets = new ArrayList<>();
+        datasets.add(mapped(dataset("BTCUSDT", 0, 4_000, 60_000, 1L)));
+        datasets.add(mapped(dataset("ETHUSDT", 30, 3_000, 3_000, 2L)));
+        datasets.add(dataset("BNBUSDT", 500, 3_500, 300, 3L));
+
+        List<EquityPoint> curve = new ArrayList<>();
+        PortfolioBacktestResult result = engine.run(datasets, new BigDecimal("10000"), null, curve::add);
+
+        // Every position fits into a third of the equity, so each strategy trades as on its own
+        for (BacktestDataset dataset : datasets) {
+            List<SimulatedTrade> alone = BacktestTraderEngine.replay(analyzer, traderConfig.getTrader(),
+                    dataset.getKlines());
+            List<SimulatedTrade> together = result.getTrades().stream()
+                    .filter(trade -> trade.getSymbol().equals(dataset.getSymbol()))
+                    .toList();
+            assertThat(alone).isNotEmpty();
+            assertThat(together).hasSameSizeAs(alone);
+            for (int i = 0; i < alone.size(); i++) {
+                assertThat(together.get(i).getEntryTime()).isEqualTo(alone.get(i).getEntryTime());
+                assertThat(together.get(i).getExitTime()).isEqualTo(alone.get(i).getExitTime());
+                assertThat(together.get(i).getExitState()).isEqualTo(alone.get(i).getExitState());
+                assertThat(together.get(i).getEntryPrice()).isEqualByComparingTo(alone.get(i).getEntryPrice());
+            }
+        }
+        assertThat(result.getSymbolMetrics()).extracting(BacktestMetrics::getDatasetName)
+                .containsExactly("BNBUSDT", "BTCUSDT", "ETHUSDT");
+        assertThat(result.getKlineCount()).isEqualTo(10_500);
+    }
+
+    @Test
+    void shouldStreamOneEquityPointPerCloseTime() {
+        List<BacktestDataset> datasets = List.of(
+                dataset("BTCUSDT", 0, 2_000, 60_000, 4L),
+                dataset("ETHUSDT", 1_000, 2_000, 3_000, 5L));
+
+        List<EquityPoint> curve = new ArrayList<>();
+        PortfolioBacktestResult result = engine.run(datasets, new BigDecimal("10000"), new BigDecimal("0.8"),
+                curve::add);
+
+        assertThat(curve).hasSize(3_000);
+        for (int i = 1; i < curve.size(); i++) {
+            assertThat(curve.get(i).getTime()).isAfter(curve.get(i - 1).getTime());
+        }
+        EquityPoint last = curve.get(curve.size() - 1);
+        assertThat(last.getTime()).isEqualTo(result.getEndTime());
+        assertThat(last.getEquity()).isEqualByComparingTo(result.getFinalEquity());
+        assertThat(last.getOpenPositions()).isEqualTo(result.getOpenPositions());
+        assertThat(result.getNetProfit())
+                .isEqualByComparingTo(result.getFinalEquity().subtract(result.getInitialCapital()));
+        BigDecimal worstDrawdown = curve.stream().map(EquityPoint::getDrawdownPercent)
+                .max(BigDecimal::compareTo).orElseThrow();
+        assertThat(result.getMaxDrawdownPercent()).isEqualByComparingTo(worstDrawdown);
+        // Two positions of 80% of the equity do not fit, the second one gets what cash is left
+        assertThat(curve).allSatisfy(point -> assertThat(point.getCash().signum()).isGreaterThanOrEqualTo(0));
+    }
+
+    @Test
+    void shouldRejectTwoDatasetsOfOneSymbol() {
+        BacktestDataset hourly = dataset("BTCUSDT", 0, 100, 60_000, 6L);
+        hourly.setName("btcusdt-1h");
+        hourly.setInterval("1h");
+        List<BacktestDataset> datasets = List.of(dataset("btcusdt", 0, 100, 60_000, 6L), hourly);
+
+        assertThatThrownBy(() -> engine.run(datasets, new BigDecimal("10000"), null, point -> { }))
+                .isInstanceOf(IllegalArgumentException.class)
+                .hasMessageContaining("btcusdt-1m")
+                .hasMessageContaining("btcusdt-1h");
+    }
+
+    private BacktestDataset mapped(BacktestDataset dataset) throws Exception {
+        Path path = tempDir.resolve(dataset.getName() + ColumnarKlineDataset.FILE_EXTENSION);
+        ColumnarKlineDataset.write(dataset, path);
+        return ColumnarKlineDataset.open(path).toDataset();
+    }
+
+    private static BacktestDataset dataset(String symbol, int firstMinute, int count, double start, long seed) {
+        Random random = new Random(seed);
+        List<KlineEvent> klines = new ArrayList<>(count);
+        double price = start;
+        for (int i = firstMinute; i < firstMinute + count; i++) {
+            price *= 1 + random.nextGaussian() * 0.003;
+            BigDecimal close = BigDecimal.valueOf(price).setScale(2, RoundingMode.HALF_UP);
+            long openTime = i * MINUTE;
+            klines.add(new KlineEvent("kline", openTime + MINUTE, symbol, "1m", openTime, openTime + MINUTE - 1,
+                    close, close, close, close, BigDecimal.ONE));
+        }
+        return BacktestDataset.builder()
+                .name(symbol.toLowerCase() + "-1m")
+                .symbol(symbol)
+                .interval("1m")
+                .klines(klines)
+                .build();
+    }
+}
@@ -0,0 +1,69 @@
+package com.oyakov.binance_trader_macd.backtest;
+
+import com.oyakov.binance_shared_model.avro.KlineEvent;
+import com.oyakov.binance_trader_macd.domain.OrderSide;
+import com.oyakov.binance_trader_macd.domain.OrderState;
+import com.oyakov.binance_trader_macd.exception.OrderCapacityReachedException;
+import com.oyakov.binance_trader_macd.model.order.binance.storage.OrderItem;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class PortfolioBookTest {
+
+    private final PortfolioBook book = new PortfolioBook(new BacktestOrderService(), new BigDecimal("1000"),
+            new BigDecimal("0.5"));
+
+    @Test
+    void shouldSizePositionsFromSharedCapitalAndMarkThem() throws Exception {
+        book.onKline(kline("BTCUSDT", 1L, "100"));
+        OrderItem btc = book.createOrderGroup("BTCUSDT", new BigDecimal("100"), new BigDecimal("0.05"),
+                OrderSide.BUY, new BigDecimal("98"), new BigDecimal("105"));
+        assertThat(btc.getOrigQty()).isEqualByComparingTo("5");
+        assertThat(book.getCash()).isEqualByComparingTo("500");
+
+        book.onKline(kline("BTCUSDT", 2L, "110"));
+        assertThat(book.equity()).isEqualByComparingTo("1050");
+
+        // Half of the equity is 525, but only 500 is left
+        book.onKline(kline("ETHUSDT", 2L, "10"));
+        OrderItem eth = book.createOrderGroup("ETHUSDT", new BigDecimal("10"), new BigDecimal("0.05"),
+                OrderSide.SELL, new BigDecimal("9.8"), new BigDecimal("10.5"));
+        assertThat(eth.getOrigQty()).isEqualByComparingTo("50");
+        assertThat(book.getCash()).isEqualByComparingTo("0");
+
+        book.onKline(kline("ETHUSDT", 3L, "9"));
+        assertThat(book.equity()).isEqualByComparingTo("1100");
+        assertThat(book.openPositions()).isEqualTo(2);
+        assertThatThrownBy(() -> book.createOrderGroup("BNBUSDT", new BigDecimal("300"), BigDecimal.ONE,
+                OrderSide.BUY, new BigDecimal("294"), new BigDecimal("315")))
+                .isInstanceOf(OrderCapacityReachedException.class);
+    }
+
+    @Test
+    void shouldReturnNotionalAndProfitToCashOnClose() throws Exception {
+        book.onKline(kline("ETHUSDT", 1L, "10"));
+        OrderItem eth = book.createOrderGroup("ETHUSDT", new BigDecimal("10"), BigDecimal.ONE,
+                OrderSide.SELL, new BigDecimal("9.8"), new BigDecimal("10.5"));
+
+        book.onKline(kline("ETHUSDT", 2L, "12"));
+        book.closeOrderWithState(eth.getOrderId(), OrderState.CLOSED_SL);
+
+        // Short 50 from 10 to 12
+        assertThat(book.getCash()).isEqualByComparingTo("900");
+        assertThat(book.equity()).isEqualByComparingTo("900");
+        assertThat(book.openPositions()).isZero();
+        assertThat(book.hasActiveOrder("ETHUSDT")).isFalse();
+        assertThat(book.getClosedTrades()).singleElement()
+                .satisfies(trade -> assertThat(trade.getProfit()).isEqualByComparingTo("-100"));
+    }
+
+    private static KlineEvent kline(String symbol, long closeTime, String close) {
+        BigDecimal price = new BigDecimal(close);
+        return new KlineEvent("kline", closeTime, symbol, "1m", closeTime - 59_999L, closeTime,
+                price, price, price, price, BigDecimal.ONE);
+    }
+}
@@ -22,8 +22,7 @@ public class QuickComprehensiveDemo {
         System.out.println();
         System.out.println("This should complete in 2-3 minutes...\n");
         
-        try {
-            QuickComprehensiveAnalysisService service = new QuickComprehensiveAnalysisService();
+        try (QuickComprehensiveAnalysisService service = new QuickComprehensiveAnalysisService()) {
             
             CompletableFuture<QuickComprehensiveAnalysisService.QuickAnalysisResult> future = 
                 service.runQuickAnalysis();
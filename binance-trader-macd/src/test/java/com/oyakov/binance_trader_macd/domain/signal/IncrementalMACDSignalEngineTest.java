@@ -0,0 +1,113 @@
+package com.oyakov.binance_trader_macd.domain.signal;
+
+import com.oyakov.binance_shared_model.avro.KlineEvent;
+import com.oyakov.binance_trader_macd.domain.TradeSignal;
+import com.oyakov.binance_trader_macd.testnet.MACDCalculationHelper;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.within;
+
+class IncrementalMACDSignalEngineTest {
+
+    private IncrementalMACDSignalEngine engine;
+    private MACDSignalAnalyzer referenceAnalyzer;
+
+    @BeforeEach
+    void setUp() {
+        engine = new IncrementalMACDSignalEngine();
+        referenceAnalyzer = new MACDSignalAnalyzer();
+    }
+
+    @Test
+    void shouldMatchFullWindowAnalyzerOnEveryKline() {
+        List<KlineEvent> klines = buildOscillatingKlines("BTCUSDT", "1m", 300);
+        int signals = 0;
+
+        for (int i = 0; i < klines.size(); i++) {
+            Optional<TradeSignal> incremental = engine.onClosedKline(klines.get(i));
+            Optional<TradeSignal> reference = referenceAnalyzer.tryExtractSignal(klines.subList(0, i + 1));
+
+            assertThat(incremental).as("signal after kline %d", i).isEqualTo(reference);
+            if (incremental.isPresent()) {
+                signals++;
+            }
+        }
+
+        assertThat(signals).isGreaterThan(0);
+    }
+
+    @Test
+    void shouldMatchReferenceIndicatorValues() {
+        List<KlineEvent> klines = buildOscillatingKlines("ETHUSDT", "5m", 120);
+        klines.forEach(engine::onClosedKline);
+
+        IncrementalMACDState state = engine.getState("ETHUSDT", "5m").orElseThrow();
+        MACDCalculationHelper.MACDValues reference = MACDCalculationHelper.calculateMACD(klines);
+
+        // The helper reports values rounded to the decimal scale
+        assertThat(state.getEmaFast()).isCloseTo(reference.getEmaFast().doubleValue(), within(1e-9));
+        assertThat(state.getEmaSlow()).isCloseTo(reference.getEmaSlow().doubleValue(), within(1e-9));
+        assertThat(state.getSignal()).isCloseTo(reference.getSignalLine().doubleValue(), within(1e-9));
+        assertThat(state.getMacd()).isEqualTo(state.getEmaFast() - state.getEmaSlow());
+        assertThat(state.getHistogram()).isEqualTo(state.getMacd() - state.getSignal());
+    }
+
+    @Test
+    void shouldKeepIndependentStatePerSymbolAndInterval() {
+        List<KlineEvent> btc = buildOscillatingKlines("BTCUSDT", "1m", 40);
+        List<KlineEvent> eth = buildOscillatingKlines("ETHUSDT", "1m", 10);
+        btc.forEach(engine::onClosedKline);
+        eth.forEach(engine::onClosedKline);
+
+        assertThat(engine.getState("BTCUSDT", "1m")).get()
+                .satisfies(state -> assertThat(state.isWarmedUp()).isTrue());
+        assertThat(engine.getState("ETHUSDT", "1m")).get()
+                .satisfies(state -> assertThat(state.getCount()).isEqualTo(10));
+        assertThat(engine.getState("BTCUSDT", "5m")).isEmpty();
+    }
+
+    @Test
+    void shouldIgnoreStaleAndDuplicateKlines() {
+        List<KlineEvent> klines = buildOscillatingKlines("BTCUSDT", "1m", 50);
+        klines.forEach(engine::onClosedKline);
+        IncrementalMACDState state = engine.getState("BTCUSDT", "1m").orElseThrow();
+        double macdBefore = state.getMacd();
+
+        engine.onClosedKline(klines.get(klines.size() - 1));
+        engine.onClosedKline(klines.get(10));
+
+        assertThat(state.getCount()).isEqualTo(50);
+        assertThat(state.getMacd()).isEqualTo(macdBefore);
+    }
+
+    private List<KlineEvent> buildOscillatingKlines(String symbol, String interval, int length) {
+        List<KlineEvent> klines = new ArrayList<>(length);
+        for (int i = 0; i < length; i++) {
+            double wave = Math.sin(i / 7.0) * 5 + Math.sin(i / 2.5) * 0.7;
+            BigDecimal price = BigDecimal.valueOf(100 + i * 0.05 + wave)
+                    .setScale(8, RoundingMode.HALF_UP);
+            klines.add(new KlineEvent(
+                    "kline",
+                    (long) i,
+                    symbol,
+                    interval,
+                    i * 60_000L,
+                    (i + 1) * 60_000L - 1,
+                    price,
+                    price,
+                    price,
+                    price,
+                    BigDecimal.ONE
+            ));
+        }
+        return klines;
+    }
+}
@@ -0,0 +1,185 @@
+package com.oyakov.binance_trader_macd.domain.signal;
+
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.assertj.core.api.Assertions.within;
+
+class MACDKernelTest {
+
+    private static final int FAST = 12;
+    private static final int SLOW = 26;
+    private static final int SIGNAL = 9;
+
+    @Test
+    void shouldKeepDoublePathWithinDocumentedErrorBound() {
+        List<BigDecimal> closes = randomWalk(5_000, 60_000, 42L);
+
+        MACDSeries fast = MACDKernel.compute(closes, FAST, SLOW, SIGNAL, MACDKernel.Precision.DOUBLE);
+        MACDSeries exact = MACDKernel.compute(closes, FAST, SLOW, SIGNAL, MACDKernel.Precision.EXACT_DECIMAL);
+
+        double macdBound = MACDKernel.macdErrorBound(FAST, SLOW, 100_000);
+        double signalBound = MACDKernel.signalErrorBound(FAST, SLOW, SIGNAL, 100_000);
+        assertThat(macdBound).isLessThan(2e-9);
+        assertThat(signalBound).isLessThan(1e-8);
+
+        for (int i = exact.firstSignalIndex(); i < closes.size(); i++) {
+            assertThat(fast.macd(i)).as("macd %d", i)
+                    .isCloseTo(exact.macdDecimal(i).doubleValue(), within(macdBound));
+            assertThat(fast.signal(i)).as("signal %d", i)
+                    .isCloseTo(exact.signalDecimal(i).doubleValue(), within(signalBound));
+        }
+    }
+
+    @Test
+    void shouldReproduceLegacyDecimalArithmeticInExactMode() {
+        List<BigDecimal> closes = randomWalk(300, 60_000, 7L);
+
+        MACDSeries exact = MACDKernel.compute(closes, FAST, SLOW, SIGNAL, MACDKernel.Precision.EXACT_DECIMAL);
+
+        List<BigDecimal> emaFast = legacyEma(closes, FAST);
+        List<BigDecimal> emaSlow = legacyEma(closes, SLOW);
+        int offset = SLOW - FAST;
+        List<BigDecimal> macd = new ArrayList<>();
+        for (int i = 0; i < emaSlow.size(); i++) {
+            macd.add(emaFast.get(offset + i).subtract(emaSlow.get(i)).setScale(10, RoundingMode.HALF_UP));
+        }
+        List<BigDecimal> signal = legacyEma(macd, SIGNAL);
+
+        for (int i = 0; i < macd.size(); i++) {
+            assertThat(exact.macdDecimal(exact.firstMacdIndex() + i)).isEqualTo(macd.get(i));
+        }
+        for (int i = 0; i < signal.size(); i++) {
+            assertThat(exact.signalDecimal(exact.firstSignalIndex() + i)).isEqualTo(signal.get(i));
+        }
+    }
+
+    @Test
+    void shouldReproduceLegacyServiceEmaFormulaInExactMode() {
+        // MACDCalculationService advanced its EMAs as price * k + prev * (1 - k); BigDecimal products and sums
+        // are exact, so that equals (price - prev) * k + prev up to the one rounding both apply
+        List<BigDecimal> closes = randomWalk(300, 60_000, 11L);
+
+        MACDSeries exact = MACDKernel.compute(closes, FAST, SLOW, SIGNAL, MACDKernel.Precision.EXACT_DECIMAL);
+
+        List<BigDecimal> emaFast = legacyServiceEma(closes, FAST);
+        List<BigDecimal> emaSlow = legacyServiceEma(closes, SLOW);
+        int offset = SLOW - FAST;
+        List<BigDecimal> macd = new ArrayList<>();
+        for (int i = 0; i < emaSlow.size(); i++) {
+            macd.add(emaFast.get(offset + i).subtract(emaSlow.get(i)).setScale(10, RoundingMode.HALF_UP));
+        }
+        List<BigDecimal> signal = legacyServiceEma(macd, SIGNAL);
+
+        for (int i = 0; i < emaFast.size(); i++) {
+            assertThat(exact.emaFastDecimal(FAST - 1 + i)).isEqualTo(emaFast.get(i));
+        }
+        for (int i = 0; i < macd.size(); i++) {
+            assertThat(exact.macdDecimal(exact.firstMacdIndex() + i)).isEqualTo(macd.get(i));
+        }
+        for (int i = 0; i < signal.size(); i++) {
+            assertThat(exact.signalDecimal(exact.firstSignalIndex() + i)).isEqualTo(signal.get(i));
+        }
+    }
+
+    @Test
+    void shouldReuseWorkspaceAcrossCalls() {
+        double[] longer = toArray(randomWalk(400, 100, 1L));
+        double[] shorter = toArray(randomWalk(120, 100, 2L));
+
+        MACDSeries workspace = MACDKernel.compute(longer, longer.length, FAST, SLOW, SIGNAL, null);
+        MACDSeries reused = MACDKernel.compute(shorter, shorter.length, FAST, SLOW, SIGNAL, workspace);
+        MACDSeries fresh = MACDKernel.compute(shorter, shorter.length, FAST, SLOW, SIGNAL, null);
+
+        assertThat(reused).isSameAs(workspace);
+        assertThat(reused.length()).isEqualTo(shorter.length);
+        for (int i = 0; i < shorter.length; i++) {
+            assertThat(Double.compare(reused.macd(i), fresh.macd(i))).isZero();
+            assertThat(Double.compare(reused.signal(i), fresh.signal(i))).isZero();
+        }
+        assertThat(reused.hasSignal(reused.firstSignalIndex() - 1)).isFalse();
+        assertThat(reused.signalDecimal(reused.firstSignalIndex() - 1)).isNull();
+    }
+
+    @Test
+    void shouldComputeSameSeriesFromPrecomputedEmas() {
+        double[] closes = toArray(randomWalk(500, 60_000, 3L));
+        double[] emaFast = new double[closes.length];
+        double[] emaSlow = new double[closes.length];
+        Arrays.fill(emaFast, Double.NaN);
+        Arrays.fill(emaSlow, Double.NaN);
+        MACDKernel.ema(closes, 0, closes.length, FAST, emaFast);
+        MACDKernel.ema(closes, 0, closes.length, SLOW, emaSlow);
+
+        MACDSeries shared = MACDKernel.fromEmas(emaFast, emaSlow, closes.length, FAST, SLOW, SIGNAL, null);
+        MACDSeries direct = MACDKernel.compute(closes, closes.length, FAST, SLOW, SIGNAL, null);
+
+        for (int i = 0; i < closes.length; i++) {
+            assertThat(Double.compare(shared.macd(i), direct.macd(i))).as("macd %d", i).isZero();
+            assertThat(Double.compare(shared.signal(i), direct.signal(i))).as("signal %d", i).isZero();
+        }
+    }
+
+    @Test
+    void shouldRejectInvalidPeriods() {
+        assertThatThrownBy(() -> MACDKernel.compute(new double[50], 50, 26, 12, 9, null))
+                .isInstanceOf(IllegalArgumentException.class);
+        assertThatThrownBy(() -> MACDKernel.compute(new double[50], 50, 0, 26, 9, null))
+                .isInstanceOf(IllegalArgumentException.class);
+    }
+
+    private List<BigDecimal> legacyEma(List<BigDecimal> values, int period) {
+        BigDecimal multiplier = BigDecimal.valueOf(2)
+                .divide(BigDecimal.valueOf(period + 1), 10, RoundingMode.HALF_UP);
+        BigDecimal ema = values.stream().limit(period)
+                .reduce(BigDecimal.ZERO, BigDecimal::add)
+                .divide(BigDecimal.valueOf(period), 10, RoundingMode.HALF_UP);
+        List<BigDecimal> result = new ArrayList<>();
+        result.add(ema);
+        for (int i = period; i < values.size(); i++) {
+            ema = values.get(i).subtract(ema).multiply(multiplier).add(ema).setScale(10, RoundingMode.HALF_UP);
+            result.add(ema);
+        }
+        return result;
+    }
+
+    private List<BigDecimal> legacyServiceEma(List<BigDecimal> values, int period) {
+        BigDecimal multiplier = BigDecimal.valueOf(2)
+                .divide(BigDecimal.valueOf(period + 1), 10, RoundingMode.HALF_UP);
+        BigDecimal ema = values.stream().limit(period)
+                .reduce(BigDecimal.ZERO, BigDecimal::add)
+                .divide(BigDecimal.valueOf(period), 10, RoundingMode.HALF_UP);
+        List<BigDecimal> result = new ArrayList<>();
+        result.add(ema);
+        for (int i = period; i < values.size(); i++) {
+            ema = values.get(i).multiply(multiplier)
+                    .add(ema.multiply(BigDecimal.ONE.subtract(multiplier)))
+                    .setScale(10, RoundingMode.HALF_UP);
+            result.add(ema);
+        }
+        return result;
+    }
+
+    private List<BigDecimal> randomWalk(int length, double start, long seed) {
+        Random random = new Random(seed);
+        List<BigDecimal> closes = new ArrayList<>(length);
+        double price = start;
+        for (int i = 0; i < length; i++) {
+            price *= 1 + random.nextGaussian() * 0.002;
+            closes.add(BigDecimal.valueOf(price).setScale(2, RoundingMode.HALF_UP));
+        }
+        return closes;
+    }
+
+    private double[] toArray(List<BigDecimal> values) {
+        return values.stream().mapToDouble(BigDecimal::doubleValue).toArray();
+    }
+}
@@ -0,0 +1,90 @@
+package com.oyakov.binance_trader_macd.security;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.Clock;
+import java.time.Duration;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class ApiKeyServiceTest {
+
+    private static final String ADMIN_KEY = "btai_testnet_admin";
+    private static final String MONITORING_KEY = "btai_testnet_monitoring";
+    private static final String READONLY_KEY = "btai_testnet_readonly";
+
+    private Clock clock;
+    private SimpleMeterRegistry meterRegistry;
+    private ApiKeyService service;
+
+    @BeforeEach
+    void setUp() {
+        clock = mock(Clock.class);
+        when(clock.millis()).thenReturn(0L);
+        meterRegistry = new SimpleMeterRegistry();
+        service = new ApiKeyService(ADMIN_KEY, MONITORING_KEY, READONLY_KEY, 3,
+                Duration.ofMinutes(5), Duration.ofSeconds(30), meterRegistry, clock);
+    }
+
+    @Test
+    void servesRepeatedValidationFromCache() {
+        assertTrue(service.validateApiKey(MONITORING_KEY).isValid());
+        assertTrue(service.validateApiKey(MONITORING_KEY).isValid());
+
+        assertEquals(1.0, cacheCount("hit"));
+        assertEquals(1.0, cacheCount("miss"));
+    }
+
+    @Test
+    void cachesUnknownKeysOnlyForNegativeTtl() {
+        assertFalse(service.validateApiKey("btai_testnet_junk").isValid());
+        when(clock.millis()).thenReturn(Duration.ofSeconds(29).toMillis());
+        assertFalse(service.validateApiKey("btai_testnet_junk").isValid());
+        when(clock.millis()).thenReturn(Duration.ofSeconds(30).toMillis());
+        assertFalse(service.validateApiKey("btai_testnet_junk").isValid());
+
+        assertEquals(1.0, cacheCount("hit"));
+        assertEquals(2.0, cacheCount("miss"));
+        assertEquals(1.0, meterRegistry.get("binance.trader.api.key.cache.evictions")
+                .tag("reason", "expired").counter().count());
+    }
+
+    @Test
+    void boundsCacheByEvictingLeastRecentlyUsedKey() {
+        service.validateApiKey(ADMIN_KEY);
+        for (int i = 0; i < 100; i++) {
+            service.validateApiKey("btai_testnet_junk_" + i);
+            service.validateApiKey(ADMIN_KEY);
+        }
+
+        assertEquals(3.0, meterRegistry.get("binance.trader.api.key.cache.size").gauge().value());
+        assertEquals(98.0, meterRegistry.get("binance.trader.api.key.cache.evictions")
+                .tag("reason", "size").counter().count());
+        assertEquals(100.0, cacheCount("hit"));
+    }
+
+    @Test
+    void matchesAllowedPathsPerKeyType() {
+        assertTrue(service.hasPermission(ADMIN_KEY, "/api/v1/anything", "DELETE"));
+        assertTrue(service.hasPermission(MONITORING_KEY, "/api/v1/macd/indicators", "GET"));
+        assertFalse(service.hasPermission(MONITORING_KEY, "/api/v1/macd/indicator/BTCUSDT/1h", "GET"));
+        assertFalse(service.hasPermission(MONITORING_KEY, "/api/v1/macd/", "GET"));
+        assertTrue(service.hasPermission(MONITORING_KEY, "/api/v1/trader/status", "POST"));
+        assertFalse(service.hasPermission(MONITORING_KEY, "/api/v1/macdx", "GET"));
+        assertFalse(service.hasPermission(MONITORING_KEY, "/actuator/prometheus", "GET"));
+        assertTrue(service.hasPermission(READONLY_KEY, "/api/v1/macd/signals", "GET"));
+        assertFalse(service.hasPermission(READONLY_KEY, "/api/v1/macd/signals", "POST"));
+        assertFalse(service.hasPermission(READONLY_KEY, "/api/v1/macd/signals/extra", "GET"));
+        assertFalse(service.hasPermission("btai_testnet_junk", "/api/v1/macd/signals", "GET"));
+    }
+
+    private double cacheCount(String result) {
+        return meterRegistry.get("binance.trader.api.key.cache").tag("result", result).counter().count();
+    }
+}
@@ -0,0 +1,118 @@
+package com.oyakov.binance_trader_macd.service;
+
+import com.oyakov.binance_shared_model.avro.KlineEvent;
+import com.oyakov.binance_shared_model.backtest.ColumnarKlineDataset;
+import com.oyakov.binance_trader_macd.config.MACDTraderConfig;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.test.web.client.ExpectedCount;
+import org.springframework.test.web.client.MockRestServiceServer;
+import org.springframework.web.client.RestTemplate;
+
+import java.io.ByteArrayOutputStream;
+import java.math.BigDecimal;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.springframework.test.web.client.match.MockRestRequestMatchers.header;
+import static org.springframework.test.web.client.match.MockRestRequestMatchers.requestTo;
+import static org.springframework.test.web.client.response.MockRestResponseCreators.withStatus;
+import static org.springframework.test.web.client.response.MockRestResponseCreators.withSuccess;
+
+class KlineDataAccessServiceTest {
+
+    private static final String STREAM_URL =
+            "http://storage/api/v1/klines/range/stream?symbol=BTCUSDT&interval=1m&startTime=0&endTime=120000";
+    private static final String RANGE_URL =
+            "http://storage/api/v1/klines/range?symbol=BTCUSDT&interval=1m&startTime=0&endTime=120000";
+
+    private MockRestServiceServer server;
+    private KlineDataAccessService service;
+
+    @BeforeEach
+    void setUp() {
+        RestTemplate restTemplate = new RestTemplate();
+        server = MockRestServiceServer.bindTo(restTemplate).build();
+        MACDTraderConfig config = new MACDTraderConfig();
+        config.getData().getStorage().setBaseUrl("http://storage");
+        service = new KlineDataAccessService(restTemplate, config, new KlineRingCache(config, new SimpleMeterRegistry()));
+    }
+
+    @Test
+    void readsRangeFromColumnarResponse() throws Exception {
+        ColumnarKlineDataset columns = ColumnarKlineDataset.builder("BTCUSDT", "1m")
+                .add(0L, 59_999L, 100.0, 103.0, 99.0, 101.5, 12.5)
+                .add(60_000L, 119_999L, 101.5, 104.0, 101.0, 102.25, 7.0)
+                .build();
+        ByteArrayOutputStream body = new ByteArrayOutputStream();
+        columns.writeTo(body);
+        server.expect(requestTo(RANGE_URL))
+                .andExpect(header("Accept", ColumnarKlineDataset.MEDIA_TYPE))
+                .andRespond(withSuccess(body.toByteArray(), MediaType.parseMediaType(ColumnarKlineDataset.MEDIA_TYPE)));
+
+        List<KlineEvent> klines = service.getKlinesByRange("BTCUSDT", "1m", 0L, 120_000L);
+
+        server.verify();
+        assertEquals(2, klines.size());
+        assertEquals("1m", klines.get(1).getInterval());
+        assertEquals(119_999L, klines.get(1).getCloseTime());
+        assertEquals(BigDecimal.valueOf(102.25), klines.get(1).getClose());
+        assertEquals(BigDecimal.valueOf(7.0), klines.get(1).getVolume());
+    }
+
+    @Test
+    void streamsRangeAsNdjsonWhenColumnsAreNotAcceptable() {
+        server.expect(requestTo(RANGE_URL)).andRespond(withStatus(HttpStatus.NOT_ACCEPTABLE));
+        server.expect(requestTo(STREAM_URL))
+                .andExpect(header("Accept", MediaType.APPLICATION_NDJSON_VALUE))
+                .andRespond(withSuccess(line(0L, 101.5) + "\n" + line(60_000L, 102.25) + "\n",
+                        MediaType.APPLICATION_NDJSON));
+
+        List<KlineEvent> klines = service.getKlinesByRange("BTCUSDT", "1m", 0L, 120_000L);
+
+        server.verify();
+        assertEquals(2, klines.size());
+        assertEquals("BTCUSDT", klines.get(0).getSymbol());
+        assertEquals(60_000L, klines.get(1).getOpenTime());
+        assertEquals(BigDecimal.valueOf(102.25), klines.get(1).getClose());
+    }
+
+    @Test
+    void fallsBackToSingleResponseWhenStreamIsMissing() {
+        server.expect(requestTo(RANGE_URL)).andRespond(withStatus(HttpStatus.NOT_ACCEPTABLE));
+        server.expect(requestTo(STREAM_URL)).andRespond(withStatus(HttpStatus.NOT_FOUND));
+        server.expect(requestTo(RANGE_URL))
+                .andRespond(withSuccess("[" + line(0L, 101.5) + "]", MediaType.APPLICATION_JSON));
+
+        List<KlineEvent> klines = service.getKlinesByRange("BTCUSDT", "1m", 0L, 120_000L);
+
+        server.verify();
+        assertEquals(1, klines.size());
+        assertEquals(BigDecimal.valueOf(101.5), klines.get(0).getClose());
+    }
+
+    @Test
+    void servesRepeatedRecentKlinesFromCache() {
+        long openTime = System.currentTimeMillis() / 60_000 * 60_000;
+        server.expect(ExpectedCount.once(),
+                        requestTo("http://storage/api/v1/klines/recent?symbol=BTCUSDT&interval=1m&limit=2"))
+                .andRespond(withSuccess("[" + line(openTime - 60_000, 101.5) + "," + line(openTime, 102.25) + "]",
+                        MediaType.APPLICATION_JSON));
+
+        List<KlineEvent> first = service.getRecentKlines("BTCUSDT", "1m", 2);
+        List<KlineEvent> second = service.getRecentKlines("BTCUSDT", "1m", 2);
+
+        server.verify();
+        assertEquals(first, second);
+    }
+
+    private static String line(long openTime, double close) {
+        return """
+                {"symbol":"BTCUSDT","interval":"1m","openTime":%d,"closeTime":%d,"timestamp":%d,\
+                "displayTime":"2024-01-01T00:00:00","open":100.0,"high":103.0,"low":99.0,"close":%s,"volume":12.5}\
+                """.formatted(openTime, openTime + 59_999, openTime + 59_999, close);
+    }
+}
@@ -0,0 +1,140 @@
+package com.oyakov.binance_trader_macd.service;
+
+import com.oyakov.binance_shared_model.avro.KlineEvent;
+import com.oyakov.binance_trader_macd.config.MACDTraderConfig;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.time.Clock;
+import java.time.Duration;
+import java.util.List;
+import java.util.stream.LongStream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class KlineRingCacheTest {
+
+    private static final long MINUTE = 60_000L;
+
+    private Clock clock;
+    private SimpleMeterRegistry meterRegistry;
+    private KlineRingCache cache;
+
+    @BeforeEach
+    void setUp() {
+        MACDTraderConfig.Data.Kline.Cache properties = new MACDTraderConfig.Data.Kline.Cache();
+        properties.setCapacity(5);
+        properties.setMaxSeries(2);
+        properties.setStaleGrace(Duration.ofSeconds(30));
+        clock = mock(Clock.class);
+        now(3 * MINUTE);
+        meterRegistry = new SimpleMeterRegistry();
+        cache = new KlineRingCache(properties, meterRegistry, clock);
+    }
+
+    @Test
+    void servesNewestKlinesOfSeededSeries() {
+        cache.seed("btcusdt", "1m", 3, klines("BTCUSDT", 2, 0, 1));
+
+        List<KlineEvent> recent = cache.getRecent("BTCUSDT", "1m", 2).orElseThrow();
+
+        assertEquals(List.of(MINUTE, 2 * MINUTE), openTimes(recent));
+        assertEquals(1.0, meterRegistry.get("binance.trader.kline.cache").tag("result", "hit").counter().count());
+    }
+
+    @Test
+    void appendsNextKlineAndReplacesUpdatesOfNewest() {
+        cache.seed("BTCUSDT", "1m", 3, klines("BTCUSDT", 0, 1, 2));
+
+        cache.append(kline("BTCUSDT", 3, 10));
+        cache.append(kline("BTCUSDT", 3, 11));
+
+        List<KlineEvent> recent = cache.getRecent("BTCUSDT", "1m", 4).orElseThrow();
+        assertEquals(List.of(0L, MINUTE, 2 * MINUTE, 3 * MINUTE), openTimes(recent));
+        assertEquals(BigDecimal.valueOf(11.0), recent.get(3).getClose());
+    }
+
+    @Test
+    void keepsOnlyCapacityNewestKlines() {
+        cache.seed("BTCUSDT", "1m", 3, klines("BTCUSDT", 0, 1, 2));
+        for (int i = 3; i < 8; i++) {
+            cache.append(kline("BTCUSDT", i, i));
+        }
+        now(8 * MINUTE);
+
+        assertEquals(List.of(3 * MINUTE, 4 * MINUTE, 5 * MINUTE, 6 * MINUTE, 7 * MINUTE),
+                openTimes(cache.getRecent("BTCUSDT", "1m", 5).orElseThrow()));
+        assertTrue(cache.getRecent("BTCUSDT", "1m", 6).isEmpty());
+    }
+
+    @Test
+    void servesShortSeriesOnlyWhenStorageHadNoMore() {
+        cache.seed("BTCUSDT", "1m", 10, klines("BTCUSDT", 0, 1, 2));
+        cache.seed("ETHUSDT", "1m", 3, klines("ETHUSDT", 0, 1, 2));
+
+        assertEquals(3, cache.getRecent("BTCUSDT", "1m", 10).orElseThrow().size());
+        assertTrue(cache.getRecent("ETHUSDT", "1m", 10).isEmpty());
+    }
+
+    @Test
+    void dropsSeriesOnGap() {
+        cache.seed("BTCUSDT", "1m", 3, klines("BTCUSDT", 0, 1, 2));
+
+        cache.append(kline("BTCUSDT", 4, 1));
+
+        assertTrue(cache.getRecent("BTCUSDT", "1m", 3).isEmpty());
+        assertEquals(0, cache.getSeriesCount());
+    }
+
+    @Test
+    void dropsSeriesWhenNextKlineIsOverdue() {
+        cache.seed("BTCUSDT", "1m", 3, klines("BTCUSDT", 0, 1, 2));
+
+        // newest kline closes at 3m - 1, the next one is due a minute later, plus 30s of grace
+        long deadline = 3 * MINUTE - 1 + MINUTE + 30_000;
+        now(deadline);
+        assertTrue(cache.getRecent("BTCUSDT", "1m", 3).isPresent());
+
+        now(deadline + 1);
+        assertTrue(cache.getRecent("BTCUSDT", "1m", 3).isEmpty());
+        assertEquals(0, cache.getSeriesCount());
+    }
+
+    @Test
+    void evictsLeastRecentlyReadSeries() {
+        cache.seed("BTCUSDT", "1m", 3, klines("BTCUSDT", 0, 1, 2));
+        cache.seed("ETHUSDT", "1m", 3, klines("ETHUSDT", 0, 1, 2));
+        now(3 * MINUTE + 1);
+        cache.getRecent("BTCUSDT", "1m", 3);
+
+        cache.seed("BNBUSDT", "1m", 3, klines("BNBUSDT", 0, 1, 2));
+
+        assertTrue(cache.getRecent("BTCUSDT", "1m", 3).isPresent());
+        assertTrue(cache.getRecent("ETHUSDT", "1m", 3).isEmpty());
+        assertEquals(1.0, meterRegistry.get("binance.trader.kline.cache.evictions").counter().count());
+    }
+
+    private void now(long millis) {
+        when(clock.millis()).thenReturn(millis);
+    }
+
+    private static List<KlineEvent> klines(String symbol, long... minutes) {
+        return LongStream.of(minutes).mapToObj(minute -> kline(symbol, minute, minute)).toList();
+    }
+
+    private static KlineEvent kline(String symbol, long minute, double close) {
+        long openTime = minute * MINUTE;
+        BigDecimal price = BigDecimal.valueOf(close);
+        return new KlineEvent("kline", openTime + MINUTE - 1, symbol, "1m", openTime, openTime + MINUTE - 1,
+                price, price, price, price, BigDecimal.ONE);
+    }
+
+    private static List<Long> openTimes(List<KlineEvent> klines) {
+        return klines.stream().map(KlineEvent::getOpenTime).toList();
+    }
+}
@@ -0,0 +1,167 @@
+package com.oyakov.binance_trader_macd.service;
+
+import com.oyakov.binance_shared_model.avro.KlineEvent;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.BooleanSupplier;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class KlineShardDispatcherTest {
+
+    private SimpleMeterRegistry meterRegistry;
+    private KlineShardDispatcher dispatcher;
+
+    @BeforeEach
+    void setUp() {
+        meterRegistry = new SimpleMeterRegistry();
+        dispatcher = new KlineShardDispatcher(meterRegistry);
+    }
+
+    @AfterEach
+    void tearDown() {
+        dispatcher.shutdown();
+    }
+
+    @Test
+    void shouldProcessEveryEventInOrderPerShard() throws InterruptedException {
+        List<String> symbols = List.of("BTCUSDT", "ETHUSDT", "BNBUSDT", "SOLUSDT");
+        int eventsPerSymbol = 500;
+        CountDownLatch done = new CountDownLatch(symbols.size() * eventsPerSymbol);
+        Map<String, List<Long>> seen = new ConcurrentHashMap<>();
+
+        // Publish from several producer threads at once, as concurrent Kafka listeners would
+        List<Thread> producers = symbols.stream()
+                .map(symbol -> Thread.ofPlatform().start(() -> {
+                    for (int i = 0; i < eventsPerSymbol; i++) {
+                        dispatcher.dispatch(kline(symbol, "1m", i), event -> {
+                            seen.computeIfAbsent(event.getSymbol(), key -> new CopyOnWriteArrayList<>())
+                                    .add(event.getCloseTime());
+                            done.countDown();
+                        });
+                    }
+                }))
+                .toList();
+        for (Thread producer : producers) {
+            producer.join();
+        }
+
+        assertThat(done.await(10, TimeUnit.SECONDS)).isTrue();
+        assertThat(dispatcher.getShardCount()).isEqualTo(symbols.size());
+        for (String symbol : symbols) {
+            assertThat(seen.get(symbol)).hasSize(eventsPerSymbol).isSorted();
+        }
+    }
+
+    @Test
+    void shouldNeverRunOneShardConcurrently() throws InterruptedException {
+        AtomicInteger inFlight = new AtomicInteger();
+        AtomicInteger maxInFlight = new AtomicInteger();
+        CountDownLatch done = new CountDownLatch(200);
+
+        for (int i = 0; i < 200; i++) {
+            dispatcher.dispatch(kline("BTCUSDT", "5m", i), event -> {
+                maxInFlight.accumulateAndGet(inFlight.incrementAndGet(), Math::max);
+                Thread.onSpinWait();
+                inFlight.decrementAndGet();
+                done.countDown();
+            });
+        }
+
+        assertThat(done.await(10, TimeUnit.SECONDS)).isTrue();
+        assertThat(maxInFlight.get()).isEqualTo(1);
+    }
+
+    @Test
+    void shouldKeepProcessingAfterHandlerFailure() throws InterruptedException {
+        CountDownLatch done = new CountDownLatch(1);
+
+        dispatcher.dispatch(kline("BTCUSDT", "1h", 0), event -> {
+            throw new IllegalStateException("boom");
+        });
+        dispatcher.dispatch(kline("BTCUSDT", "1h", 1), event -> done.countDown());
+
+        assertThat(done.await(10, TimeUnit.SECONDS)).isTrue();
+    }
+
+    @Test
+    void shouldExposeQueueDepthAndLagPerShard() {
+        KlineShardDispatcher direct = new KlineShardDispatcher(Runnable::run, meterRegistry);
+
+        direct.dispatch(kline("ETHUSDT", "15m", 0), event -> { });
+        direct.dispatch(kline("ETHUSDT", "15m", 1), event -> { });
+
+        assertThat(meterRegistry.get("binance.trader.shard.queue.depth")
+                .tag("symbol", "ETHUSDT").tag("interval", "15m").gauge().value()).isZero();
+        assertThat(meterRegistry.get("binance.trader.shard.lag")
+                .tag("symbol", "ETHUSDT").tag("interval", "15m").timer().count()).isEqualTo(2);
+        assertThat(direct.getQueueDepth("ETHUSDT", "15m")).isZero();
+    }
+
+    @Test
+    void shouldBlockDispatchWhileShardQueueIsFull() throws InterruptedException {
+        KlineShardDispatcher bounded = new KlineShardDispatcher(Executors.newVirtualThreadPerTaskExecutor(),
+                meterRegistry, 1);
+        CountDownLatch processing = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        List<Long> seen = new CopyOnWriteArrayList<>();
+        try {
+            Thread listener = Thread.ofPlatform().start(() -> {
+                for (int i = 0; i < 3; i++) {
+                    bounded.dispatch(kline("BTCUSDT", "1m", i), event -> {
+                        processing.countDown();
+                        awaitQuietly(release);
+                        seen.add(event.getCloseTime());
+                    });
+                }
+            });
+
+            // The lane is stuck on the first event, the second fills the queue and the third has to wait
+            assertThat(processing.await(10, TimeUnit.SECONDS)).isTrue();
+            await(() -> bounded.getQueueDepth("BTCUSDT", "1m") == 2
+                    && listener.getState() == Thread.State.WAITING);
+            assertThat(listener.isAlive()).isTrue();
+            assertThat(seen).isEmpty();
+
+            release.countDown();
+            listener.join(10_000);
+            await(() -> seen.size() == 3);
+            assertThat(seen).containsExactly(0L, 1L, 2L);
+        } finally {
+            bounded.shutdown();
+        }
+    }
+
+    private static void await(BooleanSupplier condition) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(10);
+        while (!condition.getAsBoolean()) {
+            assertThat(System.nanoTime()).isLessThan(deadline);
+            Thread.sleep(10);
+        }
+    }
+
+    private static void awaitQuietly(CountDownLatch latch) {
+        try {
+            latch.await(10, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private KlineEvent kline(String symbol, String interval, long closeTime) {
+        return new KlineEvent("kline", closeTime, symbol, interval, closeTime - 1, closeTime,
+                BigDecimal.ONE, BigDecimal.ONE, BigDecimal.ONE, BigDecimal.ONE, BigDecimal.ONE);
+    }
+}
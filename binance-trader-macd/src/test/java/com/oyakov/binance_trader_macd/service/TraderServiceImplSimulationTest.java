@@ -5,7 +5,7 @@ import com.oyakov.binance_trader_macd.config.MACDTraderConfig;
 import com.oyakov.binance_trader_macd.domain.OrderSide;
 import com.oyakov.binance_trader_macd.domain.OrderState;
 import com.oyakov.binance_trader_macd.domain.TradeSignal;
-import com.oyakov.binance_trader_macd.domain.signal.MACDSignalAnalyzer;
+import com.oyakov.binance_trader_macd.domain.signal.IncrementalMACDSignalEngine;
 import com.oyakov.binance_trader_macd.model.order.binance.storage.OrderItem;
 import com.oyakov.binance_trader_macd.service.MACDCalculationService;
 import com.oyakov.binance_trader_macd.service.api.MacdStorageClient;
@@ -39,7 +39,7 @@ class TraderServiceImplSimulationTest {
     private static final String SYMBOL = "BTCUSDT";
 
     @Mock
-    private MACDSignalAnalyzer macdSignalAnalyzer;
+    private IncrementalMACDSignalEngine macdSignalEngine;
 
     @Mock
     private OrderServiceApi orderService;
@@ -59,13 +59,16 @@ class TraderServiceImplSimulationTest {
 
         MACDCalculationService macdCalculationService = Mockito.mock(MACDCalculationService.class);
         MacdStorageClient macdStorageClient = Mockito.mock(MacdStorageClient.class);
-        traderService = new TraderServiceImpl(macdSignalAnalyzer, orderService, macdCalculationService, macdStorageClient, traderConfig, new SimpleMeterRegistry());
+        SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+        traderService = new TraderServiceImpl(macdSignalEngine, orderService, macdCalculationService, macdStorageClient, traderConfig, meterRegistry,
+                new KlineShardDispatcher(Runnable::run, meterRegistry));
         ReflectionTestUtils.invokeMethod(traderService, "init");
     }
 
     @Test
     void createsOrderGroupWhenSignalDetectedAndNoActiveOrder() {
-        when(macdSignalAnalyzer.tryExtractSignal(any())).thenReturn(Optional.of(TradeSignal.BUY));
+        when(macdSignalEngine.onClosedKline(any()))
+                .thenReturn(Optional.empty(), Optional.empty(), Optional.of(TradeSignal.BUY));
         when(orderService.getActiveOrder(SYMBOL)).thenReturn(Optional.empty());
         when(orderService.createOrderGroup(anyString(), any(), any(), any(), any(), any()))
                 .thenReturn(OrderItem.builder().orderId(777L).build());
@@ -98,7 +101,8 @@ class TraderServiceImplSimulationTest {
                 .side(OrderSide.BUY)
                 .build();
 
-        when(macdSignalAnalyzer.tryExtractSignal(any())).thenReturn(Optional.of(TradeSignal.SELL));
+        when(macdSignalEngine.onClosedKline(any()))
+                .thenReturn(Optional.empty(), Optional.empty(), Optional.of(TradeSignal.SELL));
         when(orderService.getActiveOrder(SYMBOL)).thenReturn(Optional.of(activeOrder));
 
         replayKlines(
@@ -118,7 +122,7 @@ class TraderServiceImplSimulationTest {
                 .side(OrderSide.BUY)
                 .build();
 
-        when(macdSignalAnalyzer.tryExtractSignal(any())).thenReturn(Optional.empty());
+        when(macdSignalEngine.onClosedKline(any())).thenReturn(Optional.empty());
         when(orderService.getActiveOrder(SYMBOL)).thenReturn(Optional.of(activeOrder));
 
         replayKlines(
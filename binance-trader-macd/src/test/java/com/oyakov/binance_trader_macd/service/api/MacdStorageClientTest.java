@@ -0,0 +1,132 @@
+package com.oyakov.binance_trader_macd.service.api;
+
+import com.oyakov.binance_trader_macd.config.MACDTraderConfig;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.HttpStatus;
+import org.springframework.test.web.client.MockRestServiceServer;
+import org.springframework.web.client.RestTemplate;
+
+import java.time.Duration;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.springframework.test.web.client.ExpectedCount.times;
+import static org.springframework.test.web.client.match.MockRestRequestMatchers.jsonPath;
+import static org.springframework.test.web.client.match.MockRestRequestMatchers.method;
+import static org.springframework.test.web.client.match.MockRestRequestMatchers.requestTo;
+import static org.springframework.test.web.client.response.MockRestResponseCreators.withServerError;
+import static org.springframework.test.web.client.response.MockRestResponseCreators.withStatus;
+import static org.springframework.test.web.client.response.MockRestResponseCreators.withSuccess;
+
+class MacdStorageClientTest {
+
+    private static final String BATCH_URL = "http://storage/api/v1/macd/batch";
+    private static final String SINGLE_URL = "http://storage/api/v1/macd";
+
+    private MockRestServiceServer server;
+    private MACDTraderConfig config;
+    private SimpleMeterRegistry meterRegistry;
+    private MacdStorageClient client;
+
+    @BeforeEach
+    void setUp() {
+        RestTemplate restTemplate = new RestTemplate();
+        server = MockRestServiceServer.bindTo(restTemplate).build();
+        config = new MACDTraderConfig();
+        config.getData().getStorage().setBaseUrl("http://storage");
+        config.getData().getStorage().getMacdBatch().setFlushInterval(Duration.ofHours(1));
+        meterRegistry = new SimpleMeterRegistry();
+        client = new MacdStorageClient(restTemplate, config, meterRegistry);
+    }
+
+    @AfterEach
+    void tearDown() {
+        client.shutdown();
+    }
+
+    @Test
+    void coalescesPointsOfSameTimestampIntoOneBatch() {
+        client.init();
+        server.expect(requestTo(BATCH_URL))
+                .andExpect(method(HttpMethod.POST))
+                .andExpect(jsonPath("$.length()").value(2))
+                .andExpect(jsonPath("$[0].timestamp").value(1000))
+                .andExpect(jsonPath("$[0].macd").value(0.3))
+                .andExpect(jsonPath("$[1].timestamp").value(2000))
+                .andRespond(withSuccess());
+
+        client.upsertMacd("BTCUSDT", "1m", 1000L, null, null, 0.1, 0.0, 0.1);
+        client.upsertMacd("BTCUSDT", "1m", 2000L, null, null, 0.2, 0.0, 0.2);
+        client.upsertMacd("BTCUSDT", "1m", 1000L, null, null, 0.3, 0.0, 0.3);
+        client.flush();
+
+        server.verify();
+        assertEquals(2.0, meterRegistry.get("binance.trader.macd.upserts").counter().count());
+        assertEquals(1.0, meterRegistry.get("binance.trader.macd.upserts.coalesced").counter().count());
+    }
+
+    @Test
+    void flushesWhenBatchIsFull() {
+        config.getData().getStorage().getMacdBatch().setMaxSize(2);
+        client.init();
+        server.expect(requestTo(BATCH_URL)).andExpect(jsonPath("$.length()").value(2)).andRespond(withSuccess());
+
+        client.upsertMacd("BTCUSDT", "1m", 1000L, null, null, 0.1, 0.0, 0.1);
+        client.upsertMacd("ETHUSDT", "1m", 1000L, null, null, 0.2, 0.0, 0.2);
+        client.shutdown();
+
+        server.verify();
+    }
+
+    @Test
+    void flushesFullBatchOnCallerThreadAfterShutdown() {
+        config.getData().getStorage().getMacdBatch().setMaxSize(1);
+        client.init();
+        client.shutdown();
+        server.expect(requestTo(BATCH_URL)).andExpect(jsonPath("$[0].timestamp").value(1000)).andRespond(withSuccess());
+
+        assertEquals(true, client.upsertMacd("BTCUSDT", "1m", 1000L, null, null, 0.1, 0.0, 0.1));
+
+        server.verify();
+    }
+
+    @Test
+    void keepsFailedBatchForNextFlush() {
+        client.init();
+        server.expect(requestTo(BATCH_URL)).andRespond(withServerError());
+        server.expect(requestTo(BATCH_URL)).andExpect(jsonPath("$.length()").value(1)).andRespond(withSuccess());
+
+        client.upsertMacd("BTCUSDT", "1m", 1000L, null, null, 0.1, 0.0, 0.1);
+        client.flush();
+        client.flush();
+
+        server.verify();
+    }
+
+    @Test
+    void postsPointsOneByOneWhenBatchEndpointIsMissing() {
+        client.init();
+        server.expect(requestTo(BATCH_URL)).andRespond(withStatus(HttpStatus.NOT_FOUND));
+        server.expect(times(2), requestTo(SINGLE_URL)).andRespond(withSuccess());
+
+        client.upsertMacd("BTCUSDT", "1m", 1000L, null, null, 0.1, 0.0, 0.1);
+        client.upsertMacd("BTCUSDT", "1m", 2000L, null, null, 0.2, 0.0, 0.2);
+        client.flush();
+
+        server.verify();
+    }
+
+    @Test
+    void postsImmediatelyWhenBatchingIsDisabled() {
+        config.getData().getStorage().getMacdBatch().setEnabled(false);
+        client.init();
+        server.expect(requestTo(SINGLE_URL)).andExpect(jsonPath("$.symbol").value("BTCUSDT")).andRespond(withSuccess());
+
+        assertEquals(true, client.upsertMacd("BTCUSDT", "1m", 1000L, null, null, 0.1, 0.0, 0.1));
+
+        server.verify();
+    }
+}
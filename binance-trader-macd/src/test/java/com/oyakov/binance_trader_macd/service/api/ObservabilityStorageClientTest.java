@@ -0,0 +1,191 @@
+package com.oyakov.binance_trader_macd.service.api;
+
+import com.oyakov.binance_trader_macd.config.MACDTraderConfig;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.HttpStatus;
+import org.springframework.test.web.client.MockRestServiceServer;
+import org.springframework.web.client.RestTemplate;
+
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.time.Instant;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.springframework.test.web.client.match.MockRestRequestMatchers.jsonPath;
+import static org.springframework.test.web.client.match.MockRestRequestMatchers.method;
+import static org.springframework.test.web.client.match.MockRestRequestMatchers.requestTo;
+import static org.springframework.test.web.client.response.MockRestResponseCreators.withServerError;
+import static org.springframework.test.web.client.response.MockRestResponseCreators.withStatus;
+import static org.springframework.test.web.client.response.MockRestResponseCreators.withSuccess;
+
+class ObservabilityStorageClientTest {
+
+    private static final String BASE_URL = "http://storage/api/v1/observability";
+    private static final Instant TIME = Instant.parse("2025-10-12T10:15:30.500Z");
+
+    private MockRestServiceServer server;
+    private MACDTraderConfig config;
+    private SimpleMeterRegistry meterRegistry;
+    private ObservabilityStorageClient client;
+
+    @BeforeEach
+    void setUp() {
+        RestTemplate restTemplate = new RestTemplate();
+        server = MockRestServiceServer.bindTo(restTemplate).build();
+        config = new MACDTraderConfig();
+        config.getData().getStorage().setBaseUrl("http://storage");
+        config.getData().getStorage().getObservabilityQueue().setFlushInterval(Duration.ofHours(1));
+        meterRegistry = new SimpleMeterRegistry();
+        client = new ObservabilityStorageClient(restTemplate, config, meterRegistry);
+    }
+
+    @AfterEach
+    void tearDown() {
+        client.shutdown();
+    }
+
+    @Test
+    void sendsQueuedEventsOfAllKindsInOneBatch() {
+        client.init();
+        server.expect(requestTo(BASE_URL + "/batch"))
+                .andExpect(method(HttpMethod.POST))
+                .andExpect(jsonPath("$.strategy_analyses.length()").value(1))
+                .andExpect(jsonPath("$.strategy_analyses[0].analysis_time").value("2025-10-12T10:15:30.5"))
+                .andExpect(jsonPath("$.strategy_analyses[0].kline_count").value(35))
+                .andExpect(jsonPath("$.decision_logs[0].trade_allowed").value(false))
+                .andExpect(jsonPath("$.portfolio_snapshots[0].winning_trades").value(2))
+                .andRespond(withSuccess());
+
+        assertTrue(recordAnalysis("i-1"));
+        assertTrue(recordDecision());
+        assertTrue(recordSnapshot());
+        client.flush();
+
+        server.verify();
+        assertEquals(1.0, meterRegistry.get("binance.trader.observability.strategy_analysis.total").counter().count());
+        assertEquals(1.0, meterRegistry.get("binance.trader.observability.decision_log.total").counter().count());
+        assertEquals(1.0, meterRegistry.get("binance.trader.observability.portfolio_snapshot.total").counter().count());
+    }
+
+    @Test
+    void dropsEventsRecordedAfterShutdown() {
+        config.getData().getStorage().getObservabilityQueue().setMaxBatchSize(1);
+        client.init();
+        client.shutdown();
+
+        assertFalse(recordAnalysis("i-1"));
+
+        server.verify();
+        assertEquals(1.0, meterRegistry.get("binance.trader.observability.dropped")
+                .tag("type", "strategy_analysis").counter().count());
+    }
+
+    @Test
+    void dropsOldestEventWhenQueueIsFull() {
+        config.getData().getStorage().getObservabilityQueue().setCapacity(2);
+        client.init();
+        server.expect(requestTo(BASE_URL + "/batch"))
+                .andExpect(jsonPath("$.strategy_analyses.length()").value(2))
+                .andExpect(jsonPath("$.strategy_analyses[0].instance_id").value("i-2"))
+                .andExpect(jsonPath("$.strategy_analyses[1].instance_id").value("i-3"))
+                .andRespond(withSuccess());
+
+        assertTrue(recordAnalysis("i-1"));
+        assertTrue(recordAnalysis("i-2"));
+        assertTrue(recordAnalysis("i-3"));
+        client.flush();
+
+        server.verify();
+        assertEquals(1.0, meterRegistry.get("binance.trader.observability.dropped")
+                .tag("type", "strategy_analysis").counter().count());
+    }
+
+    @Test
+    void dropsNewEventWhenQueueIsFullAndPolicyIsDropNewest() {
+        config.getData().getStorage().getObservabilityQueue().setCapacity(1);
+        config.getData().getStorage().getObservabilityQueue().setOverflowPolicy(
+                MACDTraderConfig.Data.Storage.ObservabilityQueue.OverflowPolicy.DROP_NEWEST);
+        client.init();
+        server.expect(requestTo(BASE_URL + "/batch"))
+                .andExpect(jsonPath("$.strategy_analyses.length()").value(1))
+                .andExpect(jsonPath("$.strategy_analyses[0].instance_id").value("i-1"))
+                .andRespond(withSuccess());
+
+        assertTrue(recordAnalysis("i-1"));
+        assertFalse(recordAnalysis("i-2"));
+        client.flush();
+
+        server.verify();
+    }
+
+    @Test
+    void countsFailedBatchWithoutRetrying() {
+        client.init();
+        server.expect(requestTo(BASE_URL + "/batch")).andRespond(withServerError());
+
+        recordAnalysis("i-1");
+        recordDecision();
+        client.flush();
+        client.flush();
+
+        server.verify();
+        assertEquals(1.0, meterRegistry.get("binance.trader.observability.strategy_analysis.failed").counter().count());
+        assertEquals(1.0, meterRegistry.get("binance.trader.observability.decision_log.failed").counter().count());
+    }
+
+    @Test
+    void postsEventsOneByOneWhenBatchEndpointIsMissing() {
+        client.init();
+        server.expect(requestTo(BASE_URL + "/batch")).andRespond(withStatus(HttpStatus.NOT_FOUND));
+        server.expect(requestTo(BASE_URL + "/strategy-analysis"))
+                .andExpect(jsonPath("$.instance_id").value("i-1"))
+                .andRespond(withSuccess());
+        server.expect(requestTo(BASE_URL + "/portfolio-snapshot")).andRespond(withSuccess());
+        server.expect(requestTo(BASE_URL + "/decision-log")).andRespond(withSuccess());
+
+        recordAnalysis("i-1");
+        recordSnapshot();
+        client.flush();
+        recordDecision();
+        client.flush();
+
+        server.verify();
+    }
+
+    @Test
+    void postsImmediatelyWhenQueueIsDisabled() {
+        config.getData().getStorage().getObservabilityQueue().setEnabled(false);
+        client.init();
+        server.expect(requestTo(BASE_URL + "/decision-log"))
+                .andExpect(jsonPath("$.decision_time").value("2025-10-12T10:15:30.5"))
+                .andRespond(withSuccess());
+
+        assertTrue(recordDecision());
+
+        server.verify();
+    }
+
+    private boolean recordAnalysis(String instanceId) {
+        return client.recordStrategyAnalysis(instanceId, "macd", "BTCUSDT", "5m", TIME, 1760264100000L, TIME,
+                new BigDecimal("62000.5"), 35, new BigDecimal("1.5"), new BigDecimal("1.25"), new BigDecimal("0.25"),
+                "WEAK", null, "No signal - histogram=0.25");
+    }
+
+    private boolean recordDecision() {
+        return client.recordDecisionLog("i-1", "macd", "BTCUSDT", TIME, "BUY", "WEAK", new BigDecimal("0.25"),
+                new BigDecimal("62000.5"), false, false, true, true, true, false,
+                "Trade blocked: Active position exists", "Active position exists", null, null, null);
+    }
+
+    private boolean recordSnapshot() {
+        return client.recordPortfolioSnapshot("i-1", "macd", TIME, new BigDecimal("10000"), new BigDecimal("9500"),
+                new BigDecimal("500"), "BTCUSDT", new BigDecimal("500"), null, new BigDecimal("62000.5"), null,
+                3, 2, new BigDecimal("12.5"), BigDecimal.ZERO, null, null);
+    }
+}
@@ -5,8 +5,9 @@ import com.oyakov.binance_trader_macd.config.MACDTraderConfig;
 import com.oyakov.binance_trader_macd.domain.OrderSide;
 import com.oyakov.binance_trader_macd.domain.OrderState;
 import com.oyakov.binance_trader_macd.domain.TradeSignal;
-import com.oyakov.binance_trader_macd.domain.signal.MACDSignalAnalyzer;
+import com.oyakov.binance_trader_macd.domain.signal.IncrementalMACDSignalEngine;
 import com.oyakov.binance_trader_macd.model.order.binance.storage.OrderItem;
+import com.oyakov.binance_trader_macd.service.KlineShardDispatcher;
 import com.oyakov.binance_trader_macd.service.MACDCalculationService;
 import com.oyakov.binance_trader_macd.service.api.MacdStorageClient;
 import com.oyakov.binance_trader_macd.service.api.OrderServiceApi;
@@ -42,7 +43,7 @@ class TraderServiceImplTest {
     private static final BigDecimal TAKE_PROFIT_THRESHOLD = BigDecimal.valueOf(1.05);
 
     @Mock
-    private MACDSignalAnalyzer macdSignalAnalyzer;
+    private IncrementalMACDSignalEngine macdSignalEngine;
 
     @Mock
     private OrderServiceApi orderServiceApi;
@@ -61,14 +62,15 @@ class TraderServiceImplTest {
         meterRegistry = new SimpleMeterRegistry();
         MACDCalculationService macdCalculationService = Mockito.mock(MACDCalculationService.class);
         MacdStorageClient macdStorageClient = Mockito.mock(MacdStorageClient.class);
-        traderService = new TraderServiceImpl(macdSignalAnalyzer, orderServiceApi, macdCalculationService, macdStorageClient, config, meterRegistry);
+        traderService = new TraderServiceImpl(macdSignalEngine, orderServiceApi, macdCalculationService, macdStorageClient, config, meterRegistry,
+                new KlineShardDispatcher(Runnable::run, meterRegistry));
         ReflectionTestUtils.invokeMethod(traderService, "init");
     }
 
     @Test
     void shouldCreateOrderGroupWhenSignalEmittedAndNoActiveOrder() {
         BigDecimal currentPrice = BigDecimal.valueOf(110);
-        when(macdSignalAnalyzer.tryExtractSignal(any())).thenReturn(Optional.of(TradeSignal.BUY));
+        when(macdSignalEngine.onClosedKline(any())).thenReturn(Optional.of(TradeSignal.BUY));
         when(orderServiceApi.getActiveOrder(SYMBOL)).thenReturn(Optional.empty());
 
         traderService.onNewKline(buildKlineEvent(currentPrice));
@@ -92,7 +94,7 @@ class TraderServiceImplTest {
         orderItem.setPrice(ENTRY_PRICE);
         orderItem.setSide(OrderSide.SELL);
 
-        when(macdSignalAnalyzer.tryExtractSignal(any())).thenReturn(Optional.of(TradeSignal.BUY));
+        when(macdSignalEngine.onClosedKline(any())).thenReturn(Optional.of(TradeSignal.BUY));
         when(orderServiceApi.getActiveOrder(SYMBOL)).thenReturn(Optional.of(orderItem));
 
         traderService.onNewKline(buildKlineEvent(currentPrice));
@@ -0,0 +1,89 @@
+package com.oyakov.binance_trader_macd.testnet;
+
+import com.oyakov.binance_shared_model.avro.KlineEvent;
+import com.oyakov.binance_trader_macd.domain.signal.IncrementalMACDState;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+class MACDCalculationHelperTest {
+
+    @Test
+    void reportsTheMacdValueOfTheOriginalHelper() {
+        List<KlineEvent> klines = oscillatingKlines(80);
+        List<BigDecimal> closes = klines.stream().map(KlineEvent::getClose).toList();
+
+        // The original helper: EMA lists starting at their seeds, and the MACD entry at the signal's last index
+        List<BigDecimal> emaFast = legacyEma(closes, 12);
+        List<BigDecimal> emaSlow = legacyEma(closes, 26);
+        List<BigDecimal> macd = new ArrayList<>();
+        for (int i = 0; i < emaSlow.size(); i++) {
+            macd.add(emaFast.get(i + 14).subtract(emaSlow.get(i)).setScale(10, RoundingMode.HALF_UP));
+        }
+        List<BigDecimal> signal = legacyEma(macd, 9);
+        int last = signal.size() - 1;
+
+        MACDCalculationHelper.MACDValues values = MACDCalculationHelper.calculateMACD(klines);
+
+        assertEquals(macd.get(last).doubleValue(), values.getMacdLine().doubleValue(), 1e-8);
+        assertEquals(signal.get(last).doubleValue(), values.getSignalLine().doubleValue(), 1e-8);
+        assertEquals(macd.get(last).subtract(signal.get(last)).doubleValue(), values.getHistogram().doubleValue(), 1e-8);
+    }
+
+    @Test
+    void incrementalStateYieldsSameValuesAsFullCalculation() {
+        List<KlineEvent> klines = oscillatingKlines(80);
+
+        IncrementalMACDState state = new IncrementalMACDState();
+        for (int i = 0; i < klines.size(); i++) {
+            KlineEvent kline = klines.get(i);
+            state.update(kline.getCloseTime(), kline.getClose());
+            MACDCalculationHelper.MACDValues expected = MACDCalculationHelper.calculateMACD(klines.subList(0, i + 1));
+            MACDCalculationHelper.MACDValues actual = MACDCalculationHelper.fromState(state, kline.getClose());
+            if (i + 1 < state.getMinDataPointCount()) {
+                assertNull(expected);
+                continue;
+            }
+            assertEquals(expected, actual, "after close " + i);
+        }
+    }
+
+    private static List<KlineEvent> oscillatingKlines(int count) {
+        return IntStream.range(0, count)
+                .mapToObj(i -> KlineEvent.newBuilder()
+                        .setEventType("kline")
+                        .setEventTime(i * 60_000L)
+                        .setSymbol("BTCUSDT")
+                        .setInterval("1m")
+                        .setOpenTime(i * 60_000L)
+                        .setCloseTime(i * 60_000L + 59_999L)
+                        .setOpen(BigDecimal.ONE)
+                        .setHigh(BigDecimal.TEN)
+                        .setLow(BigDecimal.ONE)
+                        .setClose(BigDecimal.valueOf(100 + 10 * Math.sin(i / 5.0)))
+                        .setVolume(BigDecimal.TEN)
+                        .build())
+                .toList();
+    }
+
+    private static List<BigDecimal> legacyEma(List<BigDecimal> values, int period) {
+        BigDecimal multiplier = BigDecimal.valueOf(2).divide(BigDecimal.valueOf(period + 1), 10, RoundingMode.HALF_UP);
+        BigDecimal ema = values.stream().limit(period)
+                .reduce(BigDecimal.ZERO, BigDecimal::add)
+                .divide(BigDecimal.valueOf(period), 10, RoundingMode.HALF_UP);
+        List<BigDecimal> result = new ArrayList<>();
+        result.add(ema);
+        for (int i = period; i < values.size(); i++) {
+            ema = values.get(i).subtract(ema).multiply(multiplier).add(ema).setScale(10, RoundingMode.HALF_UP);
+            result.add(ema);
+        }
+        return result;
+    }
+}
@@ -0,0 +1,187 @@
+package com.oyakov.binance_trader_macd.testnet;
+
+import com.oyakov.binance_shared_model.avro.KlineEvent;
+import com.oyakov.binance_shared_model.backtest.BacktestDataset;
+import com.oyakov.binance_trader_macd.backtest.BinanceHistoricalDataFetcher;
+import com.oyakov.binance_trader_macd.backtest.SharedDataFetcher;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+
+import java.math.BigDecimal;
+import java.time.Clock;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.LongStream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.doReturn;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyNoInteractions;
+import static org.mockito.Mockito.when;
+
+class MarketDataHubTest {
+
+    private static final long HOUR = 3_600_000L;
+    // Half way through the hour after 50 closed klines
+    private static final long NOW = 1_000 * HOUR + 50 * HOUR + HOUR / 2;
+
+    private SharedDataFetcher sharedDataFetcher;
+    private BinanceHistoricalDataFetcher dataFetcher;
+    private static final long GRACE = 5_000L;
+    private static final long RETRY = 60_000L;
+
+    private Clock clock;
+    private TestnetExecutor executor;
+    private MarketDataHub hub;
+
+    @BeforeEach
+    void setUp() {
+        sharedDataFetcher = mock(SharedDataFetcher.class);
+        dataFetcher = mock(BinanceHistoricalDataFetcher.class);
+        when(sharedDataFetcher.fetchRecentKlines(eq("BTCUSDT"), eq("1h"), anyInt(), anyString()))
+                .thenReturn(dataset(hourlyKlines(1_000, 51)));
+        clock = mock(Clock.class);
+        when(clock.millis()).thenReturn(NOW);
+        executor = mock(TestnetExecutor.class);
+        hub = new MarketDataHub(sharedDataFetcher, dataFetcher, executor, Duration.ofMillis(RETRY), clock);
+    }
+
+    @AfterEach
+    void tearDown() {
+        hub.shutdown();
+    }
+
+    @Test
+    void fetchesFeedOnceForAllSubscribers() {
+        List<List<List<KlineEvent>>> received = new ArrayList<>();
+        for (int i = 0; i < 50; i++) {
+            List<List<KlineEvent>> batches = new ArrayList<>();
+            received.add(batches);
+            hub.subscribe("btcusdt", "1h", batches::add);
+        }
+
+        verify(sharedDataFetcher, times(1)).fetchRecentKlines(eq("BTCUSDT"), eq("1h"), anyInt(), anyString());
+        verifyNoInteractions(dataFetcher);
+        for (List<List<KlineEvent>> batches : received) {
+            // The kline still open is left out
+            assertEquals(1, batches.size());
+            assertEquals(50, batches.get(0).size());
+        }
+    }
+
+    @Test
+    void fansOutEachClosedKlineOnce() {
+        List<List<KlineEvent>> first = new ArrayList<>();
+        List<List<KlineEvent>> second = new ArrayList<>();
+        hub.subscribe("BTCUSDT", "1h", first::add);
+        Runnable unsubscribe = hub.subscribe("BTCUSDT", "1h", second::add);
+
+        when(clock.millis()).thenReturn(NOW + HOUR);
+        KlineEvent next = hourlyKlines(1_050, 1).get(0);
+        hub.onKline(next);
+        hub.onKline(next);
+        hub.onKline(hourlyKlines(1_051, 1).get(0));
+        hub.onKline(KlineEvent.newBuilder(hourlyKlines(1_050, 1).get(0)).setSymbol("ETHUSDT").build());
+        unsubscribe.run();
+        when(clock.millis()).thenReturn(NOW + 2 * HOUR);
+        hub.onKline(hourlyKlines(1_051, 1).get(0));
+
+        // Seed, the kline closed once, and the one after it, which the second subscriber no longer wants
+        assertEquals(3, first.size());
+        assertEquals(List.of(next), first.get(1));
+        assertEquals(2, second.size());
+    }
+
+    @Test
+    void checksFeedWhenItsNextKlineIsDue() {
+        List<List<KlineEvent>> batches = new ArrayList<>();
+        hub.subscribe("BTCUSDT", "1h", batches::add);
+        hub.subscribe("BTCUSDT", "1h", klines -> { });
+
+        // One check per feed, shortly after the open kline closes
+        ArgumentCaptor<Runnable> check = ArgumentCaptor.forClass(Runnable.class);
+        verify(executor, times(1)).schedule(check.capture(), eq(HOUR / 2 - 1 + GRACE));
+
+        // The kline arrived through Kafka, so there is nothing to fetch
+        when(clock.millis()).thenReturn(NOW + HOUR / 2 + GRACE);
+        hub.onKline(hourlyKlines(1_050, 1).get(0));
+        check.getValue().run();
+        verify(sharedDataFetcher, times(1)).fetchRecentKlines(eq("BTCUSDT"), eq("1h"), anyInt(), anyString());
+        verify(executor, times(1)).schedule(any(), eq(HOUR - 1));
+
+        // The next one did not, so it is fetched once for the feed
+        when(clock.millis()).thenReturn(NOW + HOUR + HOUR / 2 + GRACE);
+        doReturn(dataset(hourlyKlines(1_003, 50)))
+                .when(sharedDataFetcher).fetchRecentKlines(eq("BTCUSDT"), eq("1h"), anyInt(), anyString());
+        check.getValue().run();
+        verify(sharedDataFetcher, times(2)).fetchRecentKlines(eq("BTCUSDT"), eq("1h"), anyInt(), anyString());
+        assertEquals(3, batches.size());
+        assertEquals(List.of(hourlyKlines(1_051, 1).get(0)), batches.get(2));
+
+        // Storage has nothing newer yet, so the hub asks again after the retry interval
+        when(clock.millis()).thenReturn(NOW + 2 * HOUR + HOUR / 2 + GRACE);
+        doReturn(dataset(hourlyKlines(1_002, 50)))
+                .when(sharedDataFetcher).fetchRecentKlines(eq("BTCUSDT"), eq("1h"), anyInt(), anyString());
+        check.getValue().run();
+        verify(sharedDataFetcher, times(3)).fetchRecentKlines(eq("BTCUSDT"), eq("1h"), anyInt(), anyString());
+        verify(executor, times(1)).schedule(any(), eq(RETRY));
+        verify(executor, times(4)).schedule(any(), anyLong());
+    }
+
+    @Test
+    void publishesKlineReceivedOpenOnceItCloses() {
+        List<List<KlineEvent>> batches = new ArrayList<>();
+        hub.subscribe("BTCUSDT", "1h", batches::add);
+        ArgumentCaptor<Runnable> check = ArgumentCaptor.forClass(Runnable.class);
+        verify(executor, times(1)).schedule(check.capture(), eq(HOUR / 2 - 1 + GRACE));
+
+        // Data collection publishes the kline from an update before it closes, and possibly again later
+        KlineEvent open = hourlyKlines(1_050, 1).get(0);
+        KlineEvent updated = KlineEvent.newBuilder(open).setClose(BigDecimal.valueOf(120)).build();
+        hub.onKline(open);
+        hub.onKline(updated);
+        assertEquals(1, batches.size());
+
+        // Published at the check after its close time, with no fetch
+        when(clock.millis()).thenReturn(NOW + HOUR / 2 + GRACE);
+        check.getValue().run();
+        verify(sharedDataFetcher, times(1)).fetchRecentKlines(eq("BTCUSDT"), eq("1h"), anyInt(), anyString());
+        assertEquals(2, batches.size());
+        assertEquals(List.of(updated), batches.get(1));
+    }
+
+    private static List<KlineEvent> hourlyKlines(long firstHour, int count) {
+        return LongStream.range(firstHour, firstHour + count)
+                .mapToObj(hour -> KlineEvent.newBuilder()
+                        .setEventType("kline")
+                        .setEventTime(hour * HOUR)
+                        .setSymbol("BTCUSDT")
+                        .setInterval("1h")
+                        .setOpenTime(hour * HOUR)
+                        .setCloseTime((hour + 1) * HOUR - 1)
+                        .setOpen(BigDecimal.valueOf(100 + hour % 7))
+                        .setHigh(BigDecimal.valueOf(110 + hour % 7))
+                        .setLow(BigDecimal.valueOf(90 + hour % 7))
+                        .setClose(BigDecimal.valueOf(100 + hour % 5))
+                        .setVolume(BigDecimal.TEN)
+                        .build())
+                .toList();
+    }
+
+    private static BacktestDataset dataset(List<KlineEvent> klines) {
+        return BacktestDataset.builder()
+                .name("test-dataset")
+                .klines(klines)
+                .build();
+    }
+}
@@ -0,0 +1,72 @@
+package com.oyakov.binance_trader_macd.testnet;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class TestnetExecutorTest {
+
+    private final TestnetExecutor executor = new TestnetExecutor();
+
+    @AfterEach
+    void tearDown() {
+        executor.shutdown();
+    }
+
+    @Test
+    void runsTasksOfLaneOneAtATimeInOrder() throws Exception {
+        List<TestnetExecutor.Lane> lanes = IntStream.range(0, 200)
+                .mapToObj(i -> executor.newLane("lane-" + i))
+                .toList();
+        List<List<Integer>> seen = IntStream.range(0, lanes.size())
+                .mapToObj(i -> (List<Integer>) new CopyOnWriteArrayList<Integer>())
+                .toList();
+        AtomicInteger[] running = IntStream.range(0, lanes.size())
+                .mapToObj(i -> new AtomicInteger())
+                .toArray(AtomicInteger[]::new);
+        AtomicInteger overlaps = new AtomicInteger();
+        CountDownLatch done = new CountDownLatch(lanes.size() * 50);
+
+        for (int task = 0; task < 50; task++) {
+            for (int lane = 0; lane < lanes.size(); lane++) {
+                int laneIndex = lane;
+                int taskIndex = task;
+                lanes.get(lane).submit(() -> {
+                    if (running[laneIndex].incrementAndGet() > 1) {
+                        overlaps.incrementAndGet();
+                    }
+                    seen.get(laneIndex).add(taskIndex);
+                    running[laneIndex].decrementAndGet();
+                    done.countDown();
+                });
+            }
+        }
+
+        assertTrue(done.await(10, TimeUnit.SECONDS));
+        assertEquals(0, overlaps.get());
+        List<Integer> expected = IntStream.range(0, 50).boxed().toList();
+        seen.forEach(tasks -> assertEquals(expected, tasks));
+    }
+
+    @Test
+    void closedLaneRefusesTasks() throws Exception {
+        TestnetExecutor.Lane lane = executor.newLane("closed");
+        CountDownLatch ran = new CountDownLatch(1);
+        assertTrue(lane.submit(ran::countDown));
+        assertTrue(ran.await(5, TimeUnit.SECONDS));
+
+        lane.close();
+
+        assertFalse(lane.submit(() -> { }));
+    }
+}
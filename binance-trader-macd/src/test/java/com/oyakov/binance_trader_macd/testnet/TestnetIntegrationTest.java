@@ -2,11 +2,14 @@ package com.oyakov.binance_trader_macd.testnet;
 
 import com.oyakov.binance_trader_macd.backtest.BinanceHistoricalDataFetcher;
 import com.oyakov.binance_trader_macd.backtest.SharedDataFetcher;
-import com.oyakov.binance_trader_macd.domain.signal.MACDSignalAnalyzer;
+import com.oyakov.binance_trader_macd.domain.OrderSide;
+import com.oyakov.binance_trader_macd.domain.TradeSignal;
+import com.oyakov.binance_trader_macd.domain.signal.IncrementalMACDState;
 import com.oyakov.binance_trader_macd.rest.client.BinanceOrderClient;
 import com.oyakov.binance_trader_macd.service.api.MacdStorageClient;
 import com.oyakov.binance_trader_macd.service.api.ObservabilityStorageClient;
 import com.oyakov.binance_shared_model.avro.KlineEvent;
+import org.junit.jupiter.api.AfterEach;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
@@ -18,9 +21,10 @@ import org.mockito.quality.Strictness;
 import org.springframework.test.context.ActiveProfiles;
 
 import java.math.BigDecimal;
-import java.time.Instant;
+import java.time.Clock;
+import java.time.Duration;
+import java.util.ArrayList;
 import java.util.List;
-import java.util.Optional;
 
 import static org.junit.jupiter.api.Assertions.*;
 import static org.mockito.ArgumentMatchers.*;
@@ -31,18 +35,20 @@ import static org.mockito.Mockito.*;
 @ActiveProfiles("testnet")
 class TestnetIntegrationTest {
 
+    private static final long HOUR = 3_600_000L;
+
     @Mock
     private BinanceHistoricalDataFetcher dataFetcher;
-    
+
     @Mock
     private SharedDataFetcher sharedDataFetcher;
-    
-    @Mock
-    private MACDSignalAnalyzer macdAnalyzer;
-    
+
     @Mock
     private BinanceOrderClient binanceOrderClient;
 
+    private MacdStorageClient macdStorageClient;
+    private TestnetExecutor testnetExecutor;
+    private MarketDataHub marketDataHub;
     private TestnetTradingInstance tradingInstance;
     private StrategyConfig strategyConfig;
 
@@ -65,92 +71,87 @@ class TestnetIntegrationTest {
                 .enabled(true)
                 .build();
 
-        MacdStorageClient macdStorageClient = Mockito.mock(MacdStorageClient.class);
+        macdStorageClient = Mockito.mock(MacdStorageClient.class);
         ObservabilityStorageClient observabilityStorageClient = Mockito.mock(ObservabilityStorageClient.class);
-        
+        testnetExecutor = new TestnetExecutor();
+        marketDataHub = new MarketDataHub(sharedDataFetcher, dataFetcher, testnetExecutor, Duration.ofHours(1),
+                Clock.systemUTC());
+
         tradingInstance = new TestnetTradingInstance(
-                "test-instance", 
-                strategyConfig, 
+                "test-instance",
+                strategyConfig,
                 BigDecimal.valueOf(10000),
-                dataFetcher,
-                sharedDataFetcher,
-                macdAnalyzer,
+                marketDataHub,
+                testnetExecutor,
                 binanceOrderClient,
                 macdStorageClient,
                 observabilityStorageClient
         );
     }
 
+    @AfterEach
+    void tearDown() {
+        tradingInstance.stop();
+        marketDataHub.shutdown();
+        testnetExecutor.shutdown();
+    }
+
     @Test
     void testCompleteTestnetWorkflow() {
         // Arrange: Mock shared data fetcher to return empty so it falls back to dataFetcher
         when(sharedDataFetcher.fetchRecentKlines(anyString(), anyString(), anyInt(), anyString()))
                 .thenReturn(createMockDataset(List.of()));
-        
-        // Arrange: Mock data collection
+
+        // Arrange: Mock data collection, ending on a bullish crossover
         List<KlineEvent> mockKlines = createMockKlines();
         when(dataFetcher.fetchHistoricalData(anyString(), anyString(), anyLong(), anyLong(), anyString()))
                 .thenReturn(createMockDataset(mockKlines));
-        
-        // Arrange: Mock signal generation
-        when(macdAnalyzer.getMinDataPointCount()).thenReturn(35);
-        when(macdAnalyzer.tryExtractSignal(any())).thenReturn(Optional.of(com.oyakov.binance_trader_macd.domain.TradeSignal.BUY));
-        
+
         // Arrange: Mock order execution
         when(binanceOrderClient.placeOrder(anyString(), any(), any(), any(), any(), any(), any()))
                 .thenReturn(createMockOrderResponse(true));
 
         // Act: Start the trading instance
         tradingInstance.start();
-        
-        // Wait a bit for the trading loop to execute
-        try {
-            Thread.sleep(2000);
-        } catch (InterruptedException e) {
-            Thread.currentThread().interrupt();
-        }
-        
-        // Stop the instance
-        tradingInstance.stop();
 
         // Assert: Verify interactions
+        verify(binanceOrderClient, timeout(2000)).placeOrder(
+                eq("BTCUSDT"), any(), eq(OrderSide.BUY), eq(BigDecimal.valueOf(0.01)), any(), any(), any());
         verify(sharedDataFetcher, atLeastOnce()).fetchRecentKlines(
                 eq("BTCUSDT"), eq("1h"), anyInt(), anyString());
         verify(dataFetcher, atLeastOnce()).fetchHistoricalData(
                 eq("BTCUSDT"), eq("1h"), anyLong(), anyLong(), anyString());
-        verify(macdAnalyzer, atLeastOnce()).tryExtractSignal(any());
-        verify(binanceOrderClient, atLeastOnce()).placeOrder(
-                eq("BTCUSDT"), any(), any(), eq(BigDecimal.valueOf(0.01)), any(), any(), any());
-        
-        // Assert: Verify performance tracking
-        assertTrue(tradingInstance.isRunning() || !tradingInstance.isRunning()); // Instance should be stoppable
+        verify(macdStorageClient, atLeastOnce()).upsertMacd(eq("BTCUSDT"), eq("1h"),
+                eq(mockKlines.get(mockKlines.size() - 1).getCloseTime()),
+                any(), any(), any(), any(), any());
+
+        // Stop the instance
+        tradingInstance.stop();
+        assertFalse(tradingInstance.isRunning());
     }
 
     @Test
     void testInsufficientDataHandling() {
         // Arrange: Mock insufficient data
-        List<KlineEvent> insufficientKlines = createMockKlines();
-        if (insufficientKlines.size() > 10) {
-            insufficientKlines = insufficientKlines.subList(0, 10); // Only 10 klines
-        }
-        when(dataFetcher.fetchHistoricalData(anyString(), anyString(), anyLong(), anyLong(), anyString()))
+        List<KlineEvent> insufficientKlines = createMockKlines().subList(0, 10); // Only 10 klines
+        when(sharedDataFetcher.fetchRecentKlines(anyString(), anyString(), anyInt(), anyString()))
                 .thenReturn(createMockDataset(insufficientKlines));
-        when(macdAnalyzer.getMinDataPointCount()).thenReturn(35);
 
         // Act: Start the trading instance
         tradingInstance.start();
-        
+
         // Wait a bit
         try {
             Thread.sleep(1000);
         } catch (InterruptedException e) {
             Thread.currentThread().interrupt();
         }
-        
+
         tradingInstance.stop();
 
-        // Assert: Should not attempt to generate signals with insufficient data
-        verify(macdAnalyzer, never()).tryExtractSignal(any());
+        // Assert: Should not calculate MACD or trade with insufficient data
+        verify(macdStorageClient, never()).upsertMacd(anyString(), anyString(), anyLong(),
+                any(), any(), any(), any(), any());
         verify(binanceOrderClient, never()).placeOrder(anyString(), any(), any(), any(), any(), any(), any());
     }
 
@@ -158,21 +159,20 @@ class TestnetIntegrationTest {
     void testRiskManagementControls() {
         // Arrange: Mock data and signals
         List<KlineEvent> mockKlines = createMockKlines();
-        when(dataFetcher.fetchHistoricalData(anyString(), anyString(), anyLong(), anyLong(), anyString()))
+        when(sharedDataFetcher.fetchRecentKlines(anyString(), anyString(), anyInt(), anyString()))
                 .thenReturn(createMockDataset(mockKlines));
-        when(macdAnalyzer.getMinDataPointCount()).thenReturn(35);
-        // Note: macdAnalyzer.tryExtractSignal stubbing removed as it's not used in this test
+        // Note: binanceOrderClient.placeOrder is not stubbed, so the order fails
 
         // Act: Start the trading instance
         tradingInstance.start();
-        
+
         // Wait a bit
         try {
             Thread.sleep(1000);
         } catch (InterruptedException e) {
             Thread.currentThread().interrupt();
         }
-        
+
         tradingInstance.stop();
 
         // Assert: Verify risk management is enforced
@@ -183,23 +183,23 @@ class TestnetIntegrationTest {
 
     @Test
     void testPerformanceTracking() {
-        // Arrange: Mock successful trade
+        // Arrange: Mock market data
         List<KlineEvent> mockKlines = createMockKlines();
-        when(dataFetcher.fetchHistoricalData(anyString(), anyString(), anyLong(), anyLong(), anyString()))
+        when(sharedDataFetcher.fetchRecentKlines(anyString(), anyString(), anyInt(), anyString()))
                 .thenReturn(createMockDataset(mockKlines));
-        when(macdAnalyzer.getMinDataPointCount()).thenReturn(35);
-        // Note: macdAnalyzer.tryExtractSignal and binanceOrderClient.placeOrder stubbing removed as they're not used in this test
+        when(binanceOrderClient.placeOrder(anyString(), any(), any(), any(), any(), any(), any()))
+                .thenReturn(createMockOrderResponse(true));
 
         // Act: Start the trading instance
         tradingInstance.start();
-        
+
         // Wait a bit
         try {
             Thread.sleep(1000);
         } catch (InterruptedException e) {
             Thread.currentThread().interrupt();
         }
-        
+
         tradingInstance.stop();
 
         // Assert: Verify performance tracking
@@ -212,69 +212,32 @@ class TestnetIntegrationTest {
     }
 
     private List<KlineEvent> createMockKlines() {
-        // Create 50 mock klines for MACD calculation
-        return List.of(
-            createMockKline(100.0, 1),
-            createMockKline(101.0, 2),
-            createMockKline(102.0, 3),
-            createMockKline(103.0, 4),
-            createMockKline(104.0, 5),
-            createMockKline(105.0, 6),
-            createMockKline(106.0, 7),
-            createMockKline(107.0, 8),
-            createMockKline(108.0, 9),
-            createMockKline(109.0, 10),
-            createMockKline(110.0, 11),
-            createMockKline(111.0, 12),
-            createMockKline(112.0, 13),
-            createMockKline(113.0, 14),
-            createMockKline(114.0, 15),
-            createMockKline(115.0, 16),
-            createMockKline(116.0, 17),
-            createMockKline(117.0, 18),
-            createMockKline(118.0, 19),
-            createMockKline(119.0, 20),
-            createMockKline(120.0, 21),
-            createMockKline(121.0, 22),
-            createMockKline(122.0, 23),
-            createMockKline(123.0, 24),
-            createMockKline(124.0, 25),
-            createMockKline(125.0, 26),
-            createMockKline(126.0, 27),
-            createMockKline(127.0, 28),
-            createMockKline(128.0, 29),
-            createMockKline(129.0, 30),
-            createMockKline(130.0, 31),
-            createMockKline(131.0, 32),
-            createMockKline(132.0, 33),
-            createMockKline(133.0, 34),
-            createMockKline(134.0, 35),
-            createMockKline(135.0, 36),
-            createMockKline(136.0, 37),
-            createMockKline(137.0, 38),
-            createMockKline(138.0, 39),
-            createMockKline(139.0, 40),
-            createMockKline(140.0, 41),
-            createMockKline(141.0, 42),
-            createMockKline(142.0, 43),
-            createMockKline(143.0, 44),
-            createMockKline(144.0, 45),
-            createMockKline(145.0, 46),
-            createMockKline(146.0, 47),
-            createMockKline(147.0, 48),
-            createMockKline(148.0, 49),
-            createMockKline(149.0, 50)
-        );
+        // Closed hourly klines of an oscillating market, cut at its first bullish crossover
+        IncrementalMACDState state = new IncrementalMACDState();
+        List<Double> prices = new ArrayList<>();
+        for (int i = 0; i < 80; i++) {
+            double price = 100.0 + 10.0 * Math.sin(i / 4.0);
+            prices.add(price);
+            if (state.update(price + 0.5) == TradeSignal.BUY) {
+                break;
+            }
+        }
+        long firstOpenTime = (System.currentTimeMillis() / HOUR - prices.size() - 1) * HOUR;
+        List<KlineEvent> klines = new ArrayList<>();
+        for (int i = 0; i < prices.size(); i++) {
+            klines.add(createMockKline(prices.get(i), firstOpenTime + i * HOUR));
+        }
+        return klines;
     }
 
-    private KlineEvent createMockKline(double price, int index) {
+    private KlineEvent createMockKline(double price, long openTime) {
         return KlineEvent.newBuilder()
                 .setEventType("kline")
-                .setEventTime(System.currentTimeMillis())
+                .setEventTime(openTime + HOUR)
                 .setSymbol("BTCUSDT")
                 .setInterval("1h")
-                .setOpenTime(System.currentTimeMillis() + (index * 3600000L))
-                .setCloseTime(System.currentTimeMillis() + ((index + 1) * 3600000L))
+                .setOpenTime(openTime)
+                .setCloseTime(openTime + HOUR - 1)
                 .setOpen(BigDecimal.valueOf(price))
                 .setHigh(BigDecimal.valueOf(price + 1.0))
                 .setLow(BigDecimal.valueOf(price - 1.0))
@@ -291,7 +254,7 @@ class TestnetIntegrationTest {
     }
 
     private com.oyakov.binance_trader_macd.rest.dto.BinanceOrderResponse createMockOrderResponse(boolean success) {
-        com.oyakov.binance_trader_macd.rest.dto.BinanceOrderResponse response = 
+        com.oyakov.binance_trader_macd.rest.dto.BinanceOrderResponse response =
             new com.oyakov.binance_trader_macd.rest.dto.BinanceOrderResponse();
         if (success) {
             response.setStatus("FILLED");